@@ -0,0 +1,46 @@
+/*
+ * www.ichmags.net - Backgammon
+ */
+package net.ichmags.backgammon.benchmark;
+
+import java.util.Arrays;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs all benchmarks with the {@link GCProfiler} (allocation rate per operation) and writes the results
+ * as JSON, so runs of different versions can be compared.
+ * <p>
+ * Usage: {@code java -jar target/benchmarks.jar [result file] [JMH options]}; the default result file is
+ * {@code jmh-result.json}. All JMH command line options are supported, e.g. {@code -p scenario=FEVGA_DOUBLES}.
+ * 
+ * @author Anastasios Patrikis
+ */
+public class BenchmarkRunner {
+	
+	public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+		String resultFile = "jmh-result.json";
+		String[] jmhArgs = args;
+		if(args.length > 0 && !args[0].startsWith("-")) {
+			resultFile = args[0];
+			jmhArgs = Arrays.copyOfRange(args, 1, args.length);
+		}
+		
+		Options options = new OptionsBuilder()
+				.parent(new CommandLineOptions(jmhArgs))
+				.include("net\\.ichmags\\.backgammon\\.benchmark\\..*Benchmark.*")
+				.addProfiler(GCProfiler.class)
+				.resultFormat(ResultFormatType.JSON)
+				.result(resultFile)
+				.build();
+		
+		new Runner(options).run();
+	}
+}
@@ -0,0 +1,60 @@
+/*
+ * www.ichmags.net - Backgammon
+ */
+package net.ichmags.backgammon.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import net.ichmags.backgammon.setup.IDices;
+import net.ichmags.backgammon.strategy.BoardGenerator;
+import net.ichmags.backgammon.strategy.BoardMovesCombination;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link BoardGenerator#generateBoards(net.ichmags.backgammon.setup.IPlayer, net.ichmags.backgammon.game.IGame,
+ * net.ichmags.backgammon.setup.IBoard, IDices)} for each {@link Scenario}, with and without pruning transpositions.
+ * 
+ * @author Anastasios Patrikis
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class BoardGeneratorBenchmark {
+	
+	@Param
+	public Scenario scenario;
+	
+	@Param({"false", "true"})
+	public boolean pruneTranspositions;
+	
+	private Scenario.Setup setup;
+	private IDices dices;
+	private BoardGenerator generator;
+	
+	@Setup
+	public void setUp() {
+		setup = scenario.create();
+		dices = setup.dicesChoice.getOption1();
+		generator = new BoardGenerator(new NoOpNotificationEmitter()).setPruneTranspositions(pruneTranspositions);
+	}
+	
+	@Benchmark
+	public List<BoardMovesCombination> generateBoards() {
+		return generator.generateBoards(setup.player, setup.game, setup.board, dices);
+	}
+}
@@ -0,0 +1,64 @@
+/*
+ * www.ichmags.net - Backgammon
+ */
+package net.ichmags.backgammon.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import net.ichmags.backgammon.exception.ExitException;
+import net.ichmags.backgammon.game.impl.ComputerPlayer;
+import net.ichmags.backgammon.setup.IBoard;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures a complete turn of the {@link ComputerPlayer} (generation, evaluation and replay) for each {@link Scenario}.
+ * The turn is played on a fresh copy of the {@link IBoard}, which is taken inside the measured method:
+ * a {@link Level#Invocation} setup adds timestamping overhead that distorts turns below one millisecond.
+ * {@link #cloneBoard()} measures the copy alone, subtract it from {@link #play()} for the time of the turn.
+ * 
+ * @author Anastasios Patrikis
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class ComputerPlayerBenchmark {
+	
+	@Param
+	public Scenario scenario;
+	
+	private Scenario.Setup setup;
+	private ComputerPlayer computerPlayer;
+	private NoOpNotificationEmitter notificationEmitter;
+	
+	@Setup(Level.Trial)
+	public void setUpTrial() {
+		setup = scenario.create();
+		computerPlayer = new ComputerPlayer();
+		notificationEmitter = new NoOpNotificationEmitter();
+	}
+	
+	@Benchmark
+	public boolean play() throws ExitException {
+		return computerPlayer.play(setup.player, setup.game, setup.board.clone(), setup.dicesChoice, notificationEmitter);
+	}
+	
+	@Benchmark
+	public IBoard cloneBoard() {
+		return setup.board.clone();
+	}
+}
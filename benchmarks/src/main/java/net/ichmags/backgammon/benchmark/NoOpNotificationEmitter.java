@@ -0,0 +1,31 @@
+/*
+ * www.ichmags.net - Backgammon
+ */
+package net.ichmags.backgammon.benchmark;
+
+import net.ichmags.backgammon.notification.INotification;
+import net.ichmags.backgammon.notification.INotificationConsumer;
+import net.ichmags.backgammon.notification.INotificationEmitter;
+
+/**
+ * An {@link INotificationEmitter} without consumers, so the benchmarks measure the computer player only.
+ * 
+ * @author Anastasios Patrikis
+ */
+public class NoOpNotificationEmitter implements INotificationEmitter {
+	
+	@Override
+	public INotificationEmitter addConsumer(INotificationConsumer consumer) {
+		return this;
+	}
+	
+	@Override
+	public INotificationEmitter removeConsumer(INotificationConsumer consumer) {
+		return this;
+	}
+	
+	@Override
+	public INotificationEmitter emitNotification(INotification notification) {
+		return this;
+	}
+}
@@ -0,0 +1,203 @@
+/*
+ * www.ichmags.net - Backgammon
+ */
+package net.ichmags.backgammon.benchmark;
+
+import java.util.Arrays;
+import java.util.List;
+
+import net.ichmags.backgammon.game.IGame;
+import net.ichmags.backgammon.game.impl.Fevga;
+import net.ichmags.backgammon.game.impl.Plakoto;
+import net.ichmags.backgammon.game.impl.Portes;
+import net.ichmags.backgammon.setup.CheckerColor;
+import net.ichmags.backgammon.setup.IBoard;
+import net.ichmags.backgammon.setup.IDices;
+import net.ichmags.backgammon.setup.IPlayer;
+import net.ichmags.backgammon.setup.impl.DiceGenerator;
+import net.ichmags.backgammon.setup.impl.Dices;
+import net.ichmags.backgammon.setup.impl.DicesChoice;
+import net.ichmags.backgammon.setup.impl.Player;
+
+/**
+ * The fixed positions and {@link IDices} rolls used by the benchmarks.
+ * Each {@code Scenario} combines a {@link IGame} type with a class of roll, so results can be
+ * compared between versions.
+ * 
+ * @author Anastasios Patrikis
+ */
+public enum Scenario {
+	
+	PORTES_DOUBLES(GameType.PORTES, new int[]{6, 6},
+			Arrays.asList(2, 2, 5, 5, 14, 14, 18, 18), Arrays.asList(1, 1, 3, 3, 5, 8, 12, 12, 14, 14, 17, 19, 19, 20, 22)),
+	PORTES_NON_DOUBLES(GameType.PORTES, new int[]{6, 4},
+			Arrays.asList(2, 2, 5, 5, 14, 14, 18, 18), Arrays.asList(3, 3, 5, 14, 14, 19)),
+	PORTES_BAR_ENTRY(GameType.PORTES, new int[]{5, 3},
+			Arrays.asList(2, 2, 5, 5, 14, 14, 18, 18), Arrays.asList(0, 0, 3, 3, 5, 14, 14, 19)),
+	PLAKOTO_DOUBLES(GameType.PLAKOTO, new int[]{5, 5},
+			Arrays.asList(1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 6, 8, 12, 13, 13), Arrays.asList(1, 1, 1, 1, 1, 1, 1, 1, 1, 4, 7, 9, 11, 11, 16)),
+	PLAKOTO_NON_DOUBLES(GameType.PLAKOTO, new int[]{5, 2},
+			Arrays.asList(1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 6, 8, 12, 13, 13), Arrays.asList(1, 1, 1, 1, 1, 1, 1, 1, 1, 4, 7, 9, 11, 11, 16)),
+	FEVGA_DOUBLES(GameType.FEVGA, new int[]{6, 6},
+			Arrays.asList(1, 1, 3, 4, 5, 7, 7, 8, 9, 14, 15, 16, 17, 23, 24), Arrays.asList(1, 1, 1, 1, 1, 1, 1, 1, 2, 3, 5, 6, 9, 10, 11)),
+	FEVGA_NON_DOUBLES(GameType.FEVGA, new int[]{6, 3},
+			Arrays.asList(1, 1, 3, 4, 5, 7, 7, 8, 9, 14, 15, 16, 17, 23, 24), Arrays.asList(1, 1, 1, 1, 1, 1, 1, 1, 2, 3, 5, 6, 9, 10, 11)),
+	FEVGA_FORCED_SINGLE(GameType.FEVGA, new int[]{1, 2},
+			Arrays.asList(1, 1, 3, 4, 5, 7, 7, 8, 9, 14, 15, 16, 17, 23, 24), Arrays.asList(1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 14, 14, 14, 14, 23));
+	
+	private enum GameType { PORTES, PLAKOTO, FEVGA }
+	
+	private final GameType gameType;
+	private final int[] dices;
+	private final List<Integer> positionsPlayer1;
+	private final List<Integer> positionsPlayer2;
+	
+	private Scenario(GameType gameType, int[] dices, List<Integer> positionsPlayer1, List<Integer> positionsPlayer2) {
+		this.gameType = gameType;
+		this.dices = dices;
+		this.positionsPlayer1 = positionsPlayer1;
+		this.positionsPlayer2 = positionsPlayer2;
+	}
+	
+	/**
+	 * Create the {@link IGame}, the {@link IPlayer}s and the {@link IDices} of the {@code Scenario}.
+	 * The computer {@link IPlayer} is {@link IPlayer.ID#TWO}.
+	 * 
+	 * @return the initialized {@link Setup}.
+	 */
+	public Setup create() {
+		IPlayer player1 = new Player().initialize("Benchmark 1", IPlayer.ID.ONE, IPlayer.Type.LOCAL, Player.Level.AVERAGE, CheckerColor.WHITE);
+		IPlayer player2 = new Player().initialize("Benchmark 2", IPlayer.ID.TWO, IPlayer.Type.COMPUTER, Player.Level.AVERAGE, CheckerColor.BLACK);
+		
+		BenchmarkGame game;
+		switch(gameType) {
+			case PORTES:
+				game = new BenchmarkPortes(positionsPlayer1, positionsPlayer2);
+				break;
+			case PLAKOTO:
+				game = new BenchmarkPlakoto(positionsPlayer1, positionsPlayer2);
+				break;
+			default:
+				game = new BenchmarkFevga(positionsPlayer1, positionsPlayer2);
+				break;
+		}
+		((IGame)game).initialize(player1, player2, null);
+		
+		DiceGenerator.get().load(dices);
+		IDices rolled = new Dices().roll();
+		
+		return new Setup(player2, (IGame)game, game.getBoard(), game.findPlayableDices(player2, rolled));
+	}
+	
+	/**
+	 * The objects of a {@link Scenario}.
+	 */
+	public static class Setup {
+		public final IPlayer player;
+		public final IGame game;
+		public final IBoard board;
+		public final DicesChoice dicesChoice;
+		
+		Setup(IPlayer player, IGame game, IBoard board, DicesChoice dicesChoice) {
+			this.player = player;
+			this.game = game;
+			this.board = board;
+			this.dicesChoice = dicesChoice;
+		}
+	}
+	
+	private interface BenchmarkGame {
+		IBoard getBoard();
+		DicesChoice findPlayableDices(IPlayer currentPlayer, IDices dices);
+	}
+	
+	private static class BenchmarkPortes extends Portes implements BenchmarkGame {
+		private final List<Integer> positionsPlayer1;
+		private final List<Integer> positionsPlayer2;
+		
+		BenchmarkPortes(List<Integer> positionsPlayer1, List<Integer> positionsPlayer2) {
+			this.positionsPlayer1 = positionsPlayer1;
+			this.positionsPlayer2 = positionsPlayer2;
+		}
+		
+		@Override
+		protected List<Integer> getCheckerPositionsPlayer1() {
+			return positionsPlayer1;
+		}
+		
+		@Override
+		protected List<Integer> getCheckerPositionsPlayer2() {
+			return positionsPlayer2;
+		}
+		
+		@Override
+		public IBoard getBoard() {
+			return this.board;
+		}
+		
+		@Override
+		public DicesChoice findPlayableDices(IPlayer currentPlayer, IDices dices) {
+			return super.findPlayableDices(currentPlayer, dices);
+		}
+	}
+	
+	private static class BenchmarkPlakoto extends Plakoto implements BenchmarkGame {
+		private final List<Integer> positionsPlayer1;
+		private final List<Integer> positionsPlayer2;
+		
+		BenchmarkPlakoto(List<Integer> positionsPlayer1, List<Integer> positionsPlayer2) {
+			this.positionsPlayer1 = positionsPlayer1;
+			this.positionsPlayer2 = positionsPlayer2;
+		}
+		
+		@Override
+		protected List<Integer> getCheckerPositionsPlayer1() {
+			return positionsPlayer1;
+		}
+		
+		@Override
+		protected List<Integer> getCheckerPositionsPlayer2() {
+			return positionsPlayer2;
+		}
+		
+		@Override
+		public IBoard getBoard() {
+			return this.board;
+		}
+		
+		@Override
+		public DicesChoice findPlayableDices(IPlayer currentPlayer, IDices dices) {
+			return super.findPlayableDices(currentPlayer, dices);
+		}
+	}
+	
+	private static class BenchmarkFevga extends Fevga implements BenchmarkGame {
+		private final List<Integer> positionsPlayer1;
+		private final List<Integer> positionsPlayer2;
+		
+		BenchmarkFevga(List<Integer> positionsPlayer1, List<Integer> positionsPlayer2) {
+			this.positionsPlayer1 = positionsPlayer1;
+			this.positionsPlayer2 = positionsPlayer2;
+		}
+		
+		@Override
+		protected List<Integer> getCheckerPositionsPlayer1() {
+			return positionsPlayer1;
+		}
+		
+		@Override
+		protected List<Integer> getCheckerPositionsPlayer2() {
+			return positionsPlayer2;
+		}
+		
+		@Override
+		public IBoard getBoard() {
+			return this.board;
+		}
+		
+		@Override
+		public DicesChoice findPlayableDices(IPlayer currentPlayer, IDices dices) {
+			return super.findPlayableDices(currentPlayer, dices);
+		}
+	}
+}
@@ -0,0 +1,432 @@
+/*
+ * www.ichmags.net - Backgammon
+ */
+package net.ichmags.backgammon.game.impl;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import net.ichmags.backgammon.exception.ExitException;
+import net.ichmags.backgammon.game.IGame;
+import net.ichmags.backgammon.game.IPlay;
+import net.ichmags.backgammon.notification.INotificationEmitter;
+import net.ichmags.backgammon.setup.IBoard;
+import net.ichmags.backgammon.setup.IDicesChoice;
+import net.ichmags.backgammon.setup.IPlayer;
+import net.ichmags.backgammon.strategy.Deadline;
+import net.ichmags.backgammon.strategy.metrics.Histogram;
+import net.ichmags.backgammon.strategy.metrics.HistogramSnapshot;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@code BotTurnService} plays the turns of many {@link IGame}s on a bounded number of threads, instead of
+ * the thread of each caller. {@link #submit(IPlayer, IGame, IBoard, IDicesChoice, INotificationEmitter)} queues
+ * a turn for an {@link IPlay}, e.g. a {@link ComputerPlayer}, and returns at once with a {@link CompletableFuture}.
+ * <p>
+ * The rules for the queued turns:
+ * <ul>
+ * <li>the turn with the earliest {@link Deadline}, i.e. the least remaining budget, is played first; turns with the
+ * same {@link Deadline}, e.g. {@link Deadline#NONE}, are played in the order of submission</li>
+ * <li>an {@link IGame} has at most one queued or running turn, as all turns of an {@link IGame} work on the same
+ * {@link IBoard}; together with the order of submission, every {@link IGame} gets its turn in a round</li>
+ * <li>when the queue is full, a turn is rejected with a {@link RejectedExecutionException} instead of blocking the
+ * caller, so the host can slow down or shed load</li>
+ * <li>a {@link ComputerPlayer} plays within the {@link Deadline} of the submission, so the time spent in the queue
+ * counts against the budget of the turn</li>
+ * </ul>
+ * The turns run on a work-stealing {@link ForkJoinPool}. With {@code virtualThreads}, each turn runs on its own
+ * virtual thread, limited to the same number of turns at a time; this needs a JDK with virtual threads, see
+ * {@link #isVirtualThreadsSupported()}. The {@link ComputerPlayer} keeps its working objects per thread, so the
+ * virtual threads suit {@link IPlay} implementations that mostly wait, e.g. for a remote player.
+ * <p>
+ * The wait times, overall and per {@link IGame}, and the queue depth are recorded in {@link Histogram}s;
+ * {@link #getFairness()} condenses the wait times per {@link IGame} into one number. The host calls
+ * {@link #removeGame(IGame)} when an {@link IGame} has ended.
+ *
+ * @author Anastasios Patrikis
+ */
+public class BotTurnService implements AutoCloseable {
+
+	private static final Logger LOG = LoggerFactory.getLogger(BotTurnService.class);
+
+	private static final Method VIRTUAL_THREAD_FACTORY = findVirtualThreadFactory();
+
+	private final IPlay play;
+	private final ExecutorService executor;
+	private final Semaphore running;
+	private final Semaphore slots;
+	private final PriorityBlockingQueue<Turn> queue;
+	private final Map<IGame, GameState> games;
+	private final AtomicLong sequence;
+	private final long epoch;
+	private final Histogram waits;
+	private final Histogram queueDepths;
+	private final LongAdder rejected;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param play the {@link IPlay} playing the turns; it has to support concurrent calls for different {@link IGame}s.
+	 * @param threads the maximum number of turns played at the same time.
+	 * @param queueCapacity the maximum number of turns waiting to be played.
+	 * @param virtualThreads {@code true} to play each turn on a virtual thread; ignored with a warning if the JDK
+	 * does not support them.
+	 */
+	public BotTurnService(IPlay play, int threads, int queueCapacity, boolean virtualThreads) {
+		if(threads < 1 || queueCapacity < 1) {
+			throw new IllegalArgumentException("Invalid threads " + threads + " or queue capacity " + queueCapacity);
+		}
+		this.play = play;
+		ExecutorService virtualExecutor = virtualThreads ? newVirtualThreadExecutor() : null;
+		if(virtualExecutor != null) {
+			this.executor = virtualExecutor;
+			this.running = new Semaphore(threads);
+		} else {
+			if(virtualThreads) {
+				LOG.warn("Virtual threads are not supported, using a thread pool");
+			}
+			this.executor = new ForkJoinPool(threads, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+			this.running = null; // the parallelism of the pool is the limit
+		}
+		this.slots = new Semaphore(queueCapacity);
+		this.queue = new PriorityBlockingQueue<>(Math.min(queueCapacity, 1024));
+		this.games = new IdentityHashMap<>();
+		this.sequence = new AtomicLong();
+		this.epoch = System.nanoTime();
+		this.waits = new Histogram();
+		this.queueDepths = new Histogram();
+		this.rejected = new LongAdder();
+	}
+
+	/**
+	 * Check if the JDK supports virtual threads.
+	 *
+	 * @return {@code true} if {@code Executors.newVirtualThreadPerTaskExecutor()} is available.
+	 */
+	public static boolean isVirtualThreadsSupported() {
+		return VIRTUAL_THREAD_FACTORY != null;
+	}
+
+	/**
+	 * Check if the turns are played on virtual threads.
+	 *
+	 * @return {@code false} for the {@link ForkJoinPool}.
+	 */
+	public boolean isVirtualThreads() {
+		return running != null;
+	}
+
+	/**
+	 * Queue a turn with the {@link Deadline} of the {@link IPlayer.Level}, see {@link Deadline#forLevel(IPlayer.Level)}.
+	 *
+	 * @param player the {@link IPlayer} to move.
+	 * @param game the {@link IGame} played.
+	 * @param board the {@link IBoard} of the {@link IGame}.
+	 * @param dicesChoice the {@link IDicesChoice} to play.
+	 * @param notificationEmitter the {@link INotificationEmitter} of the {@link IGame}.
+	 * @return the {@link CompletableFuture} with the result of {@link IPlay#play(IPlayer, IGame, IBoard, IDicesChoice, INotificationEmitter)};
+	 * completed exceptionally with a {@link RejectedExecutionException} if the queue is full, or with an
+	 * {@link IllegalStateException} if the {@link IGame} has a turn queued or running.
+	 */
+	public CompletableFuture<Boolean> submit(IPlayer player, IGame game, IBoard board, IDicesChoice dicesChoice, INotificationEmitter notificationEmitter) {
+		return submit(player, game, board, dicesChoice, notificationEmitter, Deadline.forLevel(player.getLevel()));
+	}
+
+	/**
+	 * Queue a turn.
+	 *
+	 * @param player the {@link IPlayer} to move.
+	 * @param game the {@link IGame} played.
+	 * @param board the {@link IBoard} of the {@link IGame}.
+	 * @param dicesChoice the {@link IDicesChoice} to play.
+	 * @param notificationEmitter the {@link INotificationEmitter} of the {@link IGame}.
+	 * @param deadline the {@link Deadline} of the turn, which sets the priority in the queue; a {@link ComputerPlayer}
+	 * plays the turn within it.
+	 * @return the {@link CompletableFuture}, see {@link #submit(IPlayer, IGame, IBoard, IDicesChoice, INotificationEmitter)}.
+	 */
+	public CompletableFuture<Boolean> submit(IPlayer player, IGame game, IBoard board, IDicesChoice dicesChoice, INotificationEmitter notificationEmitter, Deadline deadline) {
+		CompletableFuture<Boolean> future = new CompletableFuture<>();
+		if(executor.isShutdown()) {
+			future.completeExceptionally(new RejectedExecutionException("The service is closed"));
+			return future;
+		}
+
+		GameState gameState = getGameState(game);
+		if( ! gameState.busy.compareAndSet(false, true)) {
+			future.completeExceptionally(new IllegalStateException("A turn of the game is already queued"));
+			return future;
+		}
+		if( ! slots.tryAcquire()) {
+			gameState.busy.set(false);
+			rejected.increment();
+			future.completeExceptionally(new RejectedExecutionException("The queue is full"));
+			return future;
+		}
+
+		long submitted = System.nanoTime();
+		long elapsed = submitted - epoch;
+		long remaining = deadline.remainingNanos();
+		long priority = (remaining > Long.MAX_VALUE - elapsed) ? Long.MAX_VALUE : elapsed + remaining;
+		queue.add(new Turn(player, game, board, dicesChoice, notificationEmitter, future, gameState,
+				deadline, priority, sequence.getAndIncrement(), submitted));
+		queueDepths.record(queue.size());
+
+		try {
+			executor.execute(this::playNext);
+		} catch (RejectedExecutionException e) {
+			// closed in the meantime: close() cancels the queued turns
+			cancelQueued();
+		}
+		return future;
+	}
+
+	/**
+	 * Take the turn with the highest priority from the queue and play it. Every submitted turn schedules one
+	 * call, so every turn is played exactly once, but not necessarily by the call it scheduled.
+	 */
+	private void playNext() {
+		if(running != null) {
+			running.acquireUninterruptibly();
+		}
+		try {
+			Turn turn = queue.poll();
+			if(turn == null) {
+				return; // cancelled by close()
+			}
+			slots.release();
+			long wait = System.nanoTime() - turn.submitted;
+			waits.record(wait);
+			turn.gameState.waits.record(wait);
+
+			Boolean result = null;
+			Throwable failure = null;
+			try {
+				result = playTurn(turn);
+			} catch (Throwable e) {
+				failure = e;
+			} finally {
+				// the game is released first: the next turn may be submitted from a callback of the future
+				turn.gameState.busy.set(false);
+			}
+			if(failure == null) {
+				turn.future.complete(result);
+			} else {
+				turn.future.completeExceptionally(failure);
+			}
+		} finally {
+			if(running != null) {
+				running.release();
+			}
+		}
+	}
+
+	private boolean playTurn(Turn turn) throws ExitException {
+		if(play instanceof ComputerPlayer) {
+			return ((ComputerPlayer)play).play(turn.player, turn.game, turn.board, turn.dicesChoice, turn.notificationEmitter, turn.deadline);
+		}
+		return play.play(turn.player, turn.game, turn.board, turn.dicesChoice, turn.notificationEmitter);
+	}
+
+	private GameState getGameState(IGame game) {
+		synchronized (games) {
+			return games.computeIfAbsent(game, key -> new GameState());
+		}
+	}
+
+	private void cancelQueued() {
+		List<Turn> cancelled = new ArrayList<>();
+		queue.drainTo(cancelled);
+		for(Turn turn : cancelled) {
+			slots.release();
+			turn.gameState.busy.set(false);
+			turn.future.cancel(false);
+		}
+	}
+
+	/**
+	 * Forget an {@link IGame} that has ended, including its wait times.
+	 *
+	 * @param game the {@link IGame}.
+	 */
+	public void removeGame(IGame game) {
+		synchronized (games) {
+			games.remove(game);
+		}
+	}
+
+	/**
+	 * Get the number of turns waiting to be played.
+	 *
+	 * @return the current queue depth.
+	 */
+	public int getQueueDepth() {
+		return queue.size();
+	}
+
+	/**
+	 * Get the queue depths seen by the submitted turns, including the submitted turn.
+	 *
+	 * @return the {@link HistogramSnapshot} of the queue depths.
+	 */
+	public HistogramSnapshot getQueueDepths() {
+		return queueDepths.snapshot();
+	}
+
+	/**
+	 * Get the time the turns waited in the queue.
+	 *
+	 * @return the {@link HistogramSnapshot} of the wait times in nanoseconds.
+	 */
+	public HistogramSnapshot getWaits() {
+		return waits.snapshot();
+	}
+
+	/**
+	 * Get the time the turns of one {@link IGame} waited in the queue.
+	 *
+	 * @param game the {@link IGame}.
+	 * @return the {@link HistogramSnapshot} of the wait times in nanoseconds, or {@code null} for an unknown {@link IGame}.
+	 */
+	public HistogramSnapshot getWaits(IGame game) {
+		GameState gameState;
+		synchronized (games) {
+			gameState = games.get(game);
+		}
+		return (gameState == null) ? null : gameState.waits.snapshot();
+	}
+
+	/**
+	 * Get the number of turns rejected because of a full queue.
+	 *
+	 * @return the number of rejected turns.
+	 */
+	public long getRejectedCount() {
+		return rejected.sum();
+	}
+
+	/**
+	 * Get the fairness of the mean wait times of all {@link IGame}s with a played turn, as Jain's index
+	 * {@code (sum x)^2 / (n * sum x^2)}.
+	 *
+	 * @return {@code 1.0} if all {@link IGame}s waited equally long, down to {@code 1/n} if one {@link IGame}
+	 * did all the waiting.
+	 */
+	public double getFairness() {
+		List<GameState> gameStates;
+		synchronized (games) {
+			gameStates = new ArrayList<>(games.values());
+		}
+		double sum = 0.0d;
+		double sumOfSquares = 0.0d;
+		int count = 0;
+		for(GameState gameState : gameStates) {
+			HistogramSnapshot snapshot = gameState.waits.snapshot();
+			if(snapshot.getCount() > 0) {
+				double mean = snapshot.getMean();
+				sum += mean;
+				sumOfSquares += mean * mean;
+				count++;
+			}
+		}
+		return (sumOfSquares == 0.0d) ? 1.0d : (sum * sum) / (count * sumOfSquares);
+	}
+
+	/**
+	 * Stop accepting turns, cancel the queued turns and wait for the running turns to end.
+	 * If the current thread is interrupted while waiting, it returns with the interrupt flag set.
+	 */
+	@Override
+	public void close() {
+		executor.shutdown();
+		cancelQueued();
+		try {
+			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static Method findVirtualThreadFactory() {
+		try {
+			return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+		} catch (NoSuchMethodException e) {
+			return null;
+		}
+	}
+
+	private static ExecutorService newVirtualThreadExecutor() {
+		if(VIRTUAL_THREAD_FACTORY == null) {
+			return null;
+		}
+		try {
+			return (ExecutorService)VIRTUAL_THREAD_FACTORY.invoke(null);
+		} catch (ReflectiveOperationException e) {
+			LOG.warn("Virtual threads cannot be created", e);
+			return null;
+		}
+	}
+
+	/**
+	 * The queue state and the wait times of one {@link IGame}.
+	 */
+	private static final class GameState {
+
+		private final AtomicBoolean busy = new AtomicBoolean();
+		private final Histogram waits = new Histogram();
+	}
+
+	/**
+	 * A queued turn, ordered by the {@link Deadline} and then by the order of submission.
+	 */
+	private static final class Turn implements Comparable<Turn> {
+
+		private final IPlayer player;
+		private final IGame game;
+		private final IBoard board;
+		private final IDicesChoice dicesChoice;
+		private final INotificationEmitter notificationEmitter;
+		private final CompletableFuture<Boolean> future;
+		private final GameState gameState;
+		private final Deadline deadline;
+		private final long priority;
+		private final long sequence;
+		private final long submitted;
+
+		Turn(IPlayer player, IGame game, IBoard board, IDicesChoice dicesChoice, INotificationEmitter notificationEmitter,
+				CompletableFuture<Boolean> future, GameState gameState, Deadline deadline, long priority, long sequence, long submitted) {
+			this.player = player;
+			this.game = game;
+			this.board = board;
+			this.dicesChoice = dicesChoice;
+			this.notificationEmitter = notificationEmitter;
+			this.future = future;
+			this.gameState = gameState;
+			this.deadline = deadline;
+			this.priority = priority;
+			this.sequence = sequence;
+			this.submitted = submitted;
+		}
+
+		@Override
+		public int compareTo(Turn other) {
+			int result = Long.compare(priority, other.priority);
+			return (result != 0) ? result : Long.compare(sequence, other.sequence);
+		}
+	}
+}
@@ -4,14 +4,12 @@
 package net.ichmags.backgammon.game.impl;
 
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Random;
 import java.util.Set;
-import java.util.SortedMap;
-import java.util.TreeMap;
 
 import net.ichmags.backgammon.exception.ExitException;
+import net.ichmags.backgammon.exception.InvalidMoveException;
 import net.ichmags.backgammon.game.ExitLevel;
 import net.ichmags.backgammon.game.IGame;
 import net.ichmags.backgammon.game.IMove;
@@ -19,7 +17,6 @@ import net.ichmags.backgammon.game.IPlay;
 import net.ichmags.backgammon.l10n.LocalizationManager;
 import net.ichmags.backgammon.notification.INotification.Level;
 import net.ichmags.backgammon.notification.INotificationEmitter;
-import net.ichmags.backgammon.notification.pojo.BoardChangedNotification;
 import net.ichmags.backgammon.notification.pojo.DicesChangedNotification;
 import net.ichmags.backgammon.notification.pojo.StringNotification;
 import net.ichmags.backgammon.setup.IBoard;
@@ -28,8 +25,25 @@ import net.ichmags.backgammon.setup.IDicesChoice;
 import net.ichmags.backgammon.setup.IPlayer;
 import net.ichmags.backgammon.strategy.BoardGenerator;
 import net.ichmags.backgammon.strategy.BoardMovesCombination;
+import net.ichmags.backgammon.strategy.CandidateCollector;
+import net.ichmags.backgammon.strategy.Deadline;
+import net.ichmags.backgammon.strategy.EngineContext;
+import net.ichmags.backgammon.strategy.EvaluationCache;
 import net.ichmags.backgammon.strategy.IStrategy;
-import net.ichmags.backgammon.strategy.StrategyManager;
+import net.ichmags.backgammon.strategy.LevelAwareNotificationEmitter;
+import net.ichmags.backgammon.strategy.OpeningBook;
+import net.ichmags.backgammon.strategy.ScoringEngine;
+import net.ichmags.backgammon.strategy.bearoff.BearoffDatabase;
+import net.ichmags.backgammon.strategy.impl.BearoffStrategy;
+import net.ichmags.backgammon.strategy.metrics.EngineInstrumentation;
+import net.ichmags.backgammon.strategy.metrics.IEngineListener;
+import net.ichmags.backgammon.strategy.metrics.IEngineListener.Phase;
+import net.ichmags.backgammon.strategy.race.RaceGenerator;
+import net.ichmags.backgammon.strategy.search.ExpectiminimaxSearch;
+import net.ichmags.backgammon.strategy.search.IPositionEvaluator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Implementation of the {@link IPlay} {@code interface}.
@@ -39,75 +53,276 @@ import net.ichmags.backgammon.strategy.StrategyManager;
  */
 public class ComputerPlayer implements IPlay {
 	
+	private static final Logger LOG = LoggerFactory.getLogger(ComputerPlayer.class);
+	
+	private static final EvaluationCache EVALUATION_CACHE = new EvaluationCache(EvaluationCache.DEFAULT_CAPACITY);
+	
+	// the working objects are reused for all turns on a thread, so hosting many games does not create them per turn
+	private static final ThreadLocal<EngineContext> CONTEXT = ThreadLocal.withInitial(() -> new EngineContext(EVALUATION_CACHE));
+	
+	/**
+	 * The system property to compare every replayed {@link IMove} with the calculated one ({@value #VERIFY_REPLAY_PROPERTY}),
+	 * for debugging the {@link BoardGenerator}.
+	 */
+	public static final String VERIFY_REPLAY_PROPERTY = "net.ichmags.backgammon.replay.verify";
+	
+	private static final boolean VERIFY_REPLAY = Boolean.getBoolean(VERIFY_REPLAY_PROPERTY);
+	
+	private static final BearoffStrategy BEAROFF_STRATEGY = new BearoffStrategy(BearoffDatabase.getDefault());
+	
+	private final Set<IStrategy> strategies;
+	private volatile TurnStatistics lastTurnStatistics;
+	
+	/**
+	 * Constructor: the {@link IStrategy} instances are chosen by the {@link IPlayer.Level} of the {@link IPlayer}.
+	 */
+	public ComputerPlayer() {
+		this(null);
+	}
+	
+	/**
+	 * Constructor with a fixed {@link Set} of {@link IStrategy} instances, e.g. for comparing strategies
+	 * in self-play games.
+	 * 
+	 * @param strategies the {@link IStrategy} instances to use for every {@link IPlayer.Level};
+	 * {@code null} chooses them by the {@link IPlayer.Level}.
+	 */
+	public ComputerPlayer(Set<IStrategy> strategies) {
+		this.strategies = strategies;
+	}
+	
+	/**
+	 * Get the summary of the latest {@link #play(IPlayer, IGame, IBoard, IDicesChoice, INotificationEmitter)} call.
+	 * 
+	 * @return the {@link TurnStatistics}, or {@code null} if no turn was played yet.
+	 */
+	public TurnStatistics getLastTurnStatistics() {
+		return lastTurnStatistics;
+	}
+	
+	/**
+	 * Get the {@link EvaluationCache} shared by all {@code ComputerPlayer} instances.
+	 * 
+	 * @return the {@link EvaluationCache}, e.g. for reading the statistics.
+	 */
+	public static EvaluationCache getEvaluationCache() {
+		return EVALUATION_CACHE;
+	}
+	
 	@Override
 	public boolean play(IPlayer player, IGame game, IBoard board, IDicesChoice dicesChoice, INotificationEmitter notificationEmitter) throws ExitException {
-		SortedMap<Integer, List<BoardMovesCombination>> rankings = new TreeMap<>();
+		// with a budget for the player level, every step stops in time and the best board found so far is played
+		return play(player, game, board, dicesChoice, notificationEmitter, Deadline.forLevel(player.getLevel()));
+	}
+	
+	/**
+	 * Play a turn within a {@link Deadline} that started before, e.g. when the turn was queued by the {@link BotTurnService}.
+	 * 
+	 * @param player the {@link IPlayer} to move.
+	 * @param game the {@link IGame} played.
+	 * @param board the {@link IBoard} of the {@link IGame}.
+	 * @param dicesChoice the {@link IDicesChoice} to play.
+	 * @param notificationEmitter the {@link INotificationEmitter} of the {@link IGame}.
+	 * @param deadline the {@link Deadline} of the turn; every step stops in time and the best board found so far is played.
+	 * @return {@code true} if all {@link net.ichmags.backgammon.setup.IChecker}s of the {@link IPlayer} are collected.
+	 * @throws ExitException if the calculated moves cannot be played.
+	 */
+	public boolean play(IPlayer player, IGame game, IBoard board, IDicesChoice dicesChoice, INotificationEmitter notificationEmitter, Deadline deadline) throws ExitException {
+		long start = System.nanoTime();
+		EngineContext context = CONTEXT.get();
+		LevelAwareNotificationEmitter levelAwareEmitter = LevelAwareNotificationEmitter.wrap(notificationEmitter);
+		IEngineListener engineListener = EngineInstrumentation.getListener();
 		
 		List<IDices> dicesList = dicesChoice.getAsList();
 		
-		// step 1 : calculate moves
-		List<BoardMovesCombination> possibleBoards = new ArrayList<BoardMovesCombination>(50);
-		for(int pos = 0; pos < dicesList.size(); pos++) {
-			possibleBoards.addAll(new BoardGenerator(notificationEmitter).generateBoards(player, game, board, dicesList.get(0)));
+		// step 0 : use the opening book, if it knows the position
+		BoardMovesCombination selection = null;
+		int boardsFound = 0;
+		int uniqueCount = 0;
+		if(dicesList.size() == 1) {
+			selection = OpeningBook.getDefault().play(player, game, board, dicesList.get(0));
 		}
+		long phaseStart = emitPhase(engineListener, Phase.OPENING_BOOK, start);
 		
-		// if the game does not support kicking a checker (which has influence on the strategy to choose)
-		// the equal boards can be removed -> we use the BoardMovesCombination#equals to do this
-		if(!game.hasPosition0()) {
-			Set<BoardMovesCombination> uniqueBoards = new HashSet<BoardMovesCombination>(possibleBoards);
-			possibleBoards.clear(); // NOT #retainAll: BoardMovesCombination#equals does not remove identical boards
-			possibleBoards.addAll(uniqueBoards);
-			notificationEmitter.emitNotification(new StringNotification(Level.INFO,
-					LocalizationManager.get().get("boardgenerator.number_of_boards_for_game", game.getName(), possibleBoards.size()) ));
+		// step 0b : in a pure race the checkers cannot meet any more, so the moves are generated without the
+		// rules for hitting, pinning and blocking, and ranked by the race evaluator instead of the strategies
+		if(selection == null) {
+			RaceGenerator raceGenerator = context.getRaceGenerator(game);
+			selection = raceGenerator.findBest(player, game, board, dicesList);
+			if(selection != null) {
+				boardsFound = raceGenerator.getBoardsFound();
+				uniqueCount = raceGenerator.getUniqueCount();
+				engineListener.boardsGenerated(raceGenerator.getNodesVisited(), boardsFound, uniqueCount);
+				phaseStart = emitPhase(engineListener, Phase.GENERATION, phaseStart);
+			}
 		}
 		
-		Set<IStrategy> strategies = new StrategyManager().getStrategies(player.getLevel());
-		for(IStrategy strategy : strategies) {
-			for(BoardMovesCombination possibleBoard : possibleBoards) {
-				int ranking = strategy.evaluate(player, board, possibleBoard.getBoard(), player.getPlayStyle());
-				
-				List<BoardMovesCombination> equalRanked = rankings.get(ranking);
-				if(!rankings.containsKey(ranking)) {
-					equalRanked = new ArrayList<BoardMovesCombination>(15);
-					rankings.put(ranking, equalRanked);
+		if(selection == null) {
+			// step 1 : calculate moves
+			// the outcomes are streamed into the collector, which copies only boards not seen before; the
+			// compared board state includes position 0, so a kicked checker (which has influence on the
+			// strategy to choose) keeps the boards distinct
+			CandidateCollector collector = context.getCollector();
+			BoardGenerator generator = context.getGenerator(levelAwareEmitter, deadline);
+			long nodes = 0;
+			for(int pos = 0; pos < dicesList.size(); pos++) {
+				if(collector.getDistinct() > 0 && deadline.isExpired()) {
+					break;
 				}
-				equalRanked.add(possibleBoard);
+				boardsFound += generator.generateBoards(player, game, board, dicesList.get(pos), collector);
+				nodes += generator.getNodesVisited();
 			}
+			
+			List<BoardMovesCombination> possibleBoards = collector.getCandidates();
+			uniqueCount = possibleBoards.size();
+			engineListener.boardsGenerated(nodes, boardsFound, uniqueCount);
+			phaseStart = emitPhase(engineListener, Phase.GENERATION, phaseStart);
+			int numberOfBoards = uniqueCount;
+			levelAwareEmitter.emit(Level.INFO,
+					() -> LocalizationManager.get().get("boardgenerator.number_of_boards_for_game", game.getName(), numberOfBoards) );
+			
+			// step 2 : get best moves
+			// all strategies are combined into one normalized, weighted score per board; a single pass keeps the
+			// highest one, equally ranked boards are reservoir sampled so each of them has the same chance to be selected
+			// a race where both players bear off is solved exactly by the bearoff database instead; such a race is
+			// usually played by the race path above, so this is only the fallback when it found no complete move
+			int[] scores;
+			if(BEAROFF_STRATEGY.isApplicable(player, possibleBoards)) {
+				scores = new int[possibleBoards.size()];
+				BEAROFF_STRATEGY.evaluate(player, board, possibleBoards, player.getPlayStyle(), scores);
+			} else {
+				ScoringEngine scoringEngine = (strategies == null)
+						? context.getScoringEngine(player.getLevel(), player.getPlayStyle())
+						: context.getScoringEngine(strategies, player.getPlayStyle());
+				scores = scoringEngine.score(player, board, possibleBoards, deadline);
+				rankBySearch(context, player, game, possibleBoards, scores, deadline);
+			}
+			
+			Random random = context.getRandom();
+			int highestRanking = Integer.MIN_VALUE;
+			int equalRankedCount = 0;
+			for(int pos = 0; pos < possibleBoards.size(); pos++) {
+				int ranking = scores[pos];
+				if(ranking > highestRanking) {
+					highestRanking = ranking;
+					equalRankedCount = 1;
+					selection = possibleBoards.get(pos);
+				} else if(ranking == highestRanking && random.nextInt(++equalRankedCount) == 0) {
+					selection = possibleBoards.get(pos);
+				}
+			}
+			
+			int bestRanking = highestRanking;
+			int bestRankingCount = equalRankedCount;
+			levelAwareEmitter.emit(Level.INFO,
+					() -> LocalizationManager.get().get("game.highest_raking", bestRanking) );
+			levelAwareEmitter.emit(Level.INFO,
+					() -> LocalizationManager.get().get("game.highest_raking_count", bestRankingCount) );
+			phaseStart = emitPhase(engineListener, Phase.EVALUATION, phaseStart);
 		}
+			
+		// step 3 : play best moves
+		// the moves were generated on a copy of this board in this turn, so they are applied as one batch without
+		// comparing every result; consumers are notified once, after the last move
+		notificationEmitter.emitNotification(new DicesChangedNotification(Level.INFO, selection.getDices()));
+		List<IMove> playedMoves = commitMoves(player, game, board, selection, notificationEmitter, VERIFY_REPLAY);
+		notificationEmitter.emitNotification(new MovesPlayedNotification(Level.INFO, player, game, board, selection.getDices(), playedMoves));
+		emitPhase(engineListener, Phase.REPLAY, phaseStart);
 		
-		Integer highestRanking = rankings.lastKey();
-		List<BoardMovesCombination> equalRanked = rankings.get(highestRanking);
-		int equalRankedCount = equalRanked.size();
-		
-		notificationEmitter.emitNotification(new StringNotification(Level.INFO,
-				LocalizationManager.get().get("game.highest_raking", highestRanking) ));
-		notificationEmitter.emitNotification(new StringNotification(Level.INFO,
-				LocalizationManager.get().get("game.highest_raking_count", equalRankedCount) ));
+		lastTurnStatistics = new TurnStatistics(boardsFound, uniqueCount, System.nanoTime() - start, deadline.isExpired());
+		engineListener.turnCompleted(player, lastTurnStatistics.getNanos(), lastTurnStatistics.isDeadlineExpired());
+		LOG.debug("{} turn for {}: {}", game.getName(), player.getID(), lastTurnStatistics);
 		
-		// step 2 : get best moves
-		BoardMovesCombination selection;
-		if(equalRankedCount == 1) {
-			selection = equalRanked.get(0);
-		} else {
-			// as some results seem to be equally good, return an random element
-			int randomChoice = new Random().nextInt(equalRankedCount);
-			selection = equalRanked.get(randomChoice);
-		}
-		
-		// step 3 : play best moves
-		for(IMove move : selection.getMoves().get()) {
-			notificationEmitter.emitNotification(new DicesChangedNotification(Level.INFO, selection.getDices()));
-			
-			IMove controlMoveSuccess = game.moveChecker(player, board, move.getFromPosition(), move.getMoveDistance());
-			if(!controlMoveSuccess.equals(move)) {
+		return game.isAllCheckersCollected(player);
+	}
+	
+	/**
+	 * Apply the {@link IMove}s of the selected {@link BoardMovesCombination} to the {@link IBoard}, all or none:
+	 * if the {@link IGame} rejects a {@link IMove}, the {@link IMove}s applied before are undone. With {@code verify},
+	 * set by the system property {@value #VERIFY_REPLAY_PROPERTY}, every applied {@link IMove} must also be equal to
+	 * the calculated one.
+	 * 
+	 * @param player the {@link IPlayer} to move.
+	 * @param game the {@link IGame} played.
+	 * @param board the {@link IBoard} of the {@link IGame}.
+	 * @param selection the selected {@link BoardMovesCombination}.
+	 * @param notificationEmitter the {@link INotificationEmitter} for reporting a failed replay.
+	 * @param verify {@code true} to compare every applied {@link IMove} with the calculated one.
+	 * @return the applied {@link IMove}s.
+	 * @throws ExitException if the {@link IMove}s cannot be applied; the {@link IBoard} is unchanged.
+	 */
+	static List<IMove> commitMoves(IPlayer player, IGame game, IBoard board, BoardMovesCombination selection, INotificationEmitter notificationEmitter,
+			boolean verify) throws ExitException {
+		List<IMove> moves = selection.getMoves().get();
+		List<IMove> playedMoves = new ArrayList<>(moves.size());
+		for(IMove move : moves) {
+			IMove playedMove = game.moveChecker(player, board, move.getFromPosition(), move.getMoveDistance());
+			if(playedMove.isSuccess()) {
+				playedMoves.add(playedMove);
+			}
+			if(!playedMove.isSuccess() || (verify && !playedMove.equals(move))) {
+				rollback(player, game, board, playedMoves);
 				notificationEmitter.emitNotification(new StringNotification(Level.INFO,
 						LocalizationManager.get().get("game.cannot_replay_calculated_moves") ));
 				throw new ExitException(ExitLevel.GAME);
 			}
-			
-			notificationEmitter.emitNotification(new BoardChangedNotification(Level.INFO, player, game, board));
+		}
+		return playedMoves;
+	}
+	
+	private static void rollback(IPlayer player, IGame game, IBoard board, List<IMove> playedMoves) {
+		for(int pos = playedMoves.size() - 1; pos >= 0; pos--) {
+			try {
+				game.undoMoveCheker(player, board, playedMoves.get(pos).clone());
+			} catch (InvalidMoveException e) {
+				LOG.error("Error playing undo move", e);
+			}
+		}
+	}
+	
+	/**
+	 * Report a completed {@link Phase} to the {@link IEngineListener}.
+	 * 
+	 * @param engineListener the {@link IEngineListener}.
+	 * @param phase the completed {@link Phase}.
+	 * @param phaseStart the {@link System#nanoTime()} when the {@link Phase} started.
+	 * @return the {@link System#nanoTime()} when the {@link Phase} ended, which is the start of the next one.
+	 */
+	private static long emitPhase(IEngineListener engineListener, Phase phase, long phaseStart) {
+		long phaseEnd = System.nanoTime();
+		engineListener.phaseCompleted(phase, phaseEnd - phaseStart);
+		return phaseEnd;
+	}
+	
+	/**
+	 * Players above {@link IPlayer.Level#AVERAGE} look ahead at the replies of the opponent with an
+	 * {@link ExpectiminimaxSearch}. The search value selects the candidate; the strategy score, which may include
+	 * the noise of a placeholder {@link IStrategy}, only ranks candidates with the same search value.
+	 * 
+	 * @param context the {@link EngineContext} of the current thread.
+	 * @param player the {@link IPlayer} to move.
+	 * @param game the {@link IGame} played.
+	 * @param possibleBoards the candidates found by the {@link BoardGenerator}.
+	 * @param scores the scores of the {@link ScoringEngine}, which are replaced by the ranking of the search.
+	 * @param deadline the {@link Deadline} of the turn, which limits the search budget.
+	 */
+	private void rankBySearch(EngineContext context, IPlayer player, IGame game, List<BoardMovesCombination> possibleBoards, int[] scores, Deadline deadline) {
+		int depth = ExpectiminimaxSearch.getDepth(player.getLevel());
+		if(depth < 2 || possibleBoards.size() < 2 || deadline.isExpired()) {
+			return;
 		}
 		
-		return game.isAllCheckersCollected(player);
+		long budgetNanos = Math.min(ExpectiminimaxSearch.getBudgetNanos(), deadline.remainingNanos());
+		ExpectiminimaxSearch search = context.getSearch(game, depth);
+		if(search.search(possibleBoards, player.getID().ordinal(), budgetNanos) < 0) {
+			return;
+		}
+		LOG.debug("Search for {}: depth {}, {} nodes", player.getID(), search.getCompletedDepth(), search.getNodes());
+		
+		double range = IPositionEvaluator.MAX_VALUE - IPositionEvaluator.MIN_VALUE;
+		for(int pos = 0; pos < possibleBoards.size(); pos++) {
+			int searchScore = (int)Math.round((search.getValue(pos) - IPositionEvaluator.MIN_VALUE) / range * ScoringEngine.SCALE);
+			scores[pos] = searchScore * (ScoringEngine.SCALE + 1) + scores[pos];
+		}
 	}
 }
@@ -0,0 +1,63 @@
+/*
+ * www.ichmags.net - Backgammon
+ */
+package net.ichmags.backgammon.game.impl;
+
+import java.util.Collections;
+import java.util.List;
+
+import net.ichmags.backgammon.game.IGame;
+import net.ichmags.backgammon.game.IMove;
+import net.ichmags.backgammon.notification.INotification.Level;
+import net.ichmags.backgammon.notification.pojo.BoardChangedNotification;
+import net.ichmags.backgammon.setup.IBoard;
+import net.ichmags.backgammon.setup.IDices;
+import net.ichmags.backgammon.setup.IPlayer;
+
+/**
+ * The {@code MovesPlayedNotification} is emitted once after the {@link ComputerPlayer} played all {@link IMove}s
+ * of a turn, instead of a {@link BoardChangedNotification} per {@link IMove}. As it is a
+ * {@link BoardChangedNotification}, existing consumers rebuild their view once; consumers that show the
+ * {@link IMove}s read them with {@link #getMoves()}.
+ * 
+ * @author Anastasios Patrikis
+ */
+public class MovesPlayedNotification extends BoardChangedNotification {
+
+	private final IDices dices;
+	private final List<IMove> moves;
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param level the {@link Level} of the notification.
+	 * @param player the {@link IPlayer} who moved.
+	 * @param game the {@link IGame} played.
+	 * @param board the {@link IBoard} after all {@link IMove}s.
+	 * @param dices the {@link IDices} played.
+	 * @param moves the {@link IMove}s, in the order they were played.
+	 */
+	public MovesPlayedNotification(Level level, IPlayer player, IGame game, IBoard board, IDices dices, List<IMove> moves) {
+		super(level, player, game, board);
+		this.dices = dices;
+		this.moves = Collections.unmodifiableList(moves);
+	}
+	
+	/**
+	 * Get the played {@link IDices}.
+	 * 
+	 * @return the {@link IDices}.
+	 */
+	public IDices getDices() {
+		return dices;
+	}
+	
+	/**
+	 * Get the played {@link IMove}s.
+	 * 
+	 * @return the unmodifiable {@link List} of {@link IMove}s, in the order they were played.
+	 */
+	public List<IMove> getMoves() {
+		return moves;
+	}
+}
@@ -0,0 +1,78 @@
+/*
+ * www.ichmags.net - Backgammon
+ */
+package net.ichmags.backgammon.game.impl;
+
+import net.ichmags.backgammon.setup.IBoard;
+import net.ichmags.backgammon.strategy.Deadline;
+
+/**
+ * The {@code TurnStatistics} summarize one turn of the {@link ComputerPlayer}.
+ * They replace a notification per generated {@link IBoard}.
+ * 
+ * @author Anastasios Patrikis
+ */
+public class TurnStatistics {
+
+	private final int boardsFound;
+	private final int uniqueBoards;
+	private final long nanos;
+	private final boolean deadlineExpired;
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param boardsFound the number of {@link IBoard}s found by the generator.
+	 * @param uniqueBoards the number of distinct {@link IBoard}s that were evaluated.
+	 * @param nanos the duration of the turn in nanoseconds.
+	 * @param deadlineExpired {@code true} if the turn was cut short by its {@link Deadline}.
+	 */
+	public TurnStatistics(int boardsFound, int uniqueBoards, long nanos, boolean deadlineExpired) {
+		this.boardsFound = boardsFound;
+		this.uniqueBoards = uniqueBoards;
+		this.nanos = nanos;
+		this.deadlineExpired = deadlineExpired;
+	}
+	
+	/**
+	 * Get the number of {@link IBoard}s found by the generator.
+	 * 
+	 * @return the number of found {@link IBoard}s.
+	 */
+	public int getBoardsFound() {
+		return boardsFound;
+	}
+	
+	/**
+	 * Get the number of distinct {@link IBoard}s that were evaluated.
+	 * 
+	 * @return the number of unique {@link IBoard}s.
+	 */
+	public int getUniqueBoards() {
+		return uniqueBoards;
+	}
+	
+	/**
+	 * Get the duration of the turn.
+	 * 
+	 * @return the duration in nanoseconds.
+	 */
+	public long getNanos() {
+		return nanos;
+	}
+	
+	/**
+	 * Check if the turn was cut short: the best {@link IBoard} found until the {@link Deadline} was played.
+	 * 
+	 * @return {@code true} if the {@link Deadline} expired.
+	 */
+	public boolean isDeadlineExpired() {
+		return deadlineExpired;
+	}
+	
+	@Override
+	public String toString() {
+		return ("TurnStatistics: boards=" + boardsFound + ", unique=" + uniqueBoards + ", ms=" + (nanos / 1_000_000L)
+				+ (deadlineExpired ? ", deadline expired" : ""));
+	}
+}
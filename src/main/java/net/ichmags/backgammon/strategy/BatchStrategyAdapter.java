@@ -0,0 +1,101 @@
+/*
+ * www.ichmags.net - Backgammon
+ */
+package net.ichmags.backgammon.strategy;
+
+import java.util.Arrays;
+import java.util.List;
+
+import net.ichmags.backgammon.setup.IBoard;
+import net.ichmags.backgammon.setup.IPlayer;
+
+/**
+ * The {@code BatchStrategyAdapter} makes an {@link IStrategy} usable as {@link IBatchStrategy}
+ * by calling {@link IStrategy#evaluate(IPlayer, IBoard, IBoard, IPlayer.PlayStyle)} for each candidate.
+ * <p>
+ * This materializes the {@link IBoard} of every candidate via {@link BoardMovesCombination#getBoard()}.
+ * An {@link IStrategy} that does not read the {@link IBoard} after the move should implement
+ * {@link IBatchStrategy} itself to avoid that cost.
+ * <p>
+ * With a {@link Deadline}, the {@link Deadline} is checked before every candidate. Once it expired, the
+ * remaining candidates are not evaluated and get half of {@link IStrategy#getLimit()}, which is neutral within
+ * the range of the {@link IStrategy}. So a turn overruns its {@link Deadline} by one evaluation at most.
+ * 
+ * @author Anastasios Patrikis
+ */
+public class BatchStrategyAdapter implements IBatchStrategy {
+
+	private final IStrategy strategy;
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param strategy the {@link IStrategy} to adapt.
+	 */
+	public BatchStrategyAdapter(IStrategy strategy) {
+		this.strategy = strategy;
+	}
+	
+	/**
+	 * Get an {@link IBatchStrategy} for an {@link IStrategy}.
+	 * 
+	 * @param strategy the {@link IStrategy}.
+	 * @return the {@code strategy} itself if it implements {@link IBatchStrategy}, otherwise an adapter.
+	 */
+	public static IBatchStrategy of(IStrategy strategy) {
+		if(strategy instanceof IBatchStrategy) {
+			return (IBatchStrategy)strategy;
+		}
+		return new BatchStrategyAdapter(strategy);
+	}
+	
+	/**
+	 * Get the adapted {@link IStrategy}.
+	 * 
+	 * @return the {@link IStrategy}.
+	 */
+	public IStrategy getStrategy() {
+		return strategy;
+	}
+	
+	@Override
+	public IPlayer.Level suitableForPlayerLevel() {
+		return strategy.suitableForPlayerLevel();
+	}
+	
+	@Override
+	public IPlayer.PlayStyle suitableForPlayStyle() {
+		return strategy.suitableForPlayStyle();
+	}
+	
+	@Override
+	public int getLimit() {
+		return strategy.getLimit();
+	}
+	
+	@Override
+	public int evaluate(IPlayer player, IBoard boardBefore, IBoard boardAfter, IPlayer.PlayStyle preferedPlayStyle) {
+		return strategy.evaluate(player, boardBefore, boardAfter, preferedPlayStyle);
+	}
+	
+	@Override
+	public void evaluate(IPlayer player, IBoard boardBefore, List<BoardMovesCombination> candidates, IPlayer.PlayStyle preferedPlayStyle, int[] scores) {
+		for(int pos = 0; pos < candidates.size(); pos++) {
+			scores[pos] = strategy.evaluate(player, boardBefore, candidates.get(pos).getBoard(), preferedPlayStyle);
+		}
+	}
+	
+	@Override
+	public void evaluate(IPlayer player, IBoard boardBefore, List<BoardMovesCombination> candidates, IPlayer.PlayStyle preferedPlayStyle, int[] scores, Deadline deadline) {
+		int pos = 0;
+		for(; pos < candidates.size() && ! deadline.isExpired(); pos++) {
+			scores[pos] = strategy.evaluate(player, boardBefore, candidates.get(pos).getBoard(), preferedPlayStyle);
+		}
+		Arrays.fill(scores, pos, candidates.size(), strategy.getLimit() / 2);
+	}
+	
+	@Override
+	public String toString() {
+		return ("BatchStrategyAdapter: " + strategy);
+	}
+}
@@ -4,9 +4,12 @@
 package net.ichmags.backgammon.strategy;
 
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
 
 import net.ichmags.backgammon.exception.InvalidMoveException;
 import net.ichmags.backgammon.game.IGame;
@@ -17,16 +20,12 @@ import net.ichmags.backgammon.l10n.LocalizationManager;
 import net.ichmags.backgammon.notification.INotification;
 import net.ichmags.backgammon.notification.INotification.Level;
 import net.ichmags.backgammon.notification.INotificationEmitter;
-import net.ichmags.backgammon.notification.pojo.StringNotification;
-import net.ichmags.backgammon.reflection.ClassByTypeFinder;
 import net.ichmags.backgammon.setup.IAvailableDices;
 import net.ichmags.backgammon.setup.IBoard;
 import net.ichmags.backgammon.setup.IChecker;
 import net.ichmags.backgammon.setup.IDice;
 import net.ichmags.backgammon.setup.IDices;
 import net.ichmags.backgammon.setup.IPlayer;
-import net.ichmags.backgammon.setup.IPosition;
-import net.ichmags.backgammon.setup.IPositions;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -41,7 +40,20 @@ public class BoardGenerator {
 	
 	private static Logger LOG = LoggerFactory.getLogger(BoardGenerator.class);
 	
-	private INotificationEmitter notificationEmitter;
+	/**
+	 * The default minimum number of estimated recursion nodes for splitting the generation
+	 * into parallel tasks ({@value #DEFAULT_PARALLEL_THRESHOLD}).
+	 */
+	public static final int DEFAULT_PARALLEL_THRESHOLD = 2000;
+	
+	private LevelAwareNotificationEmitter notificationEmitter;
+	private ForkJoinPool forkJoinPool;
+	private int parallelThreshold;
+	private boolean pruneTranspositions;
+	private Deadline deadline;
+	private int boardsFound;
+	private long nodesVisited;
+	private final IMoves scratchMoves;
 	
 	/**
 	 * Constructor.
@@ -50,7 +62,74 @@ public class BoardGenerator {
 	 * {@link INotification} messages.
 	 */
 	public BoardGenerator(INotificationEmitter notificationEmitter) {
-		this.notificationEmitter = notificationEmitter;
+		this(notificationEmitter, null, Integer.MAX_VALUE);
+	}
+	
+	/**
+	 * Constructor for the parallel generation mode: the positions for the first {@link IMove} are split
+	 * into {@link ForkJoinTask}s, each working on its own copy of the {@link IBoard}. The result is
+	 * identical to the sequential generation, including the order of the {@link BoardMovesCombination} items.
+	 * <p>
+	 * The {@link IGame} and the {@link INotificationEmitter} have to support concurrent calls on
+	 * different {@link IBoard} instances.
+	 * 
+	 * @param notificationEmitter the {@link INotificationEmitter} to use for sending
+	 * {@link INotification} messages.
+	 * @param forkJoinPool the {@link ForkJoinPool} to run the tasks; {@code null} disables the parallel mode.
+	 * @param parallelThreshold the minimum number of estimated recursion nodes for forking; cheaper
+	 * {@link IDices} rolls are calculated sequentially.
+	 */
+	public BoardGenerator(INotificationEmitter notificationEmitter, ForkJoinPool forkJoinPool, int parallelThreshold) {
+		this.notificationEmitter = LevelAwareNotificationEmitter.wrap(notificationEmitter);
+		this.forkJoinPool = forkJoinPool;
+		this.parallelThreshold = parallelThreshold;
+		this.pruneTranspositions = false;
+		this.deadline = Deadline.NONE;
+		this.scratchMoves = new Moves();
+	}
+	
+	/**
+	 * Set the {@link INotificationEmitter}, so a {@code BoardGenerator} can be reused for different turns.
+	 * 
+	 * @param notificationEmitter the {@link INotificationEmitter} to use for sending
+	 * {@link INotification} messages.
+	 * @return this {@code BoardGenerator}.
+	 */
+	public BoardGenerator setNotificationEmitter(INotificationEmitter notificationEmitter) {
+		this.notificationEmitter = LevelAwareNotificationEmitter.wrap(notificationEmitter);
+		return this;
+	}
+	
+	/**
+	 * Enable or disable the pruning of transpositions: recursion branches that reach an already visited
+	 * {@link IBoard} constellation with the same remaining {@link IDice} values are not played again.
+	 * When enabled, {@link #generateBoards(IPlayer, IGame, IBoard, IDices)} returns each resulting
+	 * {@link IBoard} only once; the kept {@link BoardMovesCombination} is the first one found.
+	 * <p>
+	 * For {@link IDices} with two different values, the second pass with the reversed order of the {@link IDice}
+	 * values also skips the {@link IMove} pairs that do not interact, as they were already played by the first pass.
+	 * Both passes are still run: the second pass plays every first {@link IMove} again and only leaves out the
+	 * second {@link IMove} of such a pair, so the saving is the share of commuting pairs, not half of the nodes.
+	 * Without pruning every ordered sequence is returned, so nothing is skipped.
+	 * 
+	 * @param pruneTranspositions {@code true} to prune.
+	 * @return this {@code BoardGenerator}.
+	 */
+	public BoardGenerator setPruneTranspositions(boolean pruneTranspositions) {
+		this.pruneTranspositions = pruneTranspositions;
+		return this;
+	}
+	
+	/**
+	 * Set the {@link Deadline} for the generation. When it expires, the recursion stops as soon as at least
+	 * one {@link BoardMovesCombination} was found, and the {@link IBoard}s found so far are returned.
+	 * 
+	 * @param deadline the {@link Deadline}; {@link Deadline#NONE} generates all {@link IBoard}s.
+	 * @return this {@code BoardGenerator}.
+	 */
+	public BoardGenerator setDeadline(Deadline deadline) {
+		this.deadline = deadline;
+		return this;
 	}
 	
 	/**
@@ -65,36 +144,150 @@ public class BoardGenerator {
 	 * to the original {@link IBoard}.
 	 */
 	public List<BoardMovesCombination> generateBoards(IPlayer player, IGame game, IBoard board, IDices dices) {
-		IBoard testBoard = board.clone();
+		List<BoardMovesCombination> generatedBoards = new ArrayList<>(50);
+		if(forkJoinPool == null) {
+			generateBoards(player, game, board, dices, leaf -> generatedBoards.add(leaf.keep()));
+		} else {
+			generateParallel(player, game, board, dices, generatedBoards);
+		}
 		
-		IAvailableDices playableDices = getAvailableDicesInstance().initialize(dices, false);
+		int numberOfBoards = generatedBoards.size();
+		notificationEmitter.emit(Level.INFO,
+				() -> LocalizationManager.get().get("boardgenerator.number_of_boards", numberOfBoards) );
+		return generatedBoards;
+	}
+	
+	/**
+	 * Generate all possible outcomes and pass each of them to an {@link IBoardVisitor}, while it is still on
+	 * the working {@link PackedBoard}. Nothing is copied unless the {@link IBoardVisitor} calls
+	 * {@link GeneratedLeaf#keep()}, so the best candidates can be found without creating all {@link IBoard}s.
+	 * <p>
+	 * The {@link IBoardVisitor} is called on the current thread in the order of the sequential recursion.
+	 * In the parallel generation mode, the {@link BoardMovesCombination} items of the tasks are replayed
+	 * on the {@link PackedBoard} afterwards, so the {@link IBoardVisitor} receives the same outcomes.
+	 * 
+	 * @param player the {@link IPlayer}, which will be a computer.
+	 * @param game the {@link IGame} to play on the {@code Board}.
+	 * @param board the original {@link IBoard}, for which all possible move will be calculated.
+	 * @param dices the {@link IDices} to use for moving the {@link IChecker}.
+	 * @param visitor the {@link IBoardVisitor} receiving every outcome.
+	 * @return the number of outcomes passed to the {@link IBoardVisitor}.
+	 */
+	public int generateBoards(IPlayer player, IGame game, IBoard board, IDices dices, IBoardVisitor visitor) {
+		if(forkJoinPool != null) {
+			List<BoardMovesCombination> generatedBoards = new ArrayList<>(50);
+			generateParallel(player, game, board, dices, generatedBoards);
+			return replay(player, game, board, dices, generatedBoards, visitor);
+		}
 		
-		List<BoardMovesCombination> generatedBoards = new ArrayList<>(50);
-		IMoves movesForBoard = new Moves();
+		IBoard testBoard = board.clone();
+		PackedBoard packedBoard = new PackedBoard(player, game, testBoard);
+		LeafSink sink = new LeafSink(visitor, dices);
+		TranspositionTable transpositions = pruneTranspositions ? new TranspositionTable() : null;
 		
 		// TODO: possible performance optimization
 		// This currently works fine without explicit checking the mandatory moves: they are
 		// checked implicitly by the move() method.
 		
 		if(dices.isDoubleDices()) {
-			findBoardsRecursion(player, game, testBoard, playableDices, generatedBoards, movesForBoard);
+			findBoards(player, game, testBoard, packedBoard, dices, false, transpositions, sink);
 		} else if (dices.usedCount() > 0) {
 			// optimized: since the dice check returns List<IDice> the second pass is only necessary when all dices can be played
-			findBoardsRecursion(player, game, testBoard, playableDices, generatedBoards, movesForBoard);
+			findBoards(player, game, testBoard, packedBoard, dices, false, transpositions, sink);
 		} else {
-			findBoardsRecursion(player, game, testBoard, playableDices, generatedBoards, movesForBoard);
-			
-			playableDices = getAvailableDicesInstance().initialize(dices, true);
-			findBoardsRecursion(player, game, testBoard, playableDices, generatedBoards, movesForBoard);
+			// the independent IMove pairs of the first pass commute: the second pass plays all first IMoves again,
+			// but only the second IMoves of the interacting pairs
+			sink.commutingPairs = pruneTranspositions ? new CommutingPairs(packedBoard.size()) : null;
+			findBoards(player, game, testBoard, packedBoard, dices, false, transpositions, sink);
+			if( ! sink.isStopped()) {
+				if(sink.commutingPairs != null) {
+					sink.commutingPairs.reverse();
+				}
+				findBoards(player, game, testBoard, packedBoard, dices, true, transpositions, sink);
+			}
 		}
 		
-		notificationEmitter.emitNotification(new StringNotification(Level.INFO,
-				LocalizationManager.get().get("boardgenerator.number_of_boards", generatedBoards.size()) ));
+		boardsFound = sink.count;
+		nodesVisited = sink.nodes;
+		return sink.count;
+	}
+	
+	/**
+	 * Generate with the parallel mode for expensive {@link IDices} rolls, see
+	 * {@link #BoardGenerator(INotificationEmitter, ForkJoinPool, int)}.
+	 */
+	private void generateParallel(IPlayer player, IGame game, IBoard board, IDices dices, List<BoardMovesCombination> generatedBoards) {
+		IBoard testBoard = board.clone();
+		PackedBoard packedBoard = new PackedBoard(player, game, testBoard);
+		LeafSink sink = new LeafSink(leaf -> generatedBoards.add(leaf.keep()), dices);
+		TranspositionTable transpositions = pruneTranspositions ? new TranspositionTable() : null;
 		
-		generatedBoards.forEach(item -> item.setDices(dices));
-		return generatedBoards;
+		if(dices.isDoubleDices()) {
+			findBoardsParallel(player, game, testBoard, packedBoard, dices, false, 4, transpositions, sink, generatedBoards);
+		} else if (dices.usedCount() > 0) {
+			findBoardsParallel(player, game, testBoard, packedBoard, dices, false, 1, transpositions, sink, generatedBoards);
+		} else {
+			findBoardsParallel(player, game, testBoard, packedBoard, dices, false, 2, transpositions, sink, generatedBoards);
+			if( ! sink.isStopped()) {
+				findBoardsParallel(player, game, testBoard, packedBoard, dices, true, 2, transpositions, sink, generatedBoards);
+			}
+		}
+		
+		boardsFound = generatedBoards.size();
+		nodesVisited = sink.nodes;
+		if(pruneTranspositions) {
+			// parallel tasks prune independently: keep the first occurrence, like the sequential recursion
+			List<BoardMovesCombination> uniqueBoards = new ArrayList<>(new LinkedHashSet<>(generatedBoards));
+			generatedBoards.clear();
+			generatedBoards.addAll(uniqueBoards);
+		}
+	}
+	
+	/**
+	 * Pass the {@link BoardMovesCombination} items of the parallel generation to an {@link IBoardVisitor}: the
+	 * {@link IMove}s of each item are made on the {@link PackedBoard} of the original {@link IBoard} and
+	 * unmade after the visit.
+	 * 
+	 * @return the number of outcomes passed to the {@link IBoardVisitor}.
+	 */
+	private int replay(IPlayer player, IGame game, IBoard board, IDices dices, List<BoardMovesCombination> generatedBoards, IBoardVisitor visitor) {
+		PackedBoard packedBoard = new PackedBoard(player, game, board.clone());
+		LeafSink sink = new LeafSink(visitor, dices);
+		for(BoardMovesCombination generated : generatedBoards) {
+			List<IMove> moves = generated.getMoves().get();
+			for(IMove move : moves) {
+				packedBoard.make(move.getFromPosition(), move.getMoveDistance().getValue());
+			}
+			sink.accept(packedBoard, generated.getMoves());
+			for(int count = 0; count < moves.size(); count++) {
+				packedBoard.unmake();
+			}
+		}
+		return sink.count;
 	}
 	
+	/**
+	 * Get the number of {@link BoardMovesCombination} items found by the latest call of
+	 * {@link #generateBoards(IPlayer, IGame, IBoard, IDices)}, before removing the duplicates
+	 * of the parallel tasks.
+	 * 
+	 * @return the number of found {@link IBoard}s.
+	 */
+	public int getBoardsFound() {
+		return boardsFound;
+	}
+	
+	/**
+	 * Get the number of {@link IMove}s played by the recursion of the latest generation, including the
+	 * {@link IMove}s leading to a pruned transposition.
+	 * 
+	 * @return the number of recursion nodes.
+	 */
+	public long getNodesVisited() {
+		return nodesVisited;
+	}
+	
+	
 	/**
 	 * Recursion for calculating the possible moves.
 	 * 
@@ -108,49 +301,310 @@ public class BoardGenerator {
 	 * recursion for the creation of {@link BoardMovesCombination} items.
 	 */
 	protected void findBoardsRecursion(IPlayer player, IGame game, IBoard board, IAvailableDices dices, List<BoardMovesCombination> generatedBoards, IMoves movesForBoard) {
-		IPositions positions = board.createPlayerView(player);
-		
+		findBoardsRecursion(player, game, board, new PackedBoard(player, game, board), dices, null, generatedBoards, movesForBoard);
+	}
+	
+	/**
+	 * Recursion for calculating the possible moves, where the {@link IChecker} constellation is tracked
+	 * in a {@link PackedBoard}. The {@link IBoard} is only used for validating the {@link IMove}s.
+	 * 
+	 * @param player the {@link IPlayer}, which will be a computer.
+	 * @param game the {@link IGame} to play on the {@code Board}.
+	 * @param board the {@link IBoard}, for which all possible move will be calculated.
+	 * @param packedBoard the {@link PackedBoard} reflecting the current state of {@code board}.
+	 * @param dices the {@link List} of {@link IDice} values to use for moving the {@link IChecker}.
+	 * @param transpositions the {@link TranspositionTable} for pruning; {@code null} plays all branches.
+	 * @param generatedBoards the {@link Set} of found {@link BoardMovesCombination} items; this is the result
+	 * of the recursion.
+	 * @param movesForBoard the {@link List} of the currently played {@link IMove}s; this is needed during the
+	 * recursion for the creation of {@link BoardMovesCombination} items.
+	 */
+	protected void findBoardsRecursion(IPlayer player, IGame game, IBoard board, PackedBoard packedBoard, IAvailableDices dices, TranspositionTable transpositions, List<BoardMovesCombination> generatedBoards, IMoves movesForBoard) {
+		findBoardsRecursion(player, game, board, packedBoard, dices, transpositions, new LeafSink(leaf -> generatedBoards.add(leaf.keep()), null), movesForBoard);
+	}
+	
+	private void findBoardsRecursion(IPlayer player, IGame game, IBoard board, PackedBoard packedBoard, IAvailableDices dices, TranspositionTable transpositions, LeafSink sink, IMoves movesForBoard) {
 		IDice dice = dices.nextElement();
 		
-		for(Iterator<IPosition> positionIterator = positions.get().iterator(); positionIterator.hasNext(); ) {
-			IPosition position = positionIterator.next();
-			
-			if((position.hasCheckers() == false) || (position.readTopChecker().getOwner().equals(player.getID()) == false)) {
-				continue; // minimum condition not satisfied
+		// only positions passing the MoveTable filter are validated by the IGame, in ascending order
+		int sources = packedBoard.candidateSources(dice.getValue());
+		if(sink.commutingPairs != null) {
+			sources &= ~sink.commutingPairs.getPlayed();
+		}
+		for(; sources != 0; sources &= sources - 1) {
+			int currentPosition = Integer.numberOfTrailingZeros(sources);
+			if(sink.isStopped()) {
+				break; // out of time: keep the boards found so far
 			}
-			int currentPosition = position.getIndexIn(positions);
-			
-			IMove move = game.moveChecker(player, board, currentPosition, dice);
-			if(move.isSuccess()) {
-				movesForBoard.addLatest(move);
-				if( ! dices.hasMoreElements()) {
-					generatedBoards.add(new BoardMovesCombination(board.clone(), movesForBoard.clone()));
-					notificationEmitter.emitNotification(new StringNotification(Level.TRACE,
-							LocalizationManager.get().get("boardgenerator.found_board") ));
-				} else {
-					// recursion: play the next dice
-					findBoardsRecursion(player, game, board, dices, generatedBoards, movesForBoard);
+			playPosition(player, game, board, packedBoard, dices, dice, currentPosition, transpositions, sink, movesForBoard);
+		}
+		
+		dices.reactivateElement();
+	}
+	
+	/**
+	 * Play the {@link IDice} for the {@link IChecker} on one position and continue with the recursion.
+	 * The {@link IBoard} and the {@link PackedBoard} are restored before returning.
+	 * 
+	 * @param player the {@link IPlayer}, which will be a computer.
+	 * @param game the {@link IGame} to play on the {@code Board}.
+	 * @param board the {@link IBoard}, for which all possible move will be calculated.
+	 * @param packedBoard the {@link PackedBoard} reflecting the current state of {@code board}.
+	 * @param dices the {@link IAvailableDices}, where {@code dice} is the currently active element.
+	 * @param dice the {@link IDice} to play.
+	 * @param currentPosition the index of the start position in the player view.
+	 * @param transpositions the {@link TranspositionTable} for pruning; {@code null} plays all branches.
+	 * @param sink the {@link LeafSink} receiving the found outcomes.
+	 * @param movesForBoard the currently played {@link IMove}s.
+	 */
+	private void playPosition(IPlayer player, IGame game, IBoard board, PackedBoard packedBoard, IAvailableDices dices, IDice dice, int currentPosition, TranspositionTable transpositions, LeafSink sink, IMoves movesForBoard) {
+		IMove move = game.moveChecker(player, board, currentPosition, dice);
+		if(move.isSuccess()) {
+			sink.nodes++;
+			CommutingPairs commutingPairs = sink.commutingPairs;
+			boolean independent = (commutingPairs != null) && CommutingPairs.isIndependent(packedBoard, currentPosition, dice.getValue());
+			movesForBoard.addLatest(move);
+			packedBoard.make(currentPosition, dice.getValue());
+			// a transposition is skipped: all boards of this branch were already found
+			boolean unknown = (transpositions == null) || transpositions.enter(packedBoard, dice.getValue());
+			if(commutingPairs != null && ! dices.hasMoreElements()) {
+				commutingPairs.second(currentPosition, dice.getValue(), independent);
+			}
+			if(unknown && ! dices.hasMoreElements()) {
+				sink.accept(packedBoard, movesForBoard);
+				notificationEmitter.emit(Level.TRACE,
+						() -> LocalizationManager.get().get("boardgenerator.found_board") );
+			} else if(unknown) {
+				// recursion: play the next dice
+				if(commutingPairs != null) {
+					commutingPairs.first(currentPosition, dice.getValue(), independent);
 				}
-				// undo move, so the next position can be checked with the same dice
-				try {
-					game.undoMoveCheker(player, board, move.clone());
-					movesForBoard.removeLatest();
-				} catch (InvalidMoveException e) {
-					LOG.error("Error playing undo move", e);
+				findBoardsRecursion(player, game, board, packedBoard, dices, transpositions, sink, movesForBoard);
+				if(commutingPairs != null) {
+					commutingPairs.first(-1, 0, false);
 				}
 			}
+			if(transpositions != null) {
+				transpositions.leave(dice.getValue());
+			}
+			// undo move, so the next position can be checked with the same dice
+			try {
+				packedBoard.unmake();
+				game.undoMoveCheker(player, board, move.clone());
+				movesForBoard.removeLatest();
+			} catch (InvalidMoveException e) {
+				LOG.error("Error playing undo move", e);
+			}
+		}
+	}
+	
+	/**
+	 * Run one pass of the sequential recursion.
+	 * 
+	 * @param player the {@link IPlayer}, which will be a computer.
+	 * @param game the {@link IGame} to play on the {@code Board}.
+	 * @param board the {@link IBoard}, for which all possible move will be calculated.
+	 * @param packedBoard the {@link PackedBoard} reflecting the current state of {@code board}.
+	 * @param dices the {@link IDices} to use for moving the {@link IChecker}.
+	 * @param reverse the order to use the {@link IDice} values, see {@link IAvailableDices#initialize(IDices, boolean)}.
+	 * @param transpositions the {@link TranspositionTable} for pruning; {@code null} plays all branches.
+	 * @param sink the {@link LeafSink} receiving the found outcomes.
+	 */
+	private void findBoards(IPlayer player, IGame game, IBoard board, PackedBoard packedBoard, IDices dices, boolean reverse, TranspositionTable transpositions, LeafSink sink) {
+		IAvailableDices playableDices = getAvailableDicesInstance().initialize(dices, reverse);
+		// the recursion removes every IMove it adds, so the IMoves are empty again afterwards
+		findBoardsRecursion(player, game, board, packedBoard, playableDices, transpositions, sink, scratchMoves);
+	}
+	
+	/**
+	 * Run one pass of the recursion, either sequentially or split into parallel tasks per start position.
+	 * 
+	 * @param player the {@link IPlayer}, which will be a computer.
+	 * @param game the {@link IGame} to play on the {@code Board}.
+	 * @param board the {@link IBoard}, for which all possible move will be calculated.
+	 * @param packedBoard the {@link PackedBoard} reflecting the current state of {@code board}.
+	 * @param dices the {@link IDices} to use for moving the {@link IChecker}.
+	 * @param reverse the order to use the {@link IDice} values, see {@link IAvailableDices#initialize(IDices, boolean)}.
+	 * @param depth the number of {@link IDice} values to play, used to estimate the recursion size.
+	 * @param transpositions the {@link TranspositionTable} for pruning; {@code null} plays all branches.
+	 * @param sink the {@link LeafSink} for the sequential recursion, which adds to {@code generatedBoards}.
+	 * @param generatedBoards the found {@link BoardMovesCombination} items.
+	 */
+	private void findBoardsParallel(IPlayer player, IGame game, IBoard board, PackedBoard packedBoard, IDices dices, boolean reverse, int depth, TranspositionTable transpositions, LeafSink sink, List<BoardMovesCombination> generatedBoards) {
+		List<FirstMoveTask> tasks = new ArrayList<>();
+		for(int currentPosition = 0; currentPosition < packedBoard.size(); currentPosition++) {
+			if(packedBoard.isSource(currentPosition)) {
+				tasks.add(new FirstMoveTask(player, game, board, packedBoard, dices, reverse, currentPosition));
+			}
+		}
+		long estimatedNodes = 1;
+		for(int level = 0; level < depth; level++) {
+			estimatedNodes *= tasks.size();
 		}
 		
-		dices.reactivateElement();
+		if(tasks.size() < 2 || estimatedNodes < parallelThreshold) {
+			findBoards(player, game, board, packedBoard, dices, reverse, transpositions, sink);
+			return;
+		}
+		
+		forkJoinPool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+		for(FirstMoveTask task : tasks) {
+			generatedBoards.addAll(task.join()); // merged in position order, like the sequential recursion
+			sink.nodes += task.nodes;
+		}
+		sink.count = generatedBoards.size();
 	}
 	
 	/**
 	 * Create a instance dynamically, as an implementing class is not
 	 * in this package but somewhere on the {@code classpath}.
+	 * The implementing class is resolved only once by the {@link ImplementationRegistry}.
 	 * 
 	 * @return a new {@link IAvailableDices} instance.
 	 */
 	private IAvailableDices getAvailableDicesInstance() {
-		return new ClassByTypeFinder<IAvailableDices>(IAvailableDices.class, true, "net\\.ichmags\\.backgammon\\..*").getInstance();
+		return ImplementationRegistry.newInstance(IAvailableDices.class);
+	}
+	
+	/**
+	 * The {@link RecursiveTask} for the parallel generation mode: calculates all {@link BoardMovesCombination}
+	 * items starting with a {@link IMove} from one position. The task works on its own copies of the
+	 * {@link IBoard}, {@link PackedBoard}, {@link IAvailableDices}, {@link IMoves} and {@link TranspositionTable}.
+	 */
+	private class FirstMoveTask extends RecursiveTask<List<BoardMovesCombination>> {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private final IPlayer player;
+		private final IGame game;
+		private final IBoard board;
+		private final PackedBoard packedBoard;
+		private final IDices dices;
+		private final boolean reverse;
+		private final int position;
+		private long nodes;
+		
+		FirstMoveTask(IPlayer player, IGame game, IBoard board, PackedBoard packedBoard, IDices dices, boolean reverse, int position) {
+			this.player = player;
+			this.game = game;
+			this.board = board;
+			this.packedBoard = packedBoard;
+			this.dices = dices;
+			this.reverse = reverse;
+			this.position = position;
+		}
+		
+		@Override
+		protected List<BoardMovesCombination> compute() {
+			List<BoardMovesCombination> generatedBoards = new ArrayList<>(50);
+			IAvailableDices playableDices = getAvailableDicesInstance().initialize(dices, reverse);
+			
+			IDice dice = playableDices.nextElement();
+			TranspositionTable transpositions = pruneTranspositions ? new TranspositionTable() : null;
+			LeafSink sink = new LeafSink(leaf -> generatedBoards.add(leaf.keep()), dices);
+			playPosition(player, game, board.clone(), new PackedBoard(packedBoard), playableDices, dice, position, transpositions, sink, new Moves());
+			playableDices.reactivateElement();
+			nodes = sink.nodes;
+			
+			return generatedBoards;
+		}
+	}
+	
+	/**
+	 * Remembers the {@link IMove} pairs of the first pass for {@link IDices} with two different values, where both
+	 * {@link IMove}s are independent: different {@link IChecker}s, no hit or pin, no collected {@link IChecker}. Such
+	 * a pair results in the same {@link IBoard} in both orders of the {@link IDice} values, so the second pass
+	 * does not play it again. All other pairs, e.g. one {@link IChecker} moving twice, are played in both orders,
+	 * as before. The first {@link IMove}s of the second pass are always played, as the legal second {@link IMove}s
+	 * are only known after them.
+	 */
+	private static final class CommutingPairs {
+		
+		private final int[] played; // bit q of played[p]: "first from q, second from p" was played in the first pass
+		private boolean reversed;
+		private int firstFrom;
+		private int firstTo;
+		
+		CommutingPairs(int size) {
+			this.played = new int[size];
+			this.reversed = false;
+			this.firstFrom = -1;
+		}
+		
+		/**
+		 * Check if a {@link IMove} leaves the {@link IChecker}s of the opponent untouched and stays on the {@link IBoard}.
+		 * Must be called before the {@link IMove} is applied to the {@link PackedBoard}.
+		 */
+		static boolean isIndependent(PackedBoard packedBoard, int from, int distance) {
+			int to = from + distance;
+			return (to < packedBoard.getOffIndex())
+					&& ((packedBoard.getCount(to) == 0) || (packedBoard.getOwner(to) == packedBoard.getMover()));
+		}
+		
+		/**
+		 * Start the second pass, which plays the {@link IDice} values in the reversed order.
+		 */
+		void reverse() {
+			reversed = true;
+		}
+		
+		/**
+		 * Set the first {@link IMove} of the current pair.
+		 * 
+		 * @param from the start position, or {@code -1} when the recursion returns to the first {@link IMove}.
+		 */
+		void first(int from, int distance, boolean independent) {
+			this.firstFrom = independent ? from : -1;
+			this.firstTo = from + distance;
+		}
+		
+		/**
+		 * Register the second {@link IMove} of the current pair in the first pass.
+		 */
+		void second(int from, int distance, boolean independent) {
+			if(!reversed && independent && (firstFrom >= 0)
+					&& (from != firstFrom) && (from != firstTo) && (from + distance != firstFrom)) {
+				played[from] |= 1 << firstFrom;
+			}
+		}
+		
+		/**
+		 * Get the start positions to skip for the second {@link IMove} of the second pass.
+		 * 
+		 * @return the bit mask of the start positions, which were the first {@link IMove} of a commuting pair.
+		 */
+		int getPlayed() {
+			return (reversed && (firstFrom >= 0)) ? played[firstFrom] : 0;
+		}
+	}
+	
+	/**
+	 * Passes the outcomes of one recursion to an {@link IBoardVisitor}, counts them and the recursion nodes,
+	 * and checks the {@link Deadline}.
+	 * The {@link GeneratedLeaf} is reused for every outcome.
+	 */
+	private final class LeafSink {
+		
+		private final IBoardVisitor visitor;
+		private final GeneratedLeaf leaf;
+		private int count;
+		private long nodes;
+		private CommutingPairs commutingPairs;
+		
+		LeafSink(IBoardVisitor visitor, IDices dices) {
+			this.visitor = visitor;
+			this.leaf = new GeneratedLeaf(dices);
+			this.count = 0;
+		}
+		
+		void accept(PackedBoard packedBoard, IMoves movesForBoard) {
+			count++;
+			leaf.set(packedBoard, movesForBoard);
+			visitor.visit(leaf);
+		}
+		
+		boolean isStopped() {
+			return (count > 0) && deadline.isExpired();
+		}
 	}
 }
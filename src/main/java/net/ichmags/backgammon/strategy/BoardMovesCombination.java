@@ -3,11 +3,15 @@
  */
 package net.ichmags.backgammon.strategy;
 
+import java.util.Arrays;
+
+import net.ichmags.backgammon.game.IGame;
 import net.ichmags.backgammon.game.IMove;
 import net.ichmags.backgammon.game.IMoves;
 import net.ichmags.backgammon.setup.IBoard;
 import net.ichmags.backgammon.setup.IDices;
 import net.ichmags.backgammon.setup.IPlayer;
+import net.ichmags.backgammon.strategy.search.GameType;
 
 /**
  * The {@code BoardMovesCombination} class is a container that is used during automated {@link IMove}
@@ -24,6 +28,9 @@ import net.ichmags.backgammon.setup.IPlayer;
  * 
  * {@link #equals(Object)} returns {@code true} when the {@link IBoard} is equal - this means
  * the {@link IMoves} have no relevance.
+ * <p>
+ * Items created by the {@link BoardGenerator} only keep a {@link PackedBoard#snapshot()}; the {@link IBoard}
+ * is created on the first call of {@link #getBoard()}.
  * 
  * @author Anastasios Patrikis
  */
@@ -32,6 +39,9 @@ public class BoardMovesCombination {
 	private IBoard board;
 	private IDices dices;
 	private IMoves moves;
+	private byte[] packed;
+	private long positionKey;
+	private PackedBoard source;
 	
 	/**
 	 * Constructor.
@@ -43,6 +53,21 @@ public class BoardMovesCombination {
 		this.board = board;
 		this.moves = moves;
 	}
+	
+	/**
+	 * Constructor for a lazily created {@link IBoard}.
+	 * 
+	 * @param packed the {@link PackedBoard#snapshot()} after applying the {@link IMove}s.
+	 * @param positionKey the {@link PackedBoard#hash()} after applying the {@link IMove}s.
+	 * @param moves all applied {@link IMove}s, in the order they were executed.
+	 * @param source the {@link PackedBoard} used for generating, which can convert back to an {@link IBoard}.
+	 */
+	BoardMovesCombination(byte[] packed, long positionKey, IMoves moves, PackedBoard source) {
+		this.packed = packed;
+		this.positionKey = positionKey;
+		this.moves = moves;
+		this.source = source;
+	}
 
 	/**
 	 * Get the calculated {@link IBoard}.
@@ -50,9 +75,58 @@ public class BoardMovesCombination {
 	 * @return the {@link IBoard} after applying the {@link IMove}s.
 	 */
 	public IBoard getBoard() {
+		if(board == null && source != null) {
+			board = source.toBoard(moves);
+		}
 		return board;
 	}
 	
+	/**
+	 * Check if a stable position key is available, see {@link #getPositionKey()}.
+	 * 
+	 * @return {@code true} if this item was created by the {@link BoardGenerator}.
+	 */
+	public boolean hasPositionKey() {
+		return packed != null;
+	}
+	
+	/**
+	 * Get the stable 64 bit key of the {@link IBoard}, which is equal for equal {@link IBoard}s, also in
+	 * different JVMs.
+	 * 
+	 * @return the {@link PackedBoard#hash()} of the {@link IBoard}; only valid if {@link #hasPositionKey()}.
+	 */
+	public long getPositionKey() {
+		return positionKey;
+	}
+	
+	/**
+	 * Get the packed {@link IBoard}, in the view of the {@link IPlayer} who moved.
+	 * 
+	 * @return the {@link PackedBoard#snapshot()}, or {@code null} if this item was not created by the {@link BoardGenerator}.
+	 */
+	public byte[] getSnapshot() {
+		return packed;
+	}
+	
+	/**
+	 * Get the {@link IGame} the {@link IBoard} was generated for.
+	 * 
+	 * @return the {@link IGame}, or {@code null} if this item was not created by the {@link BoardGenerator}.
+	 */
+	public IGame getGame() {
+		return (source == null) ? null : source.getGame();
+	}
+	
+	/**
+	 * Get the {@link GameType} of the rules the {@link IBoard} was generated with.
+	 * 
+	 * @return the {@link GameType}, or {@code null} if this item was not created by the {@link BoardGenerator}.
+	 */
+	public GameType getGameType() {
+		return (source == null) ? null : source.getGameType();
+	}
+	
 	/**
 	 * Get the {@link IDices} used for moving.  
 	 * @return the {@link IDices} that were applied on the {@link IBoard}.
@@ -81,7 +155,11 @@ public class BoardMovesCombination {
 	public int hashCode() {
 		final int prime = 31;
 		int result = 1;
-		result = prime * result + ((board == null) ? 0 : board.hashCode());
+		if(packed != null) {
+			result = prime * result + (int)(positionKey ^ (positionKey >>> 32));
+		} else {
+			result = prime * result + ((board == null) ? 0 : board.hashCode());
+		}
 		return result;
 	}
 
@@ -94,6 +172,10 @@ public class BoardMovesCombination {
 		if (getClass() != obj.getClass())
 			return false;
 		BoardMovesCombination other = (BoardMovesCombination) obj;
+		if (packed != null || other.packed != null) {
+			// the position keys are compared first, the full constellation only if they are equal
+			return (positionKey == other.positionKey) && Arrays.equals(packed, other.packed);
+		}
 		if (board == null) {
 			if (other.board != null)
 				return false;
@@ -0,0 +1,139 @@
+/*
+ * www.ichmags.net - Backgammon
+ */
+package net.ichmags.backgammon.strategy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+
+import net.ichmags.backgammon.setup.IBoard;
+import net.ichmags.backgammon.setup.IDices;
+
+/**
+ * The {@code CandidateCollector} is an {@link IBoardVisitor} that keeps the distinct outcomes of the
+ * {@link BoardGenerator}, also over several {@link IDices} options. Outcomes with a known
+ * {@link GeneratedLeaf#getPositionKey()} and an equal {@link PackedBoard} are skipped before anything is copied;
+ * an outcome that only has the same key is kept.
+ * <p>
+ * With a score function only the best {@code capacity} outcomes are kept: each outcome is scored in place
+ * and copied only if it gets into the current best ones, so the number of created
+ * {@link BoardMovesCombination}s is independent of the number of outcomes.
+ * <p>
+ * A {@code CandidateCollector} is not thread safe.
+ * 
+ * @author Anastasios Patrikis
+ */
+public class CandidateCollector implements IBoardVisitor {
+	
+	private final int capacity;
+	private final ToDoubleFunction<GeneratedLeaf> scorer;
+	private final TranspositionTable seen;
+	private final List<BoardMovesCombination> kept;
+	private double[] scores;
+	private int visited;
+	
+	/**
+	 * Constructor for keeping all distinct outcomes, in the order they are found.
+	 */
+	public CandidateCollector() {
+		this(Integer.MAX_VALUE, null);
+	}
+	
+	/**
+	 * Constructor for keeping the best outcomes.
+	 * 
+	 * @param capacity the number of outcomes to keep, at least {@code 1}.
+	 * @param scorer the score of an outcome, higher is better; it must only read the {@link GeneratedLeaf}.
+	 */
+	public CandidateCollector(int capacity, ToDoubleFunction<GeneratedLeaf> scorer) {
+		this.capacity = Math.max(1, capacity);
+		this.scorer = scorer;
+		this.seen = new TranspositionTable();
+		this.kept = new ArrayList<>((scorer == null) ? 50 : this.capacity);
+		this.scores = new double[(scorer == null) ? 0 : this.capacity];
+		this.visited = 0;
+	}
+	
+	@Override
+	public void visit(GeneratedLeaf leaf) {
+		visited++;
+		if( ! seen.add(leaf.getPackedBoard())) {
+			return; // the same IBoard was reached with other moves
+		}
+		if(scorer == null) {
+			kept.add(leaf.keep());
+			return;
+		}
+		
+		double score = scorer.applyAsDouble(leaf);
+		if(kept.size() < capacity) {
+			scores[kept.size()] = score;
+			kept.add(leaf.keep());
+			return;
+		}
+		int worst = 0;
+		for(int pos = 1; pos < capacity; pos++) {
+			if(scores[pos] < scores[worst]) {
+				worst = pos;
+			}
+		}
+		if(score > scores[worst]) {
+			scores[worst] = score;
+			kept.set(worst, leaf.keep());
+		}
+	}
+	
+	/**
+	 * Get the kept outcomes. With a score function they are sorted by their score, the best first;
+	 * otherwise they are in the order they were found.
+	 * 
+	 * @return the kept {@link BoardMovesCombination}s.
+	 */
+	public List<BoardMovesCombination> getCandidates() {
+		if(scorer == null) {
+			return Collections.unmodifiableList(kept);
+		}
+		Integer[] order = new Integer[kept.size()];
+		for(int pos = 0; pos < order.length; pos++) {
+			order[pos] = pos;
+		}
+		// stable: equal scores keep the order they were found in
+		Arrays.sort(order, (a, b) -> Double.compare(scores[b], scores[a]));
+		List<BoardMovesCombination> sorted = new ArrayList<>(order.length);
+		for(Integer pos : order) {
+			sorted.add(kept.get(pos));
+		}
+		return sorted;
+	}
+	
+	/**
+	 * Remove all outcomes, so the {@code CandidateCollector} can be reused for the next turn. The {@link List}
+	 * returned by {@link #getCandidates()} without score function is a view, which is emptied as well.
+	 */
+	public void clear() {
+		seen.clear();
+		kept.clear();
+		visited = 0;
+	}
+	
+	/**
+	 * Get the number of visited outcomes, including the repeated {@link IBoard}s.
+	 * 
+	 * @return the number of {@link #visit(GeneratedLeaf)} calls.
+	 */
+	public int getVisited() {
+		return visited;
+	}
+	
+	/**
+	 * Get the number of distinct {@link IBoard}s visited.
+	 * 
+	 * @return the number of distinct outcomes, including those not kept.
+	 */
+	public int getDistinct() {
+		return seen.size();
+	}
+}
@@ -0,0 +1,97 @@
+/*
+ * www.ichmags.net - Backgammon
+ */
+package net.ichmags.backgammon.strategy;
+
+import net.ichmags.backgammon.setup.IPlayer;
+
+/**
+ * The {@code Deadline} limits the time a computer {@link IPlayer} spends for a turn. The {@link BoardGenerator},
+ * the {@link ScoringEngine} and deadline aware {@link IBatchStrategy}s check it between small steps of work and
+ * stop with the best result found so far, so the turn ends shortly after the {@code Deadline}.
+ * <p>
+ * The budget per {@link IPlayer.Level} is read from the system property {@value #BUDGET_PROPERTY} followed by
+ * the name of the {@link IPlayer.Level}, e.g. {@code net.ichmags.backgammon.budget.AVERAGE=500}, in milliseconds.
+ * Without a budget, {@link #NONE} is used and the turn runs to completion.
+ *
+ * @author Anastasios Patrikis
+ */
+public final class Deadline {
+
+	/**
+	 * The prefix of the system properties for the budget per {@link IPlayer.Level} ({@value #BUDGET_PROPERTY}).
+	 */
+	public static final String BUDGET_PROPERTY = "net.ichmags.backgammon.budget.";
+
+	/**
+	 * The {@code Deadline} that never expires.
+	 */
+	public static final Deadline NONE = new Deadline(0L, false);
+
+	private final long expiresAt;
+	private final boolean bounded;
+
+	private Deadline(long expiresAt, boolean bounded) {
+		this.expiresAt = expiresAt;
+		this.bounded = bounded;
+	}
+
+	/**
+	 * Create a {@code Deadline} that expires after a budget, starting now.
+	 *
+	 * @param budgetNanos the budget in nanoseconds.
+	 * @return the {@code Deadline}.
+	 */
+	public static Deadline after(long budgetNanos) {
+		return new Deadline(System.nanoTime() + budgetNanos, true);
+	}
+
+	/**
+	 * Create the {@code Deadline} for a turn of an {@link IPlayer.Level}, starting now.
+	 *
+	 * @param level the {@link IPlayer.Level} of the computer {@link IPlayer}.
+	 * @return the {@code Deadline}, or {@link #NONE} if no budget is configured for the {@link IPlayer.Level}.
+	 */
+	public static Deadline forLevel(IPlayer.Level level) {
+		Long budgetMillis = Long.getLong(BUDGET_PROPERTY + level.name());
+		if(budgetMillis == null) {
+			return NONE;
+		}
+		return after(budgetMillis.longValue() * 1_000_000L);
+	}
+
+	/**
+	 * Check if the {@code Deadline} has a budget.
+	 *
+	 * @return {@code false} for {@link #NONE}.
+	 */
+	public boolean isBounded() {
+		return bounded;
+	}
+
+	/**
+	 * Check if the budget is used up.
+	 *
+	 * @return {@code true} if the {@code Deadline} has passed.
+	 */
+	public boolean isExpired() {
+		return bounded && (System.nanoTime() - expiresAt >= 0L);
+	}
+
+	/**
+	 * Get the remaining budget.
+	 *
+	 * @return the nanoseconds until the {@code Deadline}, {@code 0} if expired, {@link Long#MAX_VALUE} for {@link #NONE}.
+	 */
+	public long remainingNanos() {
+		if( ! bounded) {
+			return Long.MAX_VALUE;
+		}
+		return Math.max(0L, expiresAt - System.nanoTime());
+	}
+
+	@Override
+	public String toString() {
+		return bounded ? ("Deadline: in " + (remainingNanos() / 1_000_000L) + " ms") : "Deadline: none";
+	}
+}
@@ -0,0 +1,166 @@
+/*
+ * www.ichmags.net - Backgammon
+ */
+package net.ichmags.backgammon.strategy;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import net.ichmags.backgammon.game.IGame;
+import net.ichmags.backgammon.game.IMoves;
+import net.ichmags.backgammon.notification.INotificationEmitter;
+import net.ichmags.backgammon.setup.IDices;
+import net.ichmags.backgammon.setup.IPlayer;
+import net.ichmags.backgammon.strategy.bearoff.BearoffDatabase;
+import net.ichmags.backgammon.strategy.race.RaceEvaluator;
+import net.ichmags.backgammon.strategy.race.RaceGenerator;
+import net.ichmags.backgammon.strategy.search.ExpectiminimaxSearch;
+import net.ichmags.backgammon.strategy.search.GameType;
+import net.ichmags.backgammon.strategy.search.HeuristicEvaluator;
+
+/**
+ * The {@code EngineContext} keeps the working objects of a computer {@link IPlayer} between turns: the
+ * {@link BoardGenerator} with its scratch {@link IMoves}, the {@link CandidateCollector}, the {@link ScoringEngine}s
+ * with their score buffers, the {@link ExpectiminimaxSearch}es, the {@link RaceGenerator}s and the {@link Random} for choosing between equally
+ * ranked {@link BoardMovesCombination}s. Nothing of this is created again for the next turn.
+ * <p>
+ * The {@link IStrategy} sets per {@link IPlayer.Level} are resolved only once and shared by all
+ * {@code EngineContext}s, as is the {@link ForkJoinPool} of the {@link BoardGenerator}: with the
+ * {@link BoardGenerator#DEFAULT_PARALLEL_THRESHOLD}, only double {@link IDices}
+ * rolls with many start positions are split into parallel tasks.
+ * <p>
+ * An {@code EngineContext} is not thread safe: use one per thread, e.g. in a {@link ThreadLocal}. The objects
+ * returned by one turn are only valid until the next turn starts.
+ *
+ * @author Anastasios Patrikis
+ */
+public class EngineContext {
+
+	private static final Map<IPlayer.Level, Set<IStrategy>> STRATEGIES = new EnumMap<>(IPlayer.Level.class);
+
+	private final EvaluationCache cache;
+	private final BoardGenerator generator;
+	private final CandidateCollector collector;
+	private final Map<Collection<IStrategy>, Map<IPlayer.PlayStyle, ScoringEngine>> scoringEngines;
+	private final Map<GameType, ExpectiminimaxSearch> searches;
+	private final Map<GameType, RaceGenerator> raceGenerators;
+	private final Random random;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param cache the {@link EvaluationCache} for the {@link ScoringEngine}s; {@code null} for no caching.
+	 */
+	public EngineContext(EvaluationCache cache) {
+		this.cache = cache;
+		this.generator = new BoardGenerator(null, ForkJoinPool.commonPool(), BoardGenerator.DEFAULT_PARALLEL_THRESHOLD)
+				.setPruneTranspositions(true);
+		this.collector = new CandidateCollector();
+		this.scoringEngines = new IdentityHashMap<>();
+		this.searches = new EnumMap<>(GameType.class);
+		this.raceGenerators = new EnumMap<>(GameType.class);
+		this.random = new Random();
+	}
+
+	/**
+	 * Get the {@link IStrategy} instances for an {@link IPlayer.Level}, see {@link StrategyManager#getStrategies(IPlayer.Level)}.
+	 *
+	 * @param level the {@link IPlayer.Level} of the computer {@link IPlayer}.
+	 * @return the unmodifiable {@link Set} of {@link IStrategy} instances.
+	 */
+	public static Set<IStrategy> getStrategies(IPlayer.Level level) {
+		synchronized (STRATEGIES) {
+			return STRATEGIES.computeIfAbsent(level,
+					key -> Collections.unmodifiableSet(new StrategyManager().getStrategies(key)));
+		}
+	}
+
+	/**
+	 * Prepare the {@link BoardGenerator} for a turn.
+	 *
+	 * @param notificationEmitter the {@link INotificationEmitter} of the turn.
+	 * @param deadline the {@link Deadline} of the turn.
+	 * @return the {@link BoardGenerator}, which prunes transpositions.
+	 */
+	public BoardGenerator getGenerator(INotificationEmitter notificationEmitter, Deadline deadline) {
+		return generator.setNotificationEmitter(notificationEmitter).setDeadline(deadline);
+	}
+
+	/**
+	 * Get the emptied {@link CandidateCollector}, which keeps all distinct outcomes.
+	 *
+	 * @return the {@link CandidateCollector}.
+	 */
+	public CandidateCollector getCollector() {
+		collector.clear();
+		return collector;
+	}
+
+	/**
+	 * Get the {@link ScoringEngine} combining the {@link IStrategy} instances of {@link #getStrategies(IPlayer.Level)}.
+	 *
+	 * @param level the {@link IPlayer.Level} of the computer {@link IPlayer}.
+	 * @param playStyle the {@link IPlayer.PlayStyle} of the computer {@link IPlayer}.
+	 * @return the {@link ScoringEngine}.
+	 */
+	public ScoringEngine getScoringEngine(IPlayer.Level level, IPlayer.PlayStyle playStyle) {
+		return getScoringEngine(getStrategies(level), playStyle);
+	}
+
+	/**
+	 * Get the {@link ScoringEngine} combining a fixed {@link Collection} of {@link IStrategy} instances.
+	 * The {@link ScoringEngine} is kept per {@link Collection} instance, so pass the same instance for every turn.
+	 *
+	 * @param strategies the {@link IStrategy} instances to combine.
+	 * @param playStyle the {@link IPlayer.PlayStyle} of the computer {@link IPlayer}.
+	 * @return the {@link ScoringEngine}.
+	 */
+	public ScoringEngine getScoringEngine(Collection<IStrategy> strategies, IPlayer.PlayStyle playStyle) {
+		return scoringEngines.computeIfAbsent(strategies, key -> new HashMap<>())
+				.computeIfAbsent(playStyle, key -> new ScoringEngine(strategies, key, cache));
+	}
+
+	/**
+	 * Get the {@link ExpectiminimaxSearch} for an {@link IGame}.
+	 *
+	 * @param game the {@link IGame} played.
+	 * @param maxDepth the maximum depth, see {@link ExpectiminimaxSearch#getDepth(IPlayer.Level)}.
+	 * @return the {@link ExpectiminimaxSearch} with a {@link HeuristicEvaluator}.
+	 */
+	public ExpectiminimaxSearch getSearch(IGame game, int maxDepth) {
+		GameType type = GameType.of(game);
+		ExpectiminimaxSearch search = searches.get(type);
+		if(search == null || search.getMaxDepth() != maxDepth) {
+			search = new ExpectiminimaxSearch(type, new HeuristicEvaluator(), maxDepth);
+			searches.put(type, search);
+		}
+		return search;
+	}
+
+	/**
+	 * Get the {@link RaceGenerator} for an {@link IGame}.
+	 *
+	 * @param game the {@link IGame} played.
+	 * @return the {@link RaceGenerator} with a {@link RaceEvaluator} using the default {@link BearoffDatabase}.
+	 */
+	public RaceGenerator getRaceGenerator(IGame game) {
+		return raceGenerators.computeIfAbsent(GameType.of(game),
+				type -> new RaceGenerator(type, new RaceEvaluator(BearoffDatabase.getDefault())));
+	}
+
+	/**
+	 * Get the {@link Random} for choosing between equally ranked {@link BoardMovesCombination}s.
+	 *
+	 * @return the {@link Random}.
+	 */
+	public Random getRandom() {
+		return random;
+	}
+}
@@ -0,0 +1,259 @@
+/*
+ * www.ichmags.net - Backgammon
+ */
+package net.ichmags.backgammon.strategy;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import net.ichmags.backgammon.setup.IBoard;
+import net.ichmags.backgammon.setup.IPlayer;
+import net.ichmags.backgammon.strategy.search.GameType;
+
+/**
+ * The {@code EvaluationCache} stores results of {@link IStrategy#evaluate(IPlayer, IBoard, IBoard, IPlayer.PlayStyle)},
+ * so positions that appear again (which is common in long matches and self play) are not evaluated again.
+ * <p>
+ * The key is the stable position key of the resulting {@link IBoard} (see {@link BoardMovesCombination#getPositionKey()}),
+ * combined with the {@link GameType}, the {@link IPlayer.ID}, the {@link IStrategy} instance and the {@link IPlayer.PlayStyle}.
+ * The {@link IStrategy} instance is identified by {@link #strategyId(IStrategy)}, so two instances of one class with
+ * different configurations do not share results.
+ * It does not include the {@link IBoard} before the move, so only an {@link IStrategy} that judges the resulting
+ * {@link IBoard} alone is cached: caching is opt-in with {@link ICacheableStrategy}.
+ * <p>
+ * The cache is bounded and safe for concurrent use. When full, an entry is evicted with the CLOCK algorithm:
+ * entries read since the last pass of the clock hand get a second chance.
+ * 
+ * @author Anastasios Patrikis
+ */
+public class EvaluationCache {
+	
+	/**
+	 * The default number of entries ({@value #DEFAULT_CAPACITY}).
+	 */
+	public static final int DEFAULT_CAPACITY = 1 << 16;
+	
+	private static final Map<IStrategy, Long> STRATEGY_IDS = Collections.synchronizedMap(new WeakHashMap<>());
+	private static final AtomicLong NEXT_STRATEGY_ID = new AtomicLong();
+	
+	private final int capacity;
+	private final ConcurrentHashMap<Long, Entry> entries;
+	private final long[] clock;
+	private int hand;
+	private int size;
+	
+	private final LongAdder hits;
+	private final LongAdder misses;
+	private final LongAdder evictions;
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param capacity the maximum number of entries.
+	 */
+	public EvaluationCache(int capacity) {
+		this.capacity = capacity;
+		this.entries = new ConcurrentHashMap<>(capacity * 4 / 3 + 1);
+		this.clock = new long[capacity];
+		this.hand = 0;
+		this.size = 0;
+		this.hits = new LongAdder();
+		this.misses = new LongAdder();
+		this.evictions = new LongAdder();
+	}
+	
+	/**
+	 * Check if results of an {@link IStrategy} may be cached.
+	 * 
+	 * @param strategy the {@link IStrategy}; an adapter is checked for the adapted {@link IStrategy}.
+	 * @return {@code true} for an {@link ICacheableStrategy}.
+	 */
+	public static boolean isCacheable(IStrategy strategy) {
+		if(strategy instanceof BatchStrategyAdapter) {
+			strategy = ((BatchStrategyAdapter)strategy).getStrategy();
+		}
+		return (strategy instanceof ICacheableStrategy);
+	}
+	
+	/**
+	 * Get the id of an {@link IStrategy} instance for the cache key. The id is assigned on the first call and
+	 * stays the same as long as the instance is in use; different instances get different ids.
+	 * 
+	 * @param strategy the {@link IStrategy}; an adapter gets the id of the adapted {@link IStrategy}.
+	 * @return the id.
+	 */
+	public static long strategyId(IStrategy strategy) {
+		if(strategy instanceof BatchStrategyAdapter) {
+			strategy = ((BatchStrategyAdapter)strategy).getStrategy();
+		}
+		return STRATEGY_IDS.computeIfAbsent(strategy, key -> NEXT_STRATEGY_ID.incrementAndGet());
+	}
+	
+	/**
+	 * Create the cache key.
+	 * 
+	 * @param positionKey the position key of the resulting {@link IBoard}.
+	 * @param gameType the {@link GameType} of the rules, as equal position keys are judged differently per rules.
+	 * @param player the {@link IPlayer} for which the {@link IBoard} is evaluated.
+	 * @param strategy the {@link IStrategy}.
+	 * @param playStyle the {@link IPlayer.PlayStyle} passed to the {@link IStrategy}.
+	 * @return the cache key.
+	 */
+	public static long key(long positionKey, GameType gameType, IPlayer player, IStrategy strategy, IPlayer.PlayStyle playStyle) {
+		return key(positionKey, gameType, player, strategyId(strategy), playStyle);
+	}
+	
+	/**
+	 * Create the cache key with an id from {@link #strategyId(IStrategy)}, which the caller looked up before.
+	 * 
+	 * @param positionKey the position key of the resulting {@link IBoard}.
+	 * @param gameType the {@link GameType} of the rules, as equal position keys are judged differently per rules.
+	 * @param player the {@link IPlayer} for which the {@link IBoard} is evaluated.
+	 * @param strategyId the id of the {@link IStrategy} instance.
+	 * @param playStyle the {@link IPlayer.PlayStyle} passed to the {@link IStrategy}.
+	 * @return the cache key.
+	 */
+	public static long key(long positionKey, GameType gameType, IPlayer player, long strategyId, IPlayer.PlayStyle playStyle) {
+		long key = positionKey;
+		key = mix(key ^ strategyId);
+		key = mix(key ^ (playStyle.ordinal() + 1));
+		key = mix(key ^ ((player.getID().ordinal() + 1) << 8));
+		key = mix(key ^ ((gameType.ordinal() + 1) << 16));
+		return key;
+	}
+	
+	/**
+	 * Get a cached result.
+	 * 
+	 * @param key the cache key, see {@link #key(long, GameType, IPlayer, IStrategy, IPlayer.PlayStyle)}.
+	 * @param defaultValue the value to return on a cache miss.
+	 * @return the cached result, or {@code defaultValue}.
+	 */
+	public int get(long key, int defaultValue) {
+		Entry entry = entries.get(key);
+		if(entry == null) {
+			misses.increment();
+			return defaultValue;
+		}
+		entry.referenced = true;
+		hits.increment();
+		return entry.value;
+	}
+	
+	/**
+	 * Check if a result is cached, without counting a hit or miss.
+	 * 
+	 * @param key the cache key.
+	 * @return {@code true} if the result is cached.
+	 */
+	public boolean contains(long key) {
+		return entries.containsKey(key);
+	}
+	
+	/**
+	 * Store a result. When the cache is full, another entry is evicted.
+	 * 
+	 * @param key the cache key, see {@link #key(long, GameType, IPlayer, IStrategy, IPlayer.PlayStyle)}.
+	 * @param value the result of the {@link IStrategy}.
+	 */
+	public void put(long key, int value) {
+		Entry entry = new Entry(value);
+		synchronized (clock) {
+			if(entries.putIfAbsent(key, entry) != null) {
+				return;
+			}
+			if(size == capacity) {
+				evict();
+			} else {
+				size++;
+			}
+			clock[hand] = key;
+			hand = (hand + 1) % capacity;
+		}
+	}
+	
+	private void evict() {
+		while(true) {
+			Entry candidate = entries.get(clock[hand]);
+			if(candidate != null && candidate.referenced) {
+				candidate.referenced = false; // second chance
+				hand = (hand + 1) % capacity;
+			} else {
+				entries.remove(clock[hand]);
+				evictions.increment();
+				return;
+			}
+		}
+	}
+	
+	/**
+	 * Remove all entries; the statistics are kept.
+	 */
+	public void clear() {
+		synchronized (clock) {
+			entries.clear();
+			size = 0;
+			hand = 0;
+		}
+	}
+	
+	/**
+	 * Get the number of cached results.
+	 * 
+	 * @return the number of entries.
+	 */
+	public int size() {
+		return entries.size();
+	}
+	
+	/**
+	 * Get the number of cache hits.
+	 * 
+	 * @return the number of hits.
+	 */
+	public long getHits() {
+		return hits.sum();
+	}
+	
+	/**
+	 * Get the number of cache misses.
+	 * 
+	 * @return the number of misses.
+	 */
+	public long getMisses() {
+		return misses.sum();
+	}
+	
+	/**
+	 * Get the number of evicted entries.
+	 * 
+	 * @return the number of evictions.
+	 */
+	public long getEvictions() {
+		return evictions.sum();
+	}
+	
+	private static long mix(long value) {
+		value = (value ^ (value >>> 33)) * 0xff51afd7ed558ccdL;
+		value = (value ^ (value >>> 33)) * 0xc4ceb9fe1a85ec53L;
+		return value ^ (value >>> 33);
+	}
+	
+	@Override
+	public String toString() {
+		return ("EvaluationCache: size=" + size() + ", hits=" + getHits() + ", misses=" + getMisses() + ", evictions=" + getEvictions());
+	}
+	
+	private static final class Entry {
+		private final int value;
+		private volatile boolean referenced;
+		
+		private Entry(int value) {
+			this.value = value;
+		}
+	}
+}
@@ -0,0 +1,95 @@
+/*
+ * www.ichmags.net - Backgammon
+ */
+package net.ichmags.backgammon.strategy;
+
+import net.ichmags.backgammon.game.IMove;
+import net.ichmags.backgammon.game.IMoves;
+import net.ichmags.backgammon.setup.IBoard;
+import net.ichmags.backgammon.setup.IDices;
+
+/**
+ * A {@code GeneratedLeaf} is the view of an {@link IBoardVisitor} on one outcome of the {@link BoardGenerator}.
+ * It gives access to the working {@link PackedBoard} and {@link IMoves} of the recursion without copying them,
+ * so an outcome can be scored in place. Only the outcomes passed to {@link #keep()} are copied into a
+ * {@link BoardMovesCombination}.
+ * <p>
+ * The {@link BoardGenerator} reuses one {@code GeneratedLeaf} for all outcomes of a recursion: it must not be
+ * stored, and the {@link PackedBoard} and {@link IMoves} must not be changed.
+ * 
+ * @author Anastasios Patrikis
+ */
+public final class GeneratedLeaf {
+	
+	private final IDices dices;
+	private PackedBoard packedBoard;
+	private IMoves moves;
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param dices the {@link IDices} of the recursion, set on every kept {@link BoardMovesCombination};
+	 * may be {@code null}.
+	 */
+	GeneratedLeaf(IDices dices) {
+		this.dices = dices;
+	}
+	
+	/**
+	 * Move to the next outcome.
+	 * 
+	 * @param packedBoard the working {@link PackedBoard}.
+	 * @param moves the working {@link IMoves}.
+	 */
+	void set(PackedBoard packedBoard, IMoves moves) {
+		this.packedBoard = packedBoard;
+		this.moves = moves;
+	}
+	
+	/**
+	 * Get the outcome.
+	 * 
+	 * @return the working {@link PackedBoard}, read only.
+	 */
+	public PackedBoard getPackedBoard() {
+		return packedBoard;
+	}
+	
+	/**
+	 * Get the stable 64 bit key of the outcome.
+	 * 
+	 * @return the {@link PackedBoard#hash()}.
+	 */
+	public long getPositionKey() {
+		return packedBoard.hash();
+	}
+	
+	/**
+	 * Get the {@link IMove}s that created the outcome.
+	 * 
+	 * @return the working {@link IMoves}, read only.
+	 */
+	public IMoves getMoves() {
+		return moves;
+	}
+	
+	/**
+	 * Get the {@link IDices} used for moving.
+	 * 
+	 * @return the {@link IDices}, or {@code null} if unknown.
+	 */
+	public IDices getDices() {
+		return dices;
+	}
+	
+	/**
+	 * Copy the outcome; the {@link IBoard} is created lazily, see {@link BoardMovesCombination#getBoard()}.
+	 * 
+	 * @return a new {@link BoardMovesCombination}.
+	 */
+	public BoardMovesCombination keep() {
+		BoardMovesCombination result = new BoardMovesCombination(packedBoard.snapshot(), packedBoard.hash(), moves.clone(), packedBoard);
+		result.setDices(dices);
+		return result;
+	}
+}
@@ -0,0 +1,56 @@
+/*
+ * www.ichmags.net - Backgammon
+ */
+package net.ichmags.backgammon.strategy;
+
+import java.util.List;
+
+import net.ichmags.backgammon.setup.IBoard;
+import net.ichmags.backgammon.setup.IPlayer;
+
+/**
+ * The {@code IBatchStrategy} is an {@link IStrategy} that evaluates all candidate {@link IBoard}s
+ * of a turn in one call. The results are written into a primitive {@code int[]}, so no boxing
+ * and no ranking structures are needed.
+ * <p>
+ * An {@code IBatchStrategy} may depend on what only the candidates know: the {@link BoardMovesCombination#getSnapshot()}
+ * of the {@link BoardGenerator} and the {@link BoardMovesCombination#getGame()}, e.g. for choosing the rules or the
+ * weights of a {@link net.ichmags.backgammon.game.IGame}. Such an {@code IBatchStrategy} cannot judge a single
+ * {@link IBoard}: its {@link #evaluate(IPlayer, IBoard, IBoard, IPlayer.PlayStyle)} returns the neutral value, half of
+ * {@link #getLimit()}, for every {@link IBoard}, and only the batch evaluation ranks the candidates. The
+ * {@link ScoringEngine} always uses the batch evaluation.
+ * <p>
+ * Existing {@link IStrategy} implementations are supported by {@link BatchStrategyAdapter#of(IStrategy)}.
+ * 
+ * @author Anastasios Patrikis
+ */
+public interface IBatchStrategy extends IStrategy {
+
+	/**
+	 * Evaluate all candidates. The result for {@code candidates.get(i)} is written to {@code scores[i]},
+	 * and is the same value {@link #evaluate(IPlayer, IBoard, IBoard, IPlayer.PlayStyle)} returns, unless that
+	 * returns the neutral value for a single {@link IBoard}, see above.
+	 * 
+	 * @param player the {@link IPlayer} for which the candidates are evaluated.
+	 * @param boardBefore the {@link IBoard} before the {@link IPlayer} moved.
+	 * @param candidates the {@link BoardMovesCombination} items to evaluate.
+	 * @param preferedPlayStyle the {@link IPlayer.PlayStyle} of the {@link IPlayer}.
+	 * @param scores the array for the results; the length must be at least {@code candidates.size()}.
+	 */
+	public void evaluate(IPlayer player, IBoard boardBefore, List<BoardMovesCombination> candidates, IPlayer.PlayStyle preferedPlayStyle, int[] scores);
+	
+	/**
+	 * Evaluate all candidates within a {@link Deadline}. An expensive {@link IBatchStrategy} should check the
+	 * {@link Deadline} and return its best estimate when it expires; the default ignores the {@link Deadline}.
+	 * 
+	 * @param player the {@link IPlayer} for which the candidates are evaluated.
+	 * @param boardBefore the {@link IBoard} before the {@link IPlayer} moved.
+	 * @param candidates the {@link BoardMovesCombination} items to evaluate.
+	 * @param preferedPlayStyle the {@link IPlayer.PlayStyle} of the {@link IPlayer}.
+	 * @param scores the array for the results; the length must be at least {@code candidates.size()}.
+	 * @param deadline the {@link Deadline} of the turn.
+	 */
+	public default void evaluate(IPlayer player, IBoard boardBefore, List<BoardMovesCombination> candidates, IPlayer.PlayStyle preferedPlayStyle, int[] scores, Deadline deadline) {
+		evaluate(player, boardBefore, candidates, preferedPlayStyle, scores);
+	}
+}
@@ -0,0 +1,28 @@
+/*
+ * www.ichmags.net - Backgammon
+ */
+package net.ichmags.backgammon.strategy;
+
+import net.ichmags.backgammon.game.IGame;
+import net.ichmags.backgammon.setup.IBoard;
+import net.ichmags.backgammon.setup.IDices;
+import net.ichmags.backgammon.setup.IPlayer;
+
+/**
+ * An {@code IBoardVisitor} receives the outcomes of
+ * {@link BoardGenerator#generateBoards(IPlayer, IGame, IBoard, IDices, IBoardVisitor)}
+ * one by one, while they are still on the working {@link PackedBoard} of the recursion.
+ * 
+ * @author Anastasios Patrikis
+ */
+@FunctionalInterface
+public interface IBoardVisitor {
+	
+	/**
+	 * Visit one outcome. The {@link GeneratedLeaf} is reused and only valid during this call;
+	 * call {@link GeneratedLeaf#keep()} to keep the outcome.
+	 * 
+	 * @param leaf the {@link GeneratedLeaf} describing the outcome.
+	 */
+	void visit(GeneratedLeaf leaf);
+}
@@ -0,0 +1,22 @@
+/*
+ * www.ichmags.net - Backgammon
+ */
+package net.ichmags.backgammon.strategy;
+
+import net.ichmags.backgammon.game.IGame;
+import net.ichmags.backgammon.setup.IBoard;
+import net.ichmags.backgammon.setup.IPlayer;
+
+/**
+ * Marker {@code interface} for an {@link IStrategy} whose results may be stored in the {@link EvaluationCache}.
+ * The result of {@link IStrategy#evaluate(IPlayer, IBoard, IBoard, IPlayer.PlayStyle)} must depend only on the
+ * resulting {@link IBoard}, the {@link IPlayer}, the {@link IPlayer.PlayStyle} and the rules of the {@link IGame};
+ * it must not look at the {@link IBoard} before the {@link IPlayer} moved, and must not be random.
+ * <p>
+ * Caching is opt-in: an {@link IStrategy} without this marker is always evaluated.
+ * 
+ * @author Anastasios Patrikis
+ */
+public interface ICacheableStrategy extends IStrategy {
+	// marker only
+}
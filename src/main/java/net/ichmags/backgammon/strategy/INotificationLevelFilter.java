@@ -0,0 +1,26 @@
+/*
+ * www.ichmags.net - Backgammon
+ */
+package net.ichmags.backgammon.strategy;
+
+import net.ichmags.backgammon.notification.INotification;
+import net.ichmags.backgammon.notification.INotification.Level;
+import net.ichmags.backgammon.notification.INotificationConsumer;
+import net.ichmags.backgammon.notification.INotificationEmitter;
+
+/**
+ * An {@link INotificationEmitter} implements the {@code INotificationLevelFilter} to tell the
+ * {@link LevelAwareNotificationEmitter} which {@link INotification}s its {@link INotificationConsumer}s want,
+ * so nothing below that {@link Level} is created for them.
+ *
+ * @author Anastasios Patrikis
+ */
+public interface INotificationLevelFilter {
+
+	/**
+	 * Get the lowest {@link Level} any of the {@link INotificationConsumer}s wants to receive.
+	 *
+	 * @return the minimum {@link Level}.
+	 */
+	public Level getMinimumLevel();
+}
@@ -0,0 +1,40 @@
+/*
+ * www.ichmags.net - Backgammon
+ */
+package net.ichmags.backgammon.strategy;
+
+import net.ichmags.backgammon.setup.IChecker;
+import net.ichmags.backgammon.strategy.search.SearchBoard;
+
+/**
+ * An {@code IPackedPosition} is a primitive {@link IChecker} constellation, like the {@link PackedBoard} and the
+ * {@link SearchBoard}, that can be stored in a {@link TranspositionTable}. The 64 bit {@link #hash()} finds the
+ * entry, and the state written by {@link #store(int[], int)} decides if two constellations are really equal.
+ *
+ * @author Anastasios Patrikis
+ */
+public interface IPackedPosition {
+
+	/**
+	 * Get the hash of the current constellation; equal constellations have the same hash.
+	 *
+	 * @return the 64 bit hash.
+	 */
+	long hash();
+
+	/**
+	 * Get the number of {@code int} values written by {@link #store(int[], int)}.
+	 *
+	 * @return the size of the state.
+	 */
+	int getStateSize();
+
+	/**
+	 * Write the current constellation to an {@code int} array. Two constellations are equal if, and only if,
+	 * they write the same values.
+	 *
+	 * @param buffer the target.
+	 * @param offset the first index to write; {@link #getStateSize()} values are written.
+	 */
+	void store(int[] buffer, int offset);
+}
@@ -0,0 +1,176 @@
+/*
+ * www.ichmags.net - Backgammon
+ */
+package net.ichmags.backgammon.strategy;
+
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+import net.ichmags.backgammon.reflection.ClassByTypeFinder;
+import net.ichmags.backgammon.reflection.ClassListByTypeFinder;
+import net.ichmags.backgammon.setup.IAvailableDices;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@code ImplementationRegistry} resolves implementations of an {@code interface} once per JVM
+ * and hands out cheap factories afterwards. This keeps the scanning of the {@code classpath} away from
+ * the hot path of the computer player (e.g. {@link IAvailableDices} is needed on every move).
+ * <p>
+ * Implementations are looked up with the {@link ServiceLoader} first ({@code META-INF/services}).
+ * For a single implementation the {@code classpath} is only scanned when nothing is registered this way.
+ * For all implementations the {@code classpath} is scanned as well, for packages starting with
+ * {@code net.ichmags.backgammon} as it was done before; both results are merged without duplicates.
+ * Scanned classes that are abstract or have no public constructor without parameters are skipped.
+ * <p>
+ * The instances created while resolving all implementations are kept and shared, see {@link #getInstances(Class)}.
+ * <p>
+ * The time spent for resolving is recorded per {@code interface} and can be read with
+ * {@link #getResolveNanos(Class)}.
+ *
+ * @author Anastasios Patrikis
+ */
+public final class ImplementationRegistry {
+
+	private static final Logger LOG = LoggerFactory.getLogger(ImplementationRegistry.class);
+
+	private static final String PACKAGE_FILTER = "net\\.ichmags\\.backgammon\\..*";
+
+	private static final ConcurrentMap<Class<?>, Supplier<?>> FACTORIES = new ConcurrentHashMap<>();
+	private static final ConcurrentMap<Class<?>, List<?>> INSTANCES = new ConcurrentHashMap<>();
+	private static final ConcurrentMap<Class<?>, Long> RESOLVE_NANOS = new ConcurrentHashMap<>();
+
+	private ImplementationRegistry() {
+		// static access only
+	}
+
+	/**
+	 * Get a factory for the single implementation of an {@code interface}.
+	 *
+	 * @param type the {@code interface} to resolve.
+	 * @return the {@link Supplier} creating a new instance on every call.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> Supplier<T> getFactory(Class<T> type) {
+		return (Supplier<T>)FACTORIES.computeIfAbsent(type, key -> createFactory(type));
+	}
+
+	/**
+	 * Create a new instance of the single implementation of an {@code interface}.
+	 *
+	 * @param type the {@code interface} to resolve.
+	 * @return a new instance.
+	 */
+	public static <T> T newInstance(Class<T> type) {
+		return getFactory(type).get();
+	}
+
+	/**
+	 * Get all implementations of an {@code interface}.
+	 *
+	 * @param type the {@code interface} to resolve.
+	 * @return the unmodifiable {@link List} of implementing classes.
+	 */
+	public static <T> List<Class<? extends T>> getImplementations(Class<T> type) {
+		List<Class<? extends T>> implementations = new ArrayList<>();
+		for(T instance : getInstances(type)) {
+			implementations.add(instance.getClass().asSubclass(type));
+		}
+		return Collections.unmodifiableList(implementations);
+	}
+
+	/**
+	 * Get one shared instance of all implementations of an {@code interface}.
+	 * The instances are created only once per JVM, when the {@code interface} is resolved.
+	 *
+	 * @param type the {@code interface} to resolve.
+	 * @return the unmodifiable {@link List} of instances.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> List<T> getInstances(Class<T> type) {
+		return (List<T>)INSTANCES.computeIfAbsent(type, key -> resolveAll(type));
+	}
+
+	/**
+	 * Get the time spent for resolving the implementation(s) of an {@code interface}.
+	 *
+	 * @param type the {@code interface}.
+	 * @return the nanoseconds spent, or {@code 0} if the {@code interface} was not resolved yet.
+	 */
+	public static long getResolveNanos(Class<?> type) {
+		Long nanos = RESOLVE_NANOS.get(type);
+		return (nanos == null) ? 0L : nanos.longValue();
+	}
+
+	private static <T> Supplier<T> createFactory(Class<T> type) {
+		long start = System.nanoTime();
+
+		Class<? extends T> implementation = null;
+		for(T service : ServiceLoader.load(type)) {
+			implementation = service.getClass().asSubclass(type);
+			break;
+		}
+		if(implementation == null) {
+			implementation = new ClassByTypeFinder<T>(type, true, PACKAGE_FILTER).getInstance().getClass().asSubclass(type);
+		}
+
+		record(type, start, 1);
+		return newFactory(implementation);
+	}
+
+	private static <T> List<T> resolveAll(Class<T> type) {
+		long start = System.nanoTime();
+
+		Map<Class<?>, T> instances = new LinkedHashMap<>();
+		for(T service : ServiceLoader.load(type)) {
+			instances.putIfAbsent(service.getClass(), service);
+		}
+		for(Class<T> implementation : new ClassListByTypeFinder<T>(type, true, PACKAGE_FILTER).get()) {
+			if(instances.containsKey(implementation) == false && isInstantiable(implementation)) {
+				instances.put(implementation, newFactory(implementation).get());
+			}
+		}
+
+		record(type, start, instances.size());
+		return Collections.unmodifiableList(new ArrayList<>(instances.values()));
+	}
+
+	private static boolean isInstantiable(Class<?> implementation) {
+		int modifiers = implementation.getModifiers();
+		if(implementation.isInterface() || Modifier.isAbstract(modifiers) || (Modifier.isPublic(modifiers) == false)) {
+			return false;
+		}
+		try {
+			implementation.getConstructor();
+			return true;
+		} catch (NoSuchMethodException e) {
+			LOG.debug("Skipping {} without public default constructor", implementation.getName());
+			return false;
+		}
+	}
+
+	private static <T> Supplier<T> newFactory(Class<? extends T> implementation) {
+		return () -> {
+			try {
+				return implementation.newInstance();
+			} catch (InstantiationException | IllegalAccessException e) {
+				throw new RuntimeException("Cannot create instance of " + implementation.getName(), e);
+			}
+		};
+	}
+
+	private static void record(Class<?> type, long start, int count) {
+		long nanos = System.nanoTime() - start;
+		RESOLVE_NANOS.put(type, nanos);
+		LOG.info("Resolved {} implementation(s) of {} in {} ms", count, type.getName(), nanos / 1_000_000L);
+	}
+}
@@ -0,0 +1,134 @@
+/*
+ * www.ichmags.net - Backgammon
+ */
+package net.ichmags.backgammon.strategy;
+
+import java.util.Locale;
+import java.util.function.Supplier;
+
+import net.ichmags.backgammon.notification.INotification;
+import net.ichmags.backgammon.notification.INotification.Level;
+import net.ichmags.backgammon.notification.INotificationConsumer;
+import net.ichmags.backgammon.notification.INotificationEmitter;
+import net.ichmags.backgammon.notification.pojo.StringNotification;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@code LevelAwareNotificationEmitter} wraps an {@link INotificationEmitter} and drops
+ * {@link INotification}s below a minimum {@link Level} <b>before</b> they are created.
+ * Messages are passed as {@link Supplier}, so the localization lookup and formatting only
+ * takes place when a consumer receives the {@link INotification}.
+ * <p>
+ * The {@link INotificationEmitter} and {@link INotificationConsumer} interfaces cannot tell which {@link Level}
+ * a consumer wants. So {@link #wrap(INotificationEmitter)} asks an {@link INotificationEmitter} implementing
+ * {@link INotificationLevelFilter} for its minimum {@link Level}. For any other {@link INotificationEmitter}
+ * the minimum {@link Level} is read from the system property {@value #LEVEL_PROPERTY}. It is
+ * {@link Level#INFO} if the property is not set or invalid; set it to {@link Level#TRACE} to receive
+ * a notification for every generated {@link net.ichmags.backgammon.setup.IBoard}.
+ *
+ * @author Anastasios Patrikis
+ */
+public class LevelAwareNotificationEmitter implements INotificationEmitter {
+
+	/**
+	 * The system property for the default minimum {@link Level} ({@value #LEVEL_PROPERTY}).
+	 */
+	public static final String LEVEL_PROPERTY = "net.ichmags.backgammon.notification.level";
+
+	private static final Logger LOG = LoggerFactory.getLogger(LevelAwareNotificationEmitter.class);
+
+	private static final Level DEFAULT_LEVEL = parseLevel(System.getProperty(LEVEL_PROPERTY));
+
+	private final INotificationEmitter delegate;
+	private final Level minimumLevel;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param delegate the {@link INotificationEmitter} which will receive the {@link INotification}s.
+	 * @param minimumLevel the lowest {@link Level} that is passed to the {@code delegate}.
+	 */
+	public LevelAwareNotificationEmitter(INotificationEmitter delegate, Level minimumLevel) {
+		this.delegate = delegate;
+		this.minimumLevel = minimumLevel;
+	}
+
+	/**
+	 * Wrap an {@link INotificationEmitter} with the minimum {@link Level} of an {@link INotificationLevelFilter},
+	 * or the default minimum {@link Level}. An {@code LevelAwareNotificationEmitter} is returned as is.
+	 *
+	 * @param notificationEmitter the {@link INotificationEmitter} to wrap.
+	 * @return the {@code LevelAwareNotificationEmitter}.
+	 */
+	public static LevelAwareNotificationEmitter wrap(INotificationEmitter notificationEmitter) {
+		if(notificationEmitter instanceof LevelAwareNotificationEmitter) {
+			return (LevelAwareNotificationEmitter)notificationEmitter;
+		}
+		Level minimumLevel = (notificationEmitter instanceof INotificationLevelFilter)
+				? ((INotificationLevelFilter)notificationEmitter).getMinimumLevel()
+				: DEFAULT_LEVEL;
+		return new LevelAwareNotificationEmitter(notificationEmitter, minimumLevel);
+	}
+
+	/**
+	 * Parse the value of the system property {@value #LEVEL_PROPERTY}.
+	 *
+	 * @param value the name of the {@link Level}, case is ignored; may be {@code null}.
+	 * @return the {@link Level}, or {@link Level#INFO} if the value is {@code null} or no {@link Level}.
+	 */
+	static Level parseLevel(String value) {
+		if(value == null) {
+			return Level.INFO;
+		}
+		try {
+			return Level.valueOf(value.trim().toUpperCase(Locale.ROOT));
+		} catch (IllegalArgumentException e) {
+			LOG.warn("Invalid value '{}' of {}, using {}", value, LEVEL_PROPERTY, Level.INFO);
+			return Level.INFO;
+		}
+	}
+
+	/**
+	 * Check if {@link INotification}s of a {@link Level} are passed to the consumers.
+	 *
+	 * @param level the {@link Level} to check.
+	 * @return {@code true} if the {@link Level} is not below the minimum {@link Level}.
+	 */
+	public boolean isEnabled(Level level) {
+		return level.ordinal() >= minimumLevel.ordinal();
+	}
+
+	/**
+	 * Emit a {@link StringNotification}, if the {@link Level} is enabled.
+	 *
+	 * @param level the {@link Level} of the {@link StringNotification}.
+	 * @param message the {@link Supplier} of the message; only called if the {@link Level} is enabled.
+	 * @return this {@link INotificationEmitter}.
+	 */
+	public INotificationEmitter emit(Level level, Supplier<String> message) {
+		if(isEnabled(level)) {
+			delegate.emitNotification(new StringNotification(level, message.get()));
+		}
+		return this;
+	}
+
+	@Override
+	public INotificationEmitter addConsumer(INotificationConsumer consumer) {
+		delegate.addConsumer(consumer);
+		return this;
+	}
+
+	@Override
+	public INotificationEmitter removeConsumer(INotificationConsumer consumer) {
+		delegate.removeConsumer(consumer);
+		return this;
+	}
+
+	@Override
+	public INotificationEmitter emitNotification(INotification notification) {
+		delegate.emitNotification(notification);
+		return this;
+	}
+}
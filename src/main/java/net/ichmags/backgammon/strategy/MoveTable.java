@@ -0,0 +1,147 @@
+/*
+ * www.ichmags.net - Backgammon
+ */
+package net.ichmags.backgammon.strategy;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import net.ichmags.backgammon.game.IGame;
+import net.ichmags.backgammon.game.IMove;
+import net.ichmags.backgammon.setup.IChecker;
+import net.ichmags.backgammon.setup.IDice;
+import net.ichmags.backgammon.setup.IPlayer;
+import net.ichmags.backgammon.strategy.search.GameType;
+
+/**
+ * The {@code MoveTable} holds precalculated bit masks per {@link GameType}, board size and dice value, which
+ * filter the start positions of a {@link PackedBoard} before {@link IGame#moveChecker(IPlayer, net.ichmags.backgammon.setup.IBoard, int, IDice)}
+ * is asked. Bit {@code n} of a mask stands for index {@code n} of the player view.
+ * <p>
+ * The filter only removes {@link IMove}s that are certainly not possible:
+ * <ul>
+ * <li>the position has no {@link IChecker} of the mover on top</li>
+ * <li>the mover has {@link IChecker}s on the <i>position 0</i>, which have to enter first</li>
+ * <li>the target is blocked: {@link GameType#PORTES} and {@link GameType#PLAKOTO} by two or more
+ * {@link IChecker}s of the opponent, {@link GameType#FEVGA} by any {@link IChecker} of the opponent</li>
+ * <li>the target is beyond the board, but not all {@link IChecker}s of the mover are at home</li>
+ * </ul>
+ * All other rules are left to the {@link IGame}, so the result of the {@link BoardGenerator} does not change.
+ * <p>
+ * A {@code MoveTable} is immutable and shared by all threads.
+ *
+ * @author Anastasios Patrikis
+ */
+public final class MoveTable {
+
+	private static final int HOME_SIZE = 6;
+	private static final int MAX_DICE = 6;
+	private static final Map<Integer, MoveTable> TABLES = new HashMap<>();
+
+	private final GameType type;
+	private final int offIndex;
+	private final int blockCount;
+	private final int sourceMask;
+	private final int homeMask;
+	private final int[] bearOffMasks;
+
+	private MoveTable(GameType type, int size) {
+		this.type = type;
+		this.offIndex = size - 1;
+		this.blockCount = (type.isHitting() || type.isPinning()) ? 2 : 1;
+
+		int sources = 0;
+		for(int index = type.isHitting() ? PackedBoard.BAR : PackedBoard.BAR + 1; index < offIndex; index++) {
+			sources |= (1 << index);
+		}
+		this.sourceMask = sources;
+
+		int home = 0;
+		for(int index = Math.max(PackedBoard.BAR + 1, offIndex - HOME_SIZE); index < offIndex; index++) {
+			home |= (1 << index);
+		}
+		this.homeMask = home;
+
+		this.bearOffMasks = new int[MAX_DICE + 1];
+		for(int distance = 1; distance <= MAX_DICE; distance++) {
+			for(int index = PackedBoard.BAR + 1; index < offIndex; index++) {
+				if(index + distance >= offIndex) {
+					bearOffMasks[distance] |= (1 << index);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Get the {@code MoveTable} for a {@link PackedBoard}.
+	 *
+	 * @param game the {@link IGame} played.
+	 * @param size the number of positions of the player view, see {@link PackedBoard#size()}.
+	 * @return the shared {@code MoveTable}.
+	 */
+	public static MoveTable get(IGame game, int size) {
+		if(size > Integer.SIZE) {
+			throw new IllegalArgumentException("Unsupported board size: " + size);
+		}
+		GameType type = GameType.of(game);
+		Integer key = (type.ordinal() << 8) | size;
+		synchronized (TABLES) {
+			return TABLES.computeIfAbsent(key, ignored -> new MoveTable(type, size));
+		}
+	}
+
+	/**
+	 * Get the {@link GameType} of the rules.
+	 *
+	 * @return the {@link GameType}.
+	 */
+	public GameType getType() {
+		return type;
+	}
+
+	/**
+	 * Find the start positions which may be played with a dice value.
+	 *
+	 * @param packedBoard the {@link PackedBoard} with the current {@link IChecker} constellation.
+	 * @param distance the dice value, {@code 1} to {@code 6}.
+	 * @return the bit mask of the start positions that still have to be checked by the {@link IGame}.
+	 */
+	public int candidates(PackedBoard packedBoard, int distance) {
+		int mover = packedBoard.getMover();
+		if(type.isHitting() && packedBoard.getBarCount(mover) > 0) {
+			return isBlocked(packedBoard, mover, PackedBoard.BAR + distance) ? 0 : 1 << PackedBoard.BAR;
+		}
+
+		int sources = 0;
+		int blocked = 0;
+		int occupied = 0;
+		for(int index = PackedBoard.BAR + 1; index < offIndex; index++) {
+			int count = packedBoard.getCount(index);
+			if(count == 0) {
+				continue;
+			}
+			int owner = packedBoard.getOwner(index);
+			if(owner == mover) {
+				sources |= (1 << index);
+				occupied |= (1 << index);
+			} else {
+				if(count >= blockCount) {
+					blocked |= (1 << index);
+				}
+				if(packedBoard.isPinned(index)) {
+					occupied |= (1 << index); // the pinned checker below belongs to the mover
+				}
+			}
+		}
+
+		int mask = sources & sourceMask & ~(blocked >>> distance);
+		if((occupied & ~homeMask) != 0) {
+			mask &= ~bearOffMasks[distance];
+		}
+		return mask;
+	}
+
+	private boolean isBlocked(PackedBoard packedBoard, int mover, int index) {
+		return (index < offIndex) && (packedBoard.getCount(index) >= blockCount) && (packedBoard.getOwner(index) != mover);
+	}
+}
@@ -0,0 +1,273 @@
+/*
+ * www.ichmags.net - Backgammon
+ */
+package net.ichmags.backgammon.strategy;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import net.ichmags.backgammon.game.IGame;
+import net.ichmags.backgammon.game.IMove;
+import net.ichmags.backgammon.game.impl.Moves;
+import net.ichmags.backgammon.setup.IAvailableDices;
+import net.ichmags.backgammon.setup.IBoard;
+import net.ichmags.backgammon.setup.IDice;
+import net.ichmags.backgammon.setup.IDices;
+import net.ichmags.backgammon.setup.IPlayer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@code OpeningBook} contains precalculated {@link IMove}s for positions that occur at the beginning
+ * of a {@link IGame}, so the {@link BoardGenerator} does not have to search them.
+ * <p>
+ * The book is a binary file which is memory mapped; lookups are a binary search on the mapped data.
+ * The file is created by the {@link OpeningBookBuilder}. Format (big endian):
+ * <ul>
+ * <li>header: {@value #MAGIC} ({@code int}), {@value #VERSION} ({@code int}), number of entries ({@code int}),
+ * padding ({@code int})</li>
+ * <li>entries, sorted by key: key ({@code long}), number of {@link IMove}s ({@code byte}), four {@link IMove}s
+ * ({@code byte}: start position in bits 3-7, dice value - 1 in bits 0-2), padding (3 {@code byte})</li>
+ * </ul>
+ * The key is built from {@link IGame#getName()}, the {@link PackedBoard#hash()} of the {@link IBoard} in the
+ * view of the moving {@link IPlayer} and the {@link IDice} values, see {@link #key(String, long, int)}.
+ * <p>
+ * The default book is loaded from the file set in the system property {@value #FILE_PROPERTY}.
+ *
+ * @author Anastasios Patrikis
+ */
+public class OpeningBook {
+
+	private static final Logger LOG = LoggerFactory.getLogger(OpeningBook.class);
+
+	/**
+	 * The system property with the file name of the default book ({@value #FILE_PROPERTY}).
+	 */
+	public static final String FILE_PROPERTY = "net.ichmags.backgammon.openingbook";
+
+	static final int MAGIC = 0x494D4F42; // "IMOB"
+	static final int VERSION = 2; // 2: position keys of the wider PackedBoard count field
+	static final int HEADER_SIZE = 16;
+	static final int ENTRY_SIZE = 16;
+	static final int MAX_MOVES = 4;
+
+	private static final OpeningBook EMPTY = new OpeningBook(ByteBuffer.allocate(HEADER_SIZE), 0);
+	private static volatile OpeningBook defaultBook;
+
+	private final ByteBuffer data;
+	private final int size;
+
+	private OpeningBook(ByteBuffer data, int size) {
+		this.data = data;
+		this.size = size;
+	}
+
+	/**
+	 * Memory map a book file.
+	 *
+	 * @param file the book file created by the {@link OpeningBookBuilder}.
+	 * @return the {@code OpeningBook}.
+	 * @throws IOException if the file cannot be read or has the wrong format.
+	 */
+	public static OpeningBook open(Path file) throws IOException {
+		try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if(data.capacity() < HEADER_SIZE || data.getInt(0) != MAGIC || data.getInt(4) != VERSION) {
+				throw new IOException("Not an opening book: " + file);
+			}
+			int size = data.getInt(8);
+			if(data.capacity() < HEADER_SIZE + (long)size * ENTRY_SIZE) {
+				throw new IOException("Truncated opening book: " + file);
+			}
+			LOG.info("Opening book {} mapped with {} entries", file, size);
+			return new OpeningBook(data, size);
+		}
+	}
+
+	/**
+	 * Get the book without entries.
+	 *
+	 * @return the empty {@code OpeningBook}.
+	 */
+	public static OpeningBook empty() {
+		return EMPTY;
+	}
+
+	/**
+	 * Get the default book, which is mapped on the first call. If the system property {@value #FILE_PROPERTY}
+	 * is not set or the file cannot be read, the {@link #empty()} book is used.
+	 *
+	 * @return the default {@code OpeningBook}.
+	 */
+	public static OpeningBook getDefault() {
+		if(defaultBook == null) {
+			synchronized (OpeningBook.class) {
+				if(defaultBook == null) {
+					defaultBook = loadDefault();
+				}
+			}
+		}
+		return defaultBook;
+	}
+
+	private static OpeningBook loadDefault() {
+		String fileName = System.getProperty(FILE_PROPERTY);
+		if(fileName == null) {
+			return EMPTY;
+		}
+		try {
+			return open(Paths.get(fileName));
+		} catch (IOException e) {
+			LOG.error("Cannot load opening book " + fileName, e);
+			return EMPTY;
+		}
+	}
+
+	/**
+	 * Get the number of entries.
+	 *
+	 * @return the number of positions in the book.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Create the key of an entry.
+	 *
+	 * @param gameName the {@link IGame#getName()}.
+	 * @param positionKey the {@link PackedBoard#hash()} of the {@link IBoard} in the view of the moving {@link IPlayer}.
+	 * @param diceKey the {@link IDice} values, see {@link #diceKey(IDices)}.
+	 * @return the key.
+	 */
+	public static long key(String gameName, long positionKey, int diceKey) {
+		long key = positionKey;
+		for(byte value : gameName.getBytes(StandardCharsets.UTF_8)) {
+			key = (key ^ value) * 0x100000001b3L;
+		}
+		key ^= ((long)diceKey << 48);
+		key = (key ^ (key >>> 33)) * 0xff51afd7ed558ccdL;
+		return key ^ (key >>> 33);
+	}
+
+	/**
+	 * Create the key part for the {@link IDice} values, which does not depend on the order of the {@link IDice}s.
+	 *
+	 * @param dices the {@link IDices}.
+	 * @return the {@link IDice} values as number.
+	 */
+	public static int diceKey(IDices dices) {
+		IAvailableDices available = ImplementationRegistry.newInstance(IAvailableDices.class).initialize(dices, false);
+		int first = available.nextElement().getValue();
+		int second = available.hasMoreElements() ? available.nextElement().getValue() : 0;
+		return (Math.max(first, second) << 3) | Math.min(first, second);
+	}
+
+	/**
+	 * Find the {@link IMove}s for a position.
+	 *
+	 * @param key the key, see {@link #key(String, long, int)}.
+	 * @return the {@link IMove}s encoded as in the book file, or {@code null} if the position is not in the book.
+	 */
+	public byte[] lookup(long key) {
+		int low = 0;
+		int high = size - 1;
+		while(low <= high) {
+			int middle = (low + high) >>> 1;
+			int offset = HEADER_SIZE + middle * ENTRY_SIZE;
+			long middleKey = data.getLong(offset);
+			if(middleKey < key) {
+				low = middle + 1;
+			} else if(middleKey > key) {
+				high = middle - 1;
+			} else {
+				byte[] moves = new byte[data.get(offset + 8)];
+				for(int pos = 0; pos < moves.length; pos++) {
+					moves[pos] = data.get(offset + 9 + pos);
+				}
+				return moves;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Play the book {@link IMove}s for a position on a copy of the {@link IBoard}.
+	 *
+	 * @param player the {@link IPlayer} to move.
+	 * @param game the {@link IGame} played on the {@link IBoard}.
+	 * @param board the {@link IBoard}; it is not changed.
+	 * @param dices the {@link IDices} to play; all {@link IDice}s must be playable.
+	 * @return the {@link BoardMovesCombination} to play, or {@code null} if the position is not in the book
+	 * or the book {@link IMove}s cannot be played.
+	 */
+	public BoardMovesCombination play(IPlayer player, IGame game, IBoard board, IDices dices) {
+		if(size == 0 || dices.usedCount() > 0) {
+			return null;
+		}
+		long positionKey = new PackedBoard(player, game, board).hash();
+		byte[] bookMoves = lookup(key(game.getName(), positionKey, diceKey(dices)));
+		if(bookMoves == null || bookMoves.length == 0) {
+			return null;
+		}
+
+		IAvailableDices available = ImplementationRegistry.newInstance(IAvailableDices.class).initialize(dices, false);
+		IDice dice = available.nextElement();
+		if(dice.getValue() != distance(bookMoves[0])) {
+			available = ImplementationRegistry.newInstance(IAvailableDices.class).initialize(dices, true);
+			dice = available.nextElement();
+		}
+
+		IBoard bookBoard = board.clone();
+		Moves moves = new Moves();
+		for(int pos = 0; pos < bookMoves.length; pos++) {
+			if(pos > 0) {
+				if( ! available.hasMoreElements()) {
+					return null;
+				}
+				dice = available.nextElement();
+			}
+			if(dice.getValue() != distance(bookMoves[pos])) {
+				return null;
+			}
+			IMove move = game.moveChecker(player, bookBoard, from(bookMoves[pos]), dice);
+			if( ! move.isSuccess()) {
+				return null;
+			}
+			moves.addLatest(move);
+		}
+		if(available.hasMoreElements()) {
+			return null; // the book entry does not play all dices
+		}
+
+		BoardMovesCombination result = new BoardMovesCombination(bookBoard, moves);
+		result.setDices(dices);
+		return result;
+	}
+
+	/**
+	 * Encode a {@link IMove} for the book file.
+	 *
+	 * @param from the start position in the player view.
+	 * @param distance the {@link IDice} value.
+	 * @return the encoded {@link IMove}.
+	 */
+	static byte encode(int from, int distance) {
+		return (byte)((from << 3) | (distance - 1));
+	}
+
+	static int from(byte move) {
+		return (move & 0xFF) >>> 3;
+	}
+
+	static int distance(byte move) {
+		return (move & 0x07) + 1;
+	}
+}
@@ -0,0 +1,124 @@
+/*
+ * www.ichmags.net - Backgammon
+ */
+package net.ichmags.backgammon.strategy;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import net.ichmags.backgammon.game.IGame;
+import net.ichmags.backgammon.game.IMove;
+import net.ichmags.backgammon.notification.INotificationEmitter;
+import net.ichmags.backgammon.setup.IBoard;
+import net.ichmags.backgammon.setup.IDices;
+import net.ichmags.backgammon.setup.IPlayer;
+
+/**
+ * The {@code OpeningBookBuilder} precalculates the entries of an {@link OpeningBook} offline, by running
+ * the {@link BoardGenerator} and the {@link ScoringEngine} for each added position.
+ * <p>
+ * The best {@link BoardMovesCombination} is stored; for equally ranked ones the first is taken, so the
+ * book is reproducible for deterministic {@link IStrategy} instances.
+ *
+ * @author Anastasios Patrikis
+ */
+public class OpeningBookBuilder {
+
+	private final INotificationEmitter notificationEmitter;
+	private final Collection<IStrategy> strategies;
+	private final IPlayer.PlayStyle playStyle;
+	private final Map<Long, byte[]> entries;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param notificationEmitter the {@link INotificationEmitter} for the {@link BoardGenerator}.
+	 * @param strategies the {@link IStrategy} instances to rank the {@link IMove}s.
+	 * @param playStyle the {@link IPlayer.PlayStyle} passed to the {@link IStrategy} instances.
+	 */
+	public OpeningBookBuilder(INotificationEmitter notificationEmitter, Collection<IStrategy> strategies, IPlayer.PlayStyle playStyle) {
+		this.notificationEmitter = notificationEmitter;
+		this.strategies = strategies;
+		this.playStyle = playStyle;
+		this.entries = new TreeMap<>();
+	}
+
+	/**
+	 * Calculate the best {@link IMove}s for a position and add them to the book.
+	 *
+	 * @param player the {@link IPlayer} to move.
+	 * @param game the {@link IGame} played on the {@link IBoard}.
+	 * @param board the {@link IBoard}; it is not changed.
+	 * @param dices the {@link IDices} to play; only {@link IDices} where all dices are playable can be added.
+	 * @return {@code true} if an entry was added.
+	 */
+	public boolean add(IPlayer player, IGame game, IBoard board, IDices dices) {
+		if(dices.usedCount() > 0) {
+			return false;
+		}
+		List<BoardMovesCombination> candidates = new BoardGenerator(notificationEmitter).setPruneTranspositions(true)
+				.generateBoards(player, game, board, dices);
+		if(candidates.isEmpty()) {
+			return false;
+		}
+
+		int[] scores = new ScoringEngine(strategies, playStyle).score(player, board, candidates);
+		int best = 0;
+		for(int pos = 1; pos < candidates.size(); pos++) {
+			if(scores[pos] > scores[best]) {
+				best = pos;
+			}
+		}
+
+		List<IMove> moves = candidates.get(best).getMoves().get();
+		byte[] encoded = new byte[Math.min(moves.size(), OpeningBook.MAX_MOVES)];
+		for(int pos = 0; pos < encoded.length; pos++) {
+			IMove move = moves.get(pos);
+			encoded[pos] = OpeningBook.encode(move.getFromPosition(), move.getMoveDistance().getValue());
+		}
+
+		long positionKey = new PackedBoard(player, game, board).hash();
+		entries.put(OpeningBook.key(game.getName(), positionKey, OpeningBook.diceKey(dices)), encoded);
+		return true;
+	}
+
+	/**
+	 * Get the number of entries.
+	 *
+	 * @return the number of added positions.
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Write the book file.
+	 *
+	 * @param file the file to create or replace.
+	 * @throws IOException if the file cannot be written.
+	 */
+	public void write(Path file) throws IOException {
+		try(OutputStream stream = Files.newOutputStream(file); DataOutputStream out = new DataOutputStream(stream)) {
+			out.writeInt(OpeningBook.MAGIC);
+			out.writeInt(OpeningBook.VERSION);
+			out.writeInt(entries.size());
+			out.writeInt(0);
+			for(Map.Entry<Long, byte[]> entry : entries.entrySet()) {
+				byte[] moves = entry.getValue();
+				out.writeLong(entry.getKey());
+				out.writeByte(moves.length);
+				for(int pos = 0; pos < OpeningBook.MAX_MOVES; pos++) {
+					out.writeByte((pos < moves.length) ? moves[pos] : 0);
+				}
+				out.write(new byte[OpeningBook.ENTRY_SIZE - 9 - OpeningBook.MAX_MOVES]);
+			}
+		}
+	}
+}
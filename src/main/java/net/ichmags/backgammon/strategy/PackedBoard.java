@@ -0,0 +1,548 @@
+/*
+ * www.ichmags.net - Backgammon
+ */
+package net.ichmags.backgammon.strategy;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import net.ichmags.backgammon.game.IGame;
+import net.ichmags.backgammon.game.IMove;
+import net.ichmags.backgammon.game.IMoves;
+import net.ichmags.backgammon.setup.IBoard;
+import net.ichmags.backgammon.setup.IChecker;
+import net.ichmags.backgammon.setup.IPlayer;
+import net.ichmags.backgammon.setup.IPosition;
+import net.ichmags.backgammon.setup.IPositions;
+import net.ichmags.backgammon.strategy.search.GameType;
+
+/**
+ * The {@code PackedBoard} is a compact, primitive representation of an {@link IBoard} as seen by
+ * one {@link IPlayer} (the <i>mover</i>). It is used by the {@link BoardGenerator} to track the
+ * {@link IChecker} constellation during the recursion without calling {@link IBoard#createPlayerView(IPlayer)}
+ * on every level and without cloning an {@link IBoard} for every leaf.
+ * <p>
+ * Each position of the player view is stored as one {@code byte}:
+ * <ul>
+ * <li>bits 0-4: the number of {@link IChecker}s on the position; up to 16 if all 15 {@link IChecker}s
+ * of a {@link IPlayer} stand on a pinned one</li>
+ * <li>bit 5: the owner of the top {@link IChecker} ({@code 0} for {@link IPlayer.ID#ONE}, {@code 1} otherwise)</li>
+ * <li>bit 6: the bottom {@link IChecker} is pinned by the owner of the top {@link IChecker}</li>
+ * </ul>
+ * The <i>position 0</i> (bar) and the collected checkers are stored as counters per {@link IPlayer}.
+ * <p>
+ * {@link #make(int, int)} and {@link #unmake()} apply and revert a {@link IMove} that was already
+ * validated by {@link IGame#moveChecker(IPlayer, IBoard, int, net.ichmags.backgammon.setup.IDice)},
+ * so they do not check any rules and do not allocate.
+ * <p>
+ * {@link #hash()} returns a Zobrist hash of the constellation, including the <i>position 0</i>. The hash is
+ * updated with every {@link #make(int, int)} and restored by {@link #unmake()}, so reading it costs nothing.
+ *
+ * @author Anastasios Patrikis
+ */
+public class PackedBoard implements IPackedPosition {
+
+	/**
+	 * The index of the <i>position 0</i> in the player view.
+	 */
+	public static final int BAR = 0;
+
+	private static final int COUNT_MASK = 0x1F;
+	private static final int OWNER_TWO = 0x20;
+	private static final int PINNED = 0x40;
+
+	private static final int MAX_DEPTH = 4;
+	private static final int UNDO_HIT = 1 << 26;
+
+	private static final int MAX_POSITIONS = 32;
+	private static final int MAX_COUNTER = 16;
+	private static final long[] POINT_KEYS;
+	private static final long[] BAR_KEYS;
+	private static final long[] OFF_KEYS;
+
+	static {
+		Random random = new Random(0x1c4a65L); // fixed seed: the hash is stable between JVMs
+		POINT_KEYS = randomKeys(random, MAX_POSITIONS * 128);
+		BAR_KEYS = randomKeys(random, 2 * MAX_COUNTER);
+		OFF_KEYS = randomKeys(random, 2 * MAX_COUNTER);
+	}
+
+	private final IBoard origin;
+	private final IGame game;
+	private final IPlayer player;
+	private final boolean hitting;
+	private final int mover;
+	private final int opponent;
+	private final int offIndex;
+	private final MoveTable moveTable;
+
+	private final byte[] points;
+	private final int[] bar;
+	private final int[] off;
+
+	private final int[] undoStack;
+	private final long[] keyStack;
+	private int undoDepth;
+	private long key;
+
+	/**
+	 * Constructor: packs the current {@link IChecker} constellation of the {@link IBoard}.
+	 *
+	 * @param player the {@link IPlayer} whose view is packed; this is the player making the {@link IMove}s.
+	 * @param game the {@link IGame} played on the {@link IBoard}.
+	 * @param board the {@link IBoard} to pack. A private copy is kept for {@link #toBoard(IMoves)}.
+	 */
+	public PackedBoard(IPlayer player, IGame game, IBoard board) {
+		this.origin = board.clone();
+		this.game = game;
+		this.player = player;
+		this.hitting = game.hasPosition0();
+		this.mover = player.getID().ordinal();
+		this.opponent = 1 - mover;
+
+		IPositions positions = board.createPlayerView(player);
+		List<IPosition> positionList = positions.get();
+		this.offIndex = positionList.size() - 1;
+		this.points = new byte[positionList.size()];
+		this.bar = new int[2];
+		this.off = new int[2];
+		this.undoStack = new int[MAX_DEPTH];
+		this.keyStack = new long[MAX_DEPTH];
+		this.undoDepth = 0;
+
+		for(int index = 0; index < positionList.size(); index++) {
+			pack(index, positionList.get(index));
+		}
+		this.key = computeHash();
+		this.moveTable = MoveTable.get(game, points.length);
+	}
+
+	/**
+	 * Copy constructor: the copy shares the immutable origin, but has its own {@link IChecker} state.
+	 *
+	 * @param other the {@code PackedBoard} to copy.
+	 */
+	public PackedBoard(PackedBoard other) {
+		this.origin = other.origin;
+		this.game = other.game;
+		this.player = other.player;
+		this.hitting = other.hitting;
+		this.mover = other.mover;
+		this.opponent = other.opponent;
+		this.offIndex = other.offIndex;
+		this.moveTable = other.moveTable;
+		this.points = other.points.clone();
+		this.bar = other.bar.clone();
+		this.off = other.off.clone();
+		this.undoStack = other.undoStack.clone();
+		this.keyStack = other.keyStack.clone();
+		this.undoDepth = other.undoDepth;
+		this.key = other.key;
+	}
+
+	private void pack(int index, IPosition position) {
+		if(position.hasCheckers() == false) {
+			return;
+		}
+		List<IChecker> checkers = position.getCheckers();
+		if((index == BAR) || (index == offIndex)) {
+			int[] counters = (index == BAR) ? bar : off;
+			for(IChecker checker : checkers) {
+				counters[checker.getOwner().ordinal()]++;
+			}
+			return;
+		}
+
+		int top = checkers.get(checkers.size() - 1).getOwner().ordinal();
+		int bottom = checkers.get(0).getOwner().ordinal();
+		int value = checkers.size() | ((top == 0) ? 0 : OWNER_TWO) | ((top != bottom) ? PINNED : 0);
+		points[index] = (byte)value;
+	}
+
+	/**
+	 * Get the number of positions of the player view, including <i>position 0</i> and the collected checkers.
+	 *
+	 * @return the number of positions.
+	 */
+	public int size() {
+		return points.length;
+	}
+
+	/**
+	 * Get the index of the position where collected {@link IChecker}s are placed.
+	 *
+	 * @return the last index of the player view.
+	 */
+	public int getOffIndex() {
+		return offIndex;
+	}
+
+	/**
+	 * Check if the mover can start a {@link IMove} from the position.
+	 *
+	 * @param index the index in the player view.
+	 * @return {@code true} if the top {@link IChecker} belongs to the mover.
+	 */
+	public boolean isSource(int index) {
+		if(index == BAR) {
+			return bar[mover] > 0;
+		}
+		if(index == offIndex) {
+			return false;
+		}
+		int value = points[index];
+		return ((value & COUNT_MASK) > 0) && (owner(value) == mover);
+	}
+
+	/**
+	 * Find the start positions which may be played with a dice value, see {@link MoveTable#candidates(PackedBoard, int)}.
+	 *
+	 * @param distance the dice value.
+	 * @return the bit mask of the indexes in the player view.
+	 */
+	public int candidateSources(int distance) {
+		return moveTable.candidates(this, distance);
+	}
+
+	/**
+	 * Check if the {@link IChecker}s of both {@link IPlayer}s can no longer meet, see {@link GameType#isRace(int, int)}.
+	 *
+	 * @return {@code true} for a pure race.
+	 */
+	public boolean isRace() {
+		GameType type = moveTable.getType();
+		int rearmost = (bar[mover] > 0) ? BAR : offIndex;
+		int opponentRearmost = (bar[opponent] > 0) ? BAR : offIndex;
+		for(int index = BAR + 1; index < offIndex; index++) {
+			int value = points[index];
+			if((value & COUNT_MASK) == 0) {
+				continue;
+			}
+			boolean pinned = (value & PINNED) != 0;
+			if(owner(value) == mover || pinned) {
+				rearmost = Math.min(rearmost, index);
+			}
+			if(owner(value) == opponent || pinned) {
+				opponentRearmost = Math.min(opponentRearmost, type.opponentIndex(index));
+			}
+		}
+		return type.isRace(rearmost, opponentRearmost);
+	}
+
+	/**
+	 * Get the number of {@link IChecker}s on a position.
+	 *
+	 * @param index the index in the player view.
+	 * @return the number of {@link IChecker}s, including a pinned one.
+	 */
+	public int getCount(int index) {
+		return points[index] & COUNT_MASK;
+	}
+
+	/**
+	 * Get the owner of the top {@link IChecker} of a position.
+	 *
+	 * @param index the index in the player view.
+	 * @return the {@link IPlayer.ID#ordinal()} of the owner, or {@code -1} for an empty position.
+	 */
+	public int getOwner(int index) {
+		int value = points[index];
+		return ((value & COUNT_MASK) == 0) ? -1 : owner(value);
+	}
+
+	/**
+	 * Check if the bottom {@link IChecker} of a position is pinned.
+	 *
+	 * @param index the index in the player view.
+	 * @return {@code true} if the position holds a pinned {@link IChecker}.
+	 */
+	public boolean isPinned(int index) {
+		return (points[index] & PINNED) != 0;
+	}
+
+	/**
+	 * Get the number of {@link IChecker}s on the <i>position 0</i>.
+	 *
+	 * @param playerOrdinal the {@link IPlayer.ID#ordinal()} of the owner.
+	 * @return the number of {@link IChecker}s waiting to enter the {@link IBoard}.
+	 */
+	public int getBarCount(int playerOrdinal) {
+		return bar[playerOrdinal];
+	}
+
+	/**
+	 * Get the number of collected {@link IChecker}s.
+	 *
+	 * @param playerOrdinal the {@link IPlayer.ID#ordinal()} of the owner.
+	 * @return the number of {@link IChecker}s that left the {@link IBoard}.
+	 */
+	public int getOffCount(int playerOrdinal) {
+		return off[playerOrdinal];
+	}
+
+	/**
+	 * Get the {@link IGame} played on the packed {@link IBoard}.
+	 *
+	 * @return the {@link IGame}.
+	 */
+	public IGame getGame() {
+		return game;
+	}
+
+	/**
+	 * Get the {@link GameType} of the {@link IGame}.
+	 *
+	 * @return the {@link GameType}, resolved once per {@link MoveTable}.
+	 */
+	public GameType getGameType() {
+		return moveTable.getType();
+	}
+
+	/**
+	 * Get the mover.
+	 *
+	 * @return the {@link IPlayer.ID#ordinal()} of the {@link IPlayer} making the {@link IMove}s.
+	 */
+	public int getMover() {
+		return mover;
+	}
+
+	/**
+	 * Apply a validated {@link IMove} of the mover.
+	 *
+	 * @param from the index of the start position in the player view.
+	 * @param distance the dice value.
+	 */
+	public void make(int from, int distance) {
+		int to = Math.min(from + distance, offIndex);
+		int previousFrom = points[from] & 0xFF;
+		int previousTo = points[to] & 0xFF;
+		int undo = from | (to << 5) | (previousFrom << 10) | (previousTo << 18);
+		keyStack[undoDepth] = key;
+
+		if(from == BAR) {
+			key ^= barKey(mover);
+			bar[mover]--;
+			key ^= barKey(mover);
+		} else {
+			int count = (previousFrom & COUNT_MASK) - 1;
+			if(count == 0) {
+				points[from] = 0;
+			} else if((count == 1) && ((previousFrom & PINNED) != 0)) {
+				points[from] = (byte)(1 | ownerBits(opponent)); // the pinned checker is free again
+			} else {
+				points[from] = (byte)((previousFrom & ~COUNT_MASK) | count);
+			}
+			key ^= pointKey(from, previousFrom) ^ pointKey(from, points[from]);
+		}
+
+		if(to == offIndex) {
+			key ^= offKey(mover);
+			off[mover]++;
+			key ^= offKey(mover);
+		} else {
+			int count = previousTo & COUNT_MASK;
+			if(count == 0) {
+				points[to] = (byte)(1 | ownerBits(mover));
+			} else if(owner(previousTo) == mover) {
+				points[to] = (byte)((previousTo & ~COUNT_MASK) | (count + 1));
+			} else if(hitting) {
+				key ^= barKey(opponent);
+				bar[opponent]++;
+				key ^= barKey(opponent);
+				points[to] = (byte)(1 | ownerBits(mover));
+				undo |= UNDO_HIT;
+			} else {
+				points[to] = (byte)(2 | ownerBits(mover) | PINNED);
+			}
+			key ^= pointKey(to, previousTo) ^ pointKey(to, points[to]);
+		}
+
+		undoStack[undoDepth++] = undo;
+	}
+
+	/**
+	 * Revert the latest {@link #make(int, int)}.
+	 */
+	public void unmake() {
+		int undo = undoStack[--undoDepth];
+		int from = undo & 0x1F;
+		int to = (undo >>> 5) & 0x1F;
+
+		points[from] = (byte)((undo >>> 10) & 0xFF);
+		points[to] = (byte)((undo >>> 18) & 0xFF);
+		if(from == BAR) {
+			bar[mover]++;
+		}
+		if(to == offIndex) {
+			off[mover]--;
+		}
+		if((undo & UNDO_HIT) != 0) {
+			bar[opponent]--;
+		}
+		key = keyStack[undoDepth];
+	}
+
+	/**
+	 * Create a compact copy of the current {@link IChecker} constellation, which can be compared
+	 * with {@link Arrays#equals(byte[], byte[])}.
+	 *
+	 * @return the packed positions, followed by the <i>position 0</i> and collected counters.
+	 */
+	public byte[] snapshot() {
+		byte[] snapshot = Arrays.copyOf(points, points.length + 4);
+		snapshot[points.length] = (byte)bar[0];
+		snapshot[points.length + 1] = (byte)bar[1];
+		snapshot[points.length + 2] = (byte)off[0];
+		snapshot[points.length + 3] = (byte)off[1];
+		return snapshot;
+	}
+
+	/**
+	 * Get the Zobrist hash of the current {@link IChecker} constellation.
+	 * Equal constellations always have the same hash, also in different JVMs.
+	 *
+	 * @return the 64 bit hash.
+	 */
+	@Override
+	public long hash() {
+		return key;
+	}
+
+	/**
+	 * Get the number of {@code int} values written by {@link #store(int[], int)}: the bytes of the
+	 * {@link #snapshot()}, four per {@code int}.
+	 *
+	 * @return the size of the state.
+	 */
+	@Override
+	public int getStateSize() {
+		return (points.length + 4 + 3) / 4;
+	}
+
+	/**
+	 * Write the {@link #snapshot()} to an {@code int} array without creating it.
+	 *
+	 * @param buffer the target.
+	 * @param offset the first index to write; {@link #getStateSize()} values are written.
+	 */
+	@Override
+	public void store(int[] buffer, int offset) {
+		Arrays.fill(buffer, offset, offset + getStateSize(), 0);
+		for(int index = 0; index < points.length; index++) {
+			storeByte(buffer, offset, index, points[index]);
+		}
+		storeByte(buffer, offset, points.length, bar[0]);
+		storeByte(buffer, offset, points.length + 1, bar[1]);
+		storeByte(buffer, offset, points.length + 2, off[0]);
+		storeByte(buffer, offset, points.length + 3, off[1]);
+	}
+
+	private static void storeByte(int[] buffer, int offset, int index, int value) {
+		buffer[offset + (index >> 2)] |= (value & 0xFF) << ((index & 3) << 3);
+	}
+
+	/**
+	 * Calculate the Zobrist hash from all positions, see {@link #hash()}.
+	 *
+	 * @return the 64 bit hash.
+	 */
+	long computeHash() {
+		long hash = 0L;
+		for(int index = 0; index < points.length; index++) {
+			int value = points[index];
+			if(value != 0) {
+				hash ^= POINT_KEYS[(index << 7) | value];
+			}
+		}
+		for(int playerOrdinal = 0; playerOrdinal < 2; playerOrdinal++) {
+			hash ^= BAR_KEYS[playerOrdinal * MAX_COUNTER + bar[playerOrdinal]];
+			hash ^= OFF_KEYS[playerOrdinal * MAX_COUNTER + off[playerOrdinal]];
+		}
+		return hash;
+	}
+
+	/**
+	 * Convert back to an {@link IBoard} by replaying the {@link IMove}s on a copy of the packed origin.
+	 * This is only done for {@link IBoard}s that are actually needed.
+	 *
+	 * @param moves the {@link IMoves} applied since the {@code PackedBoard} was created.
+	 * @return a new {@link IBoard} instance.
+	 * @throws IllegalStateException if one of the {@link IMove}s is not possible on the packed origin.
+	 */
+	public IBoard toBoard(IMoves moves) {
+		IBoard board = origin.clone();
+		for(IMove move : moves.get()) {
+			IMove replayed = game.moveChecker(player, board, move.getFromPosition(), move.getMoveDistance());
+			if(replayed.isSuccess() == false) {
+				throw new IllegalStateException("Cannot replay " + move + " on the packed board");
+			}
+		}
+		return board;
+	}
+
+	/**
+	 * Decode the number of {@link IChecker}s of a position in a {@link #snapshot()}.
+	 *
+	 * @param value the {@code byte} of the position.
+	 * @return the number of {@link IChecker}s, including a pinned one.
+	 */
+	public static int countOf(byte value) {
+		return value & COUNT_MASK;
+	}
+
+	/**
+	 * Decode the owner of the top {@link IChecker} of a position in a {@link #snapshot()}.
+	 *
+	 * @param value the {@code byte} of the position.
+	 * @return the {@link IPlayer.ID#ordinal()} of the owner; only valid if {@link #countOf(byte)} is not {@code 0}.
+	 */
+	public static int ownerOf(byte value) {
+		return owner(value);
+	}
+
+	/**
+	 * Decode the pinned flag of a position in a {@link #snapshot()}.
+	 *
+	 * @param value the {@code byte} of the position.
+	 * @return {@code true} if the bottom {@link IChecker} is pinned by the owner of the top {@link IChecker}.
+	 */
+	public static boolean pinnedOf(byte value) {
+		return (value & PINNED) != 0;
+	}
+
+	private static long[] randomKeys(Random random, int size) {
+		long[] keys = new long[size];
+		for(int pos = 0; pos < size; pos++) {
+			keys[pos] = random.nextLong();
+		}
+		return keys;
+	}
+
+	private long barKey(int playerOrdinal) {
+		return BAR_KEYS[playerOrdinal * MAX_COUNTER + bar[playerOrdinal]];
+	}
+
+	private long offKey(int playerOrdinal) {
+		return OFF_KEYS[playerOrdinal * MAX_COUNTER + off[playerOrdinal]];
+	}
+
+	private static long pointKey(int index, int value) {
+		value &= 0xFF;
+		return (value == 0) ? 0L : POINT_KEYS[(index << 7) | value];
+	}
+
+	private static int owner(int value) {
+		return ((value & OWNER_TWO) == 0) ? 0 : 1;
+	}
+
+	private static int ownerBits(int playerOrdinal) {
+		return (playerOrdinal == 0) ? 0 : OWNER_TWO;
+	}
+
+	@Override
+	public String toString() {
+		return ("PackedBoard: " + Arrays.toString(snapshot()));
+	}
+}
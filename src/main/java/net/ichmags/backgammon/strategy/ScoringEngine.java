@@ -0,0 +1,273 @@
+/*
+ * www.ichmags.net - Backgammon
+ */
+package net.ichmags.backgammon.strategy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import net.ichmags.backgammon.setup.IBoard;
+import net.ichmags.backgammon.setup.IPlayer;
+import net.ichmags.backgammon.strategy.metrics.EngineInstrumentation;
+import net.ichmags.backgammon.strategy.metrics.IEngineListener;
+
+/**
+ * The {@code ScoringEngine} combines several {@link IStrategy} instances into one score per candidate.
+ * <p>
+ * Each {@link IStrategy} evaluates every candidate exactly once (see {@link IBatchStrategy}). The result
+ * is normalized with {@link IStrategy#getLimit()} to the range {@code 0} to {@value #SCALE}, multiplied
+ * with the weight of the {@link IStrategy} and summed up. The weight grows with {@link IStrategy#suitableForPlayerLevel()}:
+ * it is the {@link IPlayer.Level#ordinal()} plus one, multiplied with {@value #PLAY_STYLE_WEIGHT} if
+ * {@link IStrategy#suitableForPlayStyle()} matches the {@link IPlayer.PlayStyle}, and with {@value #DEFAULT_WEIGHT}
+ * otherwise. The combined score is the weighted average, so it is in the same range.
+ * <p>
+ * An {@link IStrategy} for {@link IPlayer.Level#BEGINNER} does not evaluate the {@link IBoard}, e.g. the
+ * {@code RandomRatingStrategy}: it is left out when a stronger {@link IStrategy} is combined, so its noise does not
+ * blur the scores of the stronger one.
+ * <p>
+ * If an {@link EvaluationCache} is used, cached results are taken for every {@link ICacheableStrategy},
+ * and only the remaining candidates are evaluated. Results calculated after the {@link Deadline} expired may be
+ * estimates, so they are not stored. An {@link IStrategy} without batch support stops at the next candidate
+ * once the {@link Deadline} expired, see {@link BatchStrategyAdapter}.
+ * <p>
+ * The engine keeps its working arrays between calls and is not thread safe.
+ * 
+ * @author Anastasios Patrikis
+ */
+public class ScoringEngine {
+	
+	/**
+	 * The maximum combined score ({@value #SCALE}).
+	 */
+	public static final int SCALE = 10000;
+	
+	/**
+	 * The weight factor of an {@link IStrategy} suitable for the {@link IPlayer.PlayStyle} ({@value #PLAY_STYLE_WEIGHT}).
+	 */
+	public static final int PLAY_STYLE_WEIGHT = 2;
+	
+	/**
+	 * The weight factor of any other {@link IStrategy} ({@value #DEFAULT_WEIGHT}).
+	 */
+	public static final int DEFAULT_WEIGHT = 1;
+	
+	private static final int MISSING = Integer.MIN_VALUE;
+	
+	private final IBatchStrategy[] strategies;
+	private final IStrategy[] sources;
+	private final int[] weights;
+	private final int[] limits;
+	private final boolean[] cacheable;
+	private final long[] strategyIds;
+	private final IPlayer.PlayStyle playStyle;
+	private final long totalWeight;
+	private final EvaluationCache cache;
+	
+	private int[] strategyScores;
+	private long[] totals;
+	private int[] scores;
+	private int evaluatedCount;
+	
+	private final List<BoardMovesCombination> missCandidates;
+	private int[] missIndexes;
+	private long[] missKeys;
+	private int[] missScores;
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param strategies the {@link IStrategy} instances to combine.
+	 * @param playStyle the {@link IPlayer.PlayStyle} of the {@link IPlayer}, used for weighting and passed to
+	 * {@link IStrategy#evaluate(IPlayer, IBoard, IBoard, IPlayer.PlayStyle)}.
+	 */
+	public ScoringEngine(Collection<IStrategy> strategies, IPlayer.PlayStyle playStyle) {
+		this(strategies, playStyle, null);
+	}
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param strategies the {@link IStrategy} instances to combine; the ones for {@link IPlayer.Level#BEGINNER} are
+	 * left out if any other is given.
+	 * @param playStyle the {@link IPlayer.PlayStyle} of the {@link IPlayer}, used for weighting and passed to
+	 * {@link IStrategy#evaluate(IPlayer, IBoard, IBoard, IPlayer.PlayStyle)}.
+	 * @param cache the {@link EvaluationCache} to consult before evaluating; {@code null} for no caching.
+	 */
+	public ScoringEngine(Collection<IStrategy> strategies, IPlayer.PlayStyle playStyle, EvaluationCache cache) {
+		strategies = withoutPlaceholders(strategies);
+		this.strategies = new IBatchStrategy[strategies.size()];
+		this.sources = new IStrategy[strategies.size()];
+		this.weights = new int[strategies.size()];
+		this.limits = new int[strategies.size()];
+		this.cacheable = new boolean[strategies.size()];
+		this.strategyIds = new long[strategies.size()];
+		this.playStyle = playStyle;
+		this.cache = cache;
+		this.missCandidates = new ArrayList<>(64);
+		
+		long weightSum = 0;
+		int pos = 0;
+		for(IStrategy strategy : strategies) {
+			this.strategies[pos] = BatchStrategyAdapter.of(strategy);
+			this.sources[pos] = strategy;
+			this.weights[pos] = (strategy.suitableForPlayerLevel().ordinal() + 1)
+					* ((strategy.suitableForPlayStyle() == playStyle) ? PLAY_STYLE_WEIGHT : DEFAULT_WEIGHT);
+			this.limits[pos] = Math.max(1, strategy.getLimit());
+			this.cacheable[pos] = (cache != null) && EvaluationCache.isCacheable(strategy);
+			this.strategyIds[pos] = cacheable[pos] ? EvaluationCache.strategyId(strategy) : 0L;
+			weightSum += weights[pos];
+			pos++;
+		}
+		this.totalWeight = Math.max(1, weightSum);
+		
+		ensureCapacity(64);
+	}
+	
+	/**
+	 * Leave out the {@link IStrategy} instances for {@link IPlayer.Level#BEGINNER}, if a stronger one is given.
+	 * 
+	 * @param strategies the {@link IStrategy} instances passed to the constructor.
+	 * @return the {@link IStrategy} instances to combine.
+	 */
+	private static Collection<IStrategy> withoutPlaceholders(Collection<IStrategy> strategies) {
+		List<IStrategy> stronger = new ArrayList<>(strategies.size());
+		for(IStrategy strategy : strategies) {
+			if(strategy.suitableForPlayerLevel() != IPlayer.Level.BEGINNER) {
+				stronger.add(strategy);
+			}
+		}
+		return stronger.isEmpty() ? strategies : stronger;
+	}
+	
+	/**
+	 * Get the number of combined {@link IStrategy} instances.
+	 * 
+	 * @return the number of {@link IStrategy} instances.
+	 */
+	public int getStrategyCount() {
+		return strategies.length;
+	}
+	
+	/**
+	 * Calculate the combined score of all candidates.
+	 * 
+	 * @param player the {@link IPlayer} for which the candidates are evaluated.
+	 * @param boardBefore the {@link IBoard} before the {@link IPlayer} moved.
+	 * @param candidates the {@link BoardMovesCombination} items to evaluate.
+	 * @return the combined scores; the entry {@code i} belongs to {@code candidates.get(i)}. The array is
+	 * reused by the next call, and may be longer than the {@link List} of candidates.
+	 */
+	public int[] score(IPlayer player, IBoard boardBefore, List<BoardMovesCombination> candidates) {
+		return score(player, boardBefore, candidates, Deadline.NONE);
+	}
+	
+	/**
+	 * Calculate the combined score of all candidates within a {@link Deadline}. The {@link IStrategy} instances
+	 * are evaluated one after the other; when the {@link Deadline} expires, the remaining ones are skipped and
+	 * the weighted average of the evaluated ones is returned. At least one {@link IStrategy} is always evaluated.
+	 * 
+	 * @param player the {@link IPlayer} for which the candidates are evaluated.
+	 * @param boardBefore the {@link IBoard} before the {@link IPlayer} moved.
+	 * @param candidates the {@link BoardMovesCombination} items to evaluate.
+	 * @param deadline the {@link Deadline} of the turn, passed to {@link IBatchStrategy#evaluate(IPlayer, IBoard, List, IPlayer.PlayStyle, int[], Deadline)}.
+	 * @return the combined scores, see {@link #score(IPlayer, IBoard, List)}.
+	 */
+	public int[] score(IPlayer player, IBoard boardBefore, List<BoardMovesCombination> candidates, Deadline deadline) {
+		int count = candidates.size();
+		ensureCapacity(count);
+		Arrays.fill(totals, 0, count, 0L);
+		
+		IEngineListener engineListener = EngineInstrumentation.getListener();
+		long evaluatedWeight = 0;
+		evaluatedCount = 0;
+		for(int strategy = 0; strategy < strategies.length; strategy++) {
+			if(strategy > 0 && deadline.isExpired()) {
+				break;
+			}
+			long start = System.nanoTime();
+			int evaluatedBoards = count;
+			if(cacheable[strategy]) {
+				evaluatedBoards = evaluateCached(strategy, player, boardBefore, candidates, deadline);
+			} else {
+				strategies[strategy].evaluate(player, boardBefore, candidates, playStyle, strategyScores, deadline);
+			}
+			engineListener.strategyEvaluated(sources[strategy], evaluatedBoards, System.nanoTime() - start);
+			long factor = (long)SCALE * weights[strategy];
+			int limit = limits[strategy];
+			for(int pos = 0; pos < count; pos++) {
+				totals[pos] += strategyScores[pos] * factor / limit;
+			}
+			evaluatedWeight += weights[strategy];
+			evaluatedCount++;
+		}
+		
+		long weight = (evaluatedCount == strategies.length) ? totalWeight : Math.max(1, evaluatedWeight);
+		for(int pos = 0; pos < count; pos++) {
+			scores[pos] = (int)(totals[pos] / weight);
+		}
+		return scores;
+	}
+	
+	/**
+	 * Get the number of {@link IStrategy} instances evaluated by the latest call, which is lower than
+	 * {@link #getStrategyCount()} if the {@link Deadline} expired.
+	 * 
+	 * @return the number of evaluated {@link IStrategy} instances.
+	 */
+	public int getEvaluatedCount() {
+		return evaluatedCount;
+	}
+	
+	/**
+	 * Fill {@code strategyScores} from the {@link EvaluationCache}, and evaluate the missing candidates in one batch.
+	 * 
+	 * @return the number of evaluated candidates.
+	 */
+	private int evaluateCached(int strategy, IPlayer player, IBoard boardBefore, List<BoardMovesCombination> candidates, Deadline deadline) {
+		long strategyId = strategyIds[strategy];
+		missCandidates.clear();
+		for(int pos = 0; pos < candidates.size(); pos++) {
+			BoardMovesCombination candidate = candidates.get(pos);
+			long key = 0L;
+			if(candidate.hasPositionKey()) {
+				key = EvaluationCache.key(candidate.getPositionKey(), candidate.getGameType(), player, strategyId, playStyle);
+				int cached = cache.get(key, MISSING);
+				if(cached != MISSING) {
+					strategyScores[pos] = cached;
+					continue;
+				}
+			}
+			missIndexes[missCandidates.size()] = pos;
+			missKeys[missCandidates.size()] = key;
+			missCandidates.add(candidate);
+		}
+		
+		if(missCandidates.isEmpty()) {
+			return 0;
+		}
+		strategies[strategy].evaluate(player, boardBefore, missCandidates, playStyle, missScores, deadline);
+		// a deadline aware strategy returns estimates once the deadline expired: these must not be reused
+		boolean complete = !deadline.isExpired();
+		for(int miss = 0; miss < missCandidates.size(); miss++) {
+			strategyScores[missIndexes[miss]] = missScores[miss];
+			if(complete && missCandidates.get(miss).hasPositionKey()) {
+				cache.put(missKeys[miss], missScores[miss]);
+			}
+		}
+		return missCandidates.size();
+	}
+	
+	private void ensureCapacity(int count) {
+		if(scores == null || scores.length < count) {
+			int capacity = Math.max(count, (scores == null) ? 0 : scores.length * 2);
+			strategyScores = new int[capacity];
+			totals = new long[capacity];
+			scores = new int[capacity];
+			missIndexes = new int[capacity];
+			missKeys = new long[capacity];
+			missScores = new int[capacity];
+		}
+	}
+}
@@ -4,10 +4,8 @@
 package net.ichmags.backgammon.strategy;
 
 import java.util.HashSet;
-import java.util.List;
 import java.util.Set;
 
-import net.ichmags.backgammon.reflection.ClassListByTypeFinder;
 import net.ichmags.backgammon.setup.IPlayer;
 
 import org.slf4j.Logger;
@@ -57,32 +55,16 @@ public class StrategyManager {
 	
 	/**
 	 * Load all {@link IStrategy} implementations which can be found on the class path.
-	 * Narrow down to packages starting with {@code net.ichmags.backgammon.strategy}.
+	 * The {@link ImplementationRegistry} merges the {@code META-INF/services} registrations with the
+	 * classes found in packages starting with {@code net.ichmags.backgammon}, and creates each instance once.
 	 * 
 	 * @see <a href="http://stackoverflow.com/questions/3222638/get-all-of-the-classes-in-the-classpath">stackoverflow: scanning the class path for classes</a>
 	 * @see <a href="http://stackoverflow.com/questions/259140/scanning-java-annotations-at-runtime">Another stackoverflow article: scanning the class path for classes with libraries</a>
 	 */
 	private static void loadStrategies() {
-		try {
-			List<Class<IStrategy>> strategies = loadStrategyClasses();
-			for(Class<IStrategy> strategy : strategies) {
-				STRATEGIES.add(strategy.newInstance());
-			}
-		} catch (Exception e) {
-			throw new RuntimeException("Cannot create IStategy instance", e);
-		}
+		STRATEGIES.addAll(ImplementationRegistry.getInstances(IStrategy.class));
 		
-		LOG.info("Loaded {} strategies: {}", STRATEGIES.size(), STRATEGIES.toArray());
-	}
-
-	
-	/**
-	 * Create a instance dynamically, as an implementing class is not
-	 * in this package but somewhere on the {@code classpath}.
-	 * 
-	 * @return a new {@link List} of {@link IStrategy} classes.
-	 */
-	private static List<Class<IStrategy>> loadStrategyClasses() {
-		return new ClassListByTypeFinder<IStrategy>(IStrategy.class, true, "net\\.ichmags\\.backgammon\\..*").get();		
+		LOG.info("Loaded {} strategies in {} ms: {}", STRATEGIES.size(),
+				ImplementationRegistry.getResolveNanos(IStrategy.class) / 1_000_000L, STRATEGIES.toArray());
 	}
 }
@@ -0,0 +1,204 @@
+/*
+ * www.ichmags.net - Backgammon
+ */
+package net.ichmags.backgammon.strategy;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import net.ichmags.backgammon.setup.IBoard;
+import net.ichmags.backgammon.setup.IDice;
+
+/**
+ * The {@code TranspositionTable} is used by the {@link BoardGenerator} to cut recursion branches
+ * that reach an already visited {@link IBoard} constellation with the same remaining {@link IDice} values.
+ * All {@link IBoard}s reachable from such a branch were already found, so only the first branch is played.
+ * <p>
+ * The key combines the {@link IPackedPosition#hash()}, e.g. the {@link PackedBoard#hash()} which includes the
+ * <i>position 0</i>, with a Zobrist hash of the {@link IDice} values played so far. The visited keys are stored
+ * in a primitive open addressing set, so no boxing takes place. Every entry also keeps the state written by
+ * {@link IPackedPosition#store(int[], int)} and the played {@link IDice} values: two constellations with the
+ * same key are only taken as equal if these are equal as well, so a collision of the 64 bit keys cannot
+ * drop a constellation.
+ * <p>
+ * A {@code TranspositionTable} is not thread safe; use one per recursion.
+ *
+ * @author Anastasios Patrikis
+ */
+public class TranspositionTable {
+
+	private static final int MAX_DICE_VALUE = 6;
+	private static final int MAX_DICE_COUNT = 4;
+	private static final int DICE_COUNT_BITS = 3;
+	private static final long[] DICE_KEYS;
+	private static final long EMPTY = 0L;
+	private static final long EMPTY_REPLACEMENT = 0x5bd1e995L;
+
+	static {
+		Random random = new Random(0x2d5eL);
+		DICE_KEYS = new long[(MAX_DICE_VALUE + 1) * (MAX_DICE_COUNT + 1)];
+		for(int pos = 0; pos < DICE_KEYS.length; pos++) {
+			DICE_KEYS[pos] = random.nextLong();
+		}
+	}
+
+	private final int[] playedCount;
+	private long diceKey;
+	private int playedDices; // DICE_COUNT_BITS per value: the playedCount of the IDice values
+
+	private long[] keys;
+	private int[] states;
+	private int stride;
+	private int[] probe;
+	private int size;
+
+	/**
+	 * Constructor.
+	 */
+	public TranspositionTable() {
+		playedCount = new int[MAX_DICE_VALUE + 1];
+		diceKey = 0L;
+		playedDices = 0;
+		keys = new long[256];
+		states = new int[0];
+		stride = 0;
+		probe = new int[0];
+		size = 0;
+	}
+
+	/**
+	 * Register a played {@link IDice} and the resulting constellation.
+	 * Each call must be followed by a call of {@link #leave(int)}, also when the constellation is known.
+	 *
+	 * @param position the constellation after the {@link IDice} was played.
+	 * @param diceValue the value of the played {@link IDice}.
+	 * @return {@code true} if the constellation was not visited before with the same remaining {@link IDice}s.
+	 */
+	public boolean enter(IPackedPosition position, int diceValue) {
+		int count = ++playedCount[diceValue];
+		diceKey ^= DICE_KEYS[diceValue * (MAX_DICE_COUNT + 1) + count];
+		playedDices += 1 << (diceValue * DICE_COUNT_BITS);
+		return add(position.hash() ^ diceKey, position, playedDices);
+	}
+
+	/**
+	 * Revert the latest {@link #enter(IPackedPosition, int)} for the {@link IDice}.
+	 *
+	 * @param diceValue the value of the {@link IDice} to take back.
+	 */
+	public void leave(int diceValue) {
+		int count = playedCount[diceValue]--;
+		diceKey ^= DICE_KEYS[diceValue * (MAX_DICE_COUNT + 1) + count];
+		playedDices -= 1 << (diceValue * DICE_COUNT_BITS);
+	}
+
+	/**
+	 * Get the number of visited constellations.
+	 *
+	 * @return the number of distinct constellations.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Remove all visited constellations, so the {@code TranspositionTable} can be reused without allocation.
+	 */
+	public void clear() {
+		Arrays.fill(keys, EMPTY);
+		Arrays.fill(playedCount, 0);
+		diceKey = 0L;
+		playedDices = 0;
+		size = 0;
+	}
+
+	/**
+	 * Add a constellation to the set of visited constellations, without any played {@link IDice}.
+	 *
+	 * @param position the constellation.
+	 * @return {@code true} if the constellation was not contained before.
+	 */
+	public boolean add(IPackedPosition position) {
+		return add(position.hash(), position, 0);
+	}
+
+	private boolean add(long key, IPackedPosition position, int dices) {
+		if(key == EMPTY) {
+			key = EMPTY_REPLACEMENT;
+		}
+		prepare(position.getStateSize() + 1);
+		if((size + 1) * 2 > keys.length) {
+			grow();
+		}
+		int mask = keys.length - 1;
+		int slot = slot(key, mask);
+		boolean stored = false;
+		while(keys[slot] != EMPTY) {
+			if(keys[slot] == key) {
+				// the same key: only equal if the state is equal, too
+				if( ! stored) {
+					position.store(probe, 0);
+					probe[stride - 1] = dices;
+					stored = true;
+				}
+				if(isProbe(slot)) {
+					return false;
+				}
+			}
+			slot = (slot + 1) & mask;
+		}
+		keys[slot] = key;
+		position.store(states, slot * stride);
+		states[slot * stride + stride - 1] = dices;
+		size++;
+		return true;
+	}
+
+	/**
+	 * Adjust the arrays for the state of the constellations, which must have the same size until {@link #clear()}.
+	 */
+	private void prepare(int entrySize) {
+		if(entrySize == stride) {
+			return;
+		}
+		if(size > 0) {
+			throw new IllegalArgumentException("State size " + (entrySize - 1) + " differs from " + (stride - 1));
+		}
+		stride = entrySize;
+		states = new int[keys.length * stride];
+		probe = new int[stride];
+	}
+
+	private boolean isProbe(int slot) {
+		int offset = slot * stride;
+		for(int pos = 0; pos < stride; pos++) {
+			if(states[offset + pos] != probe[pos]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void grow() {
+		long[] largerKeys = new long[keys.length * 2];
+		int[] largerStates = new int[largerKeys.length * stride];
+		int mask = largerKeys.length - 1;
+		for(int old = 0; old < keys.length; old++) {
+			long key = keys[old];
+			if(key != EMPTY) {
+				int slot = slot(key, mask);
+				while(largerKeys[slot] != EMPTY) {
+					slot = (slot + 1) & mask;
+				}
+				largerKeys[slot] = key;
+				System.arraycopy(states, old * stride, largerStates, slot * stride, stride);
+			}
+		}
+		keys = largerKeys;
+		states = largerStates;
+	}
+
+	private static int slot(long key, int mask) {
+		return (int)(key ^ (key >>> 32)) & mask;
+	}
+}
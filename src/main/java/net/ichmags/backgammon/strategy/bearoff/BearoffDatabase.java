@@ -0,0 +1,323 @@
+/*
+ * www.ichmags.net - Backgammon
+ */
+package net.ichmags.backgammon.strategy.bearoff;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import net.ichmags.backgammon.setup.IChecker;
+import net.ichmags.backgammon.strategy.search.SearchBoard;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@code BearoffDatabase} knows for every distribution of up to {@link #getMaxCheckers()} {@link IChecker}s
+ * on the {@value #POINTS} home points the probability to collect all of them in exactly {@code n} rolls, when
+ * every roll is played to minimize the expected number of rolls. It is <i>one-sided</i>: the opponent is ignored,
+ * so it is exact once no {@link IChecker}s can meet any more, i.e. both sides have all {@link IChecker}s at home.
+ * <p>
+ * The database is a binary file which is memory mapped; every position has a fixed size entry at the
+ * offset given by {@link #index(int[])}, so a probe does not search. The file is created by the
+ * {@link BearoffDatabaseBuilder}. Format (big endian):
+ * <ul>
+ * <li>header: {@value #MAGIC} ({@code int}), {@value #VERSION} ({@code int}), maximum number of {@link IChecker}s
+ * ({@code int}), number of rolls per entry ({@code int})</li>
+ * <li>entries, by index: the probability to need exactly {@code 0}, {@code 1}, ... rolls, as unsigned {@code short}
+ * scaled to {@value #PROBABILITY_SCALE}; the last value includes all longer bearoffs</li>
+ * </ul>
+ * The default database is loaded from the file set in the system property {@value #FILE_PROPERTY}.
+ *
+ * @author Anastasios Patrikis
+ */
+public class BearoffDatabase {
+
+	private static final Logger LOG = LoggerFactory.getLogger(BearoffDatabase.class);
+
+	/**
+	 * The system property with the file name of the default database ({@value #FILE_PROPERTY}).
+	 */
+	public static final String FILE_PROPERTY = "net.ichmags.backgammon.bearoff";
+
+	/**
+	 * The number of home points ({@value #POINTS}).
+	 */
+	public static final int POINTS = 6;
+
+	/**
+	 * The maximum number of {@link IChecker}s of a side ({@value #MAX_CHECKERS}).
+	 */
+	public static final int MAX_CHECKERS = 15;
+
+	/**
+	 * The number of rolls stored per position ({@value #MAX_ROLLS}); 15 {@link IChecker}s on the 6 point need at most 30.
+	 */
+	public static final int MAX_ROLLS = 32;
+
+	static final int MAGIC = 0x4942444F; // "IBDO"
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 16;
+	static final int PROBABILITY_SCALE = 0xFFFF;
+
+	private static final int[][] COMBINATIONS = combinations(POINTS + MAX_CHECKERS + 1);
+	private static final BearoffDatabase EMPTY = new BearoffDatabase(ByteBuffer.allocate(HEADER_SIZE), 0, 0);
+	private static volatile BearoffDatabase defaultDatabase;
+
+	private final ByteBuffer data;
+	private final int maxCheckers;
+	private final int rolls;
+	private final int entrySize;
+
+	private BearoffDatabase(ByteBuffer data, int maxCheckers, int rolls) {
+		this.data = data;
+		this.maxCheckers = maxCheckers;
+		this.rolls = rolls;
+		this.entrySize = 2 * rolls;
+	}
+
+	/**
+	 * Memory map a database file.
+	 *
+	 * @param file the database file created by the {@link BearoffDatabaseBuilder}.
+	 * @return the {@code BearoffDatabase}.
+	 * @throws IOException if the file cannot be read or has the wrong format.
+	 */
+	public static BearoffDatabase open(Path file) throws IOException {
+		try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if(data.capacity() < HEADER_SIZE || data.getInt(0) != MAGIC || data.getInt(4) != VERSION) {
+				throw new IOException("Not a bearoff database: " + file);
+			}
+			int maxCheckers = data.getInt(8);
+			int rolls = data.getInt(12);
+			if(maxCheckers < 1 || maxCheckers > MAX_CHECKERS || rolls < 2) {
+				throw new IOException("Unsupported bearoff database: " + file);
+			}
+			if(data.capacity() < HEADER_SIZE + (long)positions(maxCheckers) * 2 * rolls) {
+				throw new IOException("Truncated bearoff database: " + file);
+			}
+			LOG.info("Bearoff database {} mapped for {} checkers", file, maxCheckers);
+			return new BearoffDatabase(data, maxCheckers, rolls);
+		}
+	}
+
+	/**
+	 * Get the database without entries.
+	 *
+	 * @return the empty {@code BearoffDatabase}.
+	 */
+	public static BearoffDatabase empty() {
+		return EMPTY;
+	}
+
+	/**
+	 * Get the default database, which is mapped on the first call. If the system property {@value #FILE_PROPERTY}
+	 * is not set or the file cannot be read, the {@link #empty()} database is used.
+	 *
+	 * @return the default {@code BearoffDatabase}.
+	 */
+	public static BearoffDatabase getDefault() {
+		if(defaultDatabase == null) {
+			synchronized (BearoffDatabase.class) {
+				if(defaultDatabase == null) {
+					defaultDatabase = loadDefault();
+				}
+			}
+		}
+		return defaultDatabase;
+	}
+
+	private static BearoffDatabase loadDefault() {
+		String fileName = System.getProperty(FILE_PROPERTY);
+		if(fileName == null) {
+			return EMPTY;
+		}
+		try {
+			return open(Paths.get(fileName));
+		} catch (IOException e) {
+			LOG.error("Cannot load bearoff database " + fileName, e);
+			return EMPTY;
+		}
+	}
+
+	/**
+	 * Get the maximum number of {@link IChecker}s per side.
+	 *
+	 * @return the number of {@link IChecker}s, {@code 0} for the {@link #empty()} database.
+	 */
+	public int getMaxCheckers() {
+		return maxCheckers;
+	}
+
+	/**
+	 * Get the number of rolls stored per position.
+	 *
+	 * @return the number of probabilities per position.
+	 */
+	public int getRolls() {
+		return rolls;
+	}
+
+	/**
+	 * Get the number of positions.
+	 *
+	 * @return the number of {@link IChecker} distributions with up to {@link #getMaxCheckers()} {@link IChecker}s.
+	 */
+	public int size() {
+		return positions(maxCheckers);
+	}
+
+	/**
+	 * Get the index of a position.
+	 *
+	 * @param counts the number of {@link IChecker}s on the home points, {@code counts[0]} is the point next to the exit.
+	 * @return the index of the entry, {@code -1} if there are too many {@link IChecker}s.
+	 */
+	public int index(int[] counts) {
+		return index(counts, maxCheckers);
+	}
+
+	/**
+	 * Get the index of a side of a {@link SearchBoard}.
+	 *
+	 * @param board the {@link SearchBoard}.
+	 * @param side {@link SearchBoard#SELF} or {@link SearchBoard#OPPONENT}.
+	 * @return the index of the entry, {@code -1} if the side is not at home or has too many {@link IChecker}s.
+	 */
+	public int index(SearchBoard board, int side) {
+		if(! board.isAllHome(side)) {
+			return -1;
+		}
+		int index = 0;
+		int remaining = maxCheckers;
+		for(int point = 0; point < POINTS; point++) {
+			int count = board.getCount(side, SearchBoard.OFF - 1 - point);
+			if(count > remaining) {
+				return -1;
+			}
+			index += rankOffset(POINTS - 1 - point, remaining, count);
+			remaining -= count;
+		}
+		return index;
+	}
+
+	/**
+	 * Get the probability to collect all {@link IChecker}s in exactly a number of rolls.
+	 *
+	 * @param index the index of the position, see {@link #index(int[])}.
+	 * @param roll the number of rolls, {@code 0} to {@link #getRolls()} - 1.
+	 * @return the probability, {@code 0} to {@code 1}.
+	 */
+	public double getProbability(int index, int roll) {
+		return (data.getShort(HEADER_SIZE + index * entrySize + 2 * roll) & 0xFFFF) / (double)PROBABILITY_SCALE;
+	}
+
+	/**
+	 * Get the expected number of rolls to collect all {@link IChecker}s.
+	 *
+	 * @param index the index of the position, see {@link #index(int[])}.
+	 * @return the expected number of rolls.
+	 */
+	public double getExpectedRolls(int index) {
+		double expected = 0.0d;
+		for(int roll = 1; roll < rolls; roll++) {
+			expected += roll * getProbability(index, roll);
+		}
+		return expected;
+	}
+
+	/**
+	 * Get the probability to win the race for the side that just moved; the opponent rolls next.
+	 *
+	 * @param index the index of the position of the side that just moved.
+	 * @param opponentIndex the index of the position of the opponent.
+	 * @return the probability to collect all {@link IChecker}s before the opponent, {@code 0} to {@code 1}.
+	 */
+	public double getWinProbability(int index, int opponentIndex) {
+		double opponentLater = 1.0d; // the probability that the opponent needs more than roll rolls
+		double win = 0.0d;
+		for(int roll = 0; roll < rolls; roll++) {
+			opponentLater -= getProbability(opponentIndex, roll);
+			win += getProbability(index, roll) * Math.max(0.0d, opponentLater);
+		}
+		return Math.min(1.0d, win);
+	}
+
+	/**
+	 * Get the index of a position.
+	 *
+	 * @param counts the number of {@link IChecker}s on the home points, {@code counts[0]} is the point next to the exit.
+	 * @param maxCheckers the maximum number of {@link IChecker}s of the database.
+	 * @return the index, {@code -1} if there are too many {@link IChecker}s.
+	 */
+	static int index(int[] counts, int maxCheckers) {
+		int index = 0;
+		int remaining = maxCheckers;
+		for(int point = 0; point < POINTS; point++) {
+			if(counts[point] > remaining) {
+				return -1;
+			}
+			index += rankOffset(POINTS - 1 - point, remaining, counts[point]);
+			remaining -= counts[point];
+		}
+		return index;
+	}
+
+	/**
+	 * Get the position of an index, the reverse of {@link #index(int[], int)}.
+	 *
+	 * @param index the index.
+	 * @param maxCheckers the maximum number of {@link IChecker}s of the database.
+	 * @param counts the number of {@link IChecker}s on the home points, which are overwritten.
+	 */
+	static void position(int index, int maxCheckers, int[] counts) {
+		int remaining = maxCheckers;
+		for(int point = 0; point < POINTS; point++) {
+			int rest = POINTS - 1 - point;
+			int count = 0;
+			// the positions with count on this point start at rankOffset(rest, remaining, count)
+			while(count < remaining && rankOffset(rest, remaining, count + 1) <= index) {
+				count++;
+			}
+			index -= rankOffset(rest, remaining, count);
+			counts[point] = count;
+			remaining -= count;
+		}
+	}
+
+	/**
+	 * Get the number of positions with up to a number of {@link IChecker}s.
+	 *
+	 * @param maxCheckers the maximum number of {@link IChecker}s.
+	 * @return the number of positions.
+	 */
+	static int positions(int maxCheckers) {
+		return COMBINATIONS[POINTS + maxCheckers][POINTS];
+	}
+
+	/**
+	 * Count the positions where a point has less than {@code count} {@link IChecker}s, and the {@code rest} points
+	 * after it share the remaining {@link IChecker}s: the sum of {@code C(rest + remaining - v, rest)} for all
+	 * {@code v < count}.
+	 */
+	private static int rankOffset(int rest, int remaining, int count) {
+		return COMBINATIONS[rest + remaining + 1][rest + 1] - COMBINATIONS[rest + remaining - count + 1][rest + 1];
+	}
+
+	private static int[][] combinations(int size) {
+		int[][] combinations = new int[size + 1][size + 1];
+		for(int n = 0; n <= size; n++) {
+			combinations[n][0] = 1;
+			for(int k = 1; k <= n; k++) {
+				combinations[n][k] = combinations[n - 1][k - 1] + combinations[n - 1][k];
+			}
+		}
+		return combinations;
+	}
+}
@@ -0,0 +1,213 @@
+/*
+ * www.ichmags.net - Backgammon
+ */
+package net.ichmags.backgammon.strategy.bearoff;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.IntStream;
+
+import net.ichmags.backgammon.setup.IChecker;
+import net.ichmags.backgammon.setup.IDice;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@code BearoffDatabaseBuilder} calculates a {@link BearoffDatabase} offline.
+ * <p>
+ * The positions are solved by increasing pip count, so every position reached by a roll is already known.
+ * For each of the 21 different rolls the {@link IChecker}s are moved in all possible ways, and the resulting
+ * position with the lowest expected number of rolls is chosen; the distribution of the position is the
+ * weighted sum of the distributions of the chosen positions, one roll later.
+ * <p>
+ * Usage: {@code BearoffDatabaseBuilder <database file> [maximum checkers]}.
+ *
+ * @author Anastasios Patrikis
+ */
+public class BearoffDatabaseBuilder {
+
+	private static final Logger LOG = LoggerFactory.getLogger(BearoffDatabaseBuilder.class);
+
+	private static final int DICE_VALUES = 6;
+
+	private final int maxCheckers;
+	private final int rolls;
+	private final int[] counts;
+	private double[][] distributions;
+	private double[] expected;
+	private int best;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param maxCheckers the maximum number of {@link IChecker}s, at most {@value BearoffDatabase#MAX_CHECKERS}.
+	 * @param rolls the number of rolls stored per position, e.g. {@value BearoffDatabase#MAX_ROLLS}.
+	 */
+	public BearoffDatabaseBuilder(int maxCheckers, int rolls) {
+		if(maxCheckers < 1 || maxCheckers > BearoffDatabase.MAX_CHECKERS || rolls < 2) {
+			throw new IllegalArgumentException("Unsupported bearoff database: " + maxCheckers + " checkers, " + rolls + " rolls");
+		}
+		this.maxCheckers = maxCheckers;
+		this.rolls = rolls;
+		this.counts = new int[BearoffDatabase.POINTS];
+	}
+
+	/**
+	 * Calculate the distributions of all positions.
+	 *
+	 * @return this instance.
+	 */
+	public BearoffDatabaseBuilder build() {
+		int size = BearoffDatabase.positions(maxCheckers);
+		distributions = new double[size][];
+		expected = new double[size];
+		int[] pips = new int[size];
+		for(int index = 0; index < size; index++) {
+			BearoffDatabase.position(index, maxCheckers, counts);
+			for(int point = 0; point < BearoffDatabase.POINTS; point++) {
+				pips[index] += counts[point] * (point + 1);
+			}
+		}
+		Integer[] order = IntStream.range(0, size).boxed().toArray(Integer[]::new);
+		Arrays.sort(order, Comparator.comparingInt(index -> pips[index]));
+
+		for(int index : order) {
+			solve(index);
+		}
+		return this;
+	}
+
+	private void solve(int index) {
+		double[] distribution = new double[rolls];
+		distributions[index] = distribution;
+		BearoffDatabase.position(index, maxCheckers, counts);
+		if(Arrays.stream(counts).sum() == 0) {
+			distribution[0] = 1.0d;
+			return;
+		}
+
+		int[] dices = new int[4];
+		for(int first = 1; first <= DICE_VALUES; first++) {
+			for(int second = first; second <= DICE_VALUES; second++) {
+				best = -1;
+				if(first == second) {
+					Arrays.fill(dices, first);
+					play(dices, 4, 0);
+				} else {
+					dices[0] = first;
+					dices[1] = second;
+					play(dices, 2, 0);
+					dices[0] = second;
+					dices[1] = first;
+					play(dices, 2, 0);
+				}
+				double weight = ((first == second) ? 1.0d : 2.0d) / 36.0d;
+				double[] next = distributions[best];
+				for(int roll = 0; roll < rolls; roll++) {
+					distribution[Math.min(roll + 1, rolls - 1)] += weight * next[roll];
+				}
+			}
+		}
+		for(int roll = 1; roll < rolls; roll++) {
+			expected[index] += roll * distribution[roll];
+		}
+	}
+
+	/**
+	 * Play the remaining {@link IDice} values in all possible ways and keep the result with the lowest expected
+	 * number of rolls in {@link #best}. Every {@link IDice} value can be played while {@link IChecker}s are left.
+	 */
+	private void play(int[] dices, int count, int depth) {
+		int highest = BearoffDatabase.POINTS - 1;
+		while(highest >= 0 && counts[highest] == 0) {
+			highest--;
+		}
+		if(depth == count || highest < 0) {
+			int index = BearoffDatabase.index(counts, maxCheckers);
+			if(best < 0 || expected[index] < expected[best]) {
+				best = index;
+			}
+			return;
+		}
+
+		int dice = dices[depth];
+		for(int point = 0; point <= highest; point++) {
+			if(counts[point] == 0) {
+				continue;
+			}
+			int target = point - dice;
+			if(target < -1 && point != highest) {
+				continue; // a higher dice value may only be used for the last checker
+			}
+			counts[point]--;
+			if(target >= 0) {
+				counts[target]++;
+			}
+			play(dices, count, depth + 1);
+			if(target >= 0) {
+				counts[target]--;
+			}
+			counts[point]++;
+		}
+	}
+
+	/**
+	 * Get the probability to collect all {@link IChecker}s in exactly a number of rolls.
+	 *
+	 * @param index the index of the position, see {@link BearoffDatabase#index(int[])}.
+	 * @param roll the number of rolls.
+	 * @return the probability, {@code 0} to {@code 1}.
+	 */
+	public double getProbability(int index, int roll) {
+		return distributions[index][roll];
+	}
+
+	/**
+	 * Write the database file.
+	 *
+	 * @param file the file to create or replace.
+	 * @throws IOException if the file cannot be written.
+	 */
+	public void write(Path file) throws IOException {
+		try(OutputStream stream = Files.newOutputStream(file); DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream))) {
+			out.writeInt(BearoffDatabase.MAGIC);
+			out.writeInt(BearoffDatabase.VERSION);
+			out.writeInt(maxCheckers);
+			out.writeInt(rolls);
+			for(double[] distribution : distributions) {
+				for(double probability : distribution) {
+					out.writeShort((int)Math.round(probability * BearoffDatabase.PROBABILITY_SCALE));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Build a database file, see the class description for the arguments.
+	 *
+	 * @param args the command line arguments.
+	 * @throws IOException if the database file cannot be written.
+	 */
+	public static void main(String[] args) throws IOException {
+		if(args.length < 1) {
+			System.err.println("Usage: BearoffDatabaseBuilder <database file> [maximum checkers]");
+			System.exit(1);
+		}
+		Path file = Paths.get(args[0]);
+		int maxCheckers = (args.length > 1) ? Integer.parseInt(args[1]) : BearoffDatabase.MAX_CHECKERS;
+
+		long start = System.nanoTime();
+		BearoffDatabaseBuilder builder = new BearoffDatabaseBuilder(maxCheckers, BearoffDatabase.MAX_ROLLS).build();
+		builder.write(file);
+		LOG.info("Bearoff database with {} positions written to {} in {} s", BearoffDatabase.positions(maxCheckers), file,
+				(System.nanoTime() - start) / 1_000_000_000L);
+	}
+}
@@ -0,0 +1,12 @@
+/*
+ * www.ichmags.net - Backgammon
+ */
+
+/**
+ * This package provides the one-sided bearoff database, which solves races where all
+ * {@link net.ichmags.backgammon.setup.IChecker}s of both {@link net.ichmags.backgammon.setup.IPlayer}s
+ * are at home, and the tool to build it.
+ * 
+ * @author Anastasios Patrikis
+ */
+package net.ichmags.backgammon.strategy.bearoff;
@@ -0,0 +1,149 @@
+/*
+ * www.ichmags.net - Backgammon
+ */
+package net.ichmags.backgammon.strategy.impl;
+
+import java.util.Arrays;
+import java.util.List;
+
+import net.ichmags.backgammon.game.IGame;
+import net.ichmags.backgammon.setup.IBoard;
+import net.ichmags.backgammon.setup.IChecker;
+import net.ichmags.backgammon.setup.IPlayer;
+import net.ichmags.backgammon.strategy.BoardGenerator;
+import net.ichmags.backgammon.strategy.BoardMovesCombination;
+import net.ichmags.backgammon.strategy.IBatchStrategy;
+import net.ichmags.backgammon.strategy.ICacheableStrategy;
+import net.ichmags.backgammon.strategy.IStrategy;
+import net.ichmags.backgammon.strategy.bearoff.BearoffDatabase;
+import net.ichmags.backgammon.strategy.search.GameType;
+import net.ichmags.backgammon.strategy.search.SearchBoard;
+
+/**
+ * The {@code BearoffStrategy} is a implementation of the {@link IStrategy} interface, which solves races where all
+ * {@link IChecker}s of both {@link IPlayer}s are at home: the result is the exact chance to win the race, looked up
+ * in the {@link BearoffDatabase}.
+ * <p>
+ * It is only useful for complete sets of bearoff candidates, so it is not registered for any {@link IPlayer.Level}: it has
+ * no constructor without parameters, so the {@link net.ichmags.backgammon.strategy.StrategyManager} does not pick it
+ * up, and {@link #suitableForPlayerLevel()} is the highest {@link IPlayer.Level} in case it is registered by hand.
+ * The computer {@link IPlayer} asks it directly when {@link #isApplicable(IPlayer, List)} is {@code true}.
+ * Candidates that are not in the {@link BearoffDatabase} or not created by the {@link BoardGenerator} get half of
+ * the {@link #LIMIT}, and so does a single {@link IBoard} passed to {@link #evaluate(IPlayer, IBoard, IBoard, IPlayer.PlayStyle)}.
+ *
+ * @author Anastasios Patrikis
+ */
+public class BearoffStrategy implements IBatchStrategy, ICacheableStrategy {
+
+	/**
+	 * The maximum value {@link #evaluate(IPlayer, IBoard, IBoard, IPlayer.PlayStyle)} can return ({@value #LIMIT}).
+	 * It is high, as the moves of a bearoff often differ by a small chance only.
+	 */
+	public static final int LIMIT = 1_000_000;
+
+	private final BearoffDatabase database;
+	private final ThreadLocal<SearchBoard[]> boards = ThreadLocal.withInitial(() -> new SearchBoard[GameType.values().length]);
+
+	/**
+	 * Constructor.
+	 *
+	 * @param database the {@link BearoffDatabase}.
+	 */
+	public BearoffStrategy(BearoffDatabase database) {
+		this.database = database;
+	}
+
+	@Override
+	public IPlayer.Level suitableForPlayerLevel() {
+		return IPlayer.Level.EXPERT;
+	}
+
+	@Override
+	public IPlayer.PlayStyle suitableForPlayStyle() {
+		return IPlayer.PlayStyle.OFFENSIVE;
+	}
+
+	@Override
+	public int getLimit() {
+		return LIMIT;
+	}
+
+	/**
+	 * Check if all candidates are positions of the {@link BearoffDatabase}.
+	 *
+	 * @param player the {@link IPlayer} who moved.
+	 * @param candidates the candidates created by the {@link BoardGenerator}.
+	 * @return {@code true} if all of them can be judged exactly.
+	 */
+	public boolean isApplicable(IPlayer player, List<BoardMovesCombination> candidates) {
+		if(database.getMaxCheckers() == 0 || candidates.isEmpty()) {
+			return false;
+		}
+		SearchBoard board = getBoard(candidates.get(0).getGame());
+		if(board == null) {
+			return false;
+		}
+		int mover = player.getID().ordinal();
+		for(BoardMovesCombination candidate : candidates) {
+			byte[] snapshot = candidate.getSnapshot();
+			if(snapshot == null) {
+				return false;
+			}
+			board.load(snapshot, mover);
+			if(database.index(board, SearchBoard.SELF) < 0 || database.index(board, SearchBoard.OPPONENT) < 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * A single {@link IBoard} has no snapshot to look up in the {@link BearoffDatabase}, so this returns the neutral
+	 * value, see {@link IBatchStrategy}.
+	 */
+	@Override
+	public int evaluate(IPlayer player, IBoard boardBefore, IBoard boardAfter, IPlayer.PlayStyle preferedPlayStyle) {
+		return LIMIT / 2;
+	}
+
+	@Override
+	public void evaluate(IPlayer player, IBoard boardBefore, List<BoardMovesCombination> candidates, IPlayer.PlayStyle preferedPlayStyle, int[] scores) {
+		int count = candidates.size();
+		Arrays.fill(scores, 0, count, LIMIT / 2);
+		SearchBoard board = (count == 0 || database.getMaxCheckers() == 0) ? null : getBoard(candidates.get(0).getGame());
+		if(board == null) {
+			return;
+		}
+
+		// every candidate is judged on its own, so the result does not depend on the other candidates
+		int mover = player.getID().ordinal();
+		for(int pos = 0; pos < count; pos++) {
+			byte[] snapshot = candidates.get(pos).getSnapshot();
+			if(snapshot != null) {
+				board.load(snapshot, mover);
+				scores[pos] = score(board);
+			}
+		}
+	}
+
+	private int score(SearchBoard board) {
+		int self = database.index(board, SearchBoard.SELF);
+		int opponent = database.index(board, SearchBoard.OPPONENT);
+		if(self < 0 || opponent < 0) {
+			return LIMIT / 2;
+		}
+		return (int)Math.round(database.getWinProbability(self, opponent) * LIMIT);
+	}
+
+	private SearchBoard getBoard(IGame game) {
+		if(game == null) {
+			return null;
+		}
+		GameType type = GameType.of(game);
+		SearchBoard[] threadBoards = boards.get();
+		if(threadBoards[type.ordinal()] == null) {
+			threadBoards[type.ordinal()] = new SearchBoard(type);
+		}
+		return threadBoards[type.ordinal()];
+	}
+}
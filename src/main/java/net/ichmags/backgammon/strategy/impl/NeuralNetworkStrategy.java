@@ -0,0 +1,187 @@
+/*
+ * www.ichmags.net - Backgammon
+ */
+package net.ichmags.backgammon.strategy.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
+import net.ichmags.backgammon.game.IGame;
+import net.ichmags.backgammon.setup.IBoard;
+import net.ichmags.backgammon.setup.IPlayer;
+import net.ichmags.backgammon.strategy.BoardGenerator;
+import net.ichmags.backgammon.strategy.BoardMovesCombination;
+import net.ichmags.backgammon.strategy.IBatchStrategy;
+import net.ichmags.backgammon.strategy.ICacheableStrategy;
+import net.ichmags.backgammon.strategy.IStrategy;
+import net.ichmags.backgammon.strategy.neural.BoardEncoder;
+import net.ichmags.backgammon.strategy.neural.NeuralNetwork;
+import net.ichmags.backgammon.strategy.neural.NeuralTrainer;
+import net.ichmags.backgammon.strategy.search.GameType;
+import net.ichmags.backgammon.strategy.search.SearchBoard;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@code NeuralNetworkStrategy} is a implementation of the {@link IStrategy} interface for {@link IPlayer.Level#AVERAGE}.
+ * The chance to win each candidate is estimated by a {@link NeuralNetwork}; all candidates of a call are encoded into
+ * one matrix and evaluated as one batch.
+ * <p>
+ * There is one weight file per {@link GameType}, created by the {@link NeuralTrainer}: {@code portes.nn},
+ * {@code plakoto.nn} and {@code fevga.nn} in the directory set in the system property {@value #DIRECTORY_PROPERTY}.
+ * The files are read once, on first use. Without a weight file, for candidates not created by the
+ * {@link BoardGenerator}, and when {@link #evaluate(IPlayer, IBoard, IBoard, IPlayer.PlayStyle)} is called for a
+ * single {@link IBoard}, all of them get half of the {@link #LIMIT}.
+ * <p>
+ * The result depends only on the resulting {@link IBoard} and its {@link GameType}, so it may be cached.
+ *
+ * @author Anastasios Patrikis
+ */
+public class NeuralNetworkStrategy implements IBatchStrategy, ICacheableStrategy {
+
+	private static final Logger LOG = LoggerFactory.getLogger(NeuralNetworkStrategy.class);
+
+	/**
+	 * The maximum value {@link #evaluate(IPlayer, IBoard, IBoard, IPlayer.PlayStyle)} can return ({@value #LIMIT}).
+	 */
+	public static final int LIMIT = 1000;
+
+	/**
+	 * The system property for the directory of the weight files ({@value #DIRECTORY_PROPERTY}).
+	 */
+	public static final String DIRECTORY_PROPERTY = "net.ichmags.backgammon.neural.directory";
+
+	/**
+	 * The extension of the weight files ({@value #FILE_EXTENSION}).
+	 */
+	public static final String FILE_EXTENSION = ".nn";
+
+	private static final NeuralNetwork[] NETWORKS = new NeuralNetwork[GameType.values().length];
+	private static final boolean[] LOADED = new boolean[GameType.values().length];
+
+	private final ThreadLocal<Buffers> buffers = ThreadLocal.withInitial(Buffers::new);
+
+	/**
+	 * Get the {@link NeuralNetwork} of a {@link GameType}, which is read from the weight file on the first call.
+	 *
+	 * @param type the {@link GameType}.
+	 * @return the {@link NeuralNetwork}, {@code null} if there is no usable weight file.
+	 */
+	public static NeuralNetwork getNetwork(GameType type) {
+		synchronized (NETWORKS) {
+			if(! LOADED[type.ordinal()]) {
+				LOADED[type.ordinal()] = true;
+				NETWORKS[type.ordinal()] = load(type);
+			}
+			return NETWORKS[type.ordinal()];
+		}
+	}
+
+	private static NeuralNetwork load(GameType type) {
+		String directory = System.getProperty(DIRECTORY_PROPERTY);
+		if(directory == null) {
+			return null;
+		}
+		Path file = Paths.get(directory, type.name().toLowerCase() + FILE_EXTENSION);
+		if(! Files.exists(file)) {
+			return null;
+		}
+		try(InputStream input = Files.newInputStream(file)) {
+			NeuralNetwork network = NeuralNetwork.read(input);
+			if(network.getInputs() != BoardEncoder.INPUTS) {
+				LOG.error("Neural network {} has {} inputs, expected {}", file, network.getInputs(), BoardEncoder.INPUTS);
+				return null;
+			}
+			LOG.info("Neural network {} loaded with {} hidden units", file, network.getHidden());
+			return network;
+		} catch (IOException e) {
+			LOG.error("Cannot load neural network " + file, e);
+			return null;
+		}
+	}
+
+	@Override
+	public IPlayer.Level suitableForPlayerLevel() {
+		return IPlayer.Level.AVERAGE;
+	}
+
+	@Override
+	public IPlayer.PlayStyle suitableForPlayStyle() {
+		return IPlayer.PlayStyle.OFFENSIVE;
+	}
+
+	@Override
+	public int getLimit() {
+		return LIMIT;
+	}
+
+	/**
+	 * A single {@link IBoard} has no snapshot to encode and no {@link GameType} to choose the {@link NeuralNetwork},
+	 * so this returns the neutral value, see {@link IBatchStrategy}.
+	 */
+	@Override
+	public int evaluate(IPlayer player, IBoard boardBefore, IBoard boardAfter, IPlayer.PlayStyle preferedPlayStyle) {
+		return LIMIT / 2;
+	}
+
+	@Override
+	public void evaluate(IPlayer player, IBoard boardBefore, List<BoardMovesCombination> candidates, IPlayer.PlayStyle preferedPlayStyle, int[] scores) {
+		int count = candidates.size();
+		Arrays.fill(scores, 0, count, LIMIT / 2);
+		IGame game = (count == 0) ? null : candidates.get(0).getGame();
+		if(game == null) {
+			return;
+		}
+		GameType type = GameType.of(game);
+		NeuralNetwork network = getNetwork(type);
+		if(network == null) {
+			return;
+		}
+
+		Buffers buffer = buffers.get();
+		buffer.ensureCapacity(type, network, count);
+		int mover = player.getID().ordinal();
+		for(int pos = 0; pos < count; pos++) {
+			byte[] snapshot = candidates.get(pos).getSnapshot();
+			if(snapshot == null) {
+				return;
+			}
+			buffer.board.load(snapshot, mover);
+			BoardEncoder.encode(buffer.board, SearchBoard.SELF, buffer.matrix, pos, count);
+		}
+		network.evaluate(buffer.matrix, count, buffer.outputs, buffer.scratch);
+		for(int pos = 0; pos < count; pos++) {
+			scores[pos] = Math.round(buffer.outputs[pos] * LIMIT);
+		}
+	}
+
+	/**
+	 * The working buffers of one thread; they grow with the largest batch.
+	 */
+	private static final class Buffers {
+
+		private SearchBoard board;
+		private float[] matrix = new float[0];
+		private float[] outputs = new float[0];
+		private float[] scratch = new float[0];
+
+		void ensureCapacity(GameType type, NeuralNetwork network, int count) {
+			if(board == null || board.getType() != type) {
+				board = new SearchBoard(type);
+			}
+			if(outputs.length < count) {
+				outputs = new float[count];
+				matrix = new float[BoardEncoder.INPUTS * count];
+			}
+			if(scratch.length < network.getHidden() * count) {
+				scratch = new float[network.getHidden() * count];
+			}
+		}
+	}
+}
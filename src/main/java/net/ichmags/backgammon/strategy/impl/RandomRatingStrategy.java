@@ -3,20 +3,24 @@
  */
 package net.ichmags.backgammon.strategy.impl;
 
+import java.util.List;
 import java.util.Random;
 
 import net.ichmags.backgammon.setup.IBoard;
 import net.ichmags.backgammon.setup.IPlayer;
+import net.ichmags.backgammon.strategy.BoardMovesCombination;
+import net.ichmags.backgammon.strategy.IBatchStrategy;
 import net.ichmags.backgammon.strategy.IStrategy;
 
 /**
  * The {@code RandomRatingStrategy} is a implementation of the {@link IStrategy} interface.
  * This is a kind of dummy implementation that allows playing a game against the computer.
- * A evaluation does not take place, instead a random value is returned.
+ * A evaluation does not take place, instead a random value is returned; so the results must
+ * not be cached. As the {@link IBoard}s are not read, the batch evaluation does not materialize them.
  * 
  * @author Anastasios Patrikis
  */
-public class RandomRatingStrategy implements IStrategy {
+public class RandomRatingStrategy implements IBatchStrategy {
 
 	/**
 	 * The maximum value {@link #evaluate(IPlayer, IBoard, IBoard, net.ichmags.backgammon.setup.IPlayer.PlayStyle)}
@@ -43,4 +47,12 @@ public class RandomRatingStrategy implements IStrategy {
 	public int evaluate(IPlayer player, IBoard boardBefore, IBoard boardAfter, IPlayer.PlayStyle preferedPlayStyle) {
 		return new Random().nextInt(getLimit()) + 1;
 	}
+
+	@Override
+	public void evaluate(IPlayer player, IBoard boardBefore, List<BoardMovesCombination> candidates, IPlayer.PlayStyle preferedPlayStyle, int[] scores) {
+		Random random = new Random();
+		for(int pos = 0; pos < candidates.size(); pos++) {
+			scores[pos] = random.nextInt(getLimit()) + 1;
+		}
+	}
 }
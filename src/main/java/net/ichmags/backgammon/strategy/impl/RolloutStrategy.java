@@ -0,0 +1,346 @@
+/*
+ * www.ichmags.net - Backgammon
+ */
+package net.ichmags.backgammon.strategy.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.ichmags.backgammon.game.IGame;
+import net.ichmags.backgammon.setup.IBoard;
+import net.ichmags.backgammon.setup.IPlayer;
+import net.ichmags.backgammon.strategy.BoardGenerator;
+import net.ichmags.backgammon.strategy.BoardMovesCombination;
+import net.ichmags.backgammon.strategy.Deadline;
+import net.ichmags.backgammon.strategy.IBatchStrategy;
+import net.ichmags.backgammon.strategy.IStrategy;
+import net.ichmags.backgammon.strategy.search.GameType;
+import net.ichmags.backgammon.strategy.search.HeuristicEvaluator;
+import net.ichmags.backgammon.strategy.search.IPositionEvaluator;
+import net.ichmags.backgammon.strategy.search.PositionBuffer;
+import net.ichmags.backgammon.strategy.search.Rollout;
+import net.ichmags.backgammon.strategy.search.SearchBoard;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@code RolloutStrategy} is a implementation of the {@link IStrategy} interface for {@link IPlayer.Level#EXPERT}.
+ * The best candidates (by {@link HeuristicEvaluator}) are played to the end many times with a {@link Rollout}, and the
+ * share of won games is the result.
+ * <p>
+ * The rollouts are distributed with <i>sequential halving</i>: in every round each remaining candidate gets the same
+ * number of rollouts, then the worse half is dropped. The result ranks by the round a candidate was dropped in first and
+ * by its share of won games second, so a candidate that survived more rounds is always ranked higher.
+ * The total number of rollouts per call is limited. The rollouts
+ * run on a worker pool; every worker thread has its own {@link Rollout} instances with their own random number generator.
+ * When a {@link Deadline} is passed, every worker stops after the current rollout once it expires.
+ * The configuration is read from system properties:
+ * <ul>
+ * <li>{@value #THREADS_PROPERTY}: the number of worker threads, default is the number of processors</li>
+ * <li>{@value #MAX_ROLLOUTS_PROPERTY}: the maximum number of rollouts per call, default {@value #DEFAULT_MAX_ROLLOUTS}</li>
+ * <li>{@value #CANDIDATES_PROPERTY}: the number of candidates to roll out, default {@value #DEFAULT_CANDIDATES}</li>
+ * <li>{@value #POLICY_PROPERTY}: the {@link Rollout.Policy}, default {@link Rollout.Policy#GREEDY}</li>
+ * </ul>
+ * Candidates that are not rolled out get {@code 0}. The candidates must be created by the {@link BoardGenerator};
+ * otherwise, and when {@link #evaluate(IPlayer, IBoard, IBoard, IPlayer.PlayStyle)} is called for a single {@link IBoard},
+ * all of them get half of the {@link #LIMIT}. Results are random, so they must not be cached.
+ *
+ * @author Anastasios Patrikis
+ */
+public class RolloutStrategy implements IBatchStrategy {
+
+	private static final Logger LOG = LoggerFactory.getLogger(RolloutStrategy.class);
+
+	/**
+	 * The maximum value {@link #evaluate(IPlayer, IBoard, IBoard, IPlayer.PlayStyle)} can return ({@value #LIMIT}).
+	 */
+	public static final int LIMIT = 1000;
+
+	/**
+	 * The system property for the number of worker threads ({@value #THREADS_PROPERTY}).
+	 */
+	public static final String THREADS_PROPERTY = "net.ichmags.backgammon.rollout.threads";
+
+	/**
+	 * The system property for the maximum number of rollouts per call ({@value #MAX_ROLLOUTS_PROPERTY}).
+	 */
+	public static final String MAX_ROLLOUTS_PROPERTY = "net.ichmags.backgammon.rollout.max";
+
+	/**
+	 * The system property for the number of candidates to roll out ({@value #CANDIDATES_PROPERTY}).
+	 */
+	public static final String CANDIDATES_PROPERTY = "net.ichmags.backgammon.rollout.candidates";
+
+	/**
+	 * The system property for the {@link Rollout.Policy} ({@value #POLICY_PROPERTY}).
+	 */
+	public static final String POLICY_PROPERTY = "net.ichmags.backgammon.rollout.policy";
+
+	/**
+	 * The default maximum number of rollouts per call ({@value #DEFAULT_MAX_ROLLOUTS}).
+	 */
+	public static final int DEFAULT_MAX_ROLLOUTS = 2000;
+
+	/**
+	 * The default number of candidates to roll out ({@value #DEFAULT_CANDIDATES}).
+	 */
+	public static final int DEFAULT_CANDIDATES = 8;
+
+	private static final AtomicLong SEEDS = new AtomicLong(System.nanoTime());
+	private static volatile ExecutorService defaultWorkers;
+
+	private final ExecutorService workers;
+	private final int threads;
+	private final int maxRollouts;
+	private final int maxCandidates;
+	private final Rollout.Policy policy;
+	private final IPositionEvaluator evaluator;
+	private final ThreadLocal<Rollout[]> rollouts;
+
+	private volatile long lastRollouts;
+	private volatile long lastNanos;
+
+	/**
+	 * Constructor: uses a shared worker pool and the configuration from the system properties.
+	 */
+	public RolloutStrategy() {
+		this(getDefaultWorkers(), getThreads(), Integer.getInteger(MAX_ROLLOUTS_PROPERTY, DEFAULT_MAX_ROLLOUTS),
+				Integer.getInteger(CANDIDATES_PROPERTY, DEFAULT_CANDIDATES),
+				parsePolicy(System.getProperty(POLICY_PROPERTY)));
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param workers the {@link ExecutorService} running the rollouts.
+	 * @param threads the number of threads of the {@code workers}; the rollouts of a candidate are split into as many tasks.
+	 * @param maxRollouts the maximum number of rollouts per call.
+	 * @param maxCandidates the number of candidates to roll out.
+	 * @param policy the {@link Rollout.Policy}.
+	 */
+	public RolloutStrategy(ExecutorService workers, int threads, int maxRollouts, int maxCandidates, Rollout.Policy policy) {
+		this.workers = workers;
+		this.threads = Math.max(1, threads);
+		this.maxRollouts = Math.max(1, maxRollouts);
+		this.maxCandidates = Math.max(1, maxCandidates);
+		this.policy = policy;
+		this.evaluator = new HeuristicEvaluator();
+		this.rollouts = ThreadLocal.withInitial(() -> new Rollout[GameType.values().length]);
+	}
+
+	/**
+	 * Parse the value of the system property {@value #POLICY_PROPERTY}.
+	 *
+	 * @param value the name of the {@link Rollout.Policy}, case is ignored; may be {@code null}.
+	 * @return the {@link Rollout.Policy}, or {@link Rollout.Policy#GREEDY} if the value is {@code null} or no {@link Rollout.Policy}.
+	 */
+	static Rollout.Policy parsePolicy(String value) {
+		if(value == null) {
+			return Rollout.Policy.GREEDY;
+		}
+		try {
+			return Rollout.Policy.valueOf(value.trim().toUpperCase(Locale.ROOT));
+		} catch (IllegalArgumentException e) {
+			LOG.warn("Invalid value '{}' of {}, using {}", value, POLICY_PROPERTY, Rollout.Policy.GREEDY);
+			return Rollout.Policy.GREEDY;
+		}
+	}
+
+	private static int getThreads() {
+		return Integer.getInteger(THREADS_PROPERTY, Runtime.getRuntime().availableProcessors());
+	}
+
+	private static ExecutorService getDefaultWorkers() {
+		if(defaultWorkers == null) {
+			synchronized (RolloutStrategy.class) {
+				if(defaultWorkers == null) {
+					AtomicInteger number = new AtomicInteger();
+					defaultWorkers = Executors.newFixedThreadPool(getThreads(), runnable -> {
+						Thread thread = new Thread(runnable, "rollout-" + number.incrementAndGet());
+						thread.setDaemon(true);
+						return thread;
+					});
+				}
+			}
+		}
+		return defaultWorkers;
+	}
+
+	@Override
+	public IPlayer.Level suitableForPlayerLevel() {
+		return IPlayer.Level.EXPERT;
+	}
+
+	@Override
+	public IPlayer.PlayStyle suitableForPlayStyle() {
+		return IPlayer.PlayStyle.OFFENSIVE;
+	}
+
+	@Override
+	public int getLimit() {
+		return LIMIT;
+	}
+
+	/**
+	 * Get the number of rollouts played by the latest call.
+	 *
+	 * @return the number of rollouts.
+	 */
+	public long getLastRollouts() {
+		return lastRollouts;
+	}
+
+	/**
+	 * Get the speed of the latest call.
+	 *
+	 * @return the rollouts per second.
+	 */
+	public double getLastRolloutsPerSecond() {
+		long nanos = lastNanos;
+		return (nanos == 0L) ? 0.0d : lastRollouts * 1_000_000_000.0d / nanos;
+	}
+
+	/**
+	 * A single {@link IBoard} has no snapshot to roll out, so this returns the neutral value, see {@link IBatchStrategy}.
+	 */
+	@Override
+	public int evaluate(IPlayer player, IBoard boardBefore, IBoard boardAfter, IPlayer.PlayStyle preferedPlayStyle) {
+		return LIMIT / 2;
+	}
+
+	@Override
+	public void evaluate(IPlayer player, IBoard boardBefore, List<BoardMovesCombination> candidates, IPlayer.PlayStyle preferedPlayStyle, int[] scores) {
+		evaluate(player, boardBefore, candidates, preferedPlayStyle, scores, Deadline.NONE);
+	}
+
+	@Override
+	public void evaluate(IPlayer player, IBoard boardBefore, List<BoardMovesCombination> candidates, IPlayer.PlayStyle preferedPlayStyle, int[] scores, Deadline deadline) {
+		int count = candidates.size();
+		Arrays.fill(scores, 0, count, LIMIT / 2);
+		IGame game = (count < 2) ? null : candidates.get(0).getGame();
+		if(game == null) {
+			return;
+		}
+
+		long start = System.nanoTime();
+		GameType type = GameType.of(game);
+		int mover = player.getID().ordinal();
+		SearchBoard board = new SearchBoard(type);
+		PositionBuffer positions = new PositionBuffer(count);
+		List<Integer> remaining = new ArrayList<>(count);
+		double[] values = new double[count];
+		for(int pos = 0; pos < count; pos++) {
+			byte[] snapshot = candidates.get(pos).getSnapshot();
+			if(snapshot == null) {
+				return;
+			}
+			board.load(snapshot, mover);
+			positions.add(board);
+			values[pos] = evaluator.evaluate(board);
+			remaining.add(pos);
+		}
+		sortDescending(remaining, values);
+		if(remaining.size() > maxCandidates) {
+			remaining.subList(maxCandidates, remaining.size()).clear();
+		}
+
+		double[] wins = new double[count];
+		int[] played = new int[count];
+		int[] survived = new int[count];
+		int completed = 0;
+		long total = 0L;
+		int rounds = Math.max(1, 32 - Integer.numberOfLeadingZeros(remaining.size() - 1));
+		int perRound = maxRollouts / rounds;
+		try {
+			for(int round = 0; round < rounds && remaining.size() > 1 && ! deadline.isExpired(); round++) {
+				total += playRound(type, positions, remaining, Math.max(1, perRound / remaining.size()), wins, played, deadline);
+				for(int pos : remaining) {
+					values[pos] = (played[pos] == 0) ? 0.0d : wins[pos] / played[pos];
+				}
+				sortDescending(remaining, values);
+				remaining.subList((remaining.size() + 1) / 2, remaining.size()).clear();
+				for(int pos : remaining) {
+					survived[pos]++;
+				}
+				completed++;
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		// one band of the LIMIT per survived round, the share of won games ranks within the band
+		int band = LIMIT / (completed + 1);
+		for(int pos = 0; pos < count; pos++) {
+			scores[pos] = (played[pos] == 0) ? 0 : survived[pos] * band + (int)Math.round(wins[pos] / played[pos] * (band - 1));
+		}
+
+		lastRollouts = total;
+		lastNanos = System.nanoTime() - start;
+		LOG.debug("{} rollouts for {} candidates in {} ms ({} per second)", total, count,
+				lastNanos / 1_000_000L, Math.round(getLastRolloutsPerSecond()));
+	}
+
+	private long playRound(GameType type, PositionBuffer positions, List<Integer> remaining, int perCandidate,
+			double[] wins, int[] played, Deadline deadline) throws InterruptedException {
+		List<Callable<double[]>> tasks = new ArrayList<>();
+		List<Integer> taskCandidates = new ArrayList<>();
+		int perTask = (perCandidate + threads - 1) / threads;
+		for(int pos : remaining) {
+			for(int done = 0; done < perCandidate; done += perTask) {
+				int index = pos;
+				int taskRollouts = Math.min(perTask, perCandidate - done);
+				tasks.add(() -> playRollouts(type, positions, index, taskRollouts, deadline));
+				taskCandidates.add(pos);
+			}
+		}
+
+		long total = 0L;
+		List<Future<double[]>> results = workers.invokeAll(tasks);
+		for(int task = 0; task < results.size(); task++) {
+			try {
+				double[] result = results.get(task).get();
+				wins[taskCandidates.get(task)] += result[0];
+				played[taskCandidates.get(task)] += (int)result[1];
+				total += (long)result[1];
+			} catch (ExecutionException e) {
+				throw new RuntimeException("Rollout failed", e.getCause());
+			}
+		}
+		return total;
+	}
+
+	/**
+	 * Play rollouts on a worker thread; the {@link Deadline} is checked before every rollout.
+	 *
+	 * @return the sum of the results and the number of rollouts played.
+	 */
+	private double[] playRollouts(GameType type, PositionBuffer positions, int index, int count, Deadline deadline) {
+		Rollout[] threadRollouts = rollouts.get();
+		Rollout rollout = threadRollouts[type.ordinal()];
+		if(rollout == null) {
+			rollout = new Rollout(type, evaluator, policy, Rollout.DEFAULT_MAX_MOVES, SEEDS.getAndAdd(0x9e3779b97f4a7c15L));
+			threadRollouts[type.ordinal()] = rollout;
+		}
+		double wins = 0.0d;
+		int pos = 0;
+		for(; pos < count && ! deadline.isExpired(); pos++) {
+			wins += rollout.play(positions, index, SearchBoard.OPPONENT);
+		}
+		return new double[] { wins, pos };
+	}
+
+	private static void sortDescending(List<Integer> indexes, double[] values) {
+		Collections.sort(indexes, (first, second) -> Double.compare(values[second], values[first]));
+	}
+}
@@ -0,0 +1,55 @@
+/*
+ * www.ichmags.net - Backgammon
+ */
+package net.ichmags.backgammon.strategy.metrics;
+
+import java.util.Iterator;
+import java.util.ServiceLoader;
+
+/**
+ * The {@code EngineInstrumentation} holds the active {@link IEngineListener}. It is the first implementation
+ * registered in {@code META-INF/services}, or {@link IEngineListener#NOOP} if there is none; it can be replaced
+ * at any time with {@link #setListener(IEngineListener)}, e.g. with an {@link EngineMetrics} instance.
+ * 
+ * @author Anastasios Patrikis
+ */
+public final class EngineInstrumentation {
+	
+	private static volatile IEngineListener listener = load();
+	
+	private EngineInstrumentation() {
+		// static access only
+	}
+	
+	/**
+	 * Get the active {@link IEngineListener}.
+	 * 
+	 * @return the {@link IEngineListener}, never {@code null}.
+	 */
+	public static IEngineListener getListener() {
+		return listener;
+	}
+	
+	/**
+	 * Set the active {@link IEngineListener}.
+	 * 
+	 * @param engineListener the {@link IEngineListener}; {@code null} disables the instrumentation.
+	 */
+	public static void setListener(IEngineListener engineListener) {
+		listener = (engineListener == null) ? IEngineListener.NOOP : engineListener;
+	}
+	
+	/**
+	 * Check if an {@link IEngineListener} is active, so callers can skip preparing the values.
+	 * 
+	 * @return {@code false} for {@link IEngineListener#NOOP}.
+	 */
+	public static boolean isEnabled() {
+		return listener != IEngineListener.NOOP;
+	}
+	
+	private static IEngineListener load() {
+		Iterator<IEngineListener> registered = ServiceLoader.load(IEngineListener.class).iterator();
+		return registered.hasNext() ? registered.next() : IEngineListener.NOOP;
+	}
+}
@@ -0,0 +1,118 @@
+/*
+ * www.ichmags.net - Backgammon
+ */
+package net.ichmags.backgammon.strategy.metrics;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import net.ichmags.backgammon.setup.IPlayer;
+import net.ichmags.backgammon.strategy.IStrategy;
+
+/**
+ * The {@code EngineMetrics} is an {@link IEngineListener} collecting everything in {@link Histogram}s:
+ * <ul>
+ * <li>{@code phase.<name>.nanos}: the time per {@link IEngineListener.Phase}</li>
+ * <li>{@code generator.nodes}, {@code generator.leaves}, {@code generator.unique}: the counts per turn</li>
+ * <li>{@code generator.unique_permille}: the distinct boards per thousand generated boards</li>
+ * <li>{@code strategy.<class>.nanos}, {@code strategy.<class>.boards}: the evaluation per {@link IStrategy}</li>
+ * <li>{@code turn.nanos}: the time per turn</li>
+ * <li>{@code turn.deadline_expired}: {@code 1} for a turn cut short by its deadline, otherwise {@code 0}</li>
+ * </ul>
+ * Install it with {@link EngineInstrumentation#setListener(IEngineListener)}; {@link #snapshot()} exports the
+ * current values at any time.
+ * 
+ * @author Anastasios Patrikis
+ */
+public class EngineMetrics implements IEngineListener {
+	
+	private final Map<Phase, Histogram> phases;
+	private final Histogram nodes;
+	private final Histogram leaves;
+	private final Histogram unique;
+	private final Histogram uniquePermille;
+	private final Map<Class<?>, Histogram[]> strategies;
+	private final Histogram turns;
+	private final Histogram turnsExpired;
+	
+	/**
+	 * Constructor.
+	 */
+	public EngineMetrics() {
+		phases = new EnumMap<>(Phase.class);
+		for(Phase phase : Phase.values()) {
+			phases.put(phase, new Histogram());
+		}
+		nodes = new Histogram();
+		leaves = new Histogram();
+		unique = new Histogram();
+		uniquePermille = new Histogram();
+		strategies = new ConcurrentHashMap<>();
+		turns = new Histogram();
+		turnsExpired = new Histogram();
+	}
+	
+	@Override
+	public void phaseCompleted(Phase phase, long nanos) {
+		phases.get(phase).record(nanos);
+	}
+	
+	@Override
+	public void boardsGenerated(long nodeCount, int leafCount, int uniqueCount) {
+		nodes.record(nodeCount);
+		leaves.record(leafCount);
+		unique.record(uniqueCount);
+		if(leafCount > 0) {
+			uniquePermille.record(uniqueCount * 1000L / leafCount);
+		}
+	}
+	
+	@Override
+	public void strategyEvaluated(IStrategy strategy, int boards, long nanos) {
+		Histogram[] histograms = strategies.computeIfAbsent(strategy.getClass(),
+				key -> new Histogram[]{new Histogram(), new Histogram()});
+		histograms[0].record(nanos);
+		histograms[1].record(boards);
+	}
+	
+	@Override
+	public void turnCompleted(IPlayer player, long nanos, boolean deadlineExpired) {
+		turns.record(nanos);
+		turnsExpired.record(deadlineExpired ? 1 : 0);
+	}
+	
+	/**
+	 * Take a snapshot of all {@link Histogram}s.
+	 * 
+	 * @return the {@link HistogramSnapshot}s, sorted by name.
+	 */
+	public Map<String, HistogramSnapshot> snapshot() {
+		Map<String, HistogramSnapshot> result = new TreeMap<>();
+		for(Map.Entry<Phase, Histogram> phase : phases.entrySet()) {
+			result.put("phase." + phase.getKey().name().toLowerCase() + ".nanos", phase.getValue().snapshot());
+		}
+		result.put("generator.nodes", nodes.snapshot());
+		result.put("generator.leaves", leaves.snapshot());
+		result.put("generator.unique", unique.snapshot());
+		result.put("generator.unique_permille", uniquePermille.snapshot());
+		for(Map.Entry<Class<?>, Histogram[]> strategy : strategies.entrySet()) {
+			String name = "strategy." + strategy.getKey().getSimpleName();
+			result.put(name + ".nanos", strategy.getValue()[0].snapshot());
+			result.put(name + ".boards", strategy.getValue()[1].snapshot());
+		}
+		result.put("turn.nanos", turns.snapshot());
+		result.put("turn.deadline_expired", turnsExpired.snapshot());
+		return result;
+	}
+	
+	@Override
+	public String toString() {
+		StringBuilder result = new StringBuilder();
+		for(Map.Entry<String, HistogramSnapshot> entry : snapshot().entrySet()) {
+			result.append(entry.getKey()).append(": ").append(entry.getValue()).append(System.lineSeparator());
+		}
+		return result.toString();
+	}
+}
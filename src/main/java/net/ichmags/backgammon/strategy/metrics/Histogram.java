@@ -0,0 +1,100 @@
+/*
+ * www.ichmags.net - Backgammon
+ */
+package net.ichmags.backgammon.strategy.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The {@code Histogram} counts non-negative {@code long} values in log-linear buckets: values below
+ * {@value #LINEAR_LIMIT} are exact, larger values share a bucket with values differing by less than 12.5%.
+ * Recording is lock-free and allocation free, so it can be left on under load.
+ * 
+ * @author Anastasios Patrikis
+ */
+public class Histogram {
+	
+	private static final int LINEAR_LIMIT = 16;
+	private static final int SUB_BITS = 3;
+	private static final int SUB_BUCKETS = 1 << SUB_BITS;
+	private static final int LINEAR_EXPONENT = 4;
+	private static final int BUCKETS = LINEAR_LIMIT + (63 - LINEAR_EXPONENT) * SUB_BUCKETS;
+	
+	private final AtomicLongArray counts;
+	private final LongAdder count;
+	private final LongAdder sum;
+	private final AtomicLong max;
+	
+	/**
+	 * Constructor.
+	 */
+	public Histogram() {
+		counts = new AtomicLongArray(BUCKETS);
+		count = new LongAdder();
+		sum = new LongAdder();
+		max = new AtomicLong();
+	}
+	
+	/**
+	 * Record a value.
+	 * 
+	 * @param value the value; negative values are recorded as {@code 0}.
+	 */
+	public void record(long value) {
+		value = Math.max(0L, value);
+		counts.incrementAndGet(bucket(value));
+		count.increment();
+		sum.add(value);
+		long current = max.get();
+		while(value > current && ! max.compareAndSet(current, value)) {
+			current = max.get();
+		}
+	}
+	
+	/**
+	 * Take a snapshot of the recorded values. Values recorded at the same time may be missing in parts
+	 * of the snapshot.
+	 * 
+	 * @return the {@link HistogramSnapshot}.
+	 */
+	public HistogramSnapshot snapshot() {
+		long[] bucketCounts = new long[BUCKETS];
+		for(int bucket = 0; bucket < BUCKETS; bucket++) {
+			bucketCounts[bucket] = counts.get(bucket);
+		}
+		return new HistogramSnapshot(bucketCounts, count.sum(), sum.sum(), max.get());
+	}
+	
+	/**
+	 * Get the bucket of a value.
+	 * 
+	 * @param value the non-negative value.
+	 * @return the index of the bucket.
+	 */
+	static int bucket(long value) {
+		if(value < LINEAR_LIMIT) {
+			return (int)value;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int sub = (int)(value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+		return LINEAR_LIMIT + (exponent - LINEAR_EXPONENT) * SUB_BUCKETS + sub;
+	}
+	
+	/**
+	 * Get the highest value of a bucket.
+	 * 
+	 * @param bucket the index of the bucket.
+	 * @return the highest value counted in the bucket.
+	 */
+	static long highestValue(int bucket) {
+		if(bucket < LINEAR_LIMIT) {
+			return bucket;
+		}
+		int exponent = (bucket - LINEAR_LIMIT) / SUB_BUCKETS + LINEAR_EXPONENT;
+		int sub = (bucket - LINEAR_LIMIT) % SUB_BUCKETS;
+		long lowest = (long)(SUB_BUCKETS + sub) << (exponent - SUB_BITS);
+		return lowest + (1L << (exponent - SUB_BITS)) - 1;
+	}
+}
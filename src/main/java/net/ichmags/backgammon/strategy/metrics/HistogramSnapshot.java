@@ -0,0 +1,91 @@
+/*
+ * www.ichmags.net - Backgammon
+ */
+package net.ichmags.backgammon.strategy.metrics;
+
+/**
+ * An immutable copy of a {@link Histogram}.
+ * 
+ * @author Anastasios Patrikis
+ */
+public class HistogramSnapshot {
+	
+	private final long[] bucketCounts;
+	private final long count;
+	private final long sum;
+	private final long max;
+	
+	HistogramSnapshot(long[] bucketCounts, long count, long sum, long max) {
+		this.bucketCounts = bucketCounts;
+		this.count = count;
+		this.sum = sum;
+		this.max = max;
+	}
+	
+	/**
+	 * Get the number of recorded values.
+	 * 
+	 * @return the count.
+	 */
+	public long getCount() {
+		return count;
+	}
+	
+	/**
+	 * Get the sum of the recorded values.
+	 * 
+	 * @return the sum.
+	 */
+	public long getSum() {
+		return sum;
+	}
+	
+	/**
+	 * Get the highest recorded value.
+	 * 
+	 * @return the maximum, {@code 0} without values.
+	 */
+	public long getMax() {
+		return max;
+	}
+	
+	/**
+	 * Get the average of the recorded values.
+	 * 
+	 * @return the mean, {@code 0} without values.
+	 */
+	public double getMean() {
+		return (count == 0) ? 0.0d : (double)sum / count;
+	}
+	
+	/**
+	 * Get a percentile of the recorded values; the result is the highest value of the bucket, at most {@link #getMax()}.
+	 * 
+	 * @param percentile the percentile, {@code 0} to {@code 100}.
+	 * @return the value, {@code 0} without values.
+	 */
+	public long getPercentile(double percentile) {
+		long total = 0;
+		for(long bucketCount : bucketCounts) {
+			total += bucketCount;
+		}
+		if(total == 0) {
+			return 0L;
+		}
+		long rank = Math.max(1L, (long)Math.ceil(percentile / 100.0d * total));
+		long seen = 0;
+		for(int bucket = 0; bucket < bucketCounts.length; bucket++) {
+			seen += bucketCounts[bucket];
+			if(seen >= rank) {
+				return Math.min(max, Histogram.highestValue(bucket));
+			}
+		}
+		return max;
+	}
+	
+	@Override
+	public String toString() {
+		return String.format("count=%d mean=%.1f p50=%d p90=%d p99=%d max=%d",
+				count, getMean(), getPercentile(50), getPercentile(90), getPercentile(99), max);
+	}
+}
@@ -0,0 +1,96 @@
+/*
+ * www.ichmags.net - Backgammon
+ */
+package net.ichmags.backgammon.strategy.metrics;
+
+import net.ichmags.backgammon.setup.IBoard;
+import net.ichmags.backgammon.setup.IPlayer;
+import net.ichmags.backgammon.strategy.BoardGenerator;
+import net.ichmags.backgammon.strategy.IStrategy;
+
+/**
+ * An {@code IEngineListener} receives the timings and counters of the computer {@link IPlayer}.
+ * The calls take place on the thread playing the turn, once per phase, generation or {@link IStrategy};
+ * implementations must be thread safe and cheap. All methods do nothing by default.
+ * <p>
+ * The active {@code IEngineListener} is resolved by {@link EngineInstrumentation}.
+ * 
+ * @author Anastasios Patrikis
+ */
+public interface IEngineListener {
+	
+	/**
+	 * The {@code IEngineListener} that ignores all calls.
+	 */
+	IEngineListener NOOP = new IEngineListener() {
+		// nothing to record
+	};
+	
+	/**
+	 * The phases of a turn of the computer {@link IPlayer}.
+	 */
+	public static enum Phase {
+		/**
+		 * Looking up the opening book.
+		 */
+		OPENING_BOOK,
+		
+		/**
+		 * Generating the distinct {@link IBoard}s with the {@link BoardGenerator} (step 1).
+		 */
+		GENERATION,
+		
+		/**
+		 * Scoring the {@link IBoard}s with the {@link IStrategy} instances and the search (step 2).
+		 */
+		EVALUATION,
+		
+		/**
+		 * Replaying the chosen moves on the {@link IBoard} of the game (step 3).
+		 */
+		REPLAY;
+	}
+	
+	/**
+	 * A phase of a turn is completed.
+	 * 
+	 * @param phase the {@link Phase}.
+	 * @param nanos the time spent.
+	 */
+	default void phaseCompleted(Phase phase, long nanos) {
+		// nothing to record
+	}
+	
+	/**
+	 * The {@link BoardGenerator} is completed for all options of a turn.
+	 * 
+	 * @param nodes the number of moves played by the recursion, including the pruned ones.
+	 * @param leaves the number of generated {@link IBoard}s.
+	 * @param unique the number of distinct {@link IBoard}s.
+	 */
+	default void boardsGenerated(long nodes, int leaves, int unique) {
+		// nothing to record
+	}
+	
+	/**
+	 * An {@link IStrategy} is evaluated for the candidates of a turn.
+	 * 
+	 * @param strategy the {@link IStrategy}.
+	 * @param boards the number of evaluated {@link IBoard}s, without those found in a cache.
+	 * @param nanos the time spent.
+	 */
+	default void strategyEvaluated(IStrategy strategy, int boards, long nanos) {
+		// nothing to record
+	}
+	
+	/**
+	 * A turn of the computer {@link IPlayer} is completed.
+	 * 
+	 * @param player the {@link IPlayer} that moved.
+	 * @param nanos the time spent for the whole turn.
+	 * @param deadlineExpired {@code true} if the turn was cut short by its deadline.
+	 */
+	default void turnCompleted(IPlayer player, long nanos, boolean deadlineExpired) {
+		// nothing to record
+	}
+}
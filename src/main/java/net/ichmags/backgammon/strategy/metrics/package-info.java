@@ -0,0 +1,13 @@
+/*
+ * www.ichmags.net - Backgammon
+ */
+
+/**
+ * This package provides the instrumentation of a computer {@link net.ichmags.backgammon.setup.IPlayer}:
+ * an {@link net.ichmags.backgammon.strategy.metrics.IEngineListener} receives the timings and counters of
+ * every turn, and {@link net.ichmags.backgammon.strategy.metrics.EngineMetrics} collects them in lock-free
+ * histograms.
+ * 
+ * @author Anastasios Patrikis
+ */
+package net.ichmags.backgammon.strategy.metrics;
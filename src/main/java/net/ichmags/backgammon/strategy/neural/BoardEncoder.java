@@ -0,0 +1,64 @@
+/*
+ * www.ichmags.net - Backgammon
+ */
+package net.ichmags.backgammon.strategy.neural;
+
+import net.ichmags.backgammon.setup.IChecker;
+import net.ichmags.backgammon.strategy.search.SearchBoard;
+
+/**
+ * The {@code BoardEncoder} converts a {@link SearchBoard} into the input of a {@link NeuralNetwork}, in the
+ * style of TD-Gammon. Both sides are encoded in their own view, the side to evaluate first:
+ * <ul>
+ * <li>per point four units for the number {@code n} of {@link IChecker}s: {@code n >= 1}, {@code n >= 2},
+ * {@code n >= 3} and {@code (n - 3) / 2} for more {@link IChecker}s, and one unit for a pinned {@link IChecker}</li>
+ * <li>the {@link IChecker}s on the <i>position 0</i> divided by {@code 2}</li>
+ * <li>the collected {@link IChecker}s divided by {@code 15}</li>
+ * </ul>
+ * The input of several positions is stored as matrix with one column per position, so the
+ * {@link NeuralNetwork} can process a batch with simple loops over the columns.
+ *
+ * @author Anastasios Patrikis
+ */
+public final class BoardEncoder {
+
+	private static final int UNITS_PER_POINT = 5;
+	private static final int UNITS_PER_SIDE = SearchBoard.POINTS * UNITS_PER_POINT + 2;
+
+	/**
+	 * The number of inputs ({@value #INPUTS}).
+	 */
+	public static final int INPUTS = 2 * UNITS_PER_SIDE;
+
+	private BoardEncoder() {
+		// static access only
+	}
+
+	/**
+	 * Encode a position into one column of an input matrix.
+	 *
+	 * @param board the {@link SearchBoard}.
+	 * @param side the side to evaluate, {@link SearchBoard#SELF} or {@link SearchBoard#OPPONENT}.
+	 * @param matrix the input matrix with {@value #INPUTS} rows and {@code columns} columns, row by row.
+	 * @param column the column to fill.
+	 * @param columns the number of columns of the {@code matrix}.
+	 */
+	public static void encode(SearchBoard board, int side, float[] matrix, int column, int columns) {
+		encodeSide(board, side, matrix, column, columns, 0);
+		encodeSide(board, 1 - side, matrix, column, columns, UNITS_PER_SIDE);
+	}
+
+	private static void encodeSide(SearchBoard board, int side, float[] matrix, int column, int columns, int firstRow) {
+		int row = firstRow;
+		for(int index = 1; index <= SearchBoard.POINTS; index++) {
+			int count = board.getCount(side, index);
+			matrix[(row++) * columns + column] = (count >= 1) ? 1.0f : 0.0f;
+			matrix[(row++) * columns + column] = (count >= 2) ? 1.0f : 0.0f;
+			matrix[(row++) * columns + column] = (count >= 3) ? 1.0f : 0.0f;
+			matrix[(row++) * columns + column] = (count > 3) ? (count - 3) / 2.0f : 0.0f;
+			matrix[(row++) * columns + column] = board.isPinned(side, index) ? 1.0f : 0.0f;
+		}
+		matrix[(row++) * columns + column] = board.getCount(side, SearchBoard.BAR) / 2.0f;
+		matrix[row * columns + column] = board.getCount(side, SearchBoard.OFF) / 15.0f;
+	}
+}
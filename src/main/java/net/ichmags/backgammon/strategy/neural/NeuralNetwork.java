@@ -0,0 +1,258 @@
+/*
+ * www.ichmags.net - Backgammon
+ */
+package net.ichmags.backgammon.strategy.neural;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * The {@code NeuralNetwork} estimates the chance to win a position encoded by the {@link BoardEncoder}.
+ * It has one hidden layer and one output, both with the sigmoid function.
+ * <p>
+ * The weights are stored in flat {@code float} arrays, the hidden weights row by row. A batch of positions is
+ * evaluated with {@link #evaluate(float[], int, float[], float[])}: the inner loops run over the positions of the
+ * batch with the same weight, which the JIT compiler can turn into vector instructions.
+ * <p>
+ * The binary file format, all values big-endian: the {@link #MAGIC}, the {@link #VERSION}, the number of inputs,
+ * the number of hidden units, then the hidden weights, the hidden biases, the output weights and the output bias
+ * as {@code float}s.
+ * <p>
+ * Evaluating does not change the {@code NeuralNetwork}, so it can be shared by threads which use their own
+ * buffers. {@link #train(float[], float, float, float[])} must not run at the same time.
+ *
+ * @author Anastasios Patrikis
+ */
+public class NeuralNetwork {
+
+	/**
+	 * The first bytes of a weight file ({@value #MAGIC}, {@code "BGNN"}).
+	 */
+	public static final int MAGIC = 0x42474E4E;
+
+	/**
+	 * The version of the weight file format ({@value #VERSION}).
+	 */
+	public static final int VERSION = 1;
+
+	private final int inputs;
+	private final int hidden;
+	private final float[] hiddenWeights;
+	private final float[] hiddenBias;
+	private final float[] outputWeights;
+	private float outputBias;
+
+	/**
+	 * Constructor: all weights are {@code 0}.
+	 *
+	 * @param inputs the number of inputs, e.g. {@link BoardEncoder#INPUTS}.
+	 * @param hidden the number of hidden units.
+	 */
+	public NeuralNetwork(int inputs, int hidden) {
+		if(inputs < 1 || hidden < 1) {
+			throw new IllegalArgumentException("Invalid network size: " + inputs + " x " + hidden);
+		}
+		this.inputs = inputs;
+		this.hidden = hidden;
+		this.hiddenWeights = new float[hidden * inputs];
+		this.hiddenBias = new float[hidden];
+		this.outputWeights = new float[hidden];
+	}
+
+	/**
+	 * Create a {@code NeuralNetwork} with small random weights, as start for the training.
+	 *
+	 * @param inputs the number of inputs, e.g. {@link BoardEncoder#INPUTS}.
+	 * @param hidden the number of hidden units.
+	 * @param seed the seed of the random number generator.
+	 * @return the new {@code NeuralNetwork}.
+	 */
+	public static NeuralNetwork random(int inputs, int hidden, long seed) {
+		NeuralNetwork network = new NeuralNetwork(inputs, hidden);
+		SplittableRandom random = new SplittableRandom(seed);
+		double hiddenRange = 1.0d / Math.sqrt(inputs);
+		double outputRange = 1.0d / Math.sqrt(hidden);
+		for(int pos = 0; pos < network.hiddenWeights.length; pos++) {
+			network.hiddenWeights[pos] = (float)random.nextDouble(-hiddenRange, hiddenRange);
+		}
+		for(int unit = 0; unit < hidden; unit++) {
+			network.outputWeights[unit] = (float)random.nextDouble(-outputRange, outputRange);
+		}
+		return network;
+	}
+
+	/**
+	 * Read a {@code NeuralNetwork} in the binary format.
+	 *
+	 * @param input the {@link InputStream}; it is not closed.
+	 * @return the {@code NeuralNetwork}.
+	 * @throws IOException if the stream cannot be read or has an unsupported format.
+	 */
+	public static NeuralNetwork read(InputStream input) throws IOException {
+		DataInputStream data = new DataInputStream(new BufferedInputStream(input));
+		if(data.readInt() != MAGIC) {
+			throw new IOException("Not a neural network file");
+		}
+		int version = data.readInt();
+		if(version != VERSION) {
+			throw new IOException("Unsupported neural network version: " + version);
+		}
+		int inputs = data.readInt();
+		int hidden = data.readInt();
+		if(inputs < 1 || hidden < 1) {
+			throw new IOException("Invalid network size: " + inputs + " x " + hidden);
+		}
+		NeuralNetwork network = new NeuralNetwork(inputs, hidden);
+		readFloats(data, network.hiddenWeights);
+		readFloats(data, network.hiddenBias);
+		readFloats(data, network.outputWeights);
+		network.outputBias = data.readFloat();
+		return network;
+	}
+
+	/**
+	 * Write the {@code NeuralNetwork} in the binary format.
+	 *
+	 * @param output the {@link OutputStream}; it is flushed, but not closed.
+	 * @throws IOException if the stream cannot be written.
+	 */
+	public void write(OutputStream output) throws IOException {
+		DataOutputStream data = new DataOutputStream(new BufferedOutputStream(output));
+		data.writeInt(MAGIC);
+		data.writeInt(VERSION);
+		data.writeInt(inputs);
+		data.writeInt(hidden);
+		writeFloats(data, hiddenWeights);
+		writeFloats(data, hiddenBias);
+		writeFloats(data, outputWeights);
+		data.writeFloat(outputBias);
+		data.flush();
+	}
+
+	private static void readFloats(DataInputStream data, float[] target) throws IOException {
+		for(int pos = 0; pos < target.length; pos++) {
+			target[pos] = data.readFloat();
+		}
+	}
+
+	private static void writeFloats(DataOutputStream data, float[] source) throws IOException {
+		for(float value : source) {
+			data.writeFloat(value);
+		}
+	}
+
+	/**
+	 * Get the number of inputs.
+	 *
+	 * @return the number of inputs.
+	 */
+	public int getInputs() {
+		return inputs;
+	}
+
+	/**
+	 * Get the number of hidden units.
+	 *
+	 * @return the number of hidden units.
+	 */
+	public int getHidden() {
+		return hidden;
+	}
+
+	/**
+	 * Evaluate a batch of positions.
+	 *
+	 * @param matrix the inputs with {@link #getInputs()} rows and {@code batch} columns, row by row,
+	 * see {@link BoardEncoder#encode(net.ichmags.backgammon.strategy.search.SearchBoard, int, float[], int, int)}.
+	 * @param batch the number of positions.
+	 * @param outputs the chances to win, {@code 0} to {@code 1}, one per position.
+	 * @param scratch a buffer with at least {@link #getHidden()} * {@code batch} values.
+	 */
+	public void evaluate(float[] matrix, int batch, float[] outputs, float[] scratch) {
+		for(int unit = 0; unit < hidden; unit++) {
+			int row = unit * batch;
+			Arrays.fill(scratch, row, row + batch, hiddenBias[unit]);
+			int weights = unit * inputs;
+			for(int input = 0; input < inputs; input++) {
+				float weight = hiddenWeights[weights + input];
+				if(weight == 0.0f) {
+					continue;
+				}
+				int column = input * batch;
+				for(int pos = 0; pos < batch; pos++) {
+					scratch[row + pos] += weight * matrix[column + pos];
+				}
+			}
+		}
+
+		Arrays.fill(outputs, 0, batch, outputBias);
+		for(int unit = 0; unit < hidden; unit++) {
+			float weight = outputWeights[unit];
+			int row = unit * batch;
+			for(int pos = 0; pos < batch; pos++) {
+				outputs[pos] += weight * sigmoid(scratch[row + pos]);
+			}
+		}
+		for(int pos = 0; pos < batch; pos++) {
+			outputs[pos] = sigmoid(outputs[pos]);
+		}
+	}
+
+	/**
+	 * Evaluate a single position.
+	 *
+	 * @param input the {@link #getInputs()} inputs.
+	 * @param activations a buffer for the {@link #getHidden()} hidden activations.
+	 * @return the chance to win, {@code 0} to {@code 1}.
+	 */
+	public float evaluate(float[] input, float[] activations) {
+		float sum = outputBias;
+		for(int unit = 0; unit < hidden; unit++) {
+			float value = hiddenBias[unit];
+			int weights = unit * inputs;
+			for(int pos = 0; pos < inputs; pos++) {
+				value += hiddenWeights[weights + pos] * input[pos];
+			}
+			activations[unit] = sigmoid(value);
+			sum += outputWeights[unit] * activations[unit];
+		}
+		return sigmoid(sum);
+	}
+
+	/**
+	 * Move the value of a position towards a target by one step of gradient descent on the cross entropy.
+	 *
+	 * @param input the {@link #getInputs()} inputs.
+	 * @param target the expected chance to win, {@code 0} to {@code 1}.
+	 * @param learningRate the step size.
+	 * @param activations a buffer for the {@link #getHidden()} hidden activations.
+	 * @return the value of the position before the step.
+	 */
+	public float train(float[] input, float target, float learningRate, float[] activations) {
+		float value = evaluate(input, activations);
+		float error = learningRate * (target - value);
+		for(int unit = 0; unit < hidden; unit++) {
+			float activation = activations[unit];
+			float delta = error * outputWeights[unit] * activation * (1.0f - activation);
+			outputWeights[unit] += error * activation;
+			hiddenBias[unit] += delta;
+			int weights = unit * inputs;
+			for(int pos = 0; pos < inputs; pos++) {
+				hiddenWeights[weights + pos] += delta * input[pos];
+			}
+		}
+		outputBias += error;
+		return value;
+	}
+
+	private static float sigmoid(float value) {
+		return (float)(1.0d / (1.0d + Math.exp(-value)));
+	}
+}
@@ -0,0 +1,270 @@
+/*
+ * www.ichmags.net - Backgammon
+ */
+package net.ichmags.backgammon.strategy.neural;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.SplittableRandom;
+
+import net.ichmags.backgammon.strategy.search.GameType;
+import net.ichmags.backgammon.strategy.search.PositionBuffer;
+import net.ichmags.backgammon.strategy.search.SearchBoard;
+import net.ichmags.backgammon.strategy.search.SearchMoveGenerator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@code NeuralTrainer} trains a {@link NeuralNetwork} by temporal difference learning, TD(0), in games
+ * the {@link NeuralNetwork} plays against itself on a {@link SearchBoard}.
+ * <p>
+ * Both sides choose the position with the best value for themselves. After every move the value of the
+ * previous position is moved towards the value of the new position (seen from the same side), the last
+ * position of a game towards the result. With the {@link #getExploration()} probability a random position
+ * is chosen instead, so the {@link NeuralNetwork} sees positions it would not play itself.
+ * <p>
+ * The whole training runs on one thread, so it is reproducible for the same seed.
+ * <p>
+ * Usage: {@code NeuralTrainer <game type> <games> <weight file> [hidden units] [learning rate] [seed]}.
+ * An existing weight file is trained further, otherwise a new {@link NeuralNetwork} is created.
+ *
+ * @author Anastasios Patrikis
+ */
+public class NeuralTrainer {
+
+	private static final Logger LOG = LoggerFactory.getLogger(NeuralTrainer.class);
+
+	/**
+	 * The default number of hidden units for a new {@link NeuralNetwork} ({@value #DEFAULT_HIDDEN}).
+	 */
+	public static final int DEFAULT_HIDDEN = 40;
+
+	/**
+	 * The default learning rate ({@value #DEFAULT_LEARNING_RATE}).
+	 */
+	public static final float DEFAULT_LEARNING_RATE = 0.1f;
+
+	/**
+	 * The default maximum number of moves per game ({@value #DEFAULT_MAX_MOVES}).
+	 */
+	public static final int DEFAULT_MAX_MOVES = 1000;
+
+	private static final int LOG_INTERVAL = 1000;
+
+	private final GameType type;
+	private final NeuralNetwork network;
+	private final float learningRate;
+	private final double exploration;
+	private final SplittableRandom random;
+	private final SearchMoveGenerator generator;
+	private final PositionBuffer positions;
+	private final SearchBoard board;
+	private final float[] previous;
+	private final float[] current;
+	private final float[] activations;
+	private float[] matrix;
+	private float[] outputs;
+	private float[] scratch;
+	private long wins;
+	private long games;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param type the {@link GameType} to train for.
+	 * @param network the {@link NeuralNetwork} to train, with {@link BoardEncoder#INPUTS} inputs.
+	 * @param learningRate the step size of the training.
+	 * @param exploration the probability to play a random position, {@code 0} for none.
+	 * @param seed the seed of the random number generator.
+	 */
+	public NeuralTrainer(GameType type, NeuralNetwork network, float learningRate, double exploration, long seed) {
+		if(network.getInputs() != BoardEncoder.INPUTS) {
+			throw new IllegalArgumentException("Network has " + network.getInputs() + " inputs, expected " + BoardEncoder.INPUTS);
+		}
+		this.type = type;
+		this.network = network;
+		this.learningRate = learningRate;
+		this.exploration = exploration;
+		this.random = new SplittableRandom(seed);
+		this.generator = new SearchMoveGenerator();
+		this.positions = new PositionBuffer(64);
+		this.board = new SearchBoard(type);
+		this.previous = new float[BoardEncoder.INPUTS];
+		this.current = new float[BoardEncoder.INPUTS];
+		this.activations = new float[network.getHidden()];
+		ensureCapacity(64);
+	}
+
+	/**
+	 * Get the {@link NeuralNetwork} being trained.
+	 *
+	 * @return the {@link NeuralNetwork}.
+	 */
+	public NeuralNetwork getNetwork() {
+		return network;
+	}
+
+	/**
+	 * Get the probability to play a random position.
+	 *
+	 * @return the probability, {@code 0} to {@code 1}.
+	 */
+	public double getExploration() {
+		return exploration;
+	}
+
+	/**
+	 * Get the number of finished games.
+	 *
+	 * @return the number of games played to the end.
+	 */
+	public long getGames() {
+		return games;
+	}
+
+	/**
+	 * Get the share of games won by the side that moved first, as a simple sanity check of the training.
+	 *
+	 * @return the share of finished games, {@code 0} to {@code 1}.
+	 */
+	public double getFirstSideWinRate() {
+		return (games == 0L) ? 0.0d : (double)wins / games;
+	}
+
+	/**
+	 * Set up the start position of a {@link GameType}.
+	 *
+	 * @param board the {@link SearchBoard} to overwrite.
+	 */
+	public static void setStartPosition(SearchBoard board) {
+		for(int side = SearchBoard.SELF; side <= SearchBoard.OPPONENT; side++) {
+			for(int index = SearchBoard.BAR; index <= SearchBoard.OFF; index++) {
+				board.set(side, index, 0);
+			}
+			if(board.getType() == GameType.PORTES) {
+				board.set(side, 1, 2);
+				board.set(side, 12, 5);
+				board.set(side, 17, 3);
+				board.set(side, 19, 5);
+			} else {
+				board.set(side, 1, 15);
+			}
+		}
+		board.recount();
+	}
+
+	/**
+	 * Play and learn from games.
+	 *
+	 * @param count the number of games.
+	 * @param maxMoves the maximum number of moves per game; longer games are not finished and not learned from at the end.
+	 */
+	public void train(int count, int maxMoves) {
+		for(int game = 0; game < count; game++) {
+			playGame(maxMoves);
+			if((game + 1) % LOG_INTERVAL == 0) {
+				LOG.info("{} {} games trained, first side won {}", type, game + 1, String.format("%.3f", getFirstSideWinRate()));
+			}
+		}
+	}
+
+	private void playGame(int maxMoves) {
+		setStartPosition(board);
+		int side = SearchBoard.SELF;
+		int previousSide = -1;
+		for(int move = 0; move < maxMoves; move++) {
+			int count = generator.generate(board, side, rollDice(), rollDice(), positions);
+			if(count == 0) {
+				side = 1 - side;
+				continue;
+			}
+
+			ensureCapacity(count);
+			for(int pos = 0; pos < count; pos++) {
+				positions.load(pos, board);
+				BoardEncoder.encode(board, side, matrix, pos, count);
+			}
+			network.evaluate(matrix, count, outputs, scratch);
+			int best = (random.nextDouble() < exploration) ? random.nextInt(count) : best(outputs, count);
+			positions.load(best, board);
+			BoardEncoder.encode(board, side, current, 0, 1);
+
+			if(previousSide >= 0) {
+				float value = outputs[best];
+				network.train(previous, (previousSide == side) ? value : 1.0f - value, learningRate, activations);
+			}
+			if(board.isFinished(side)) {
+				network.train(current, 1.0f, learningRate, activations);
+				games++;
+				wins += (side == SearchBoard.SELF) ? 1 : 0;
+				return;
+			}
+			System.arraycopy(current, 0, previous, 0, current.length);
+			previousSide = side;
+			side = 1 - side;
+		}
+	}
+
+	private int rollDice() {
+		return random.nextInt(6) + 1;
+	}
+
+	private static int best(float[] values, int count) {
+		int best = 0;
+		for(int pos = 1; pos < count; pos++) {
+			if(values[pos] > values[best]) {
+				best = pos;
+			}
+		}
+		return best;
+	}
+
+	private void ensureCapacity(int count) {
+		if(outputs == null || outputs.length < count) {
+			int capacity = Math.max(count, (outputs == null) ? 0 : outputs.length * 2);
+			matrix = new float[BoardEncoder.INPUTS * capacity];
+			outputs = new float[capacity];
+			scratch = new float[network.getHidden() * capacity];
+		}
+	}
+
+	/**
+	 * Train a weight file, see the class description for the arguments.
+	 *
+	 * @param args the command line arguments.
+	 * @throws IOException if the weight file cannot be read or written.
+	 */
+	public static void main(String[] args) throws IOException {
+		if(args.length < 3) {
+			System.err.println("Usage: NeuralTrainer <PORTES|PLAKOTO|FEVGA> <games> <weight file> [hidden units] [learning rate] [seed]");
+			System.exit(1);
+		}
+		GameType type = GameType.valueOf(args[0].toUpperCase());
+		int count = Integer.parseInt(args[1]);
+		Path file = Paths.get(args[2]);
+		int hidden = (args.length > 3) ? Integer.parseInt(args[3]) : DEFAULT_HIDDEN;
+		float learningRate = (args.length > 4) ? Float.parseFloat(args[4]) : DEFAULT_LEARNING_RATE;
+		long seed = (args.length > 5) ? Long.parseLong(args[5]) : System.nanoTime();
+
+		NeuralNetwork network;
+		if(Files.exists(file)) {
+			try(InputStream input = Files.newInputStream(file)) {
+				network = NeuralNetwork.read(input);
+			}
+		} else {
+			network = NeuralNetwork.random(BoardEncoder.INPUTS, hidden, seed);
+		}
+
+		long start = System.nanoTime();
+		new NeuralTrainer(type, network, learningRate, 0.0d, seed).train(count, DEFAULT_MAX_MOVES);
+		try(OutputStream output = Files.newOutputStream(file)) {
+			network.write(output);
+		}
+		LOG.info("{} games trained in {} s, weights written to {}", count, (System.nanoTime() - start) / 1_000_000_000L, file);
+	}
+}
@@ -0,0 +1,11 @@
+/*
+ * www.ichmags.net - Backgammon
+ */
+
+/**
+ * This package provides a small feed-forward neural network that evaluates positions of a
+ * {@link net.ichmags.backgammon.strategy.search.SearchBoard}, and the tool to train it in self-play games.
+ * 
+ * @author Anastasios Patrikis
+ */
+package net.ichmags.backgammon.strategy.neural;
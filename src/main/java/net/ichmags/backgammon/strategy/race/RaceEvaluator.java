@@ -0,0 +1,87 @@
+/*
+ * www.ichmags.net - Backgammon
+ */
+package net.ichmags.backgammon.strategy.race;
+
+import net.ichmags.backgammon.setup.IChecker;
+import net.ichmags.backgammon.strategy.bearoff.BearoffDatabase;
+import net.ichmags.backgammon.strategy.search.IPositionEvaluator;
+import net.ichmags.backgammon.strategy.search.SearchBoard;
+
+/**
+ * The {@code RaceEvaluator} is an {@link IPositionEvaluator} for pure races, see {@link SearchBoard#isRace()};
+ * {@link SearchBoard#OPPONENT} is on roll.
+ * <p>
+ * When both sides are in the {@link BearoffDatabase}, the exact chance to win is used. Otherwise the
+ * <i>effective pip count</i> of both sides is compared: the pip count plus a penalty for {@link IChecker}s that
+ * will waste pips (stacks on the lowest home points and gaps on the highest), with the count of the side on
+ * roll increased by one seventh for its advantage.
+ *
+ * @author Anastasios Patrikis
+ */
+public class RaceEvaluator implements IPositionEvaluator {
+
+	private static final double ON_ROLL_FACTOR = 8.0d / 7.0d;
+
+	private final BearoffDatabase database;
+
+	/**
+	 * Constructor: uses the effective pip count only.
+	 */
+	public RaceEvaluator() {
+		this(BearoffDatabase.empty());
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param database the {@link BearoffDatabase} for the bearoff positions.
+	 */
+	public RaceEvaluator(BearoffDatabase database) {
+		this.database = database;
+	}
+
+	@Override
+	public double evaluate(SearchBoard board) {
+		if(board.isFinished(SearchBoard.SELF)) {
+			return MAX_VALUE;
+		}
+		if(board.isFinished(SearchBoard.OPPONENT)) {
+			return MIN_VALUE;
+		}
+		if(database.getMaxCheckers() > 0) {
+			int index = database.index(board, SearchBoard.SELF);
+			int opponentIndex = (index < 0) ? -1 : database.index(board, SearchBoard.OPPONENT);
+			if(opponentIndex >= 0) {
+				return MIN_VALUE + (MAX_VALUE - MIN_VALUE) * database.getWinProbability(index, opponentIndex);
+			}
+		}
+
+		double count = getEffectivePipCount(board, SearchBoard.SELF);
+		double opponentCount = getEffectivePipCount(board, SearchBoard.OPPONENT) * ON_ROLL_FACTOR;
+		// a lead of about the square root of the total pip count decides a race
+		return Math.tanh((opponentCount - count) / (1.0d + Math.sqrt(count + opponentCount)));
+	}
+
+	/**
+	 * Get the effective pip count of a side: the pip count plus {@code 2} for each {@link IChecker} more than one on
+	 * the lowest home point, {@code 1} for each more than one on the second, {@code 1} for each more than three on
+	 * the third, and {@code 1} for each empty point of the three highest home points.
+	 *
+	 * @param board the {@link SearchBoard}.
+	 * @param side {@link SearchBoard#SELF} or {@link SearchBoard#OPPONENT}.
+	 * @return the effective pip count.
+	 */
+	public static int getEffectivePipCount(SearchBoard board, int side) {
+		int count = board.getPipCount(side);
+		count += 2 * Math.max(0, board.getCount(side, SearchBoard.OFF - 1) - 1);
+		count += Math.max(0, board.getCount(side, SearchBoard.OFF - 2) - 1);
+		count += Math.max(0, board.getCount(side, SearchBoard.OFF - 3) - 3);
+		for(int point = 4; point <= 6; point++) {
+			if(board.getCount(side, SearchBoard.OFF - point) == 0) {
+				count++;
+			}
+		}
+		return count;
+	}
+}
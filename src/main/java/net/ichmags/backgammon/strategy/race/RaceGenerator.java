@@ -0,0 +1,252 @@
+/*
+ * www.ichmags.net - Backgammon
+ */
+package net.ichmags.backgammon.strategy.race;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.ichmags.backgammon.game.IGame;
+import net.ichmags.backgammon.game.IMove;
+import net.ichmags.backgammon.game.impl.Moves;
+import net.ichmags.backgammon.setup.IAvailableDices;
+import net.ichmags.backgammon.setup.IBoard;
+import net.ichmags.backgammon.setup.IChecker;
+import net.ichmags.backgammon.setup.IDice;
+import net.ichmags.backgammon.setup.IDices;
+import net.ichmags.backgammon.setup.IPlayer;
+import net.ichmags.backgammon.strategy.BoardGenerator;
+import net.ichmags.backgammon.strategy.BoardMovesCombination;
+import net.ichmags.backgammon.strategy.ImplementationRegistry;
+import net.ichmags.backgammon.strategy.PackedBoard;
+import net.ichmags.backgammon.strategy.TranspositionTable;
+import net.ichmags.backgammon.strategy.search.GameType;
+import net.ichmags.backgammon.strategy.search.IPositionEvaluator;
+import net.ichmags.backgammon.strategy.search.SearchBoard;
+
+/**
+ * The {@code RaceGenerator} replaces the {@link BoardGenerator} and the {@link net.ichmags.backgammon.strategy.IStrategy}
+ * instances in a pure race, see {@link PackedBoard#isRace()}. As the {@link IChecker}s can no longer meet, the
+ * {@link IMove}s are generated on a {@link SearchBoard} with the own rules only: moving forward and collecting.
+ * The outcomes are ranked with an {@link IPositionEvaluator}, e.g. the {@link RaceEvaluator}.
+ * <p>
+ * Only the {@link IMove}s of the best outcome are validated by the {@link IGame}, to create its
+ * {@link BoardMovesCombination}. The {@link IDices} options are played like in the {@link BoardGenerator}: all
+ * {@link IDice} values of an option have to be used, both orders are tried for two different values.
+ * <p>
+ * A {@code RaceGenerator} is not thread safe: use one per thread.
+ *
+ * @author Anastasios Patrikis
+ */
+public class RaceGenerator {
+
+	private static final int MAX_DICES = 4;
+
+	private final GameType type;
+	private final IPositionEvaluator evaluator;
+	private final SearchBoard board;
+	private final TranspositionTable outcomes;
+	private final int[] values;
+	private final int[] order;
+	private final int[] froms;
+	private final int[] bestFroms;
+	private final int[] bestOrder;
+	private int diceCount;
+	private double bestValue;
+	private boolean found;
+	private int boardsFound;
+	private int uniqueCount;
+	private long nodesVisited;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param type the {@link GameType} played.
+	 * @param evaluator the {@link IPositionEvaluator} to rank the outcomes.
+	 */
+	public RaceGenerator(GameType type, IPositionEvaluator evaluator) {
+		this.type = type;
+		this.evaluator = evaluator;
+		this.board = new SearchBoard(type);
+		this.outcomes = new TranspositionTable();
+		this.values = new int[MAX_DICES];
+		this.order = new int[MAX_DICES];
+		this.froms = new int[MAX_DICES];
+		this.bestFroms = new int[MAX_DICES];
+		this.bestOrder = new int[MAX_DICES];
+	}
+
+	/**
+	 * Get the {@link GameType} played.
+	 *
+	 * @return the {@link GameType}.
+	 */
+	public GameType getType() {
+		return type;
+	}
+
+	/**
+	 * Check if an {@link IBoard} is a pure race.
+	 *
+	 * @param player the {@link IPlayer} to move.
+	 * @param game the {@link IGame} played on the {@link IBoard}.
+	 * @param board the {@link IBoard}.
+	 * @return {@code true} if the {@link IChecker}s can no longer meet.
+	 */
+	public static boolean isRace(IPlayer player, IGame game, IBoard board) {
+		return new PackedBoard(player, game, board).isRace();
+	}
+
+	/**
+	 * Find the best outcome of a pure race.
+	 *
+	 * @param player the {@link IPlayer} to move.
+	 * @param game the {@link IGame} played on the {@link IBoard}.
+	 * @param board the {@link IBoard}; it is not changed.
+	 * @param dicesList the {@link IDices} options, see {@link net.ichmags.backgammon.setup.IDicesChoice#getAsList()}.
+	 * @return the best {@link BoardMovesCombination}, or {@code null} if the {@link IBoard} is not a pure race
+	 * or no outcome uses all {@link IDice} values of an option.
+	 */
+	public BoardMovesCombination findBest(IPlayer player, IGame game, IBoard board, List<IDices> dicesList) {
+		boardsFound = 0;
+		uniqueCount = 0;
+		nodesVisited = 0L;
+		PackedBoard packedBoard = new PackedBoard(player, game, board);
+		if(! packedBoard.isRace()) {
+			return null;
+		}
+		this.board.load(packedBoard.snapshot(), packedBoard.getMover());
+		outcomes.clear();
+
+		found = false;
+		IDices bestDices = null;
+		List<IDice> bestDiceList = null;
+		for(IDices dices : dicesList) {
+			List<IDice> diceList = new ArrayList<>(MAX_DICES);
+			IAvailableDices available = ImplementationRegistry.newInstance(IAvailableDices.class).initialize(dices, false);
+			while(available.hasMoreElements()) {
+				diceList.add(available.nextElement());
+			}
+			diceCount = diceList.size();
+			if(diceCount == 0 || diceCount > MAX_DICES) {
+				continue;
+			}
+			boolean before = found;
+			double previousBest = bestValue;
+			for(int pos = 0; pos < diceCount; pos++) {
+				values[pos] = diceList.get(pos).getValue();
+				order[pos] = pos;
+			}
+			play(0, SearchBoard.BAR);
+			if(diceCount == 2 && values[0] != values[1]) {
+				order[0] = 1;
+				order[1] = 0;
+				play(0, SearchBoard.BAR);
+			}
+			if(found && (! before || bestValue > previousBest)) {
+				bestDices = dices;
+				bestDiceList = diceList;
+			}
+		}
+		if(bestDices == null) {
+			return null;
+		}
+		return createCombination(player, game, board, bestDices, bestDiceList);
+	}
+
+	/**
+	 * Play the {@link IDice} value at {@code depth} for all {@link IChecker}s. With equal values the start positions
+	 * do not decrease, so every combination of {@link IMove}s is played once.
+	 */
+	private void play(int depth, int firstFrom) {
+		if(depth == diceCount) {
+			boardsFound++;
+			if(outcomes.add(board)) {
+				uniqueCount++;
+				double value = evaluator.evaluate(board);
+				if(! found || value > bestValue) {
+					found = true;
+					bestValue = value;
+					System.arraycopy(froms, 0, bestFroms, 0, diceCount);
+					System.arraycopy(order, 0, bestOrder, 0, diceCount);
+				}
+			}
+			return;
+		}
+
+		int distance = values[order[depth]];
+		boolean equal = (depth > 0) && (distance == values[order[depth - 1]]);
+		for(int from = equal ? firstFrom : SearchBoard.BAR; from < SearchBoard.OFF; from++) {
+			if(canMove(from, distance)) {
+				nodesVisited++;
+				froms[depth] = from;
+				board.make(SearchBoard.SELF, from, distance);
+				play(depth + 1, from);
+				board.unmake();
+			}
+		}
+	}
+
+	/**
+	 * The rules without any {@link IChecker} of the opponent: only collecting needs a check.
+	 */
+	private boolean canMove(int from, int distance) {
+		if(board.getCount(SearchBoard.SELF, from) == 0) {
+			return false;
+		}
+		int to = from + distance;
+		if(to < SearchBoard.OFF) {
+			return true;
+		}
+		if(! board.isAllHome(SearchBoard.SELF)) {
+			return false;
+		}
+		// a higher dice value may only be used for the last checker
+		return (to == SearchBoard.OFF) || (board.getRearmost(SearchBoard.SELF) == from);
+	}
+
+	/**
+	 * Validate the {@link IMove}s of the best outcome with the {@link IGame} on a copy of the {@link IBoard}.
+	 */
+	private BoardMovesCombination createCombination(IPlayer player, IGame game, IBoard board, IDices dices, List<IDice> diceList) {
+		IBoard result = board.clone();
+		Moves moves = new Moves();
+		for(int depth = 0; depth < diceList.size(); depth++) {
+			IMove move = game.moveChecker(player, result, bestFroms[depth], diceList.get(bestOrder[depth]));
+			if(! move.isSuccess()) {
+				return null;
+			}
+			moves.addLatest(move);
+		}
+		BoardMovesCombination combination = new BoardMovesCombination(result, moves);
+		combination.setDices(dices);
+		return combination;
+	}
+
+	/**
+	 * Get the number of outcomes of the latest {@link #findBest(IPlayer, IGame, IBoard, List)}.
+	 *
+	 * @return the number of outcomes, including transpositions.
+	 */
+	public int getBoardsFound() {
+		return boardsFound;
+	}
+
+	/**
+	 * Get the number of distinct outcomes of the latest {@link #findBest(IPlayer, IGame, IBoard, List)}.
+	 *
+	 * @return the number of evaluated outcomes.
+	 */
+	public int getUniqueCount() {
+		return uniqueCount;
+	}
+
+	/**
+	 * Get the number of {@link IMove}s played by the latest {@link #findBest(IPlayer, IGame, IBoard, List)}.
+	 *
+	 * @return the number of recursion nodes.
+	 */
+	public long getNodesVisited() {
+		return nodesVisited;
+	}
+}
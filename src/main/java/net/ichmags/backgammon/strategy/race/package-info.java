@@ -0,0 +1,12 @@
+/*
+ * www.ichmags.net - Backgammon
+ */
+
+/**
+ * This package provides the move generation and evaluation for pure races, where the
+ * {@link net.ichmags.backgammon.setup.IChecker}s of the {@link net.ichmags.backgammon.setup.IPlayer}s
+ * can no longer meet and only the pip counts matter.
+ * 
+ * @author Anastasios Patrikis
+ */
+package net.ichmags.backgammon.strategy.race;
@@ -0,0 +1,338 @@
+/*
+ * www.ichmags.net - Backgammon
+ */
+package net.ichmags.backgammon.strategy.search;
+
+import java.util.List;
+
+import net.ichmags.backgammon.setup.IDice;
+import net.ichmags.backgammon.setup.IPlayer;
+import net.ichmags.backgammon.strategy.BoardGenerator;
+import net.ichmags.backgammon.strategy.BoardMovesCombination;
+
+/**
+ * The {@code ExpectiminimaxSearch} looks ahead from the candidates found by the {@link BoardGenerator}.
+ * After a candidate the opponent rolls: a <i>chance node</i> averages over all 21 distinct {@link IDice} rolls,
+ * weighted with their probability. For every roll the opponent chooses the reply that is worst for us, then
+ * we roll again, and so on. The leaves are evaluated with an {@link IPositionEvaluator}.
+ * <p>
+ * The search depth counts the moves including the candidate itself, so depth {@code 1} is a plain evaluation
+ * of the candidates and depth {@code 2} considers all replies of the opponent. The search uses
+ * <ul>
+ * <li><b>iterative deepening</b>: depth {@code 1}, {@code 2}, ... are searched until the maximum depth or the
+ * time budget is reached; the values of the deepest completed depth are used.</li>
+ * <li><b>Star1 pruning</b>: with the value bounds of the {@link IPositionEvaluator}, a chance node below the
+ * candidates stops as soon as its expected value cannot get into the alpha-beta window any more. The candidates
+ * themselves are searched with the full window, so their values are exact, see {@link #getValue(int)}.</li>
+ * <li><b>allocation free nodes</b>: every depth has its own {@link SearchBoard} and {@link PositionBuffer}, the
+ * replies are generated by a {@link SearchMoveGenerator}; no objects are created during the search.</li>
+ * </ul>
+ * The candidates must be created by the {@link BoardGenerator}, as they are loaded from
+ * {@link BoardMovesCombination#getSnapshot()}.
+ * <p>
+ * An {@code ExpectiminimaxSearch} is not thread safe, but can be reused for any number of searches.
+ *
+ * @author Anastasios Patrikis
+ */
+public class ExpectiminimaxSearch {
+
+	/**
+	 * The system property for the maximum depth of {@link IPlayer}s above {@link IPlayer.Level#AVERAGE}
+	 * ({@value #DEPTH_PROPERTY}).
+	 */
+	public static final String DEPTH_PROPERTY = "net.ichmags.backgammon.search.depth";
+
+	/**
+	 * The system property for the time budget per search in milliseconds ({@value #BUDGET_PROPERTY}).
+	 */
+	public static final String BUDGET_PROPERTY = "net.ichmags.backgammon.search.budget";
+
+	/**
+	 * The default maximum depth ({@value #DEFAULT_DEPTH}): the candidate and the replies of the opponent.
+	 */
+	public static final int DEFAULT_DEPTH = 2;
+
+	/**
+	 * The default time budget per search in milliseconds ({@value #DEFAULT_BUDGET_MILLIS}).
+	 */
+	public static final long DEFAULT_BUDGET_MILLIS = 250L;
+
+	private static final int ROLLS = 21;
+	private static final int[] ROLL_DICE1 = new int[ROLLS];
+	private static final int[] ROLL_DICE2 = new int[ROLLS];
+	private static final double[] ROLL_PROBABILITY = new double[ROLLS];
+	private static final int TIME_CHECK_MASK = 0x3F;
+	private static final SearchTimeout TIMEOUT = new SearchTimeout();
+
+	static {
+		int roll = 0;
+		for(int dice1 = 1; dice1 <= 6; dice1++) {
+			for(int dice2 = dice1; dice2 <= 6; dice2++) {
+				ROLL_DICE1[roll] = dice1;
+				ROLL_DICE2[roll] = dice2;
+				ROLL_PROBABILITY[roll] = (dice1 == dice2) ? 1.0d / 36.0d : 2.0d / 36.0d;
+				roll++;
+			}
+		}
+	}
+
+	private final GameType type;
+	private final IPositionEvaluator evaluator;
+	private final int maxDepth;
+	private final SearchMoveGenerator generator;
+	private final SearchBoard[] boards;
+	private final PositionBuffer[] replies;
+	private final PositionBuffer candidates;
+
+	private double[] values;
+	private double[] depthValues;
+	private long deadline;
+	private long nodes;
+	private int completedDepth;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param type the {@link GameType} with the rules to apply.
+	 * @param evaluator the {@link IPositionEvaluator} for the leaves.
+	 * @param maxDepth the highest depth that will be searched, at least {@code 1}.
+	 */
+	public ExpectiminimaxSearch(GameType type, IPositionEvaluator evaluator, int maxDepth) {
+		this.type = type;
+		this.evaluator = evaluator;
+		this.maxDepth = Math.max(1, maxDepth);
+		this.generator = new SearchMoveGenerator();
+		this.boards = new SearchBoard[this.maxDepth];
+		for(int ply = 0; ply < boards.length; ply++) {
+			boards[ply] = new SearchBoard(type);
+		}
+		this.replies = new PositionBuffer[this.maxDepth];
+		for(int ply = 0; ply < replies.length; ply++) {
+			replies[ply] = new PositionBuffer(64);
+		}
+		this.candidates = new PositionBuffer(64);
+		this.values = new double[64];
+		this.depthValues = new double[64];
+	}
+
+	/**
+	 * Get the maximum depth for an {@link IPlayer.Level}. Only {@link IPlayer}s above {@link IPlayer.Level#AVERAGE}
+	 * look ahead; their depth is read from the system property {@value #DEPTH_PROPERTY}, default {@value #DEFAULT_DEPTH}.
+	 *
+	 * @param level the {@link IPlayer.Level}.
+	 * @return the maximum depth, {@code 0} if no search is done.
+	 */
+	public static int getDepth(IPlayer.Level level) {
+		if(level.ordinal() <= IPlayer.Level.AVERAGE.ordinal()) {
+			return 0;
+		}
+		return Math.max(1, Integer.getInteger(DEPTH_PROPERTY, DEFAULT_DEPTH));
+	}
+
+	/**
+	 * Get the time budget per search, read from the system property {@value #BUDGET_PROPERTY}.
+	 *
+	 * @return the budget in nanoseconds.
+	 */
+	public static long getBudgetNanos() {
+		return Long.getLong(BUDGET_PROPERTY, DEFAULT_BUDGET_MILLIS) * 1_000_000L;
+	}
+
+	/**
+	 * Get the rules.
+	 *
+	 * @return the {@link GameType}.
+	 */
+	public GameType getType() {
+		return type;
+	}
+
+	/**
+	 * Get the highest depth that will be searched.
+	 *
+	 * @return the maximum depth, at least {@code 1}.
+	 */
+	public int getMaxDepth() {
+		return maxDepth;
+	}
+
+	/**
+	 * Search the best candidate.
+	 *
+	 * @param candidates the {@link BoardMovesCombination}s found by the {@link BoardGenerator} for one {@link IPlayer}.
+	 * @param mover the {@link IPlayer.ID#ordinal()} of the {@link IPlayer} who created the candidates.
+	 * @param budgetNanos the time budget; depth {@code 1} is always completed.
+	 * @return the index of the best candidate, or {@code -1} if there are no candidates or a candidate has no
+	 * {@link BoardMovesCombination#getSnapshot()}.
+	 */
+	public int search(List<BoardMovesCombination> candidates, int mover, long budgetNanos) {
+		int count = candidates.size();
+		if(count == 0) {
+			return -1;
+		}
+		deadline = System.nanoTime() + budgetNanos;
+		nodes = 0L;
+		completedDepth = 0;
+		if(values.length < count) {
+			values = new double[count];
+			depthValues = new double[count];
+		}
+
+		this.candidates.clear();
+		SearchBoard root = boards[0];
+		for(BoardMovesCombination candidate : candidates) {
+			if(candidate.getSnapshot() == null) {
+				return -1;
+			}
+			root.load(candidate.getSnapshot(), mover);
+			this.candidates.add(root);
+		}
+
+		int best = 0;
+		for(int pos = 0; pos < count; pos++) {
+			this.candidates.load(pos, root);
+			values[pos] = evaluator.evaluate(root);
+			if(values[pos] > values[best]) {
+				best = pos;
+			}
+		}
+		completedDepth = 1;
+
+		for(int depth = 2; depth <= maxDepth; depth++) {
+			try {
+				best = searchDepth(count, depth);
+			} catch (SearchTimeout e) {
+				break;
+			}
+			System.arraycopy(depthValues, 0, values, 0, count);
+			completedDepth = depth;
+		}
+		return best;
+	}
+
+	/**
+	 * Get the values of the candidates found by the latest {@link #search(List, int, long)}.
+	 *
+	 * @param index the index of the candidate.
+	 * @return the value, {@link IPositionEvaluator#MIN_VALUE} to {@link IPositionEvaluator#MAX_VALUE}.
+	 */
+	public double getValue(int index) {
+		return values[index];
+	}
+
+	/**
+	 * Get the depth of the result of the latest {@link #search(List, int, long)}.
+	 *
+	 * @return the deepest completed depth.
+	 */
+	public int getCompletedDepth() {
+		return completedDepth;
+	}
+
+	/**
+	 * Get the number of chance nodes visited by the latest {@link #search(List, int, long)}, including the
+	 * nodes of an aborted depth.
+	 *
+	 * @return the number of nodes.
+	 */
+	public long getNodes() {
+		return nodes;
+	}
+
+	private int searchDepth(int count, int depth) {
+		int best = 0;
+		for(int pos = 0; pos < count; pos++) {
+			// every candidate gets the full window, so its value is exact and can be combined with other scores
+			candidates.load(pos, boards[0]);
+			depthValues[pos] = chance(0, SearchBoard.OPPONENT, depth - 1, IPositionEvaluator.MIN_VALUE, IPositionEvaluator.MAX_VALUE);
+			if(depthValues[pos] > depthValues[best]) {
+				best = pos;
+			}
+		}
+		return best;
+	}
+
+	private double chance(int ply, int side, int movesLeft, double alpha, double beta) {
+		SearchBoard board = boards[ply];
+		if(board.isFinished(SearchBoard.SELF)) {
+			return IPositionEvaluator.MAX_VALUE;
+		}
+		if(board.isFinished(SearchBoard.OPPONENT)) {
+			return IPositionEvaluator.MIN_VALUE;
+		}
+		if(movesLeft == 0) {
+			return evaluator.evaluate(board);
+		}
+		if(((++nodes & TIME_CHECK_MASK) == 0) && (System.nanoTime() > deadline)) {
+			throw TIMEOUT;
+		}
+
+		double sum = 0.0d;
+		double remaining = 1.0d;
+		for(int roll = 0; roll < ROLLS; roll++) {
+			double probability = ROLL_PROBABILITY[roll];
+			remaining -= probability;
+			// Star1: the window a single roll must hit so the node can still get into (alpha, beta)
+			double rollAlpha = Math.max(IPositionEvaluator.MIN_VALUE,
+					(alpha - sum - remaining * IPositionEvaluator.MAX_VALUE) / probability);
+			double rollBeta = Math.min(IPositionEvaluator.MAX_VALUE,
+					(beta - sum - remaining * IPositionEvaluator.MIN_VALUE) / probability);
+			sum += probability * move(ply, side, ROLL_DICE1[roll], ROLL_DICE2[roll], movesLeft, rollAlpha, rollBeta);
+
+			double upper = sum + remaining * IPositionEvaluator.MAX_VALUE;
+			if(upper <= alpha) {
+				return upper;
+			}
+			double lower = sum + remaining * IPositionEvaluator.MIN_VALUE;
+			if(lower >= beta) {
+				return lower;
+			}
+		}
+		return sum;
+	}
+
+	private double move(int ply, int side, int dice1, int dice2, int movesLeft, double alpha, double beta) {
+		PositionBuffer positions = replies[ply];
+		SearchBoard next = boards[ply + 1];
+		int count = generator.generate(boards[ply], side, dice1, dice2, positions);
+		if(count == 0) {
+			next.copyFrom(boards[ply]);
+			return chance(ply + 1, 1 - side, movesLeft - 1, alpha, beta);
+		}
+
+		boolean maximize = (side == SearchBoard.SELF);
+		double best = maximize ? IPositionEvaluator.MIN_VALUE : IPositionEvaluator.MAX_VALUE;
+		for(int pos = 0; pos < count; pos++) {
+			positions.load(pos, next);
+			double value = chance(ply + 1, 1 - side, movesLeft - 1, alpha, beta);
+			if(maximize) {
+				if(value > best) {
+					best = value;
+					if(best >= beta) {
+						return best;
+					}
+					alpha = Math.max(alpha, best);
+				}
+			} else if(value < best) {
+				best = value;
+				if(best <= alpha) {
+					return best;
+				}
+				beta = Math.min(beta, best);
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Thrown when the time budget is exceeded; a single instance without stack trace is reused.
+	 */
+	private static final class SearchTimeout extends RuntimeException {
+
+		private static final long serialVersionUID = 1L;
+
+		private SearchTimeout() {
+			super("search time budget exceeded", null, false, false);
+		}
+	}
+}
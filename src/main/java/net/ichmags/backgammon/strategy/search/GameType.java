@@ -0,0 +1,112 @@
+/*
+ * www.ichmags.net - Backgammon
+ */
+package net.ichmags.backgammon.strategy.search;
+
+import net.ichmags.backgammon.game.IGame;
+import net.ichmags.backgammon.setup.IChecker;
+import net.ichmags.backgammon.setup.IPlayer;
+
+/**
+ * The {@code GameType} describes the rules of an {@link IGame} that are needed to move {@link IChecker}s
+ * on a {@link SearchBoard}: what happens when landing on a single {@link IChecker} of the opponent, and how
+ * the positions of one {@link IPlayer} view are seen by the opponent.
+ *
+ * @author Anastasios Patrikis
+ */
+public enum GameType {
+
+	/**
+	 * Single {@link IChecker}s are hit and have to enter again from the <i>position 0</i>.
+	 * The {@link IPlayer}s move in opposite directions.
+	 */
+	PORTES(true, false, true),
+
+	/**
+	 * Single {@link IChecker}s are pinned by the {@link IChecker} landing on them.
+	 * The {@link IPlayer}s move in opposite directions.
+	 */
+	PLAKOTO(false, true, true),
+
+	/**
+	 * Positions with any {@link IChecker} of the opponent are blocked.
+	 * The {@link IPlayer}s move in the same direction, starting at opposite sides of the board.
+	 */
+	FEVGA(false, false, false);
+
+	private final boolean hitting;
+	private final boolean pinning;
+	private final boolean opposite;
+
+	private GameType(boolean hitting, boolean pinning, boolean opposite) {
+		this.hitting = hitting;
+		this.pinning = pinning;
+		this.opposite = opposite;
+	}
+
+	/**
+	 * Find the {@code GameType} of an {@link IGame}. The class hierarchy of the {@link IGame} is searched
+	 * for the name of a {@code GameType}, so subclasses (e.g. for tests) are recognized as well.
+	 * An unknown {@link IGame} is treated as {@link #PORTES} if it has a <i>position 0</i>, as {@link #PLAKOTO} otherwise.
+	 *
+	 * @param game the {@link IGame}.
+	 * @return the {@code GameType}.
+	 */
+	public static GameType of(IGame game) {
+		for(Class<?> type = game.getClass(); type != null; type = type.getSuperclass()) {
+			for(GameType gameType : values()) {
+				if(gameType.name().equalsIgnoreCase(type.getSimpleName())) {
+					return gameType;
+				}
+			}
+		}
+		return game.hasPosition0() ? PORTES : PLAKOTO;
+	}
+
+	/**
+	 * Check if a single {@link IChecker} of the opponent is hit.
+	 *
+	 * @return {@code true} if the hit {@link IChecker} goes to the <i>position 0</i>.
+	 */
+	public boolean isHitting() {
+		return hitting;
+	}
+
+	/**
+	 * Check if a single {@link IChecker} of the opponent is pinned.
+	 *
+	 * @return {@code true} if the {@link IChecker} stays under the landing {@link IChecker}.
+	 */
+	public boolean isPinning() {
+		return pinning;
+	}
+
+	/**
+	 * Check if the {@link IChecker}s of the {@link IPlayer}s can no longer meet, so hitting, pinning and blocking
+	 * do not matter any more.
+	 *
+	 * @param rearmost the lowest index of an {@link IChecker} in the view of one {@link IPlayer},
+	 * {@value SearchBoard#BAR} for the <i>position 0</i>, {@value SearchBoard#OFF} if all are collected.
+	 * @param opponentRearmost the lowest index of an {@link IChecker} in the view of the other {@link IPlayer}.
+	 * @return {@code true} for a pure race.
+	 */
+	public boolean isRace(int rearmost, int opponentRearmost) {
+		if(opposite) {
+			return rearmost + opponentRearmost > SearchBoard.OFF; // all checkers have passed each other
+		}
+		return (rearmost > SearchBoard.POINTS / 2) && (opponentRearmost > SearchBoard.POINTS / 2); // both in the second half
+	}
+
+	/**
+	 * Convert a point index of one {@link IPlayer} view to the index of the same point in the view of the opponent.
+	 *
+	 * @param index the point index, {@code 1} to {@value SearchBoard#POINTS}.
+	 * @return the point index in the view of the opponent.
+	 */
+	public int opponentIndex(int index) {
+		if(opposite) {
+			return SearchBoard.OFF - index;
+		}
+		return ((index - 1 + SearchBoard.POINTS / 2) % SearchBoard.POINTS) + 1;
+	}
+}
@@ -0,0 +1,56 @@
+/*
+ * www.ichmags.net - Backgammon
+ */
+package net.ichmags.backgammon.strategy.search;
+
+import net.ichmags.backgammon.setup.IChecker;
+
+/**
+ * The {@code HeuristicEvaluator} is the default {@link IPositionEvaluator}. It combines the difference
+ * of the pip counts with a few structural terms: made points are good, single {@link IChecker}s that can be
+ * hit or pinned are bad, pinned {@link IChecker}s and {@link IChecker}s on the <i>position 0</i> are very bad.
+ * The raw score {@code s} is mapped into the value range with {@code s / (1 + |s|)}.
+ *
+ * @author Anastasios Patrikis
+ */
+public class HeuristicEvaluator implements IPositionEvaluator {
+
+	private static final double PIP_WEIGHT = 0.02d;
+	private static final double POINT_BONUS = 0.04d;
+	private static final double HOME_POINT_BONUS = 0.03d;
+	private static final double BLOT_PENALTY = 0.06d;
+	private static final double PINNED_PENALTY = 0.4d;
+	private static final double BAR_PENALTY = 0.15d;
+
+	@Override
+	public double evaluate(SearchBoard board) {
+		if(board.isFinished(SearchBoard.SELF)) {
+			return MAX_VALUE;
+		}
+		if(board.isFinished(SearchBoard.OPPONENT)) {
+			return MIN_VALUE;
+		}
+		double score = (board.getPipCount(SearchBoard.OPPONENT) - board.getPipCount(SearchBoard.SELF)) * PIP_WEIGHT;
+		score += structure(board, SearchBoard.SELF) - structure(board, SearchBoard.OPPONENT);
+		return score / (1.0d + Math.abs(score));
+	}
+
+	private static double structure(SearchBoard board, int side) {
+		boolean attackable = board.getType().isHitting() || board.getType().isPinning();
+		double value = -board.getCount(side, SearchBoard.BAR) * BAR_PENALTY;
+		for(int index = 1; index < SearchBoard.OFF; index++) {
+			int count = board.getCount(side, index);
+			if(count == 0) {
+				continue;
+			}
+			if(board.isPinned(side, index)) {
+				value -= PINNED_PENALTY;
+			} else if(count >= 2) {
+				value += (index >= SearchBoard.HOME) ? POINT_BONUS + HOME_POINT_BONUS : POINT_BONUS;
+			} else if(attackable) {
+				value -= BLOT_PENALTY;
+			}
+		}
+		return value;
+	}
+}
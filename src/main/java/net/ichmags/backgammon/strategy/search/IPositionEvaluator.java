@@ -0,0 +1,32 @@
+/*
+ * www.ichmags.net - Backgammon
+ */
+package net.ichmags.backgammon.strategy.search;
+
+/**
+ * An {@code IPositionEvaluator} estimates the value of a {@link SearchBoard} at the leaves of a search.
+ * The value is seen from {@link SearchBoard#SELF} and must be in the range {@link #MIN_VALUE} to {@link #MAX_VALUE},
+ * as the bounds are used for pruning.
+ *
+ * @author Anastasios Patrikis
+ */
+public interface IPositionEvaluator {
+
+	/**
+	 * The value of a lost position.
+	 */
+	public static final double MIN_VALUE = -1.0d;
+
+	/**
+	 * The value of a won position.
+	 */
+	public static final double MAX_VALUE = 1.0d;
+
+	/**
+	 * Evaluate a position.
+	 *
+	 * @param board the {@link SearchBoard}; it must not be changed.
+	 * @return the value for {@link SearchBoard#SELF}, {@link #MIN_VALUE} to {@link #MAX_VALUE}.
+	 */
+	public double evaluate(SearchBoard board);
+}
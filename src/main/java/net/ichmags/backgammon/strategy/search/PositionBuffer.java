@@ -0,0 +1,77 @@
+/*
+ * www.ichmags.net - Backgammon
+ */
+package net.ichmags.backgammon.strategy.search;
+
+import java.util.Arrays;
+
+/**
+ * The {@code PositionBuffer} stores the states of several {@link SearchBoard}s in one {@code int} array.
+ * It is cleared and refilled on every node of a search, so after a warm up phase no memory is allocated.
+ *
+ * @author Anastasios Patrikis
+ */
+public class PositionBuffer {
+
+	private int[] states;
+	private int size;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param capacity the initial number of {@link SearchBoard} states; the buffer grows if needed.
+	 */
+	public PositionBuffer(int capacity) {
+		this.states = new int[Math.max(1, capacity) * SearchBoard.STATE_SIZE];
+		this.size = 0;
+	}
+
+	/**
+	 * Remove all states.
+	 */
+	public void clear() {
+		size = 0;
+	}
+
+	/**
+	 * Remove the states added last.
+	 *
+	 * @param newSize the number of states to keep.
+	 */
+	public void truncate(int newSize) {
+		size = Math.min(size, newSize);
+	}
+
+	/**
+	 * Get the number of states.
+	 *
+	 * @return the number of stored {@link SearchBoard} states.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Add the current state of a {@link SearchBoard}.
+	 *
+	 * @param board the {@link SearchBoard}.
+	 */
+	public void add(SearchBoard board) {
+		int offset = size * SearchBoard.STATE_SIZE;
+		if(offset + SearchBoard.STATE_SIZE > states.length) {
+			states = Arrays.copyOf(states, states.length * 2);
+		}
+		board.store(states, offset);
+		size++;
+	}
+
+	/**
+	 * Load a state into a {@link SearchBoard}.
+	 *
+	 * @param index the index of the state, {@code 0} to {@link #size()} - 1.
+	 * @param board the {@link SearchBoard} to overwrite.
+	 */
+	public void load(int index, SearchBoard board) {
+		board.restore(states, index * SearchBoard.STATE_SIZE);
+	}
+}
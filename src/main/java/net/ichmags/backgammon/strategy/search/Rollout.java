@@ -0,0 +1,128 @@
+/*
+ * www.ichmags.net - Backgammon
+ */
+package net.ichmags.backgammon.strategy.search;
+
+import java.util.SplittableRandom;
+
+import net.ichmags.backgammon.setup.IDice;
+
+/**
+ * A {@code Rollout} plays a position on a {@link SearchBoard} to the end with random {@link IDice}s,
+ * both sides choosing their moves with a simple {@link Policy}. The average result of many rollouts
+ * estimates the chance to win the position.
+ * <p>
+ * Each {@code Rollout} has its own random number generator and working buffers, so it must only be used
+ * by one thread. Rollouts longer than {@link #getMaxMoves()} are stopped and scored with the
+ * {@link IPositionEvaluator}.
+ *
+ * @author Anastasios Patrikis
+ */
+public class Rollout {
+
+	/**
+	 * How a side chooses its move during a rollout.
+	 */
+	public static enum Policy {
+		/**
+		 * Any possible position, with the same probability.
+		 */
+		RANDOM,
+
+		/**
+		 * The position with the best {@link IPositionEvaluator} value for the side.
+		 */
+		GREEDY;
+	}
+
+	/**
+	 * The default maximum number of moves per rollout ({@value #DEFAULT_MAX_MOVES}).
+	 */
+	public static final int DEFAULT_MAX_MOVES = 400;
+
+	private final IPositionEvaluator evaluator;
+	private final Policy policy;
+	private final int maxMoves;
+	private final SplittableRandom random;
+	private final SearchMoveGenerator generator;
+	private final SearchBoard board;
+	private final SearchBoard candidate;
+	private final PositionBuffer positions;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param type the {@link GameType} with the rules to apply.
+	 * @param evaluator the {@link IPositionEvaluator} for the {@link Policy#GREEDY} policy and stopped rollouts.
+	 * @param policy the {@link Policy} of both sides.
+	 * @param maxMoves the maximum number of moves per rollout.
+	 * @param seed the seed of the random number generator.
+	 */
+	public Rollout(GameType type, IPositionEvaluator evaluator, Policy policy, int maxMoves, long seed) {
+		this.evaluator = evaluator;
+		this.policy = policy;
+		this.maxMoves = maxMoves;
+		this.random = new SplittableRandom(seed);
+		this.generator = new SearchMoveGenerator();
+		this.board = new SearchBoard(type);
+		this.candidate = new SearchBoard(type);
+		this.positions = new PositionBuffer(64);
+	}
+
+	/**
+	 * Get the maximum number of moves per rollout.
+	 *
+	 * @return the number of moves of both sides.
+	 */
+	public int getMaxMoves() {
+		return maxMoves;
+	}
+
+	/**
+	 * Play a rollout.
+	 *
+	 * @param start the {@link PositionBuffer} with the start position; it is only read.
+	 * @param index the index of the start position.
+	 * @param side the side to roll first, {@link SearchBoard#SELF} or {@link SearchBoard#OPPONENT}.
+	 * @return the result for {@link SearchBoard#SELF}: {@code 1} for a win, {@code 0} for a loss, in between
+	 * for a stopped rollout.
+	 */
+	public double play(PositionBuffer start, int index, int side) {
+		start.load(index, board);
+		for(int move = 0; move < maxMoves; move++) {
+			if(board.isFinished(SearchBoard.SELF)) {
+				return 1.0d;
+			}
+			if(board.isFinished(SearchBoard.OPPONENT)) {
+				return 0.0d;
+			}
+			int count = generator.generate(board, side, random.nextInt(6) + 1, random.nextInt(6) + 1, positions);
+			if(count > 0) {
+				positions.load(choose(side, count), board);
+			}
+			side = 1 - side;
+		}
+		return (evaluator.evaluate(board) - IPositionEvaluator.MIN_VALUE)
+				/ (IPositionEvaluator.MAX_VALUE - IPositionEvaluator.MIN_VALUE);
+	}
+
+	private int choose(int side, int count) {
+		if((policy == Policy.RANDOM) || (count == 1)) {
+			return random.nextInt(count);
+		}
+		int best = 0;
+		double bestValue = 0.0d;
+		for(int pos = 0; pos < count; pos++) {
+			positions.load(pos, candidate);
+			double value = evaluator.evaluate(candidate);
+			if(side == SearchBoard.OPPONENT) {
+				value = -value;
+			}
+			if((pos == 0) || (value > bestValue)) {
+				best = pos;
+				bestValue = value;
+			}
+		}
+		return best;
+	}
+}
@@ -0,0 +1,502 @@
+/*
+ * www.ichmags.net - Backgammon
+ */
+package net.ichmags.backgammon.strategy.search;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import net.ichmags.backgammon.setup.IBoard;
+import net.ichmags.backgammon.setup.IChecker;
+import net.ichmags.backgammon.setup.IPlayer;
+import net.ichmags.backgammon.strategy.IPackedPosition;
+import net.ichmags.backgammon.strategy.PackedBoard;
+
+/**
+ * The {@code SearchBoard} is a primitive {@link IBoard} for both {@link IPlayer}s, used for looking ahead
+ * in a game tree. Unlike the {@link PackedBoard}, whose {@link net.ichmags.backgammon.game.IMove}s are validated
+ * by the {@link net.ichmags.backgammon.game.IGame}, the {@code SearchBoard} checks the rules of its {@link GameType}
+ * itself, so it can play the {@link IChecker}s of the opponent as well.
+ * <p>
+ * The {@link IPlayer}s are called <i>sides</i>: {@link #SELF} is the {@link IPlayer} the search is done for,
+ * {@link #OPPONENT} the other one. Every side is stored in its own view: index {@value #BAR} is the <i>position 0</i>,
+ * {@code 1} to {@value #POINTS} are the points in moving direction, and {@value #OFF} holds the collected
+ * {@link IChecker}s. Points with a pinned {@link IChecker} are stored as bit mask per side.
+ * <p>
+ * The rules are simplified where this has no influence on the evaluation of a position, e.g. the special
+ * start rules of <i>Fevga</i> are not checked. {@link #make(int, int, int)} and {@link #unmake()} do not allocate.
+ *
+ * @author Anastasios Patrikis
+ */
+public class SearchBoard implements IPackedPosition {
+
+	/**
+	 * The side the search is done for.
+	 */
+	public static final int SELF = 0;
+
+	/**
+	 * The other side.
+	 */
+	public static final int OPPONENT = 1;
+
+	/**
+	 * The index of the <i>position 0</i>.
+	 */
+	public static final int BAR = 0;
+
+	/**
+	 * The number of points.
+	 */
+	public static final int POINTS = 24;
+
+	/**
+	 * The index of the collected {@link IChecker}s.
+	 */
+	public static final int OFF = POINTS + 1;
+
+	/**
+	 * The first point of the home of a side; all {@link IChecker}s must be there before collecting.
+	 */
+	public static final int HOME = OFF - 6;
+
+	/**
+	 * The number of {@code int} values used by {@link #store(int[], int)}.
+	 */
+	public static final int STATE_SIZE = 2 * (OFF + 1) + 6;
+
+	private static final int SIZE = OFF + 1;
+	private static final int MAX_DEPTH = 8;
+	private static final int UNDO_HIT = 1 << 11;
+	private static final int UNDO_PIN = 1 << 12;
+	private static final int UNDO_UNPIN = 1 << 13;
+
+	private static final int MAX_COUNT = 16;
+	private static final long[] COUNT_KEYS;
+	private static final long[] PINNED_KEYS;
+
+	static {
+		Random random = new Random(0x5eac4L); // fixed seed: the hash is stable between JVMs
+		COUNT_KEYS = new long[2 * SIZE * MAX_COUNT];
+		for(int pos = 0; pos < COUNT_KEYS.length; pos++) {
+			COUNT_KEYS[pos] = random.nextLong();
+		}
+		PINNED_KEYS = new long[2 * SIZE];
+		for(int pos = 0; pos < PINNED_KEYS.length; pos++) {
+			PINNED_KEYS[pos] = random.nextLong();
+		}
+	}
+
+	private final GameType type;
+	private final int[] counts;
+	private final int[] pinned;
+	private final int[] outside;
+	private final int[] total;
+
+	private final int[] undoStack;
+	private int undoDepth;
+
+	/**
+	 * Constructor: creates an empty {@code SearchBoard}.
+	 *
+	 * @param type the {@link GameType} with the rules to apply.
+	 */
+	public SearchBoard(GameType type) {
+		this.type = type;
+		this.counts = new int[2 * SIZE];
+		this.pinned = new int[2];
+		this.outside = new int[2];
+		this.total = new int[2];
+		this.undoStack = new int[MAX_DEPTH];
+		this.undoDepth = 0;
+	}
+
+	/**
+	 * Load a {@link PackedBoard#snapshot()}. The mover of the snapshot becomes {@link #SELF}.
+	 *
+	 * @param snapshot the {@link PackedBoard#snapshot()}.
+	 * @param mover the {@link IPlayer.ID#ordinal()} of the {@link IPlayer} whose view was packed.
+	 */
+	public void load(byte[] snapshot, int mover) {
+		int offIndex = snapshot.length - 5;
+		if(offIndex != OFF) {
+			throw new IllegalArgumentException("Unsupported board size: " + (offIndex + 1));
+		}
+		Arrays.fill(counts, 0);
+		pinned[SELF] = 0;
+		pinned[OPPONENT] = 0;
+		undoDepth = 0;
+
+		for(int index = 1; index < OFF; index++) {
+			byte value = snapshot[index];
+			int count = PackedBoard.countOf(value);
+			if(count == 0) {
+				continue;
+			}
+			int top = (PackedBoard.ownerOf(value) == mover) ? SELF : OPPONENT;
+			if(PackedBoard.pinnedOf(value)) {
+				int bottom = 1 - top;
+				int bottomIndex = viewIndex(bottom, index);
+				counts[bottom * SIZE + bottomIndex] = 1;
+				pinned[bottom] |= (1 << bottomIndex);
+				count--;
+			}
+			counts[top * SIZE + viewIndex(top, index)] = count;
+		}
+		for(int side = SELF; side <= OPPONENT; side++) {
+			int playerOrdinal = (side == SELF) ? mover : 1 - mover;
+			counts[side * SIZE + BAR] = snapshot[OFF + 1 + playerOrdinal];
+			counts[side * SIZE + OFF] = snapshot[OFF + 3 + playerOrdinal];
+		}
+		recount();
+	}
+
+	/**
+	 * Place {@link IChecker}s directly, e.g. for setting up a position in a test.
+	 * {@link #recount()} must be called after the last change.
+	 *
+	 * @param side {@link #SELF} or {@link #OPPONENT}.
+	 * @param index the index in the view of the side.
+	 * @param count the number of {@link IChecker}s.
+	 */
+	public void set(int side, int index, int count) {
+		counts[side * SIZE + index] = count;
+	}
+
+	/**
+	 * Update the derived counters after {@link #set(int, int, int)}.
+	 */
+	public void recount() {
+		for(int side = SELF; side <= OPPONENT; side++) {
+			int base = side * SIZE;
+			outside[side] = 0;
+			total[side] = 0;
+			for(int index = 0; index <= OFF; index++) {
+				total[side] += counts[base + index];
+				if(index < HOME) {
+					outside[side] += counts[base + index];
+				}
+			}
+		}
+		undoDepth = 0;
+	}
+
+	/**
+	 * Copy the state of another {@code SearchBoard} with the same {@link GameType}.
+	 *
+	 * @param other the {@code SearchBoard} to copy.
+	 */
+	public void copyFrom(SearchBoard other) {
+		System.arraycopy(other.counts, 0, counts, 0, counts.length);
+		System.arraycopy(other.pinned, 0, pinned, 0, 2);
+		System.arraycopy(other.outside, 0, outside, 0, 2);
+		System.arraycopy(other.total, 0, total, 0, 2);
+		undoDepth = 0;
+	}
+
+	/**
+	 * Write the state to an {@code int} array.
+	 *
+	 * @param buffer the target.
+	 * @param offset the first index to write; {@value #STATE_SIZE} values are written.
+	 */
+	@Override
+	public void store(int[] buffer, int offset) {
+		System.arraycopy(counts, 0, buffer, offset, counts.length);
+		int pos = offset + counts.length;
+		buffer[pos++] = pinned[SELF];
+		buffer[pos++] = pinned[OPPONENT];
+		buffer[pos++] = outside[SELF];
+		buffer[pos++] = outside[OPPONENT];
+		buffer[pos++] = total[SELF];
+		buffer[pos] = total[OPPONENT];
+	}
+
+	/**
+	 * Get the number of {@code int} values written by {@link #store(int[], int)}.
+	 *
+	 * @return {@value #STATE_SIZE}.
+	 */
+	@Override
+	public int getStateSize() {
+		return STATE_SIZE;
+	}
+
+	/**
+	 * Read the state from an {@code int} array, written by {@link #store(int[], int)}.
+	 *
+	 * @param buffer the source.
+	 * @param offset the first index to read.
+	 */
+	public void restore(int[] buffer, int offset) {
+		System.arraycopy(buffer, offset, counts, 0, counts.length);
+		int pos = offset + counts.length;
+		pinned[SELF] = buffer[pos++];
+		pinned[OPPONENT] = buffer[pos++];
+		outside[SELF] = buffer[pos++];
+		outside[OPPONENT] = buffer[pos++];
+		total[SELF] = buffer[pos++];
+		total[OPPONENT] = buffer[pos];
+		undoDepth = 0;
+	}
+
+	/**
+	 * Get the rules.
+	 *
+	 * @return the {@link GameType}.
+	 */
+	public GameType getType() {
+		return type;
+	}
+
+	/**
+	 * Get the number of {@link IChecker}s on a position.
+	 *
+	 * @param side {@link #SELF} or {@link #OPPONENT}.
+	 * @param index the index in the view of the side.
+	 * @return the number of {@link IChecker}s of the side.
+	 */
+	public int getCount(int side, int index) {
+		return counts[side * SIZE + index];
+	}
+
+	/**
+	 * Check if the {@link IChecker} of a side is pinned.
+	 *
+	 * @param side {@link #SELF} or {@link #OPPONENT}.
+	 * @param index the index in the view of the side.
+	 * @return {@code true} if the {@link IChecker} cannot move.
+	 */
+	public boolean isPinned(int side, int index) {
+		return (pinned[side] & (1 << index)) != 0;
+	}
+
+	/**
+	 * Get the number of {@link IChecker}s of a side.
+	 *
+	 * @param side {@link #SELF} or {@link #OPPONENT}.
+	 * @return the number of {@link IChecker}s, including collected ones.
+	 */
+	public int getTotal(int side) {
+		return total[side];
+	}
+
+	/**
+	 * Check if all {@link IChecker}s of a side are in its home, so it may collect them.
+	 *
+	 * @param side {@link #SELF} or {@link #OPPONENT}.
+	 * @return {@code true} if no {@link IChecker} is outside of the home.
+	 */
+	public boolean isAllHome(int side) {
+		return outside[side] == 0;
+	}
+
+	/**
+	 * Check if the {@link IChecker}s of both sides can no longer meet, see {@link GameType#isRace(int, int)}.
+	 *
+	 * @return {@code true} for a pure race.
+	 */
+	public boolean isRace() {
+		return type.isRace(getRearmost(SELF), getRearmost(OPPONENT));
+	}
+
+	/**
+	 * Get the lowest index of an {@link IChecker} of a side that is not collected.
+	 *
+	 * @param side {@link #SELF} or {@link #OPPONENT}.
+	 * @return the index in the view of the side, {@link #OFF} if all are collected.
+	 */
+	public int getRearmost(int side) {
+		int base = side * SIZE;
+		int index = BAR;
+		while(index < OFF && counts[base + index] == 0) {
+			index++;
+		}
+		return index;
+	}
+
+	/**
+	 * Check if a side has collected all its {@link IChecker}s.
+	 *
+	 * @param side {@link #SELF} or {@link #OPPONENT}.
+	 * @return {@code true} if the side has won.
+	 */
+	public boolean isFinished(int side) {
+		return counts[side * SIZE + OFF] == total[side];
+	}
+
+	/**
+	 * Get the pip count: the sum of the distances all {@link IChecker}s of a side still have to move.
+	 *
+	 * @param side {@link #SELF} or {@link #OPPONENT}.
+	 * @return the pip count.
+	 */
+	public int getPipCount(int side) {
+		int base = side * SIZE;
+		int pips = 0;
+		for(int index = BAR; index < OFF; index++) {
+			pips += counts[base + index] * (OFF - index);
+		}
+		return pips;
+	}
+
+	/**
+	 * Check if a {@link IChecker} can be moved.
+	 *
+	 * @param side {@link #SELF} or {@link #OPPONENT}.
+	 * @param from the index of the start position in the view of the side.
+	 * @param distance the dice value.
+	 * @return {@code true} if the {@link IChecker} can be moved.
+	 */
+	public boolean canMove(int side, int from, int distance) {
+		int base = side * SIZE;
+		if((from >= OFF) || (counts[base + from] == 0) || isPinned(side, from)) {
+			return false;
+		}
+		if((from != BAR) && (counts[base + BAR] > 0)) {
+			return false; // the position 0 has to be emptied first
+		}
+
+		int to = from + distance;
+		if(to >= OFF) {
+			if(outside[side] > 0) {
+				return false;
+			}
+			if(to == OFF) {
+				return true;
+			}
+			for(int index = HOME; index < from; index++) {
+				if(counts[base + index] > 0) {
+					return false; // a higher dice value may only be used for the last checker
+				}
+			}
+			return true;
+		}
+
+		int other = 1 - side;
+		int otherIndex = type.opponentIndex(to);
+		int otherCount = counts[other * SIZE + otherIndex];
+		if((otherCount == 0) || isPinned(other, otherIndex)) {
+			return true;
+		}
+		return (otherCount == 1) && (counts[base + to] == 0) && (type.isHitting() || type.isPinning());
+	}
+
+	/**
+	 * Move a {@link IChecker}; the {@link IMove} must be checked with {@link #canMove(int, int, int)}.
+	 *
+	 * @param side {@link #SELF} or {@link #OPPONENT}.
+	 * @param from the index of the start position in the view of the side.
+	 * @param distance the dice value.
+	 */
+	public void make(int side, int from, int distance) {
+		int other = 1 - side;
+		int base = side * SIZE;
+		int otherBase = other * SIZE;
+		int to = Math.min(from + distance, OFF);
+		int undo = side | (from << 1) | (to << 6);
+
+		counts[base + from]--;
+		if(from < HOME) {
+			outside[side]--;
+		}
+		if((from != BAR) && (counts[base + from] == 0)) {
+			int otherIndex = type.opponentIndex(from);
+			if(isPinned(other, otherIndex)) {
+				pinned[other] &= ~(1 << otherIndex); // the pinned checker is free again
+				undo |= UNDO_UNPIN;
+			}
+		}
+
+		if(to != OFF) {
+			int otherIndex = type.opponentIndex(to);
+			if((counts[otherBase + otherIndex] == 1) && (counts[base + to] == 0) && !isPinned(other, otherIndex)) {
+				if(type.isHitting()) {
+					counts[otherBase + otherIndex] = 0;
+					counts[otherBase + BAR]++;
+					if(otherIndex >= HOME) {
+						outside[other]++;
+					}
+					undo |= UNDO_HIT;
+				} else if(type.isPinning()) {
+					pinned[other] |= (1 << otherIndex);
+					undo |= UNDO_PIN;
+				}
+			}
+		}
+		counts[base + to]++;
+		if(to < HOME) {
+			outside[side]++;
+		}
+
+		undoStack[undoDepth++] = undo;
+	}
+
+	/**
+	 * Revert the latest {@link #make(int, int, int)}.
+	 */
+	public void unmake() {
+		int undo = undoStack[--undoDepth];
+		int side = undo & 0x01;
+		int from = (undo >>> 1) & 0x1F;
+		int to = (undo >>> 6) & 0x1F;
+		int other = 1 - side;
+		int base = side * SIZE;
+		int otherBase = other * SIZE;
+
+		counts[base + to]--;
+		if(to < HOME) {
+			outside[side]--;
+		}
+		if((undo & UNDO_HIT) != 0) {
+			int otherIndex = type.opponentIndex(to);
+			counts[otherBase + BAR]--;
+			counts[otherBase + otherIndex] = 1;
+			if(otherIndex >= HOME) {
+				outside[other]--;
+			}
+		}
+		if((undo & UNDO_PIN) != 0) {
+			pinned[other] &= ~(1 << type.opponentIndex(to));
+		}
+		if((undo & UNDO_UNPIN) != 0) {
+			pinned[other] |= (1 << type.opponentIndex(from));
+		}
+		counts[base + from]++;
+		if(from < HOME) {
+			outside[side]++;
+		}
+	}
+
+	/**
+	 * Calculate the Zobrist hash of the current {@link IChecker} constellation.
+	 *
+	 * @return the 64 bit hash.
+	 */
+	@Override
+	public long hash() {
+		long hash = 0L;
+		for(int pos = 0; pos < counts.length; pos++) {
+			int count = counts[pos];
+			if(count != 0) {
+				hash ^= COUNT_KEYS[pos * MAX_COUNT + Math.min(count, MAX_COUNT - 1)];
+			}
+		}
+		for(int side = SELF; side <= OPPONENT; side++) {
+			for(int bits = pinned[side]; bits != 0; bits &= bits - 1) {
+				hash ^= PINNED_KEYS[side * SIZE + Integer.numberOfTrailingZeros(bits)];
+			}
+		}
+		return hash;
+	}
+
+	private int viewIndex(int side, int moverIndex) {
+		return (side == SELF) ? moverIndex : type.opponentIndex(moverIndex);
+	}
+
+	@Override
+	public String toString() {
+		return ("SearchBoard: " + type + " " + Arrays.toString(Arrays.copyOfRange(counts, 0, SIZE))
+				+ " " + Arrays.toString(Arrays.copyOfRange(counts, SIZE, 2 * SIZE)));
+	}
+}
@@ -0,0 +1,110 @@
+/*
+ * www.ichmags.net - Backgammon
+ */
+package net.ichmags.backgammon.strategy.search;
+
+import net.ichmags.backgammon.setup.IDice;
+import net.ichmags.backgammon.strategy.BoardGenerator;
+import net.ichmags.backgammon.strategy.TranspositionTable;
+
+/**
+ * The {@code SearchMoveGenerator} finds all distinct positions a side can reach with two {@link IDice}s
+ * on a {@link SearchBoard}. It works like the {@link BoardGenerator}, including the pruning of transpositions,
+ * but does not record the {@link net.ichmags.backgammon.game.IMove}s and writes the positions into a
+ * {@link PositionBuffer} instead of creating objects.
+ * <p>
+ * As many {@link IDice}s as possible are played; if only one of two different {@link IDice}s can be played,
+ * the higher one is preferred.
+ * <p>
+ * A {@code SearchMoveGenerator} is not thread safe, but can be reused for any number of calls.
+ *
+ * @author Anastasios Patrikis
+ */
+public class SearchMoveGenerator {
+
+	private final int[] dices;
+	private final TranspositionTable transpositions;
+	private final TranspositionTable positions;
+	private int diceCount;
+	private int maxPlayed;
+
+	/**
+	 * Constructor.
+	 */
+	public SearchMoveGenerator() {
+		this.dices = new int[4];
+		this.transpositions = new TranspositionTable();
+		this.positions = new TranspositionTable();
+	}
+
+	/**
+	 * Generate the positions.
+	 *
+	 * @param board the {@link SearchBoard}; it has the same state after the call.
+	 * @param side the side to move, {@link SearchBoard#SELF} or {@link SearchBoard#OPPONENT}.
+	 * @param dice1 the value of the first {@link IDice}.
+	 * @param dice2 the value of the second {@link IDice}.
+	 * @param result the {@link PositionBuffer} for the positions; it is cleared first.
+	 * @return the number of positions, {@code 0} if the side cannot move.
+	 */
+	public int generate(SearchBoard board, int side, int dice1, int dice2, PositionBuffer result) {
+		result.clear();
+		transpositions.clear();
+		positions.clear();
+		maxPlayed = 0;
+
+		if(dice1 == dice2) {
+			diceCount = 4;
+			dices[0] = dices[1] = dices[2] = dices[3] = dice1;
+			findPositions(board, side, 0, result);
+		} else {
+			diceCount = 2;
+			dices[0] = Math.max(dice1, dice2);
+			dices[1] = Math.min(dice1, dice2);
+			findPositions(board, side, 0, result);
+			int higherFirst = (maxPlayed > 0) ? result.size() : 0;
+			dices[0] = Math.min(dice1, dice2);
+			dices[1] = Math.max(dice1, dice2);
+			findPositions(board, side, 0, result);
+			if((maxPlayed == 1) && (higherFirst > 0)) {
+				result.truncate(higherFirst); // only one dice can be played: it has to be the higher one
+			}
+		}
+		return (maxPlayed == 0) ? 0 : result.size();
+	}
+
+	private void findPositions(SearchBoard board, int side, int depth, PositionBuffer result) {
+		boolean moved = false;
+		if(depth < diceCount) {
+			int dice = dices[depth];
+			for(int from = SearchBoard.BAR; from < SearchBoard.OFF; from++) {
+				if(board.canMove(side, from, dice)) {
+					moved = true;
+					board.make(side, from, dice);
+					if(transpositions.enter(board, dice)) {
+						findPositions(board, side, depth + 1, result);
+					}
+					transpositions.leave(dice);
+					board.unmake();
+				}
+			}
+		}
+		if( ! moved) {
+			addPosition(board, depth, result);
+		}
+	}
+
+	private void addPosition(SearchBoard board, int played, PositionBuffer result) {
+		if(played < maxPlayed) {
+			return;
+		}
+		if(played > maxPlayed) {
+			maxPlayed = played;
+			result.clear();
+			positions.clear();
+		}
+		if(positions.add(board)) {
+			result.add(board);
+		}
+	}
+}
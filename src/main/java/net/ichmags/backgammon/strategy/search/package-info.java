@@ -0,0 +1,12 @@
+/*
+ * www.ichmags.net - Backgammon
+ */
+
+/**
+ * This package provides a primitive, two sided board representation and a game tree search
+ * that is used by a computer {@link net.ichmags.backgammon.setup.IPlayer} of a higher
+ * {@link net.ichmags.backgammon.setup.IPlayer.Level} to look ahead at the replies of the opponent.
+ * 
+ * @author Anastasios Patrikis
+ */
+package net.ichmags.backgammon.strategy.search;
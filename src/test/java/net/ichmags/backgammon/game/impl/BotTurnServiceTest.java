@@ -0,0 +1,143 @@
+package net.ichmags.backgammon.game.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+
+import net.ichmags.backgammon.exception.ExitException;
+import net.ichmags.backgammon.game.IGame;
+import net.ichmags.backgammon.game.IPlay;
+import net.ichmags.backgammon.notification.INotificationEmitter;
+import net.ichmags.backgammon.setup.CheckerColor;
+import net.ichmags.backgammon.setup.IBoard;
+import net.ichmags.backgammon.setup.IDicesChoice;
+import net.ichmags.backgammon.setup.IPlayer;
+import net.ichmags.backgammon.setup.impl.Player;
+import net.ichmags.backgammon.strategy.Deadline;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BotTurnServiceTest {
+
+	private IPlayer player;
+	private BlockingPlay play;
+
+	@Before
+	public void setUp() throws Exception {
+		player = new Player().initialize("Tester", IPlayer.ID.TWO, IPlayer.Type.COMPUTER, Player.Level.AVERAGE, CheckerColor.BLACK);
+		play = new BlockingPlay();
+	}
+
+	@Test
+	public void testPriorityByDeadline() throws Exception {
+		IGame running = new Portes();
+		IGame unbounded = new Portes();
+		IGame late = new Portes();
+		IGame early = new Portes();
+
+		try(BotTurnService service = new BotTurnService(play, 1, 10, false)) {
+			List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+			futures.add(service.submit(player, running, null, null, null, Deadline.NONE));
+			play.started.await();
+
+			// queued while the only thread is busy: the least remaining budget is played first
+			futures.add(service.submit(player, unbounded, null, null, null, Deadline.NONE));
+			futures.add(service.submit(player, late, null, null, null, Deadline.after(10_000_000_000L)));
+			futures.add(service.submit(player, early, null, null, null, Deadline.after(5_000_000_000L)));
+			Assert.assertEquals("Queue depth does not match", 3, service.getQueueDepth());
+
+			play.release.countDown();
+			for(CompletableFuture<Boolean> future : futures) {
+				Assert.assertTrue("Turn result", future.get());
+			}
+			Assert.assertEquals("Order of turns does not match",
+					Arrays.asList(running, early, late, unbounded), play.games);
+			Assert.assertEquals("Waits count does not match", 4, service.getWaits().getCount());
+			Assert.assertEquals("Queue depths count does not match", 4, service.getQueueDepths().getCount());
+			Assert.assertEquals("Waits per game count does not match", 1, service.getWaits(early).getCount());
+			double fairness = service.getFairness();
+			Assert.assertTrue("Fairness is out of range: " + fairness, fairness > 0.0d && fairness <= 1.0d);
+		}
+	}
+
+	@Test
+	public void testBackpressure() throws Exception {
+		IGame running = new Portes();
+		IGame queued = new Portes();
+		IGame rejected = new Portes();
+
+		try(BotTurnService service = new BotTurnService(play, 1, 1, false)) {
+			CompletableFuture<Boolean> first = service.submit(player, running, null, null, null, Deadline.NONE);
+			play.started.await();
+
+			CompletableFuture<Boolean> second = service.submit(player, queued, null, null, null, Deadline.NONE);
+			CompletableFuture<Boolean> full = service.submit(player, rejected, null, null, null, Deadline.NONE);
+			CompletableFuture<Boolean> again = service.submit(player, queued, null, null, null, Deadline.NONE);
+			Assert.assertTrue("Full queue is rejected", isFailedWith(full, RejectedExecutionException.class));
+			Assert.assertTrue("Second turn of a game is rejected", isFailedWith(again, IllegalStateException.class));
+			Assert.assertEquals("Rejected count does not match", 1, service.getRejectedCount());
+
+			play.release.countDown();
+			Assert.assertTrue("First turn result", first.get());
+			Assert.assertTrue("Second turn result", second.get());
+			Assert.assertEquals("Queue depth does not match", 0, service.getQueueDepth());
+
+			// the game is free again after its turn
+			Assert.assertTrue("Next turn result", service.submit(player, queued, null, null, null, Deadline.NONE).get());
+		}
+	}
+
+	@Test
+	public void testErrorReleasesGame() throws Exception {
+		IGame game = new Portes();
+		IPlay failing = new IPlay() {
+			@Override
+			public boolean play(IPlayer player, IGame game, IBoard board, IDicesChoice dicesChoice, INotificationEmitter notificationEmitter) {
+				throw new AssertionError("Turn failed");
+			}
+		};
+
+		try(BotTurnService service = new BotTurnService(failing, 1, 1, false)) {
+			Assert.assertTrue("Error completes the turn", isFailedWith(service.submit(player, game, null, null, null, Deadline.NONE), AssertionError.class));
+			Assert.assertTrue("Game is released after an error", isFailedWith(service.submit(player, game, null, null, null, Deadline.NONE), AssertionError.class));
+		}
+	}
+
+	private static boolean isFailedWith(CompletableFuture<Boolean> future, Class<? extends Throwable> type) throws InterruptedException {
+		try {
+			future.get();
+			return false;
+		} catch (ExecutionException e) {
+			return type.isInstance(e.getCause());
+		}
+	}
+}
+
+/**
+ * Blocks the first turn until released and records the order of the played games.
+ */
+class BlockingPlay implements IPlay {
+
+	final CountDownLatch started = new CountDownLatch(1);
+	final CountDownLatch release = new CountDownLatch(1);
+	final List<IGame> games = Collections.synchronizedList(new ArrayList<>());
+
+	@Override
+	public boolean play(IPlayer player, IGame game, IBoard board, IDicesChoice dicesChoice, INotificationEmitter notificationEmitter) throws ExitException {
+		games.add(game);
+		started.countDown();
+		try {
+			release.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		return true;
+	}
+}
@@ -1,5 +1,212 @@
 package net.ichmags.backgammon.game.impl;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import net.ichmags.backgammon.exception.ExitException;
+import net.ichmags.backgammon.game.IMove;
+import net.ichmags.backgammon.notification.INotification;
+import net.ichmags.backgammon.notification.INotificationConsumer;
+import net.ichmags.backgammon.notification.INotificationEmitter;
+import net.ichmags.backgammon.notification.pojo.StringNotification;
+import net.ichmags.backgammon.setup.CheckerColor;
+import net.ichmags.backgammon.setup.IBoard;
+import net.ichmags.backgammon.setup.IDices;
+import net.ichmags.backgammon.setup.IPlayer;
+import net.ichmags.backgammon.setup.impl.DiceGenerator;
+import net.ichmags.backgammon.setup.impl.Dices;
+import net.ichmags.backgammon.setup.impl.DicesChoice;
+import net.ichmags.backgammon.setup.impl.Player;
+import net.ichmags.backgammon.strategy.BoardGenerator;
+import net.ichmags.backgammon.strategy.BoardMovesCombination;
+import net.ichmags.backgammon.strategy.Deadline;
+import net.ichmags.backgammon.strategy.IStrategy;
+import net.ichmags.backgammon.strategy.PackedBoard;
+import net.ichmags.backgammon.strategy.impl.RandomRatingStrategy;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
 public class ComputerPlayerTest {
 
+	private IPlayer player1;
+	private IPlayer player2;
+
+	@Before
+	public void setUp() throws Exception {
+		player1 = new Player().initialize("Tester 1", IPlayer.ID.ONE, IPlayer.Type.LOCAL, Player.Level.AVERAGE, CheckerColor.WHITE);
+		player2 = new Player().initialize("Tester 2", IPlayer.ID.TWO, IPlayer.Type.COMPUTER, Player.Level.EXPERT, CheckerColor.BLACK);
+	}
+
+	@Test
+	public void testSearchSelectsBetterCandidate() throws Exception {
+		// only random ratings: the search must decide, whatever the noise of the strategy is
+		ComputerPlayer computerPlayer = new ComputerPlayer(Collections.singleton((IStrategy)new RandomRatingStrategy()));
+		for(int turn = 0; turn < 20; turn++) {
+			PortesContact testPortes = new PortesContact();
+			testPortes.initialize(player1, player2, null);
+
+			// 4-3: hitting the advanced blot of player 1 on position 5 sends it back 20 pips without any risk
+			computerPlayer.play(player2, testPortes, testPortes.getBoard(), roll(testPortes, 4, 3),
+					new NotificationCollector(), Deadline.NONE);
+			PackedBoard after = new PackedBoard(player1, testPortes, testPortes.getBoard());
+			Assert.assertEquals("The blot was not hit in turn " + turn, 1, after.getBarCount(player1.getID().ordinal()));
+		}
+	}
+
+	@Test
+	public void testSingleMovesPlayedNotification() throws Exception {
+		PortesContact testPortes = new PortesContact();
+		testPortes.initialize(player1, player2, null);
+		NotificationCollector collector = new NotificationCollector();
+		new ComputerPlayer(Collections.singleton((IStrategy)new RandomRatingStrategy())).play(
+				player2, testPortes, testPortes.getBoard(), roll(testPortes, 4, 3), collector, Deadline.NONE);
+
+		// both moves are reported together, after the last one was applied
+		List<MovesPlayedNotification> movesPlayed = new ArrayList<>();
+		for(INotification notification : collector.notifications) {
+			if(notification instanceof MovesPlayedNotification) {
+				movesPlayed.add((MovesPlayedNotification)notification);
+			}
+		}
+		Assert.assertEquals("Moves played notifications", 1, movesPlayed.size());
+		Assert.assertEquals("Moves played", 2, movesPlayed.get(0).getMoves().size());
+		Assert.assertTrue("Last notification", collector.notifications.get(collector.notifications.size() - 1) instanceof MovesPlayedNotification);
+	}
+
+	@Test
+	public void testRejectedMoveRollsBack() throws Exception {
+		PortesContact testPortes = new PortesContact();
+		testPortes.initialize(player1, player2, null);
+		IBoard board = testPortes.getBoard();
+		byte[] before = new PackedBoard(player2, testPortes, board).snapshot();
+
+		// repeating a move runs out of checkers on its start position, after at least one successful move
+		IMove move = generate(testPortes).get(0).getMoves().get().get(0);
+		Moves repeated = new Moves();
+		for(int count = 0; count <= 15; count++) {
+			repeated.addLatest(move);
+		}
+		NotificationCollector collector = new NotificationCollector();
+		try {
+			ComputerPlayer.commitMoves(player2, testPortes, board, new BoardMovesCombination(board, repeated), collector, false);
+			Assert.fail("Impossible moves were committed");
+		} catch (ExitException e) {
+			// expected
+		}
+		Assert.assertArrayEquals("Board after rollback", before, new PackedBoard(player2, testPortes, board).snapshot());
+		Assert.assertEquals("Notifications", 1, collector.notifications.size());
+		Assert.assertTrue("Failed replay notification", collector.notifications.get(0) instanceof StringNotification);
+	}
+
+	@Test
+	public void testVerifyReplay() throws Exception {
+		PortesContact testPortes = new PortesContact();
+		testPortes.initialize(player1, player2, null);
+
+		// the calculated moves replay to equal moves
+		for(BoardMovesCombination generated : generate(testPortes)) {
+			PortesContact replayPortes = new PortesContact();
+			replayPortes.initialize(player1, player2, null);
+			List<IMove> played = ComputerPlayer.commitMoves(player2, replayPortes, replayPortes.getBoard(), generated,
+					new NotificationCollector(), true);
+			Assert.assertEquals("Replayed moves", generated.getMoves().get(), played);
+		}
+
+		// a move hitting the blot of player 1 is applied without a hit on a board without the blot
+		BoardMovesCombination hitting = null;
+		PackedBoard origin = new PackedBoard(player2, testPortes, testPortes.getBoard());
+		for(BoardMovesCombination generated : generate(testPortes)) {
+			PackedBoard result = new PackedBoard(player1, testPortes, origin.toBoard(generated.getMoves()));
+			if(result.getBarCount(player1.getID().ordinal()) == 1) {
+				hitting = generated;
+				break;
+			}
+		}
+		Assert.assertNotNull("No hitting moves generated", hitting);
+
+		PortesOpen unverified = new PortesOpen();
+		unverified.initialize(player1, player2, null);
+		List<IMove> played = ComputerPlayer.commitMoves(player2, unverified, unverified.getBoard(), hitting,
+				new NotificationCollector(), false);
+		Assert.assertEquals("Moves played without verification", hitting.getMoves().get().size(), played.size());
+
+		PortesOpen verified = new PortesOpen();
+		verified.initialize(player1, player2, null);
+		byte[] before = new PackedBoard(player2, verified, verified.getBoard()).snapshot();
+		NotificationCollector collector = new NotificationCollector();
+		try {
+			ComputerPlayer.commitMoves(player2, verified, verified.getBoard(), hitting, collector, true);
+			Assert.fail("Different moves were committed");
+		} catch (ExitException e) {
+			// expected
+		}
+		Assert.assertArrayEquals("Board after rollback", before, new PackedBoard(player2, verified, verified.getBoard()).snapshot());
+		Assert.assertEquals("Notifications", 1, collector.notifications.size());
+		Assert.assertTrue("Failed replay notification", collector.notifications.get(0) instanceof StringNotification);
+	}
+
+	private List<BoardMovesCombination> generate(PortesContact game) {
+		List<BoardMovesCombination> generated = new BoardGenerator(new NotificationCollector()).generateBoards(
+				player2, game, game.getBoard(), roll(game, 4, 3).getOption1());
+		Assert.assertFalse("No boards generated", generated.isEmpty());
+		return generated;
+	}
+
+	private DicesChoice roll(PortesContact game, int dice1, int dice2) {
+		DiceGenerator.get().load(new int[]{dice1, dice2});
+		return game.findPlayableDices(player2, new Dices().roll());
+	}
+}
+
+class PortesContact extends Portes {
+	@Override
+	protected List<Integer> getCheckerPositionsPlayer1() {
+		return Arrays.asList(20, 22, 22, 23, 23);
+	};
+
+	@Override
+	protected List<Integer> getCheckerPositionsPlayer2() {
+		return Arrays.asList(1, 1, 10, 10, 11, 11);
+	}
+
+	public IBoard getBoard() {
+		return this.board;
+	}
+
+	@Override
+	public DicesChoice findPlayableDices(IPlayer currentPlayer, IDices dices) {
+		return super.findPlayableDices(currentPlayer, dices);
+	}
+}
+
+class PortesOpen extends PortesContact {
+	@Override
+	protected List<Integer> getCheckerPositionsPlayer1() {
+		return Arrays.asList(22, 22, 23, 23);
+	};
+}
+
+class NotificationCollector implements INotificationEmitter {
+
+	final List<INotification> notifications = new ArrayList<>();
+
+	@Override
+	public INotificationEmitter addConsumer(INotificationConsumer consumer) {
+		return this;
+	}
+
+	@Override
+	public INotificationEmitter removeConsumer(INotificationConsumer consumer) {
+		return this;
+	}
+
+	@Override
+	public INotificationEmitter emitNotification(INotification notification) {
+		notifications.add(notification);
+		return this;
+	}
 }
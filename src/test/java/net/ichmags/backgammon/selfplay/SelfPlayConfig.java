@@ -0,0 +1,82 @@
+/*
+ * www.ichmags.net - Backgammon
+ */
+package net.ichmags.backgammon.selfplay;
+
+import java.util.Set;
+
+import net.ichmags.backgammon.game.impl.ComputerPlayer;
+import net.ichmags.backgammon.setup.CheckerColor;
+import net.ichmags.backgammon.setup.IPlayer;
+import net.ichmags.backgammon.setup.impl.Player;
+import net.ichmags.backgammon.strategy.IStrategy;
+
+/**
+ * The configuration of one side in self-play games: the {@link IPlayer.Level}, the {@link IPlayer.PlayStyle}
+ * and optionally a fixed {@link Set} of {@link IStrategy} instances.
+ * 
+ * @author Anastasios Patrikis
+ */
+public class SelfPlayConfig {
+	
+	private final String name;
+	private final IPlayer.Level level;
+	private final IPlayer.PlayStyle playStyle;
+	private final Set<IStrategy> strategies;
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param name the name used in the {@link SelfPlayReport}.
+	 * @param level the {@link IPlayer.Level} of the computer {@link IPlayer}.
+	 * @param playStyle the {@link IPlayer.PlayStyle} of the computer {@link IPlayer}.
+	 * @param strategies the {@link IStrategy} instances to use; {@code null} chooses them by the {@link IPlayer.Level}.
+	 */
+	public SelfPlayConfig(String name, IPlayer.Level level, IPlayer.PlayStyle playStyle, Set<IStrategy> strategies) {
+		this.name = name;
+		this.level = level;
+		this.playStyle = playStyle;
+		this.strategies = strategies;
+	}
+	
+	/**
+	 * Get the name.
+	 * 
+	 * @return the name used in the {@link SelfPlayReport}.
+	 */
+	public String getName() {
+		return name;
+	}
+	
+	/**
+	 * Create the computer {@link IPlayer} for one game.
+	 * 
+	 * @param id the {@link IPlayer.ID} of the seat.
+	 * @param color the {@link CheckerColor} of the seat.
+	 * @return the initialized {@link IPlayer}.
+	 */
+	IPlayer createPlayer(IPlayer.ID id, CheckerColor color) {
+		Player player = new Player() {
+			@Override
+			public IPlayer.PlayStyle getPlayStyle() {
+				return playStyle;
+			}
+		};
+		player.initialize(name, id, IPlayer.Type.COMPUTER, level, color);
+		return player;
+	}
+	
+	/**
+	 * Create the {@link ComputerPlayer} for one game.
+	 * 
+	 * @return the {@link ComputerPlayer}.
+	 */
+	ComputerPlayer createComputerPlayer() {
+		return new ComputerPlayer(strategies);
+	}
+	
+	@Override
+	public String toString() {
+		return name + " (" + level + ", " + playStyle + ((strategies == null) ? "" : ", " + strategies.size() + " strategies") + ")";
+	}
+}
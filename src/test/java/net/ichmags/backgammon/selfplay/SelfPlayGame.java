@@ -0,0 +1,96 @@
+/*
+ * www.ichmags.net - Backgammon
+ */
+package net.ichmags.backgammon.selfplay;
+
+import net.ichmags.backgammon.game.IGame;
+import net.ichmags.backgammon.game.impl.Fevga;
+import net.ichmags.backgammon.game.impl.Plakoto;
+import net.ichmags.backgammon.game.impl.Portes;
+import net.ichmags.backgammon.setup.IBoard;
+import net.ichmags.backgammon.setup.IDices;
+import net.ichmags.backgammon.setup.IPlayer;
+import net.ichmags.backgammon.setup.impl.DicesChoice;
+import net.ichmags.backgammon.strategy.search.GameType;
+
+/**
+ * Access to the turn handling of the {@link IGame} implementations, which is {@code protected}.
+ * 
+ * @author Anastasios Patrikis
+ */
+interface SelfPlayGame {
+	
+	IBoard getBoard();
+	
+	boolean checkIfAnyMoveIsPossible(IPlayer currentPlayer, IDices dices);
+	
+	DicesChoice findPlayableDices(IPlayer currentPlayer, IDices dices);
+	
+	/**
+	 * Create a game in the start position.
+	 * 
+	 * @param type the {@link GameType} to play.
+	 * @return the new {@link IGame}, which is a {@code SelfPlayGame}.
+	 */
+	static IGame create(GameType type) {
+		switch(type) {
+			case PORTES:
+				return new SelfPlayPortes();
+			case PLAKOTO:
+				return new SelfPlayPlakoto();
+			default:
+				return new SelfPlayFevga();
+		}
+	}
+	
+	static class SelfPlayPortes extends Portes implements SelfPlayGame {
+		@Override
+		public IBoard getBoard() {
+			return this.board;
+		}
+		
+		@Override
+		public boolean checkIfAnyMoveIsPossible(IPlayer currentPlayer, IDices dices) {
+			return super.checkIfAnyMoveIsPossible(currentPlayer, dices);
+		}
+		
+		@Override
+		public DicesChoice findPlayableDices(IPlayer currentPlayer, IDices dices) {
+			return super.findPlayableDices(currentPlayer, dices);
+		}
+	}
+	
+	static class SelfPlayPlakoto extends Plakoto implements SelfPlayGame {
+		@Override
+		public IBoard getBoard() {
+			return this.board;
+		}
+		
+		@Override
+		public boolean checkIfAnyMoveIsPossible(IPlayer currentPlayer, IDices dices) {
+			return super.checkIfAnyMoveIsPossible(currentPlayer, dices);
+		}
+		
+		@Override
+		public DicesChoice findPlayableDices(IPlayer currentPlayer, IDices dices) {
+			return super.findPlayableDices(currentPlayer, dices);
+		}
+	}
+	
+	static class SelfPlayFevga extends Fevga implements SelfPlayGame {
+		@Override
+		public IBoard getBoard() {
+			return this.board;
+		}
+		
+		@Override
+		public boolean checkIfAnyMoveIsPossible(IPlayer currentPlayer, IDices dices) {
+			return super.checkIfAnyMoveIsPossible(currentPlayer, dices);
+		}
+		
+		@Override
+		public DicesChoice findPlayableDices(IPlayer currentPlayer, IDices dices) {
+			return super.findPlayableDices(currentPlayer, dices);
+		}
+	}
+}
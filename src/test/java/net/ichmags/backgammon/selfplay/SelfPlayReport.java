@@ -0,0 +1,178 @@
+/*
+ * www.ichmags.net - Backgammon
+ */
+package net.ichmags.backgammon.selfplay;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+
+import net.ichmags.backgammon.strategy.search.GameType;
+
+/**
+ * The result of a {@link SelfPlayRunner#run(int, GameType...)}: wins per {@link GameType}, the throughput and
+ * the latency of the moves per {@link SelfPlayConfig}.
+ * 
+ * @author Anastasios Patrikis
+ */
+public class SelfPlayReport {
+	
+	/**
+	 * The z value of the 95% confidence interval.
+	 */
+	private static final double Z_95 = 1.96d;
+	
+	private final SelfPlayConfig[] configs;
+	private final Map<GameType, int[]> outcomes;
+	private final long[][] latencies;
+	private final int[] latencyCounts;
+	private long wallNanos;
+	
+	SelfPlayReport(SelfPlayConfig configA, SelfPlayConfig configB) {
+		this.configs = new SelfPlayConfig[]{configA, configB};
+		this.outcomes = new EnumMap<>(GameType.class);
+		this.latencies = new long[][]{new long[256], new long[256]};
+		this.latencyCounts = new int[2];
+	}
+	
+	/**
+	 * Add the result of one game.
+	 * 
+	 * @param type the {@link GameType} played.
+	 * @param outcome the index of the winning {@link SelfPlayConfig}, {@link SelfPlayRunner#UNFINISHED}
+	 * or {@link SelfPlayRunner#FAILED}.
+	 * @param moveNanos the durations of the moves per {@link SelfPlayConfig}.
+	 * @param moveCounts the number of moves per {@link SelfPlayConfig}.
+	 */
+	void add(GameType type, int outcome, long[][] moveNanos, int[] moveCounts) {
+		outcomes.computeIfAbsent(type, key -> new int[4])[outcome + 2]++;
+		for(int side = 0; side < 2; side++) {
+			int needed = latencyCounts[side] + moveCounts[side];
+			if(needed > latencies[side].length) {
+				latencies[side] = Arrays.copyOf(latencies[side], Math.max(needed, latencies[side].length * 2));
+			}
+			System.arraycopy(moveNanos[side], 0, latencies[side], latencyCounts[side], moveCounts[side]);
+			latencyCounts[side] = needed;
+		}
+	}
+	
+	void finish(long wallNanos) {
+		this.wallNanos = wallNanos;
+		for(int side = 0; side < 2; side++) {
+			Arrays.sort(latencies[side], 0, latencyCounts[side]);
+		}
+	}
+	
+	/**
+	 * Get the number of games of a {@link GameType} with an outcome.
+	 * 
+	 * @param type the {@link GameType}.
+	 * @param outcome the index of the winning {@link SelfPlayConfig}, {@link SelfPlayRunner#UNFINISHED}
+	 * or {@link SelfPlayRunner#FAILED}.
+	 * @return the number of games.
+	 */
+	public int getCount(GameType type, int outcome) {
+		int[] counts = outcomes.get(type);
+		return (counts == null) ? 0 : counts[outcome + 2];
+	}
+	
+	/**
+	 * Get the number of played games.
+	 * 
+	 * @return the number of games of all {@link GameType}s, including the unfinished and failed ones.
+	 */
+	public int getGames() {
+		int games = 0;
+		for(int[] counts : outcomes.values()) {
+			for(int count : counts) {
+				games += count;
+			}
+		}
+		return games;
+	}
+	
+	/**
+	 * Get the number of moves of a {@link SelfPlayConfig}.
+	 * 
+	 * @param side the index of the {@link SelfPlayConfig}, {@code 0} or {@code 1}.
+	 * @return the number of moves.
+	 */
+	public int getMoves(int side) {
+		return latencyCounts[side];
+	}
+	
+	/**
+	 * Get the throughput.
+	 * 
+	 * @return the number of games per second of wall clock time.
+	 */
+	public double getGamesPerSecond() {
+		return getGames() * 1e9d / Math.max(1L, wallNanos);
+	}
+	
+	/**
+	 * Get a percentile of the move durations of a {@link SelfPlayConfig}.
+	 * 
+	 * @param side the index of the {@link SelfPlayConfig}, {@code 0} or {@code 1}.
+	 * @param percentile the percentile, {@code 0} to {@code 100}.
+	 * @return the duration in nanoseconds, {@code 0} without moves.
+	 */
+	public long getLatencyPercentile(int side, double percentile) {
+		int count = latencyCounts[side];
+		if(count == 0) {
+			return 0L;
+		}
+		int index = (int)Math.ceil(percentile / 100.0d * count) - 1;
+		return latencies[side][Math.min(count - 1, Math.max(0, index))];
+	}
+	
+	/**
+	 * Get the 95% confidence interval of the win rate of the first {@link SelfPlayConfig} in the finished games
+	 * of a {@link GameType}, with the Wilson score interval.
+	 * 
+	 * @param type the {@link GameType}.
+	 * @return the win rate, the lower and the upper bound.
+	 */
+	public double[] getWinRate(GameType type) {
+		return wilson(getCount(type, 0), getCount(type, 0) + getCount(type, 1));
+	}
+	
+	/**
+	 * Calculate the Wilson score interval for 95% confidence.
+	 * 
+	 * @param wins the number of wins.
+	 * @param games the number of finished games.
+	 * @return the win rate, the lower and the upper bound; all {@code 0.5} without games.
+	 */
+	static double[] wilson(int wins, int games) {
+		if(games == 0) {
+			return new double[]{0.5d, 0.5d, 0.5d};
+		}
+		double rate = (double)wins / games;
+		double z2 = Z_95 * Z_95;
+		double center = (rate + z2 / (2 * games)) / (1 + z2 / games);
+		double spread = Z_95 * Math.sqrt(rate * (1 - rate) / games + z2 / (4.0d * games * games)) / (1 + z2 / games);
+		return new double[]{rate, Math.max(0.0d, center - spread), Math.min(1.0d, center + spread)};
+	}
+	
+	@Override
+	public String toString() {
+		StringBuilder result = new StringBuilder();
+		result.append(String.format("%s vs. %s: %d games in %.1f s, %.2f games/s%n",
+				configs[0], configs[1], getGames(), wallNanos / 1e9d, getGamesPerSecond()));
+		for(GameType type : outcomes.keySet()) {
+			double[] rate = getWinRate(type);
+			result.append(String.format("  %-8s %s %d : %d %s, %d unfinished, %d failed, win rate %.1f%% [%.1f%%, %.1f%%]%n",
+					type, configs[0].getName(), getCount(type, 0), getCount(type, 1), configs[1].getName(),
+					getCount(type, SelfPlayRunner.UNFINISHED), getCount(type, SelfPlayRunner.FAILED),
+					rate[0] * 100, rate[1] * 100, rate[2] * 100));
+		}
+		for(int side = 0; side < 2; side++) {
+			result.append(String.format("  %-8s %d moves, latency p50 %d us, p90 %d us, p99 %d us, max %d us%n",
+					configs[side].getName(), getMoves(side),
+					getLatencyPercentile(side, 50) / 1000, getLatencyPercentile(side, 90) / 1000,
+					getLatencyPercentile(side, 99) / 1000, getLatencyPercentile(side, 100) / 1000));
+		}
+		return result.toString();
+	}
+}
@@ -0,0 +1,232 @@
+/*
+ * www.ichmags.net - Backgammon
+ */
+package net.ichmags.backgammon.selfplay;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import net.ichmags.backgammon.exception.ExitException;
+import net.ichmags.backgammon.game.IGame;
+import net.ichmags.backgammon.game.impl.ComputerPlayer;
+import net.ichmags.backgammon.notification.INotification;
+import net.ichmags.backgammon.notification.INotificationConsumer;
+import net.ichmags.backgammon.notification.INotificationEmitter;
+import net.ichmags.backgammon.setup.CheckerColor;
+import net.ichmags.backgammon.setup.IDices;
+import net.ichmags.backgammon.setup.IPlayer;
+import net.ichmags.backgammon.setup.impl.DiceGenerator;
+import net.ichmags.backgammon.setup.impl.Dices;
+import net.ichmags.backgammon.setup.impl.DicesChoice;
+import net.ichmags.backgammon.strategy.search.GameType;
+
+/**
+ * The {@code SelfPlayRunner} plays two {@link SelfPlayConfig}s against each other without a user interface,
+ * to measure the throughput of the {@link ComputerPlayer} and to compare the strength of configurations.
+ * <p>
+ * The games run in parallel on a fixed number of threads. Each game has its own seeded sequence of
+ * {@link IDices}, which is loaded into the {@link DiceGenerator}; the dice of every game are the same for the
+ * same seed, independent of the number of threads. The moves are not: the {@link ComputerPlayer} breaks ties
+ * and rolls out candidates with unseeded random numbers, and stops its search when the time budget of the
+ * {@link IPlayer.Level} runs out. So the results of two runs are comparable, but not equal.
+ * The first {@link SelfPlayConfig} always plays {@link IPlayer.ID#ONE}, the side to roll first alternates
+ * from game to game.
+ * <p>
+ * Usage: {@code SelfPlayRunner [games per type] [level A] [level B] [threads] [seed]}, run with the test
+ * class path, e.g. {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=net.ichmags.backgammon.selfplay.SelfPlayRunner -Dexec.args="100 AVERAGE BEGINNER"}.
+ *
+ * @author Anastasios Patrikis
+ */
+public class SelfPlayRunner {
+
+	/**
+	 * The outcome of a game stopped after {@link #getMaxTurns()}.
+	 */
+	public static final int UNFINISHED = -1;
+
+	/**
+	 * The outcome of a game where the {@link ComputerPlayer} failed.
+	 */
+	public static final int FAILED = -2;
+
+	/**
+	 * The default maximum number of turns per game ({@value #DEFAULT_MAX_TURNS}).
+	 */
+	public static final int DEFAULT_MAX_TURNS = 1000;
+
+	private static final long SEED_INCREMENT = 0x9e3779b97f4a7c15L;
+
+	private static final INotificationEmitter SILENT = new INotificationEmitter() {
+		@Override
+		public INotificationEmitter addConsumer(INotificationConsumer consumer) {
+			return this;
+		}
+
+		@Override
+		public INotificationEmitter removeConsumer(INotificationConsumer consumer) {
+			return this;
+		}
+
+		@Override
+		public INotificationEmitter emitNotification(INotification notification) {
+			return this;
+		}
+	};
+
+	private final SelfPlayConfig[] configs;
+	private final int threads;
+	private final long seed;
+	private final int maxTurns;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param configA the first {@link SelfPlayConfig}.
+	 * @param configB the second {@link SelfPlayConfig}.
+	 * @param threads the number of games played at the same time.
+	 * @param seed the seed for the {@link IDices} of all games.
+	 * @param maxTurns the maximum number of turns per game, see {@link #UNFINISHED}.
+	 */
+	public SelfPlayRunner(SelfPlayConfig configA, SelfPlayConfig configB, int threads, long seed, int maxTurns) {
+		this.configs = new SelfPlayConfig[]{configA, configB};
+		this.threads = Math.max(1, threads);
+		this.seed = seed;
+		this.maxTurns = maxTurns;
+	}
+
+	/**
+	 * Get the maximum number of turns per game.
+	 *
+	 * @return the number of turns of both sides.
+	 */
+	public int getMaxTurns() {
+		return maxTurns;
+	}
+
+	/**
+	 * Play the games.
+	 *
+	 * @param gamesPerType the number of games for every {@link GameType}.
+	 * @param types the {@link GameType}s to play; all if empty.
+	 * @return the {@link SelfPlayReport}.
+	 * @throws InterruptedException if the current thread is interrupted while waiting.
+	 */
+	public SelfPlayReport run(int gamesPerType, GameType... types) throws InterruptedException {
+		if(types.length == 0) {
+			types = GameType.values();
+		}
+		SelfPlayReport report = new SelfPlayReport(configs[0], configs[1]);
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		long start = System.nanoTime();
+		try {
+			List<Future<GameResult>> games = new ArrayList<>();
+			for(GameType type : types) {
+				for(int game = 0; game < gamesPerType; game++) {
+					int gameIndex = games.size();
+					games.add(executor.submit(() -> playGame(type, gameIndex)));
+				}
+			}
+			for(Future<GameResult> game : games) {
+				GameResult result = game.get();
+				report.add(result.type, result.outcome, result.moveNanos, result.moveCounts);
+			}
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Self-play game failed", e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+		report.finish(System.nanoTime() - start);
+		return report;
+	}
+
+	private GameResult playGame(GameType type, int gameIndex) {
+		GameResult result = new GameResult(type);
+		SplittableRandom random = new SplittableRandom(seed + gameIndex * SEED_INCREMENT);
+		IPlayer[] players = new IPlayer[]{
+				configs[0].createPlayer(IPlayer.ID.ONE, CheckerColor.WHITE),
+				configs[1].createPlayer(IPlayer.ID.TWO, CheckerColor.BLACK)};
+		ComputerPlayer[] computerPlayers = new ComputerPlayer[]{
+				configs[0].createComputerPlayer(), configs[1].createComputerPlayer()};
+		IGame game = SelfPlayGame.create(type);
+		game.initialize(players[0], players[1], null);
+		SelfPlayGame turns = (SelfPlayGame)game;
+
+		int side = gameIndex % 2;
+		for(int turn = 0; turn < maxTurns; turn++) {
+			IDices dices = roll(random);
+			if(turns.checkIfAnyMoveIsPossible(players[side], dices)) {
+				DicesChoice dicesChoice = turns.findPlayableDices(players[side], dices);
+				long moveStart = System.nanoTime();
+				boolean won;
+				try {
+					won = computerPlayers[side].play(players[side], game, turns.getBoard(), dicesChoice, SILENT);
+				} catch (ExitException e) {
+					result.outcome = FAILED;
+					return result;
+				}
+				result.addMove(side, System.nanoTime() - moveStart);
+				if(won) {
+					result.outcome = side;
+					return result;
+				}
+			}
+			side = 1 - side;
+		}
+		result.outcome = UNFINISHED;
+		return result;
+	}
+
+	/**
+	 * The {@link DiceGenerator} is shared by all threads: loading and rolling must not be interleaved.
+	 */
+	private static IDices roll(SplittableRandom random) {
+		synchronized (DiceGenerator.class) {
+			DiceGenerator.get().load(new int[]{random.nextInt(6) + 1, random.nextInt(6) + 1});
+			return new Dices().roll();
+		}
+	}
+
+	public static void main(String[] args) throws InterruptedException {
+		int gamesPerType = (args.length > 0) ? Integer.parseInt(args[0]) : 100;
+		IPlayer.Level levelA = (args.length > 1) ? IPlayer.Level.valueOf(args[1]) : IPlayer.Level.AVERAGE;
+		IPlayer.Level levelB = (args.length > 2) ? IPlayer.Level.valueOf(args[2]) : IPlayer.Level.BEGINNER;
+		int threads = (args.length > 3) ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+		long seed = (args.length > 4) ? Long.parseLong(args[4]) : 1L;
+
+		SelfPlayConfig configA = new SelfPlayConfig("A", levelA, IPlayer.PlayStyle.OFFENSIVE, null);
+		SelfPlayConfig configB = new SelfPlayConfig("B", levelB, IPlayer.PlayStyle.OFFENSIVE, null);
+		SelfPlayReport report = new SelfPlayRunner(configA, configB, threads, seed, DEFAULT_MAX_TURNS).run(gamesPerType);
+		System.out.print(report);
+	}
+
+	/**
+	 * The outcome and the move durations of one game.
+	 */
+	private static final class GameResult {
+
+		private final GameType type;
+		private final long[][] moveNanos;
+		private final int[] moveCounts;
+		private int outcome;
+
+		GameResult(GameType type) {
+			this.type = type;
+			this.moveNanos = new long[][]{new long[64], new long[64]};
+			this.moveCounts = new int[2];
+		}
+
+		void addMove(int side, long nanos) {
+			if(moveCounts[side] == moveNanos[side].length) {
+				moveNanos[side] = Arrays.copyOf(moveNanos[side], moveCounts[side] * 2);
+			}
+			moveNanos[side][moveCounts[side]++] = nanos;
+		}
+	}
+}
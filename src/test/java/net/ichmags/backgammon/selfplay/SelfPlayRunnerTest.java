@@ -0,0 +1,37 @@
+package net.ichmags.backgammon.selfplay;
+
+import net.ichmags.backgammon.setup.IPlayer;
+import net.ichmags.backgammon.strategy.search.GameType;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SelfPlayRunnerTest {
+
+	@Test
+	public void testRunAllGameTypes() throws Exception {
+		SelfPlayConfig configA = new SelfPlayConfig("A", IPlayer.Level.BEGINNER, IPlayer.PlayStyle.OFFENSIVE, null);
+		SelfPlayConfig configB = new SelfPlayConfig("B", IPlayer.Level.BEGINNER, IPlayer.PlayStyle.OFFENSIVE, null);
+
+		SelfPlayReport report = new SelfPlayRunner(configA, configB, 2, 42L, SelfPlayRunner.DEFAULT_MAX_TURNS).run(2);
+
+		Assert.assertEquals("Games count does not match", 2 * GameType.values().length, report.getGames());
+		for(GameType type : GameType.values()) {
+			Assert.assertEquals(type + " failed games", 0, report.getCount(type, SelfPlayRunner.FAILED));
+		}
+		Assert.assertTrue("Moves were played", report.getMoves(0) > 0 && report.getMoves(1) > 0);
+		Assert.assertTrue("Percentiles are ordered",
+				report.getLatencyPercentile(0, 50) <= report.getLatencyPercentile(0, 99));
+	}
+
+	@Test
+	public void testWilsonInterval() {
+		double[] rate = SelfPlayReport.wilson(60, 100);
+		Assert.assertEquals("Win rate", 0.6d, rate[0], 1e-9);
+		Assert.assertEquals("Lower bound", 0.502d, rate[1], 0.001d);
+		Assert.assertEquals("Upper bound", 0.691d, rate[2], 0.001d);
+
+		double[] none = SelfPlayReport.wilson(0, 0);
+		Assert.assertEquals("Without games", 0.5d, none[0], 1e-9);
+	}
+}
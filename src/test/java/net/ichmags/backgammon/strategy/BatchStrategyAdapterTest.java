@@ -0,0 +1,27 @@
+package net.ichmags.backgammon.strategy;
+
+import java.util.Arrays;
+import java.util.List;
+
+import net.ichmags.backgammon.setup.IPlayer;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BatchStrategyAdapterTest {
+
+	@Test
+	public void testEvaluateStopsAtDeadline() {
+		IBatchStrategy adapter = BatchStrategyAdapter.of(new PlainStrategy());
+		List<BoardMovesCombination> candidates = Arrays.asList(
+				new BoardMovesCombination(null, null), new BoardMovesCombination(null, null));
+		int[] scores = new int[candidates.size()];
+
+		adapter.evaluate(null, null, candidates, IPlayer.PlayStyle.OFFENSIVE, scores, Deadline.NONE);
+		Assert.assertArrayEquals("Evaluated scores do not match", new int[]{1, 1}, scores);
+
+		// no candidate is evaluated after the deadline, all get the neutral score
+		adapter.evaluate(null, null, candidates, IPlayer.PlayStyle.OFFENSIVE, scores, Deadline.after(0L));
+		Assert.assertArrayEquals("Neutral scores do not match", new int[]{0, 0}, scores);
+	}
+}
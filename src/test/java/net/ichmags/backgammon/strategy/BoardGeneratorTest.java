@@ -5,10 +5,14 @@ import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
+import net.ichmags.backgammon.game.IGame;
+import net.ichmags.backgammon.game.IMove;
 import net.ichmags.backgammon.game.IMoves;
 import net.ichmags.backgammon.game.impl.Fevga;
 import net.ichmags.backgammon.game.impl.Moves;
+import net.ichmags.backgammon.game.impl.Plakoto;
 import net.ichmags.backgammon.game.impl.Portes;
 import net.ichmags.backgammon.notification.INotification;
 import net.ichmags.backgammon.notification.INotificationConsumer;
@@ -16,6 +20,7 @@ import net.ichmags.backgammon.notification.INotificationEmitter;
 import net.ichmags.backgammon.setup.CheckerColor;
 import net.ichmags.backgammon.setup.IAvailableDices;
 import net.ichmags.backgammon.setup.IBoard;
+import net.ichmags.backgammon.setup.IDice;
 import net.ichmags.backgammon.setup.IDices;
 import net.ichmags.backgammon.setup.IPlayer;
 import net.ichmags.backgammon.setup.impl.AvailableDices;
@@ -67,6 +72,155 @@ public class BoardGeneratorTest {
 		Assert.assertEquals("Board before and after is equal", before, testPortes.getBoard());
 	}
 
+	@Test
+	public void testGenerateBoardsPruneTranspositions() {
+		PortesLocal testPortes = new PortesLocal();
+		testPortes.initialize(player1, player2, null);
+		DiceGenerator.get().load(new int[]{6, 4});
+		IDices dices = new Dices().roll();
+		
+		IBoard before = testPortes.getBoard().clone();
+		
+		DicesChoice dicesList = testPortes.findPlayableDices(player2, dices);
+		
+		// 7 results, where 2 results are identical and pruned
+		BoardGenerator generator = new BoardGenerator(new NotificationEmitterLocal()).setPruneTranspositions(true);
+		List<BoardMovesCombination> generatedBoards = generator.generateBoards(
+				player2, testPortes, testPortes.getBoard(), dicesList.getOption1() );
+		Assert.assertEquals("Generated boards count does not match", 5, generatedBoards.size());
+		
+		Set<BoardMovesCombination> distinctBoards = new HashSet<>(generatedBoards);
+		Assert.assertEquals("Distinct boards count does not match", 5, distinctBoards.size());
+		
+		Assert.assertEquals("Board before and after is equal", before, testPortes.getBoard());
+	}
+
+	@Test
+	public void testGenerateBoardsSkipCommutingMoves() {
+		PortesLocal testPortes = new PortesLocal();
+		testPortes.initialize(player1, player2, null);
+		DiceGenerator.get().load(new int[]{6, 4});
+		IDices dices = new Dices().roll();
+		
+		IBoard before = testPortes.getBoard().clone();
+		
+		DicesChoice dicesList = testPortes.findPlayableDices(player2, dices);
+		
+		BoardGenerator generator = new BoardGenerator(new NotificationEmitterLocal());
+		Set<BoardMovesCombination> allBoards = new HashSet<>(generator.generateBoards(
+				player2, testPortes, testPortes.getBoard(), dicesList.getOption1() ));
+		Assert.assertEquals("Nodes count does not match", 10, generator.getNodesVisited());
+		
+		// the 2 pairs of independent moves are not played again in the reversed order; the first moves
+		// of the reversed order are still played, so 2 of the 10 nodes are saved
+		generator.setPruneTranspositions(true);
+		List<BoardMovesCombination> generatedBoards = generator.generateBoards(
+				player2, testPortes, testPortes.getBoard(), dicesList.getOption1() );
+		Assert.assertEquals("Nodes count does not match", 8, generator.getNodesVisited());
+		Assert.assertEquals("Generated boards count does not match", 5, generatedBoards.size());
+		Assert.assertEquals("Generated boards differ", allBoards, new HashSet<>(generatedBoards));
+		
+		Assert.assertEquals("Board before and after is equal", before, testPortes.getBoard());
+	}
+
+	@Test
+	public void testGenerateBoardsExpiredDeadline() {
+		PortesLocal testPortes = new PortesLocal();
+		testPortes.initialize(player1, player2, null);
+		DiceGenerator.get().load(new int[]{6, 4});
+		IDices dices = new Dices().roll();
+		
+		IBoard before = testPortes.getBoard().clone();
+		
+		DicesChoice dicesList = testPortes.findPlayableDices(player2, dices);
+		
+		// the deadline is already expired: the generation stops after the first board
+		BoardGenerator generator = new BoardGenerator(new NotificationEmitterLocal()).setDeadline(Deadline.after(0L));
+		List<BoardMovesCombination> generatedBoards = generator.generateBoards(
+				player2, testPortes, testPortes.getBoard(), dicesList.getOption1() );
+		Assert.assertEquals("Generated boards count does not match", 1, generatedBoards.size());
+		
+		Assert.assertEquals("Board before and after is equal", before, testPortes.getBoard());
+	}
+
+	@Test
+	public void testIncrementalPositionKey() {
+		PortesLocal testPortes = new PortesLocal();
+		testPortes.initialize(player1, player2, null);
+		DiceGenerator.get().load(new int[]{5, 3});
+		IDices dices = new Dices().roll();
+		
+		DicesChoice dicesList = testPortes.findPlayableDices(player2, dices);
+		
+		// the key maintained by make/unmake equals the key calculated from the resulting board
+		BoardGenerator generator = new BoardGenerator(new NotificationEmitterLocal());
+		List<BoardMovesCombination> generatedBoards = generator.generateBoards(
+				player2, testPortes, testPortes.getBoard(), dicesList.getOption1() );
+		Assert.assertFalse("Boards were generated", generatedBoards.isEmpty());
+		for(BoardMovesCombination generated : generatedBoards) {
+			PackedBoard packed = new PackedBoard(player2, testPortes, generated.getBoard());
+			Assert.assertEquals("Incremental key does not match", packed.computeHash(), generated.getPositionKey());
+			Assert.assertEquals("Initial key does not match", packed.computeHash(), packed.hash());
+		}
+	}
+
+	@Test
+	public void testGenerateBoardsVisitor() {
+		PortesLocal testPortes = new PortesLocal();
+		testPortes.initialize(player1, player2, null);
+		DiceGenerator.get().load(new int[]{6, 4});
+		IDices dices = new Dices().roll();
+		
+		IBoard before = testPortes.getBoard().clone();
+		
+		DicesChoice dicesList = testPortes.findPlayableDices(player2, dices);
+		
+		// 7 results are streamed, the collector keeps the 5 distinct ones
+		BoardGenerator generator = new BoardGenerator(new NotificationEmitterLocal());
+		CandidateCollector collector = new CandidateCollector();
+		int visited = generator.generateBoards(
+				player2, testPortes, testPortes.getBoard(), dicesList.getOption1(), collector);
+		Assert.assertEquals("Visited boards count does not match", 7, visited);
+		Assert.assertEquals("Visited boards count does not match", 7, collector.getVisited());
+		Assert.assertEquals("Kept boards count does not match", 5, collector.getCandidates().size());
+		
+		Set<BoardMovesCombination> distinctBoards = new HashSet<>(collector.getCandidates());
+		Assert.assertEquals("Distinct boards count does not match", 5, distinctBoards.size());
+		Assert.assertEquals("Kept boards differ from the generated list", distinctBoards,
+				new HashSet<>(generator.generateBoards(player2, testPortes, testPortes.getBoard(), dicesList.getOption1())));
+		
+		Assert.assertEquals("Board before and after is equal", before, testPortes.getBoard());
+	}
+
+	@Test
+	public void testGenerateBoardsVisitorBest() {
+		PortesLocal testPortes = new PortesLocal();
+		testPortes.initialize(player1, player2, null);
+		DiceGenerator.get().load(new int[]{6, 4});
+		IDices dices = new Dices().roll();
+		
+		DicesChoice dicesList = testPortes.findPlayableDices(player2, dices);
+		
+		// score by the number of checkers on the highest occupied position in the player view
+		BoardGenerator generator = new BoardGenerator(new NotificationEmitterLocal());
+		CandidateCollector collector = new CandidateCollector(2, leaf -> {
+			PackedBoard packed = leaf.getPackedBoard();
+			for(int index = packed.getOffIndex() - 1; index > 0; index--) {
+				if(packed.getCount(index) > 0) {
+					return index * 100 + packed.getCount(index);
+				}
+			}
+			return 0;
+		});
+		generator.generateBoards(player2, testPortes, testPortes.getBoard(), dicesList.getOption1(), collector);
+		
+		List<BoardMovesCombination> best = collector.getCandidates();
+		Assert.assertEquals("Kept boards count does not match", 2, best.size());
+		Assert.assertEquals("Distinct boards count does not match", 5, collector.getDistinct());
+		Assert.assertNotEquals("Kept boards are equal", best.get(0), best.get(1));
+		Assert.assertNotNull("Kept board has dices", best.get(0).getDices());
+	}
+
 	@Test
 	public void testFindBoardsAscendingDice() {
 		PortesLocal testPortes = new PortesLocal();
@@ -145,6 +299,102 @@ public class BoardGeneratorTest {
 		
 		Assert.assertEquals("Board before and after is equal", before, testFevga.getBoard());
 	}
+	
+	@Test
+	public void testGenerateBoardsParallel() {
+		PortesLocal testPortes = new PortesLocal();
+		testPortes.initialize(player1, player2, null);
+		PlakotoLocal testPlakoto = new PlakotoLocal();
+		testPlakoto.initialize(player1, player2, null);
+		FevgaLocal testFevga = new FevgaLocal();
+		testFevga.initialize(player1, player2, null);
+		
+		// the threshold 0 forks every roll with more than one start position
+		ForkJoinPool forkJoinPool = new ForkJoinPool(4);
+		try {
+			for(int value : new int[]{6, 5}) {
+				DiceGenerator.get().load(new int[]{value, value});
+				IDices portesDices = testPortes.findPlayableDices(player2, new Dices().roll()).getOption1();
+				DiceGenerator.get().load(new int[]{value, value});
+				IDices plakotoDices = testPlakoto.findPlayableDices(player2, new Dices().roll()).getOption1();
+				DiceGenerator.get().load(new int[]{value, value});
+				IDices fevgaDices = testFevga.findPlayableDices(player2, new Dices().roll()).getOption1();
+				for(boolean prune : new boolean[]{false, true}) {
+					checkParallel(forkJoinPool, player2, testPortes, testPortes.getBoard(), portesDices, prune);
+					checkParallel(forkJoinPool, player2, testPlakoto, testPlakoto.getBoard(), plakotoDices, prune);
+					checkParallel(forkJoinPool, player2, testFevga, testFevga.getBoard(), fevgaDices, prune);
+				}
+			}
+		} finally {
+			forkJoinPool.shutdown();
+		}
+	}
+	
+	private static void checkParallel(ForkJoinPool forkJoinPool, IPlayer player, IGame game, IBoard board, IDices dices, boolean prune) {
+		IBoard before = board.clone();
+		String context = game.getClass().getSimpleName() + " " + dices + (prune ? " pruned" : "");
+		List<BoardMovesCombination> sequential = new BoardGenerator(new NotificationEmitterLocal())
+				.setPruneTranspositions(prune).generateBoards(player, game, board, dices);
+		BoardGenerator generator = new BoardGenerator(new NotificationEmitterLocal(), forkJoinPool, 0)
+				.setPruneTranspositions(prune);
+		List<BoardMovesCombination> parallel = generator.generateBoards(player, game, board, dices);
+		List<BoardMovesCombination> visited = new ArrayList<>();
+		int count = generator.generateBoards(player, game, board, dices, leaf -> visited.add(leaf.keep()));
+		
+		Assert.assertFalse(context + ": boards were generated", sequential.isEmpty());
+		Assert.assertEquals(context + ": visited boards count does not match", visited.size(), count);
+		Assert.assertEquals(context + ": parallel boards differ", describe(sequential), describe(parallel));
+		Assert.assertEquals(context + ": visited boards differ", describe(sequential), describe(visited));
+		Assert.assertEquals(context + ": board before and after is equal", before, board);
+	}
+	
+	private static List<String> describe(List<BoardMovesCombination> generatedBoards) {
+		List<String> descriptions = new ArrayList<>(generatedBoards.size());
+		for(BoardMovesCombination generated : generatedBoards) {
+			StringBuilder description = new StringBuilder(Arrays.toString(generated.getSnapshot()));
+			for(IMove move : generated.getMoves().get()) {
+				description.append(' ').append(move.getFromPosition()).append('/').append(move.getMoveDistance().getValue());
+			}
+			descriptions.add(description.toString());
+		}
+		return descriptions;
+	}
+	
+	@Test
+	public void testMoveTableKeepsPossibleMoves() throws Exception {
+		PortesLocal testPortes = new PortesLocal();
+		testPortes.initialize(player1, player2, null);
+		FevgaLocal testFevga = new FevgaLocal();
+		testFevga.initialize(player1, player2, null);
+		
+		// every position accepted by the IGame passes the filter, and some positions are filtered
+		int filtered = checkMoveTable(player2, testPortes, testPortes.getBoard())
+				+ checkMoveTable(player2, testFevga, testFevga.getBoard());
+		Assert.assertTrue("Impossible moves are filtered", filtered > 0);
+	}
+	
+	private static int checkMoveTable(IPlayer player, IGame game, IBoard board) throws Exception {
+		IBoard before = board.clone();
+		PackedBoard packedBoard = new PackedBoard(player, game, board);
+		int filtered = 0;
+		for(int value = 1; value <= 6; value++) {
+			DiceGenerator.get().load(new int[]{value, value});
+			IDice dice = new AvailableDices().initialize(new Dices().roll(), false).nextElement();
+			int candidates = packedBoard.candidateSources(value);
+			for(int position = 0; position < packedBoard.size(); position++) {
+				boolean candidate = (candidates & (1 << position)) != 0;
+				IMove move = game.moveChecker(player, board, position, dice);
+				if(move.isSuccess()) {
+					Assert.assertTrue("Possible move from " + position + " with " + value + " is filtered", candidate);
+					game.undoMoveCheker(player, board, move.clone());
+				} else if(packedBoard.isSource(position) && ! candidate) {
+					filtered++;
+				}
+			}
+		}
+		Assert.assertEquals("Board before and after is equal", before, board);
+		return filtered;
+	}
 }
 
 class PortesLocal extends Portes {
@@ -199,6 +449,32 @@ class FevgaLocal extends Fevga {
 	}
 }
 
+class PlakotoLocal extends Plakoto {
+	@Override
+	protected List<Integer> getCheckerPositionsPlayer1() {
+		return Arrays.asList(1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 4, 8, 12, 13, 17);
+	};
+	
+	@Override
+	protected List<Integer> getCheckerPositionsPlayer2() {
+		return Arrays.asList(1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 7, 9, 11, 15, 19);
+	}
+	
+	public IBoard getBoard() {
+		return this.board;
+	}
+	
+	@Override
+	public boolean checkIfAnyMoveIsPossible(IPlayer currentPlayer, IDices dices) {
+		return super.checkIfAnyMoveIsPossible(currentPlayer, dices);
+	}
+	
+	@Override
+	public DicesChoice findPlayableDices(IPlayer currentPlayer, IDices dices) {
+		return super.findPlayableDices(currentPlayer, dices);
+	}
+}
+
 class NotificationEmitterLocal implements INotificationEmitter {
 
 	@Override
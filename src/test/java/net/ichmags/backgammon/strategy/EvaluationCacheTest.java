@@ -0,0 +1,95 @@
+package net.ichmags.backgammon.strategy;
+
+import net.ichmags.backgammon.setup.CheckerColor;
+import net.ichmags.backgammon.setup.IBoard;
+import net.ichmags.backgammon.setup.IPlayer;
+import net.ichmags.backgammon.setup.impl.Player;
+import net.ichmags.backgammon.strategy.search.GameType;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class EvaluationCacheTest {
+
+	@Test
+	public void testHitAndMiss() {
+		EvaluationCache cache = new EvaluationCache(4);
+		Assert.assertEquals("Miss returns default", -1, cache.get(17L, -1));
+		
+		cache.put(17L, 42);
+		Assert.assertEquals("Hit returns cached value", 42, cache.get(17L, -1));
+		
+		Assert.assertEquals("Hits do not match", 1, cache.getHits());
+		Assert.assertEquals("Misses do not match", 1, cache.getMisses());
+	}
+
+	@Test
+	public void testClockEviction() {
+		EvaluationCache cache = new EvaluationCache(2);
+		cache.put(1L, 1);
+		cache.put(2L, 2);
+		cache.get(1L, 0); // second chance for key 1
+		
+		cache.put(3L, 3);
+		Assert.assertEquals("Size is bounded", 2, cache.size());
+		Assert.assertEquals("Evictions do not match", 1, cache.getEvictions());
+		Assert.assertTrue("Referenced entry is kept", cache.contains(1L));
+		Assert.assertFalse("Unreferenced entry is evicted", cache.contains(2L));
+		Assert.assertTrue("New entry is stored", cache.contains(3L));
+	}
+
+	@Test
+	public void testCacheableIsOptIn() {
+		Assert.assertFalse("Unmarked strategy is cacheable", EvaluationCache.isCacheable(new PlainStrategy()));
+		Assert.assertTrue("Marked strategy is not cacheable", EvaluationCache.isCacheable(new CacheableStrategy()));
+		Assert.assertTrue("Adapted strategy is not cacheable", EvaluationCache.isCacheable(new BatchStrategyAdapter(new CacheableStrategy())));
+	}
+
+	@Test
+	public void testKeyIncludesStrategyInstance() throws Exception {
+		IPlayer player = new Player().initialize("Tester", IPlayer.ID.TWO, IPlayer.Type.COMPUTER, Player.Level.AVERAGE, CheckerColor.BLACK);
+		IStrategy strategy = new CacheableStrategy();
+		long key = EvaluationCache.key(17L, GameType.PORTES, player, strategy, IPlayer.PlayStyle.OFFENSIVE);
+		Assert.assertEquals("Adapter key does not match", key,
+				EvaluationCache.key(17L, GameType.PORTES, player, new BatchStrategyAdapter(strategy), IPlayer.PlayStyle.OFFENSIVE));
+		Assert.assertNotEquals("Another instance of the class has the same key", key,
+				EvaluationCache.key(17L, GameType.PORTES, player, new CacheableStrategy(), IPlayer.PlayStyle.OFFENSIVE));
+	}
+
+	@Test
+	public void testKeyIncludesGameType() throws Exception {
+		IPlayer player = new Player().initialize("Tester", IPlayer.ID.TWO, IPlayer.Type.COMPUTER, Player.Level.AVERAGE, CheckerColor.BLACK);
+		IStrategy strategy = new CacheableStrategy();
+		long portes = EvaluationCache.key(17L, GameType.PORTES, player, strategy, IPlayer.PlayStyle.OFFENSIVE);
+		Assert.assertEquals("Key is not stable", portes, EvaluationCache.key(17L, GameType.PORTES, player, strategy, IPlayer.PlayStyle.OFFENSIVE));
+		Assert.assertNotEquals("Plakoto key equals Portes key", portes, EvaluationCache.key(17L, GameType.PLAKOTO, player, strategy, IPlayer.PlayStyle.OFFENSIVE));
+		Assert.assertNotEquals("Fevga key equals Portes key", portes, EvaluationCache.key(17L, GameType.FEVGA, player, strategy, IPlayer.PlayStyle.OFFENSIVE));
+	}
+}
+
+class PlainStrategy implements IStrategy {
+
+	@Override
+	public IPlayer.Level suitableForPlayerLevel() {
+		return IPlayer.Level.BEGINNER;
+	}
+
+	@Override
+	public IPlayer.PlayStyle suitableForPlayStyle() {
+		return IPlayer.PlayStyle.OFFENSIVE;
+	}
+
+	@Override
+	public int getLimit() {
+		return 1;
+	}
+
+	@Override
+	public int evaluate(IPlayer player, IBoard boardBefore, IBoard boardAfter, IPlayer.PlayStyle preferedPlayStyle) {
+		return 1;
+	}
+}
+
+class CacheableStrategy extends PlainStrategy implements ICacheableStrategy {
+	// opts in
+}
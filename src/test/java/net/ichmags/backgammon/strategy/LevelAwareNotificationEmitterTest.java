@@ -0,0 +1,32 @@
+package net.ichmags.backgammon.strategy;
+
+import net.ichmags.backgammon.notification.INotification.Level;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LevelAwareNotificationEmitterTest {
+
+	@Test
+	public void testParseLevel() {
+		Assert.assertEquals("Level does not match", Level.TRACE, LevelAwareNotificationEmitter.parseLevel(" trace "));
+		Assert.assertEquals("Missing level does not match", Level.INFO, LevelAwareNotificationEmitter.parseLevel(null));
+		Assert.assertEquals("Invalid level does not match", Level.INFO, LevelAwareNotificationEmitter.parseLevel("TRACEE"));
+	}
+
+	@Test
+	public void testWrapAsksFilter() {
+		Assert.assertFalse("Default level is enabled",
+				LevelAwareNotificationEmitter.wrap(new NotificationEmitterLocal()).isEnabled(Level.TRACE));
+		Assert.assertTrue("Level of the filter is not enabled",
+				LevelAwareNotificationEmitter.wrap(new TraceNotificationEmitter()).isEnabled(Level.TRACE));
+	}
+}
+
+class TraceNotificationEmitter extends NotificationEmitterLocal implements INotificationLevelFilter {
+
+	@Override
+	public Level getMinimumLevel() {
+		return Level.TRACE;
+	}
+}
@@ -0,0 +1,62 @@
+package net.ichmags.backgammon.strategy;
+
+import java.nio.file.Path;
+import java.util.Collections;
+
+import net.ichmags.backgammon.setup.CheckerColor;
+import net.ichmags.backgammon.setup.IBoard;
+import net.ichmags.backgammon.setup.IDices;
+import net.ichmags.backgammon.setup.IPlayer;
+import net.ichmags.backgammon.setup.impl.DiceGenerator;
+import net.ichmags.backgammon.setup.impl.Dices;
+import net.ichmags.backgammon.setup.impl.DicesChoice;
+import net.ichmags.backgammon.setup.impl.Player;
+import net.ichmags.backgammon.strategy.impl.RandomRatingStrategy;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class OpeningBookTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	
+	private IPlayer player1;
+	private IPlayer player2;
+	
+	@Before
+	public void setUp() throws Exception {
+		player1 = new Player().initialize("Tester 1", IPlayer.ID.ONE, IPlayer.Type.LOCAL, Player.Level.AVERAGE, CheckerColor.WHITE);
+		player2 = new Player().initialize("Tester 2", IPlayer.ID.TWO, IPlayer.Type.COMPUTER, Player.Level.AVERAGE, CheckerColor.BLACK);
+	}
+
+	@Test
+	public void testBuildAndPlay() throws Exception {
+		PortesLocal testPortes = new PortesLocal();
+		testPortes.initialize(player1, player2, null);
+		DiceGenerator.get().load(new int[]{6, 4});
+		IDices dices = new Dices().roll();
+		DicesChoice dicesList = testPortes.findPlayableDices(player2, dices);
+		
+		IBoard before = testPortes.getBoard().clone();
+		
+		OpeningBookBuilder builder = new OpeningBookBuilder(new NotificationEmitterLocal(),
+				Collections.singleton(new RandomRatingStrategy()), IPlayer.PlayStyle.OFFENSIVE);
+		Assert.assertTrue("Entry is added", builder.add(player2, testPortes, testPortes.getBoard(), dicesList.getOption1()));
+		
+		Path file = folder.newFile("openings.book").toPath();
+		builder.write(file);
+		
+		OpeningBook book = OpeningBook.open(file);
+		Assert.assertEquals("Book size does not match", 1, book.size());
+		
+		BoardMovesCombination selection = book.play(player2, testPortes, testPortes.getBoard(), dicesList.getOption1());
+		Assert.assertNotNull("Position is in the book", selection);
+		Assert.assertEquals("Both dices are played", 2, selection.getMoves().get().size());
+		
+		Assert.assertEquals("Board before and after is equal", before, testPortes.getBoard());
+	}
+}
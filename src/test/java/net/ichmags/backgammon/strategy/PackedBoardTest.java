@@ -0,0 +1,112 @@
+package net.ichmags.backgammon.strategy;
+
+import java.util.Arrays;
+import java.util.List;
+
+import net.ichmags.backgammon.game.IMove;
+import net.ichmags.backgammon.game.impl.Moves;
+import net.ichmags.backgammon.setup.CheckerColor;
+import net.ichmags.backgammon.setup.IBoard;
+import net.ichmags.backgammon.setup.IDice;
+import net.ichmags.backgammon.setup.IPlayer;
+import net.ichmags.backgammon.setup.impl.AvailableDices;
+import net.ichmags.backgammon.setup.impl.DiceGenerator;
+import net.ichmags.backgammon.setup.impl.Dices;
+import net.ichmags.backgammon.setup.impl.DicesChoice;
+import net.ichmags.backgammon.setup.impl.Player;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PackedBoardTest {
+
+	private IPlayer player1;
+	private IPlayer player2;
+	private PortesLocal testPortes;
+
+	@Before
+	public void setUp() throws Exception {
+		player1 = new Player().initialize("Tester 1", IPlayer.ID.ONE, IPlayer.Type.LOCAL, Player.Level.AVERAGE, CheckerColor.WHITE);
+		player2 = new Player().initialize("Tester 2", IPlayer.ID.TWO, IPlayer.Type.COMPUTER, Player.Level.AVERAGE, CheckerColor.BLACK);
+		testPortes = new PortesLocal();
+		testPortes.initialize(player1, player2, null);
+	}
+
+	@Test
+	public void testMakeUnmake() throws Exception {
+		IBoard board = testPortes.getBoard();
+		PackedBoard packed = new PackedBoard(player2, testPortes, board);
+		byte[] snapshot = packed.snapshot();
+		long key = packed.hash();
+		int[] state = state(packed);
+
+		int made = 0;
+		for(int distance = 1; distance <= 6; distance++) {
+			IDice dice = dice(distance);
+			for(int position = 0; position < packed.size(); position++) {
+				IBoard moved = board.clone();
+				if(testPortes.moveChecker(player2, moved, position, dice).isSuccess() == false) {
+					continue;
+				}
+
+				// make equals the packed result of the IGame, unmake restores the packed origin
+				packed.make(position, distance);
+				PackedBoard expected = new PackedBoard(player2, testPortes, moved);
+				Assert.assertArrayEquals("Snapshot after make does not match", expected.snapshot(), packed.snapshot());
+				Assert.assertEquals("Key after make does not match", expected.computeHash(), packed.hash());
+				Assert.assertArrayEquals("State after make does not match", state(expected), state(packed));
+				Assert.assertFalse("State after make equals the origin", Arrays.equals(state, state(packed)));
+				packed.unmake();
+				Assert.assertArrayEquals("Snapshot after unmake does not match", snapshot, packed.snapshot());
+				Assert.assertEquals("Key after unmake does not match", key, packed.hash());
+				Assert.assertArrayEquals("State after unmake does not match", state, state(packed));
+				made++;
+			}
+		}
+		Assert.assertTrue("No move was made", made > 0);
+	}
+
+	@Test
+	public void testToBoard() {
+		DiceGenerator.get().load(new int[]{6, 4});
+		DicesChoice dicesList = testPortes.findPlayableDices(player2, new Dices().roll());
+
+		// the replayed board packs to the snapshot maintained by make
+		BoardGenerator generator = new BoardGenerator(new NotificationEmitterLocal());
+		List<BoardMovesCombination> generatedBoards = generator.generateBoards(
+				player2, testPortes, testPortes.getBoard(), dicesList.getOption1());
+		Assert.assertFalse("Boards were generated", generatedBoards.isEmpty());
+		PackedBoard origin = new PackedBoard(player2, testPortes, testPortes.getBoard());
+		for(BoardMovesCombination generated : generatedBoards) {
+			IBoard replayed = origin.toBoard(generated.getMoves());
+			Assert.assertArrayEquals("Replayed board does not match", generated.getSnapshot(),
+					new PackedBoard(player2, testPortes, replayed).snapshot());
+		}
+
+		// repeating a move runs out of checkers on its start position
+		Moves repeated = new Moves();
+		IMove move = generatedBoards.get(0).getMoves().get().get(0);
+		for(int count = 0; count <= 15; count++) {
+			repeated.addLatest(move);
+		}
+		try {
+			origin.toBoard(repeated);
+			Assert.fail("Impossible moves were replayed");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+	}
+
+	private static int[] state(PackedBoard packed) {
+		int[] state = new int[packed.getStateSize() + 2];
+		Arrays.fill(state, -1); // store must overwrite its range only
+		packed.store(state, 1);
+		return state;
+	}
+
+	private static IDice dice(int value) {
+		DiceGenerator.get().load(new int[]{value, value});
+		return new AvailableDices().initialize(new Dices().roll(), false).nextElement();
+	}
+}
@@ -0,0 +1,179 @@
+package net.ichmags.backgammon.strategy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import net.ichmags.backgammon.setup.CheckerColor;
+import net.ichmags.backgammon.setup.IBoard;
+import net.ichmags.backgammon.setup.IPlayer;
+import net.ichmags.backgammon.setup.impl.DiceGenerator;
+import net.ichmags.backgammon.setup.impl.Dices;
+import net.ichmags.backgammon.setup.impl.DicesChoice;
+import net.ichmags.backgammon.setup.impl.Player;
+import net.ichmags.backgammon.strategy.impl.NeuralNetworkStrategy;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ScoringEngineTest {
+
+	private IPlayer player1;
+	private IPlayer player2;
+	private PortesLocal testPortes;
+
+	@Before
+	public void setUp() throws Exception {
+		player1 = new Player().initialize("Tester 1", IPlayer.ID.ONE, IPlayer.Type.LOCAL, Player.Level.AVERAGE, CheckerColor.WHITE);
+		player2 = new Player().initialize("Tester 2", IPlayer.ID.TWO, IPlayer.Type.COMPUTER, Player.Level.AVERAGE, CheckerColor.BLACK);
+		testPortes = new PortesLocal();
+		testPortes.initialize(player1, player2, null);
+	}
+
+	@Test
+	public void testCacheHitWithStrategy() {
+		List<BoardMovesCombination> candidates = generate();
+		EvaluationCache cache = new EvaluationCache(EvaluationCache.DEFAULT_CAPACITY);
+		ScoringEngine engine = new ScoringEngine(
+				Collections.<IStrategy>singletonList(new NeuralNetworkStrategy()), IPlayer.PlayStyle.OFFENSIVE, cache);
+
+		int[] first = Arrays.copyOf(engine.score(player2, testPortes.getBoard(), candidates), candidates.size());
+		Assert.assertEquals("Misses do not match", candidates.size(), cache.getMisses());
+		Assert.assertEquals("Cached results do not match", candidates.size(), cache.size());
+
+		// the second turn with the same candidates is answered from the cache
+		int[] second = Arrays.copyOf(engine.score(player2, testPortes.getBoard(), candidates), candidates.size());
+		Assert.assertEquals("Hits do not match", candidates.size(), cache.getHits());
+		Assert.assertArrayEquals("Cached scores do not match", first, second);
+	}
+
+	@Test
+	public void testNormalizationAndWeighting() {
+		List<BoardMovesCombination> candidates = generate().subList(0, 3);
+		IPlayer.PlayStyle otherStyle = otherPlayStyle(IPlayer.PlayStyle.OFFENSIVE);
+		FixedStrategy average = new FixedStrategy(IPlayer.Level.AVERAGE, IPlayer.PlayStyle.OFFENSIVE, 100, 100, 0, 50);
+		FixedStrategy expert = new FixedStrategy(IPlayer.Level.EXPERT, otherStyle, 10, 0, 10, 5);
+		ScoringEngine engine = new ScoringEngine(Arrays.<IStrategy>asList(average, expert), IPlayer.PlayStyle.OFFENSIVE);
+		
+		// every strategy is scaled to the same range, and weighted by its level and the play style
+		long averageWeight = (IPlayer.Level.AVERAGE.ordinal() + 1) * ScoringEngine.PLAY_STYLE_WEIGHT;
+		long expertWeight = (IPlayer.Level.EXPERT.ordinal() + 1) * ScoringEngine.DEFAULT_WEIGHT;
+		int[] scores = engine.score(player2, testPortes.getBoard(), candidates);
+		Assert.assertEquals("Strategy count does not match", 2, engine.getStrategyCount());
+		for(int pos = 0; pos < candidates.size(); pos++) {
+			long expected = (ScoringEngine.SCALE * averageWeight * average.values[pos] / 100
+					+ ScoringEngine.SCALE * expertWeight * expert.values[pos] / 10) / (averageWeight + expertWeight);
+			Assert.assertEquals("Score of candidate " + pos + " does not match", expected, scores[pos]);
+		}
+		
+		// the same strategy at the top of its range gets the full scale
+		ScoringEngine single = new ScoringEngine(Collections.<IStrategy>singletonList(average), otherStyle);
+		Assert.assertEquals("Normalized score does not match", ScoringEngine.SCALE,
+				single.score(player2, testPortes.getBoard(), candidates)[0]);
+	}
+	
+	@Test
+	public void testPlaceholderLeftOut() {
+		List<BoardMovesCombination> candidates = generate().subList(0, 3);
+		FixedStrategy placeholder = new FixedStrategy(IPlayer.Level.BEGINNER, IPlayer.PlayStyle.OFFENSIVE, 10, 10, 1, 1);
+		FixedStrategy average = new FixedStrategy(IPlayer.Level.AVERAGE, otherPlayStyle(IPlayer.PlayStyle.OFFENSIVE), 10, 1, 10, 1);
+		
+		// the noise of a beginner strategy does not change the ranking of a stronger one
+		ScoringEngine engine = new ScoringEngine(Arrays.<IStrategy>asList(placeholder, average), IPlayer.PlayStyle.OFFENSIVE);
+		int[] scores = engine.score(player2, testPortes.getBoard(), candidates);
+		Assert.assertEquals("Strategy count does not match", 1, engine.getStrategyCount());
+		Assert.assertEquals("Placeholder was evaluated", 0, placeholder.batches);
+		Assert.assertEquals("Best candidate does not match", ScoringEngine.SCALE, scores[1]);
+		
+		// on its own, the beginner strategy is kept
+		ScoringEngine beginner = new ScoringEngine(Collections.<IStrategy>singletonList(placeholder), IPlayer.PlayStyle.OFFENSIVE);
+		Assert.assertEquals("Strategy count does not match", 1, beginner.getStrategyCount());
+		Assert.assertEquals("Best candidate does not match", ScoringEngine.SCALE,
+				beginner.score(player2, testPortes.getBoard(), candidates)[0]);
+	}
+	
+	@Test
+	public void testSinglePassEvaluation() {
+		List<BoardMovesCombination> candidates = generate();
+		FixedStrategy first = new FixedStrategy(IPlayer.Level.AVERAGE, IPlayer.PlayStyle.OFFENSIVE, 10);
+		FixedStrategy second = new FixedStrategy(IPlayer.Level.EXPERT, IPlayer.PlayStyle.OFFENSIVE, 10);
+		ScoringEngine engine = new ScoringEngine(Arrays.<IStrategy>asList(first, second), IPlayer.PlayStyle.OFFENSIVE);
+		
+		// one batch per strategy and call, with all candidates; the single board evaluation is not used
+		engine.score(player2, testPortes.getBoard(), candidates);
+		engine.score(player2, testPortes.getBoard(), candidates);
+		Assert.assertEquals("Evaluated strategies count does not match", 2, engine.getEvaluatedCount());
+		for(FixedStrategy strategy : Arrays.asList(first, second)) {
+			Assert.assertEquals("Batch count does not match", 2, strategy.batches);
+			Assert.assertEquals("Evaluated candidates count does not match", 2 * candidates.size(), strategy.evaluated);
+		}
+	}
+	
+	private static IPlayer.PlayStyle otherPlayStyle(IPlayer.PlayStyle playStyle) {
+		for(IPlayer.PlayStyle other : IPlayer.PlayStyle.values()) {
+			if(other != playStyle) {
+				return other;
+			}
+		}
+		throw new IllegalStateException("Only one play style");
+	}
+	
+	private List<BoardMovesCombination> generate() {
+		DiceGenerator.get().load(new int[]{6, 4});
+		DicesChoice dicesList = testPortes.findPlayableDices(player2, new Dices().roll());
+		BoardGenerator generator = new BoardGenerator(new NotificationEmitterLocal());
+		List<BoardMovesCombination> candidates = generator.generateBoards(
+				player2, testPortes, testPortes.getBoard(), dicesList.getOption1());
+		Assert.assertFalse("Boards were generated", candidates.isEmpty());
+		return new ArrayList<>(new LinkedHashSet<>(candidates)); // distinct, as collected by the computer player
+	}
+}
+
+class FixedStrategy implements IBatchStrategy {
+	
+	final IPlayer.Level level;
+	final IPlayer.PlayStyle playStyle;
+	final int limit;
+	final int[] values;
+	int batches;
+	int evaluated;
+	
+	FixedStrategy(IPlayer.Level level, IPlayer.PlayStyle playStyle, int limit, int... values) {
+		this.level = level;
+		this.playStyle = playStyle;
+		this.limit = limit;
+		this.values = values;
+	}
+	
+	@Override
+	public IPlayer.Level suitableForPlayerLevel() {
+		return level;
+	}
+	
+	@Override
+	public IPlayer.PlayStyle suitableForPlayStyle() {
+		return playStyle;
+	}
+	
+	@Override
+	public int getLimit() {
+		return limit;
+	}
+	
+	@Override
+	public int evaluate(IPlayer player, IBoard boardBefore, IBoard boardAfter, IPlayer.PlayStyle preferedPlayStyle) {
+		throw new AssertionError("The single board evaluation was used");
+	}
+	
+	@Override
+	public void evaluate(IPlayer player, IBoard boardBefore, List<BoardMovesCombination> candidates, IPlayer.PlayStyle preferedPlayStyle, int[] scores) {
+		batches++;
+		evaluated += candidates.size();
+		for(int pos = 0; pos < candidates.size(); pos++) {
+			scores[pos] = (pos < values.length) ? values[pos] : limit / 2;
+		}
+	}
+}
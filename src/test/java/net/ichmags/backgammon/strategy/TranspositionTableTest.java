@@ -0,0 +1,83 @@
+package net.ichmags.backgammon.strategy;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TranspositionTableTest {
+
+	@Test
+	public void testForcedCollision() {
+		TranspositionTable table = new TranspositionTable();
+		Assert.assertTrue("First position is not new", table.add(new CollidingPosition(1)));
+		Assert.assertTrue("Position with the same key was dropped", table.add(new CollidingPosition(2)));
+		Assert.assertFalse("Equal position was added", table.add(new CollidingPosition(1)));
+		Assert.assertFalse("Equal position was added", table.add(new CollidingPosition(2)));
+		Assert.assertEquals("Size does not match", 2, table.size());
+	}
+
+	@Test
+	public void testForcedCollisionWithDices() {
+		TranspositionTable table = new TranspositionTable();
+		CollidingPosition first = new CollidingPosition(1);
+		CollidingPosition second = new CollidingPosition(2);
+
+		Assert.assertTrue("First position is not new", table.enter(first, 3));
+		table.leave(3);
+		Assert.assertTrue("Position with the same key was dropped", table.enter(second, 3));
+		table.leave(3);
+		Assert.assertFalse("Transposition was not found", table.enter(first, 3));
+		table.leave(3);
+		Assert.assertTrue("Position with other dices was dropped", table.enter(first, 4));
+		table.leave(4);
+
+		// the played dices are compared by their values, not by their order
+		Assert.assertTrue("Position after two dices is not new", table.enter(first, 3) && table.enter(second, 4));
+		table.leave(4);
+		table.leave(3);
+		table.enter(first, 4);
+		Assert.assertFalse("Transposition of the dices was not found", table.enter(second, 3));
+		table.leave(3);
+		table.leave(4);
+	}
+
+	@Test
+	public void testGrowKeepsStates() {
+		TranspositionTable table = new TranspositionTable();
+		for(int value = 0; value < 1000; value++) {
+			Assert.assertTrue("Position " + value + " was dropped", table.add(new CollidingPosition(value)));
+		}
+		for(int value = 0; value < 1000; value++) {
+			Assert.assertFalse("Position " + value + " was added twice", table.add(new CollidingPosition(value)));
+		}
+		Assert.assertEquals("Size does not match", 1000, table.size());
+
+		table.clear();
+		Assert.assertEquals("Size after clear does not match", 0, table.size());
+		Assert.assertTrue("Position was not removed", table.add(new CollidingPosition(0)));
+	}
+}
+
+class CollidingPosition implements IPackedPosition {
+
+	private final int value;
+
+	CollidingPosition(int value) {
+		this.value = value;
+	}
+
+	@Override
+	public long hash() {
+		return 42L; // all positions collide
+	}
+
+	@Override
+	public int getStateSize() {
+		return 2;
+	}
+
+	@Override
+	public void store(int[] buffer, int offset) {
+		buffer[offset] = value;
+		buffer[offset + 1] = -value;
+	}
+}
@@ -0,0 +1,61 @@
+package net.ichmags.backgammon.strategy.bearoff;
+
+import java.nio.file.Path;
+
+import net.ichmags.backgammon.strategy.search.GameType;
+import net.ichmags.backgammon.strategy.search.SearchBoard;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class BearoffDatabaseTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testIndexRoundTrip() {
+		int[] counts = new int[BearoffDatabase.POINTS];
+		Assert.assertEquals("Positions for 15 checkers", 54264, BearoffDatabase.positions(BearoffDatabase.MAX_CHECKERS));
+		for(int index = 0; index < BearoffDatabase.positions(BearoffDatabase.MAX_CHECKERS); index++) {
+			BearoffDatabase.position(index, BearoffDatabase.MAX_CHECKERS, counts);
+			Assert.assertEquals("Index of position", index, BearoffDatabase.index(counts, BearoffDatabase.MAX_CHECKERS));
+		}
+		Assert.assertEquals("Too many checkers", -1, BearoffDatabase.index(new int[]{3, 0, 0, 0, 0, 2}, 4));
+	}
+
+	@Test
+	public void testBuildAndProbe() throws Exception {
+		Path file = folder.newFile("bearoff.db").toPath();
+		new BearoffDatabaseBuilder(4, BearoffDatabase.MAX_ROLLS).build().write(file);
+		BearoffDatabase database = BearoffDatabase.open(file);
+		Assert.assertEquals("Positions for 4 checkers", 210, database.size());
+
+		int empty = database.index(new int[]{0, 0, 0, 0, 0, 0});
+		Assert.assertEquals("Nothing left to collect", 1.0d, database.getProbability(empty, 0), 1e-4);
+
+		// a single checker on the 6 point needs a sum of at least 6: 27 of 36 rolls
+		int sixPoint = database.index(new int[]{0, 0, 0, 0, 0, 1});
+		Assert.assertEquals("Single roll", 27.0d / 36.0d, database.getProbability(sixPoint, 1), 1e-4);
+		Assert.assertEquals("Expected rolls", 1.25d, database.getExpectedRolls(sixPoint), 1e-3);
+
+		// the opponent rolls first and misses with 9 of 36 rolls
+		int onePoint = database.index(new int[]{1, 0, 0, 0, 0, 0});
+		Assert.assertEquals("Win probability", 0.25d, database.getWinProbability(onePoint, sixPoint), 1e-3);
+
+		SearchBoard board = new SearchBoard(GameType.PORTES);
+		board.set(SearchBoard.SELF, SearchBoard.OFF - 1, 1);
+		board.set(SearchBoard.SELF, SearchBoard.OFF, 14);
+		board.set(SearchBoard.OPPONENT, SearchBoard.OFF - 6, 1);
+		board.set(SearchBoard.OPPONENT, SearchBoard.OFF, 14);
+		board.recount();
+		Assert.assertEquals("Index of SELF", onePoint, database.index(board, SearchBoard.SELF));
+		Assert.assertEquals("Index of OPPONENT", sixPoint, database.index(board, SearchBoard.OPPONENT));
+
+		board.set(SearchBoard.OPPONENT, SearchBoard.OFF - 7, 1);
+		board.recount();
+		Assert.assertEquals("Not at home", -1, database.index(board, SearchBoard.OPPONENT));
+	}
+}
@@ -0,0 +1,135 @@
+package net.ichmags.backgammon.strategy.impl;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import net.ichmags.backgammon.game.impl.Portes;
+import net.ichmags.backgammon.setup.CheckerColor;
+import net.ichmags.backgammon.setup.IBoard;
+import net.ichmags.backgammon.setup.IDices;
+import net.ichmags.backgammon.setup.IPlayer;
+import net.ichmags.backgammon.setup.impl.DiceGenerator;
+import net.ichmags.backgammon.setup.impl.Dices;
+import net.ichmags.backgammon.setup.impl.DicesChoice;
+import net.ichmags.backgammon.setup.impl.Player;
+import net.ichmags.backgammon.strategy.BoardGenerator;
+import net.ichmags.backgammon.strategy.BoardMovesCombination;
+import net.ichmags.backgammon.strategy.search.Rollout;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RolloutStrategyTest {
+
+	private IPlayer player1;
+	private IPlayer player2;
+	private PortesRollout testPortes;
+	private List<BoardMovesCombination> candidates;
+	private ExecutorService workers;
+
+	@Before
+	public void setUp() throws Exception {
+		player1 = new Player().initialize("Tester 1", IPlayer.ID.ONE, IPlayer.Type.LOCAL, Player.Level.AVERAGE, CheckerColor.WHITE);
+		player2 = new Player().initialize("Tester 2", IPlayer.ID.TWO, IPlayer.Type.COMPUTER, Player.Level.EXPERT, CheckerColor.BLACK);
+		testPortes = new PortesRollout();
+		testPortes.initialize(player1, player2, null);
+
+		DiceGenerator.get().load(new int[]{4, 3});
+		DicesChoice dicesList = testPortes.findPlayableDices(player2, new Dices().roll());
+		candidates = new BoardGenerator(null).generateBoards(player2, testPortes, testPortes.getBoard(), dicesList.getOption1());
+		Assert.assertTrue("Not enough candidates", candidates.size() > 4);
+
+		workers = Executors.newFixedThreadPool(2);
+	}
+
+	@After
+	public void tearDown() {
+		workers.shutdownNow();
+	}
+
+	@Test
+	public void testSequentialHalving() {
+		// 4 candidates: 2 rounds, so the scores fall into 3 bands
+		int[] scores = evaluate(new RolloutStrategy(workers, 2, 400, 4, Rollout.Policy.GREEDY));
+		int band = RolloutStrategy.LIMIT / 3;
+		int[] perBand = new int[4];
+		for(int score : scores) {
+			Assert.assertTrue("Score out of range: " + score, score >= 0 && score < RolloutStrategy.LIMIT);
+			perBand[(score == 0) ? 3 : score / band]++;
+		}
+		Assert.assertEquals("Candidates surviving both rounds", 1, perBand[2]);
+		Assert.assertEquals("Candidates surviving one round", 1, perBand[1]);
+		Assert.assertTrue("Candidates dropped in the first round", perBand[0] <= 2);
+		Assert.assertTrue("Candidates not rolled out", perBand[3] >= scores.length - 4);
+	}
+
+	@Test
+	public void testUnrolledCandidatesScoreZero() {
+		int[] scores = evaluate(new RolloutStrategy(workers, 2, 100, 2, Rollout.Policy.GREEDY));
+		int rolledOut = 0;
+		int winners = 0;
+		for(int score : scores) {
+			rolledOut += (score > 0) ? 1 : 0;
+			winners += (score >= RolloutStrategy.LIMIT / 2) ? 1 : 0;
+		}
+		Assert.assertEquals("Winners of the single round", 1, winners);
+		Assert.assertTrue("More candidates scored than rolled out: " + rolledOut, rolledOut <= 2);
+	}
+
+	@Test
+	public void testRolloutCap() {
+		for(int maxCandidates = 2; maxCandidates <= 5; maxCandidates++) {
+			RolloutStrategy strategy = new RolloutStrategy(workers, 2, 64, maxCandidates, Rollout.Policy.RANDOM);
+			evaluate(strategy);
+			Assert.assertTrue("No rollouts played", strategy.getLastRollouts() > 0L);
+			Assert.assertTrue("Too many rollouts: " + strategy.getLastRollouts(), strategy.getLastRollouts() <= 64L);
+			Assert.assertTrue("No rollouts per second", strategy.getLastRolloutsPerSecond() > 0.0d);
+		}
+	}
+
+	@Test
+	public void testSingleBoard() {
+		int[] scores = new int[1];
+		new RolloutStrategy(workers, 2, 64, 4, Rollout.Policy.GREEDY).evaluate(
+				player2, testPortes.getBoard(), candidates.subList(0, 1), player2.getPlayStyle(), scores);
+		Assert.assertEquals("Single candidate is not neutral", RolloutStrategy.LIMIT / 2, scores[0]);
+	}
+
+	@Test
+	public void testParsePolicy() {
+		Assert.assertEquals("Policy does not match", Rollout.Policy.RANDOM, RolloutStrategy.parsePolicy(" random "));
+		Assert.assertEquals("Missing policy does not match", Rollout.Policy.GREEDY, RolloutStrategy.parsePolicy(null));
+		Assert.assertEquals("Invalid policy does not match", Rollout.Policy.GREEDY, RolloutStrategy.parsePolicy("GREEDYY"));
+	}
+
+	private int[] evaluate(RolloutStrategy strategy) {
+		int[] scores = new int[candidates.size()];
+		strategy.evaluate(player2, testPortes.getBoard(), candidates, player2.getPlayStyle(), scores);
+		return scores;
+	}
+}
+
+class PortesRollout extends Portes {
+	@Override
+	protected List<Integer> getCheckerPositionsPlayer1() {
+		return Arrays.asList(20, 22, 22, 23, 23);
+	};
+
+	@Override
+	protected List<Integer> getCheckerPositionsPlayer2() {
+		return Arrays.asList(1, 1, 10, 10, 11, 11);
+	}
+
+	public IBoard getBoard() {
+		return this.board;
+	}
+
+	@Override
+	public DicesChoice findPlayableDices(IPlayer currentPlayer, IDices dices) {
+		return super.findPlayableDices(currentPlayer, dices);
+	}
+}
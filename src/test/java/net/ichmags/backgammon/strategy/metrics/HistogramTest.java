@@ -0,0 +1,49 @@
+package net.ichmags.backgammon.strategy.metrics;
+
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class HistogramTest {
+
+	@Test
+	public void testBucketBounds() {
+		for(long value : new long[]{0, 1, 15, 16, 17, 100, 1_000, 123_456_789L, Long.MAX_VALUE}) {
+			int bucket = Histogram.bucket(value);
+			Assert.assertTrue("Value " + value + " above its bucket", value <= Histogram.highestValue(bucket));
+			if(bucket > 0) {
+				Assert.assertTrue("Value " + value + " below its bucket", value > Histogram.highestValue(bucket - 1));
+			}
+		}
+	}
+
+	@Test
+	public void testPercentiles() {
+		Histogram histogram = new Histogram();
+		for(long value = 1; value <= 1000; value++) {
+			histogram.record(value);
+		}
+		HistogramSnapshot snapshot = histogram.snapshot();
+		Assert.assertEquals("Count does not match", 1000, snapshot.getCount());
+		Assert.assertEquals("Max does not match", 1000, snapshot.getMax());
+		Assert.assertEquals("Mean does not match", 500.5d, snapshot.getMean(), 1e-9);
+		
+		// the buckets are less than 12.5% wide
+		Assert.assertEquals("p50 does not match", 500, snapshot.getPercentile(50), 500 / 8);
+		Assert.assertEquals("p99 does not match", 990, snapshot.getPercentile(99), 990 / 8);
+		Assert.assertEquals("p100 is the max", 1000, snapshot.getPercentile(100));
+	}
+
+	@Test
+	public void testEngineMetricsSnapshot() {
+		EngineMetrics metrics = new EngineMetrics();
+		metrics.phaseCompleted(IEngineListener.Phase.GENERATION, 1500);
+		metrics.boardsGenerated(40, 20, 15);
+		
+		Map<String, HistogramSnapshot> snapshot = metrics.snapshot();
+		Assert.assertEquals("Generation count", 1, snapshot.get("phase.generation.nanos").getCount());
+		Assert.assertEquals("Replay count", 0, snapshot.get("phase.replay.nanos").getCount());
+		Assert.assertEquals("Unique ratio", 750, snapshot.get("generator.unique_permille").getMax());
+	}
+}
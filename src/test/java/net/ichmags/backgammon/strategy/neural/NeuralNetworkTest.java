@@ -0,0 +1,65 @@
+package net.ichmags.backgammon.strategy.neural;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import net.ichmags.backgammon.strategy.search.GameType;
+import net.ichmags.backgammon.strategy.search.SearchBoard;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class NeuralNetworkTest {
+
+	@Test
+	public void testBatchMatchesSingle() {
+		NeuralNetwork network = NeuralNetwork.random(BoardEncoder.INPUTS, 8, 7L);
+		SearchBoard board = new SearchBoard(GameType.PORTES);
+		NeuralTrainer.setStartPosition(board);
+
+		float[] matrix = new float[BoardEncoder.INPUTS * 2];
+		BoardEncoder.encode(board, SearchBoard.SELF, matrix, 0, 2);
+		board.make(SearchBoard.SELF, 1, 6);
+		BoardEncoder.encode(board, SearchBoard.SELF, matrix, 1, 2);
+		float[] outputs = new float[2];
+		network.evaluate(matrix, 2, outputs, new float[8 * 2]);
+
+		float[] input = new float[BoardEncoder.INPUTS];
+		float[] activations = new float[8];
+		BoardEncoder.encode(board, SearchBoard.SELF, input, 0, 1);
+		Assert.assertEquals("Batch and single evaluation differ", network.evaluate(input, activations), outputs[1], 1e-6f);
+		Assert.assertNotEquals("Positions are distinguished", outputs[0], outputs[1], 1e-9f);
+	}
+
+	@Test
+	public void testWriteRead() throws Exception {
+		NeuralNetwork network = NeuralNetwork.random(BoardEncoder.INPUTS, 4, 11L);
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		network.write(output);
+		Assert.assertEquals("File size", 16 + 4 * (4 * BoardEncoder.INPUTS + 4 + 4 + 1), output.size());
+
+		NeuralNetwork copy = NeuralNetwork.read(new ByteArrayInputStream(output.toByteArray()));
+		float[] input = new float[BoardEncoder.INPUTS];
+		SearchBoard board = new SearchBoard(GameType.PLAKOTO);
+		NeuralTrainer.setStartPosition(board);
+		BoardEncoder.encode(board, SearchBoard.OPPONENT, input, 0, 1);
+		Assert.assertEquals("Copy evaluates the same", network.evaluate(input, new float[4]), copy.evaluate(input, new float[4]), 0.0f);
+	}
+
+	@Test
+	public void testTrainMovesTowardsTarget() {
+		NeuralNetwork network = NeuralNetwork.random(BoardEncoder.INPUTS, 4, 3L);
+		float[] input = new float[BoardEncoder.INPUTS];
+		SearchBoard board = new SearchBoard(GameType.FEVGA);
+		NeuralTrainer.setStartPosition(board);
+		BoardEncoder.encode(board, SearchBoard.SELF, input, 0, 1);
+
+		float[] activations = new float[4];
+		float before = network.train(input, 1.0f, 0.1f, activations);
+		Assert.assertTrue("Value increases", network.evaluate(input, activations) > before);
+
+		NeuralTrainer trainer = new NeuralTrainer(GameType.FEVGA, network, 0.1f, 0.1d, 5L);
+		trainer.train(2, NeuralTrainer.DEFAULT_MAX_MOVES);
+		Assert.assertEquals("Games were finished", 2L, trainer.getGames());
+	}
+}
@@ -0,0 +1,113 @@
+package net.ichmags.backgammon.strategy.race;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import net.ichmags.backgammon.game.impl.Portes;
+import net.ichmags.backgammon.setup.CheckerColor;
+import net.ichmags.backgammon.setup.IBoard;
+import net.ichmags.backgammon.setup.IDices;
+import net.ichmags.backgammon.setup.IPlayer;
+import net.ichmags.backgammon.setup.impl.DiceGenerator;
+import net.ichmags.backgammon.setup.impl.Dices;
+import net.ichmags.backgammon.setup.impl.DicesChoice;
+import net.ichmags.backgammon.setup.impl.Player;
+import net.ichmags.backgammon.strategy.BoardGenerator;
+import net.ichmags.backgammon.strategy.BoardMovesCombination;
+import net.ichmags.backgammon.strategy.search.GameType;
+import net.ichmags.backgammon.strategy.search.SearchBoard;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RaceGeneratorTest {
+
+	private IPlayer player1;
+	private IPlayer player2;
+	
+	@Before
+	public void setUp() throws Exception {
+		player1 = new Player().initialize("Tester 1", IPlayer.ID.ONE, IPlayer.Type.LOCAL, Player.Level.AVERAGE, CheckerColor.WHITE);
+		player2 = new Player().initialize("Tester 2", IPlayer.ID.TWO, IPlayer.Type.COMPUTER, Player.Level.AVERAGE, CheckerColor.BLACK);
+	}
+
+	@Test
+	public void testRaceDetection() {
+		SearchBoard portes = new SearchBoard(GameType.PORTES);
+		portes.set(SearchBoard.SELF, 13, 1);
+		portes.set(SearchBoard.OPPONENT, 12, 1);
+		portes.recount();
+		Assert.assertFalse("Checkers on the same point can meet", portes.isRace());
+		portes.set(SearchBoard.OPPONENT, 12, 0);
+		portes.set(SearchBoard.OPPONENT, 13, 1);
+		portes.recount();
+		Assert.assertTrue("Checkers have passed each other", portes.isRace());
+
+		SearchBoard fevga = new SearchBoard(GameType.FEVGA);
+		fevga.set(SearchBoard.SELF, 13, 1);
+		fevga.set(SearchBoard.OPPONENT, 13, 1);
+		fevga.recount();
+		Assert.assertTrue("Both sides in their second half", fevga.isRace());
+		fevga.set(SearchBoard.OPPONENT, 12, 1);
+		fevga.recount();
+		Assert.assertFalse("Opponent still has to pass", fevga.isRace());
+	}
+
+	@Test
+	public void testEffectivePipCount() {
+		SearchBoard board = new SearchBoard(GameType.PORTES);
+		board.set(SearchBoard.SELF, SearchBoard.OFF - 1, 3);
+		board.recount();
+		// 3 pips, 2 * 2 for the stack on the lowest point, 3 gaps on the highest points
+		Assert.assertEquals("Effective pip count", 10, RaceEvaluator.getEffectivePipCount(board, SearchBoard.SELF));
+	}
+
+	@Test
+	public void testFindBest() {
+		PortesRace testPortes = new PortesRace();
+		testPortes.initialize(player1, player2, null);
+		DiceGenerator.get().load(new int[]{5, 2});
+		IDices dices = new Dices().roll();
+		IBoard before = testPortes.getBoard().clone();
+		
+		Assert.assertTrue("Position is a race", RaceGenerator.isRace(player2, testPortes, testPortes.getBoard()));
+		DicesChoice dicesChoice = testPortes.findPlayableDices(player2, dices);
+		RaceGenerator generator = new RaceGenerator(GameType.PORTES, new RaceEvaluator());
+		BoardMovesCombination best = generator.findBest(player2, testPortes, testPortes.getBoard(), dicesChoice.getAsList());
+		Assert.assertNotNull("A move is found", best);
+		Assert.assertEquals("Both dices are played", 2, best.getMoves().get().size());
+		Assert.assertTrue("Transpositions are counted once", generator.getUniqueCount() <= generator.getBoardsFound());
+		Assert.assertEquals("Board before and after is equal", before, testPortes.getBoard());
+		
+		// the outcome is one of the outcomes of the full generator
+		List<BoardMovesCombination> all = new ArrayList<>();
+		new BoardGenerator(null).generateBoards(player2, testPortes, testPortes.getBoard(), dicesChoice.getOption1(),
+				leaf -> all.add(leaf.keep()));
+		Assert.assertTrue("Outcome is possible", all.stream().anyMatch(candidate -> candidate.getBoard().equals(best.getBoard())));
+		Assert.assertEquals("Same number of distinct outcomes", new HashSet<>(all).size(), generator.getUniqueCount());
+	}
+}
+
+class PortesRace extends Portes {
+	@Override
+	protected List<Integer> getCheckerPositionsPlayer1() {
+		return Arrays.asList(14, 19, 21, 23);
+	};
+	
+	@Override
+	protected List<Integer> getCheckerPositionsPlayer2() {
+		return Arrays.asList(13, 18, 20, 22);
+	}
+	
+	public IBoard getBoard() {
+		return this.board;
+	}
+	
+	@Override
+	public DicesChoice findPlayableDices(IPlayer currentPlayer, IDices dices) {
+		return super.findPlayableDices(currentPlayer, dices);
+	}
+}
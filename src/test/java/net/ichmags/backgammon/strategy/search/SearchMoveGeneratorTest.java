@@ -0,0 +1,256 @@
+package net.ichmags.backgammon.strategy.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import net.ichmags.backgammon.game.IGame;
+import net.ichmags.backgammon.game.impl.Fevga;
+import net.ichmags.backgammon.game.impl.Plakoto;
+import net.ichmags.backgammon.game.impl.Portes;
+import net.ichmags.backgammon.setup.CheckerColor;
+import net.ichmags.backgammon.setup.IBoard;
+import net.ichmags.backgammon.setup.IDices;
+import net.ichmags.backgammon.setup.IPlayer;
+import net.ichmags.backgammon.setup.impl.DiceGenerator;
+import net.ichmags.backgammon.setup.impl.Dices;
+import net.ichmags.backgammon.setup.impl.DicesChoice;
+import net.ichmags.backgammon.setup.impl.Player;
+import net.ichmags.backgammon.strategy.BoardGenerator;
+import net.ichmags.backgammon.strategy.BoardMovesCombination;
+import net.ichmags.backgammon.strategy.PackedBoard;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SearchMoveGeneratorTest {
+
+	private static SearchBoard createBoard(GameType type) {
+		SearchBoard board = new SearchBoard(type);
+		board.set(SearchBoard.SELF, 1, 2);
+		board.set(SearchBoard.OPPONENT, 1, 2);
+		board.set(SearchBoard.OPPONENT, type.opponentIndex(3), 1);
+		board.recount();
+		return board;
+	}
+
+	@Test
+	public void testGeneratePositions() {
+		SearchBoard board = createBoard(GameType.PORTES);
+		long hash = board.hash();
+		PositionBuffer positions = new PositionBuffer(1);
+		
+		// 1-2: {2, 3}, {1, 4}; both orders of the dices reach the same positions
+		int count = new SearchMoveGenerator().generate(board, SearchBoard.SELF, 1, 2, positions);
+		Assert.assertEquals("Number of positions does not match", 2, count);
+		Assert.assertEquals("Board is changed by the generator", hash, board.hash());
+		
+		// 6-6: {13, 13}, {7, 19}; collecting is not allowed yet
+		count = new SearchMoveGenerator().generate(board, SearchBoard.SELF, 6, 6, positions);
+		Assert.assertEquals("Number of positions does not match", 2, count);
+	}
+
+	@Test
+	public void testHitAndUnmake() {
+		SearchBoard board = createBoard(GameType.PORTES);
+		long hash = board.hash();
+		
+		board.make(SearchBoard.SELF, 1, 2);
+		Assert.assertEquals("Checker is not hit", 1, board.getCount(SearchBoard.OPPONENT, SearchBoard.BAR));
+		Assert.assertEquals("Checker is not hit", 0, board.getCount(SearchBoard.OPPONENT, GameType.PORTES.opponentIndex(3)));
+		Assert.assertFalse("Hit checker is not outside of the home", board.isAllHome(SearchBoard.OPPONENT));
+		
+		board.unmake();
+		Assert.assertEquals("Unmake does not restore the board", hash, board.hash());
+	}
+
+	@Test
+	public void testPinAndUnmake() {
+		SearchBoard board = createBoard(GameType.PLAKOTO);
+		long hash = board.hash();
+		int pinnedIndex = GameType.PLAKOTO.opponentIndex(3);
+		
+		board.make(SearchBoard.SELF, 1, 2);
+		Assert.assertTrue("Checker is not pinned", board.isPinned(SearchBoard.OPPONENT, pinnedIndex));
+		Assert.assertFalse("Pinned checker can move", board.canMove(SearchBoard.OPPONENT, pinnedIndex, 1));
+		
+		board.unmake();
+		Assert.assertFalse("Unmake does not free the checker", board.isPinned(SearchBoard.OPPONENT, pinnedIndex));
+		Assert.assertEquals("Unmake does not restore the board", hash, board.hash());
+	}
+
+	@Test
+	public void testFevgaBlocks() {
+		SearchBoard board = createBoard(GameType.FEVGA);
+		Assert.assertFalse("Single checker of the opponent does not block", board.canMove(SearchBoard.SELF, 1, 2));
+		Assert.assertTrue("Free position is blocked", board.canMove(SearchBoard.SELF, 1, 1));
+	}
+
+	@Test
+	public void testSamePositionsAsBoardGenerator() {
+		IPlayer player1 = new Player().initialize("Tester 1", IPlayer.ID.ONE, IPlayer.Type.LOCAL, Player.Level.AVERAGE, CheckerColor.WHITE);
+		IPlayer player2 = new Player().initialize("Tester 2", IPlayer.ID.TWO, IPlayer.Type.COMPUTER, Player.Level.AVERAGE, CheckerColor.BLACK);
+		List<IGame> games = Arrays.<IGame>asList(new StartPortes(), new ContactPortes(), new ContactPlakoto(), new ContactFevga());
+		
+		// the start rules of Fevga are not part of the SearchBoard, so only positions after the start are compared
+		int compared = 0;
+		for(IGame game : games) {
+			game.initialize(player1, player2, null);
+			for(IPlayer player : Arrays.asList(player1, player2)) {
+				for(int dice1 = 1; dice1 <= 6; dice1++) {
+					for(int dice2 = dice1; dice2 <= 6; dice2++) {
+						Set<List<Integer>> expected = generatorPositions(game, player, dice1, dice2);
+						Set<List<Integer>> actual = searchPositions(game, player, dice1, dice2);
+						Assert.assertEquals(game.getClass().getSimpleName() + " " + player.getID() + " " + dice1 + "-" + dice2
+								+ ": positions differ", expected, actual);
+						compared += expected.size();
+					}
+				}
+			}
+		}
+		Assert.assertTrue("No positions were compared", compared > 0);
+	}
+	
+	private static Set<List<Integer>> generatorPositions(IGame game, IPlayer player, int dice1, int dice2) {
+		DifferentialGame turns = (DifferentialGame)game;
+		Set<List<Integer>> positions = new HashSet<>();
+		DiceGenerator.get().load(new int[]{dice1, dice2});
+		IDices dices = new Dices().roll();
+		if( ! turns.checkIfAnyMoveIsPossible(player, dices)) {
+			return positions;
+		}
+		
+		BoardGenerator generator = new BoardGenerator(null).setPruneTranspositions(true);
+		SearchBoard position = new SearchBoard(GameType.of(game));
+		for(IDices option : turns.findPlayableDices(player, dices).getAsList()) {
+			for(BoardMovesCombination generated : generator.generateBoards(player, game, turns.getBoard(), option)) {
+				position.load(generated.getSnapshot(), player.getID().ordinal());
+				positions.add(state(position));
+			}
+		}
+		return positions;
+	}
+	
+	private static Set<List<Integer>> searchPositions(IGame game, IPlayer player, int dice1, int dice2) {
+		GameType type = GameType.of(game);
+		SearchBoard root = new SearchBoard(type);
+		root.load(new PackedBoard(player, game, ((DifferentialGame)game).getBoard()).snapshot(), player.getID().ordinal());
+		PositionBuffer buffer = new PositionBuffer(64);
+		int count = new SearchMoveGenerator().generate(root, SearchBoard.SELF, dice1, dice2, buffer);
+		
+		Set<List<Integer>> positions = new HashSet<>();
+		SearchBoard position = new SearchBoard(type);
+		for(int index = 0; index < count; index++) {
+			buffer.load(index, position);
+			positions.add(state(position));
+		}
+		return positions;
+	}
+	
+	private static List<Integer> state(SearchBoard board) {
+		int[] buffer = new int[SearchBoard.STATE_SIZE];
+		board.store(buffer, 0);
+		List<Integer> state = new ArrayList<>(buffer.length);
+		for(int value : buffer) {
+			state.add(value);
+		}
+		return state;
+	}
+}
+
+/**
+ * Access to the turn handling of the {@link IGame} implementations, which is {@code protected}.
+ */
+interface DifferentialGame {
+	
+	IBoard getBoard();
+	
+	boolean checkIfAnyMoveIsPossible(IPlayer currentPlayer, IDices dices);
+	
+	DicesChoice findPlayableDices(IPlayer currentPlayer, IDices dices);
+}
+
+class StartPortes extends Portes implements DifferentialGame {
+	@Override
+	public IBoard getBoard() {
+		return this.board;
+	}
+	
+	@Override
+	public boolean checkIfAnyMoveIsPossible(IPlayer currentPlayer, IDices dices) {
+		return super.checkIfAnyMoveIsPossible(currentPlayer, dices);
+	}
+	
+	@Override
+	public DicesChoice findPlayableDices(IPlayer currentPlayer, IDices dices) {
+		return super.findPlayableDices(currentPlayer, dices);
+	}
+}
+
+class ContactPortes extends StartPortes {
+	@Override
+	protected List<Integer> getCheckerPositionsPlayer1() {
+		return Arrays.asList(2, 2, 5, 5, 14, 14, 18, 18);
+	};
+	
+	@Override
+	protected List<Integer> getCheckerPositionsPlayer2() {
+		return Arrays.asList(3, 3, 5, 14, 14, 19);
+	}
+}
+
+class ContactPlakoto extends Plakoto implements DifferentialGame {
+	@Override
+	protected List<Integer> getCheckerPositionsPlayer1() {
+		return Arrays.asList(1, 1, 1, 1, 1, 4, 8, 12, 13, 17, 19, 21, 21, 22, 23);
+	};
+	
+	@Override
+	protected List<Integer> getCheckerPositionsPlayer2() {
+		return Arrays.asList(1, 1, 1, 1, 1, 7, 9, 11, 15, 19, 20, 20, 22, 23, 23);
+	}
+	
+	@Override
+	public IBoard getBoard() {
+		return this.board;
+	}
+	
+	@Override
+	public boolean checkIfAnyMoveIsPossible(IPlayer currentPlayer, IDices dices) {
+		return super.checkIfAnyMoveIsPossible(currentPlayer, dices);
+	}
+	
+	@Override
+	public DicesChoice findPlayableDices(IPlayer currentPlayer, IDices dices) {
+		return super.findPlayableDices(currentPlayer, dices);
+	}
+}
+
+class ContactFevga extends Fevga implements DifferentialGame {
+	@Override
+	protected List<Integer> getCheckerPositionsPlayer1() {
+		return Arrays.asList(1, 1, 3, 4, 5, 7, 7, 8, 9, 14, 15, 16, 17, 23, 24);
+	};
+	
+	@Override
+	protected List<Integer> getCheckerPositionsPlayer2() {
+		return Arrays.asList(1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 14, 14, 14, 14, 23);
+	}
+	
+	@Override
+	public IBoard getBoard() {
+		return this.board;
+	}
+	
+	@Override
+	public boolean checkIfAnyMoveIsPossible(IPlayer currentPlayer, IDices dices) {
+		return super.checkIfAnyMoveIsPossible(currentPlayer, dices);
+	}
+	
+	@Override
+	public DicesChoice findPlayableDices(IPlayer currentPlayer, IDices dices) {
+		return super.findPlayableDices(currentPlayer, dices);
+	}
+}